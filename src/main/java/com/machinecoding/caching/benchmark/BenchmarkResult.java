@@ -0,0 +1,81 @@
+package com.machinecoding.caching.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Outcome of replaying one trace through one policy at one capacity and thread count.
+ */
+public class BenchmarkResult {
+    /** Capacity reported for a store with no capacity limit */
+    public static final int UNBOUNDED = 0;
+    
+    private final String trace;
+    private final String policy;
+    private final int capacity;
+    private final int threads;
+    private final long operations;
+    private final long hits;
+    private final long elapsedNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    
+    public BenchmarkResult(String trace, String policy, int capacity, int threads,
+                           long operations, long hits, long elapsedNanos,
+                           long p50Nanos, long p99Nanos, long p999Nanos) {
+        this.trace = trace;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.threads = threads;
+        this.operations = operations;
+        this.hits = hits;
+        this.elapsedNanos = elapsedNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+    }
+    
+    public String getTrace() { return trace; }
+    public String getPolicy() { return policy; }
+    public int getCapacity() { return capacity; }
+    public boolean isBounded() { return capacity != UNBOUNDED; }
+    public int getThreads() { return threads; }
+    public long getOperations() { return operations; }
+    public long getHits() { return hits; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getP50Nanos() { return p50Nanos; }
+    public long getP99Nanos() { return p99Nanos; }
+    public long getP999Nanos() { return p999Nanos; }
+    
+    public double getHitRate() {
+        return operations == 0 ? 0.0 : (double) hits / operations * 100;
+    }
+    
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : operations * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    public static String csvHeader() {
+        return "trace,policy,capacity,threads,operations,hit_rate,ops_per_sec,p50_ns,p99_ns,p999_ns";
+    }
+    
+    public String toCsvRow() {
+        return String.format(Locale.ROOT, "\"%s\",\"%s\",%s,%d,%d,%.4f,%.0f,%d,%d,%d",
+                             trace, policy, capacityText(), threads, operations,
+                             getHitRate(), getThroughput(), p50Nanos, p99Nanos, p999Nanos);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "BenchmarkResult{%s, %s, capacity=%s, threads=%d, hitRate=%.2f%%, " +
+            "throughput=%.0f ops/sec, p50=%dns, p99=%dns, p999=%dns}",
+            trace, policy, capacityText(), threads, getHitRate(), getThroughput(),
+            p50Nanos, p99Nanos, p999Nanos
+        );
+    }
+    
+    private String capacityText() {
+        return isBounded() ? String.valueOf(capacity) : "n/a";
+    }
+}
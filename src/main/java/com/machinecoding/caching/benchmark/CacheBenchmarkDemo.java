@@ -0,0 +1,128 @@
+package com.machinecoding.caching.benchmark;
+
+import com.machinecoding.caching.lru.ARCCache;
+import com.machinecoding.caching.lru.BasicLRUCache;
+import com.machinecoding.caching.lru.ConcurrentLRUCache;
+import com.machinecoding.caching.lru.WTinyLFUCache;
+import com.machinecoding.caching.store.InMemoryKeyValueStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Demonstrates trace-driven comparison of cache policies.
+ *
+ * Usage: CacheBenchmarkDemo [trace-file [csv-file]]
+ * Without arguments synthetic traces are used and the CSV is printed.
+ */
+public class CacheBenchmarkDemo {
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("=== Cache Policy Benchmark Demo ===\n");
+        
+        // Demo 1: Traces from generators and from disk
+        System.out.println("=== Demo 1: Traces ===");
+        List<Trace> traces = loadTraces(args);
+        
+        // Demo 2: Hit rate across capacities
+        System.out.println("\n=== Demo 2: Policy Hit Rates by Capacity ===");
+        List<BenchmarkResult> results = new ArrayList<>(comparePolicies(traces));
+        
+        // Demo 3: Throughput and tail latency across threads
+        System.out.println("\n=== Demo 3: Throughput and Latency by Thread Count ===");
+        results.addAll(compareThreads(traces.get(0)));
+        
+        // Demo 4: CSV for plotting
+        System.out.println("\n=== Demo 4: CSV Output ===");
+        if (args.length > 1) {
+            TraceReplayBenchmark.writeCsv(results, Paths.get(args[1]));
+            System.out.println("Wrote " + results.size() + " rows to " + args[1]);
+        } else {
+            StringBuilder csv = new StringBuilder();
+            TraceReplayBenchmark.writeCsv(results.subList(0, Math.min(6, results.size())), csv);
+            System.out.print(csv);
+            System.out.println("... " + results.size() + " rows in total; pass a CSV path to save them all");
+        }
+        
+        System.out.println("\n=== Demo Complete ===");
+    }
+    
+    private static List<Trace> loadTraces(String[] args) throws IOException {
+        List<Trace> traces = new ArrayList<>();
+        if (args.length > 0) {
+            Trace trace = Trace.read(Paths.get(args[0]));
+            System.out.println("1. Loaded " + trace + " with " + trace.distinctKeys() + " distinct keys");
+            traces.add(trace);
+            return traces;
+        }
+        
+        traces.add(Trace.zipf(100_000, 0.9, 1_000_000, 42));
+        traces.add(Trace.scan(2_000, 0.5, 1_000_000, 42));
+        traces.add(Trace.loop(5_000, 1_000_000));
+        System.out.println("1. Generated traces:");
+        for (Trace trace : traces) {
+            System.out.println(String.format("   %-26s %,d accesses, %,d distinct keys",
+                trace.getName(), trace.length(), trace.distinctKeys()));
+        }
+        
+        System.out.println("\n2. Binary round trip:");
+        Path file = Files.createTempFile("zipf", ".trace");
+        try {
+            traces.get(0).write(file);
+            Trace restored = Trace.read(file);
+            System.out.println(String.format("   %s: %,d bytes, %.2f bytes per access, identical: %b",
+                file.getFileName(), Files.size(file), (double) Files.size(file) / restored.length(),
+                restored.keyAt(restored.length() - 1) == traces.get(0).keyAt(restored.length() - 1)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return traces;
+    }
+    
+    private static List<BenchmarkResult> comparePolicies(List<Trace> traces) throws InterruptedException {
+        TraceReplayBenchmark.Builder builder = TraceReplayBenchmark.builder()
+            .cache("BasicLRUCache", BasicLRUCache::new, false)
+            .cache("WTinyLFUCache", WTinyLFUCache::new, false)
+            .cache("ARCCache", ARCCache::new, false)
+            .capacities(1_000, 4_000, 16_000);
+        for (Trace trace : traces) {
+            builder.trace(trace);
+        }
+        List<BenchmarkResult> results = builder.build().run();
+        
+        System.out.println(String.format("   %-26s %-14s %8s %8s %8s",
+            "trace", "policy", "1000", "4000", "16000"));
+        for (int i = 0; i < results.size(); i += 3) {
+            BenchmarkResult first = results.get(i);
+            System.out.println(String.format("   %-26s %-14s %7.1f%% %7.1f%% %7.1f%%",
+                first.getTrace(), first.getPolicy(), first.getHitRate(),
+                results.get(i + 1).getHitRate(), results.get(i + 2).getHitRate()));
+        }
+        return results;
+    }
+    
+    private static List<BenchmarkResult> compareThreads(Trace trace) throws InterruptedException {
+        List<BenchmarkResult> results = TraceReplayBenchmark.builder()
+            .trace(trace)
+            .cache("ConcurrentLRUCache", capacity -> new ConcurrentLRUCache<>(capacity, 16), true)
+            .unboundedStore("InMemoryKeyValueStore", () -> new InMemoryKeyValueStore<>(false, 0))
+            .capacities(10_000)
+            .threads(1, 4)
+            .build()
+            .run();
+        
+        System.out.println("   " + trace.getName() + ", caches at capacity 10,000:");
+        for (BenchmarkResult result : results) {
+            System.out.println(String.format(
+                "   %-22s %-9s %d threads: %,12.0f ops/sec, hit rate %5.1f%%, p50 %,dns, p99 %,dns, p999 %,dns",
+                result.getPolicy(), result.isBounded() ? String.valueOf(result.getCapacity()) : "unbounded",
+                result.getThreads(), result.getThroughput(), result.getHitRate(),
+                result.getP50Nanos(), result.getP99Nanos(), result.getP999Nanos()));
+        }
+        return results;
+    }
+}
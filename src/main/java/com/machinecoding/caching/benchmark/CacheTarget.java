@@ -0,0 +1,38 @@
+package com.machinecoding.caching.benchmark;
+
+import com.machinecoding.caching.lru.LRUCache;
+import com.machinecoding.caching.store.KeyValueStore;
+
+/**
+ * A cache under test, seen as a single cache-aside access: look the key up and
+ * store it on a miss.
+ */
+public interface CacheTarget {
+    
+    /**
+     * Accesses a key, inserting it on a miss.
+     *
+     * @return true if the key was already cached
+     */
+    boolean access(long key);
+    
+    static CacheTarget forCache(LRUCache<Long, Long> cache) {
+        return key -> {
+            if (cache.get(key) != null) {
+                return true;
+            }
+            cache.put(key, key);
+            return false;
+        };
+    }
+    
+    static CacheTarget forStore(KeyValueStore<Long, Long> store) {
+        return key -> {
+            if (store.get(key).isPresent()) {
+                return true;
+            }
+            store.put(key, key);
+            return false;
+        };
+    }
+}
@@ -0,0 +1,199 @@
+package com.machinecoding.caching.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * An immutable sequence of key accesses to replay against a cache.
+ *
+ * Features:
+ * - Synthetic generators for Zipf-distributed, scan-polluted and looping workloads
+ * - Compact binary file format, so captured production traces can be replayed
+ *
+ * File format (big-endian):
+ * - int magic "KTRC", byte version, UTF name, int length
+ * - one zigzag varint per access holding the difference to the previous key,
+ *   so traces with locality take one or two bytes per access
+ */
+public final class Trace {
+    
+    private static final int MAGIC = 0x4B545243; // "KTRC"
+    private static final byte VERSION = 1;
+    
+    private final String name;
+    private final long[] keys;
+    
+    public Trace(String name, long[] keys) {
+        if (name == null || keys == null) {
+            throw new IllegalArgumentException("Name and keys cannot be null");
+        }
+        this.name = name;
+        this.keys = keys.clone();
+    }
+    
+    /**
+     * Accesses drawn from a Zipf distribution: key k (1-based rank) is chosen with
+     * probability proportional to 1 / k^exponent. Exponents around 0.7-1.0 match
+     * typical web and storage workloads.
+     */
+    public static Trace zipf(int distinctKeys, double exponent, int length, long seed) {
+        if (distinctKeys <= 0 || length < 0 || exponent < 0) {
+            throw new IllegalArgumentException("Invalid Zipf parameters");
+        }
+        
+        double[] cumulative = new double[distinctKeys];
+        double sum = 0;
+        for (int rank = 1; rank <= distinctKeys; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        
+        Random random = new Random(seed);
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = distinctKeys - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            keys[i] = low;
+        }
+        return new Trace(String.format("zipf(n=%d,s=%.2f)", distinctKeys, exponent), keys);
+    }
+    
+    /**
+     * A uniformly accessed hot set polluted by a sequential scan: each access is,
+     * with probability scanShare, the next key of a scan that never repeats.
+     */
+    public static Trace scan(int hotKeys, double scanShare, int length, long seed) {
+        if (hotKeys <= 0 || length < 0 || scanShare < 0 || scanShare > 1) {
+            throw new IllegalArgumentException("Invalid scan parameters");
+        }
+        
+        Random random = new Random(seed);
+        long[] keys = new long[length];
+        long nextScanKey = hotKeys;
+        for (int i = 0; i < length; i++) {
+            keys[i] = random.nextDouble() < scanShare ? nextScanKey++ : random.nextInt(hotKeys);
+        }
+        return new Trace(String.format("scan(hot=%d,share=%.2f)", hotKeys, scanShare), keys);
+    }
+    
+    /**
+     * Keys 0..loopSize-1 accessed in order, over and over. LRU gets no hits at all
+     * once the loop is larger than the cache.
+     */
+    public static Trace loop(int loopSize, int length) {
+        if (loopSize <= 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid loop parameters");
+        }
+        
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = i % loopSize;
+        }
+        return new Trace("loop(" + loopSize + ")", keys);
+    }
+    
+    /**
+     * Reads a trace written by {@link #write(Path)}.
+     */
+    public static Trace read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported trace version " + version + " in " + file);
+            }
+            
+            String name = in.readUTF();
+            long[] keys = new long[in.readInt()];
+            long previous = 0;
+            for (int i = 0; i < keys.length; i++) {
+                long zigzag = readVarLong(in);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                keys[i] = previous;
+            }
+            return new Trace(name, keys);
+        }
+    }
+    
+    /**
+     * Writes the trace in the compact binary format.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(name);
+            out.writeInt(keys.length);
+            long previous = 0;
+            for (long key : keys) {
+                long delta = key - previous;
+                writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                previous = key;
+            }
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int length() {
+        return keys.length;
+    }
+    
+    public long keyAt(int index) {
+        return keys[index];
+    }
+    
+    public int distinctKeys() {
+        Set<Long> distinct = new HashSet<>();
+        for (long key : keys) {
+            distinct.add(key);
+        }
+        return distinct.size();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Trace{%s, accesses=%d}", name, keys.length);
+    }
+    
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trace");
+    }
+}
@@ -0,0 +1,286 @@
+package com.machinecoding.caching.benchmark;
+
+import com.machinecoding.caching.lru.LRUCache;
+import com.machinecoding.caching.store.KeyValueStore;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Replays key-access traces through cache policies and measures them.
+ *
+ * Features:
+ * - Works with any LRUCache or KeyValueStore, or a custom CacheTarget
+ * - Sweeps every combination of trace, policy, capacity and thread count
+ * - Reports hit rate, throughput and p50/p99/p999 latency per access
+ * - Writes results as CSV for plotting hit-rate and throughput curves
+ *
+ * Each run builds a fresh cache. With N threads, thread t replays accesses
+ * t, t+N, t+2N, ... of the trace, so the threads together keep the trace's order
+ * roughly intact. Policies that are not thread-safe are only run single-threaded,
+ * and unbounded stores are run once, reported with capacity n/a.
+ * Before each policy is timed at a capacity the trace is replayed once through a
+ * throwaway instance of that capacity, so that timing starts from JIT-compiled code
+ * on the paths that capacity exercises (a small cache evicts far more often).
+ *
+ * Latency is taken with System.nanoTime() around every access, so it includes
+ * the timer's own cost (a few tens of nanoseconds on most platforms).
+ */
+public class TraceReplayBenchmark {
+    
+    private static final int[] UNBOUNDED = {BenchmarkResult.UNBOUNDED};
+    
+    private final List<Trace> traces;
+    private final List<Policy> policies;
+    private final int[] capacities;
+    private final int[] threadCounts;
+    private final boolean warmup;
+    
+    private TraceReplayBenchmark(Builder builder) {
+        this.traces = new ArrayList<>(builder.traces);
+        this.policies = new ArrayList<>(builder.policies);
+        this.capacities = builder.capacities.clone();
+        this.threadCounts = builder.threadCounts.clone();
+        this.warmup = builder.warmup;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Runs the full sweep.
+     *
+     * @return one result per trace, policy, capacity and applicable thread count
+     */
+    public List<BenchmarkResult> run() throws InterruptedException {
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (Trace trace : traces) {
+            for (Policy policy : policies) {
+                for (int capacity : policy.bounded ? capacities : UNBOUNDED) {
+                    if (warmup) {
+                        replay(trace, policy.factory.apply(capacity), 1, 0, new long[trace.length()]);
+                    }
+                    for (int threads : threadCounts) {
+                        if (threads > 1 && !policy.threadSafe) {
+                            continue;
+                        }
+                        results.add(runOne(trace, policy, capacity, threads));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Writes results as CSV with a header row.
+     */
+    public static void writeCsv(List<BenchmarkResult> results, Appendable out) throws IOException {
+        out.append(BenchmarkResult.csvHeader()).append('\n');
+        for (BenchmarkResult result : results) {
+            out.append(result.toCsvRow()).append('\n');
+        }
+    }
+    
+    public static void writeCsv(List<BenchmarkResult> results, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(results, writer);
+        }
+    }
+    
+    private BenchmarkResult runOne(Trace trace, Policy policy, int capacity, int threads)
+            throws InterruptedException {
+        CacheTarget target = policy.factory.apply(capacity);
+        int length = trace.length();
+        long[][] latencies = new long[threads][];
+        long[] hits = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            latencies[t] = new long[(length - t + threads - 1) / threads];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    hits[offset] = replay(trace, target, threads, offset, latencies[offset]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "TraceReplay-" + t);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - startTime;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        
+        long totalHits = 0;
+        long[] merged = new long[length];
+        int position = 0;
+        for (int t = 0; t < threads; t++) {
+            totalHits += hits[t];
+            System.arraycopy(latencies[t], 0, merged, position, latencies[t].length);
+            position += latencies[t].length;
+        }
+        Arrays.sort(merged);
+        
+        return new BenchmarkResult(trace.getName(), policy.name, capacity, threads,
+                                   length, totalHits, elapsed,
+                                   percentile(merged, 0.50), percentile(merged, 0.99),
+                                   percentile(merged, 0.999));
+    }
+    
+    /**
+     * Replays every stride-th access starting at offset, recording each latency.
+     *
+     * @return number of hits
+     */
+    private static long replay(Trace trace, CacheTarget target, int stride, int offset, long[] latencies) {
+        long hits = 0;
+        int recorded = 0;
+        for (int i = offset; i < trace.length(); i += stride) {
+            long key = trace.keyAt(i);
+            long startTime = System.nanoTime();
+            boolean hit = target.access(key);
+            latencies[recorded++] = System.nanoTime() - startTime;
+            if (hit) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+    
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+    
+    private static class Policy {
+        final String name;
+        final IntFunction<CacheTarget> factory;
+        final boolean threadSafe;
+        final boolean bounded;
+        
+        Policy(String name, IntFunction<CacheTarget> factory, boolean threadSafe, boolean bounded) {
+            this.name = name;
+            this.factory = factory;
+            this.threadSafe = threadSafe;
+            this.bounded = bounded;
+        }
+    }
+    
+    public static class Builder {
+        private final List<Trace> traces = new ArrayList<>();
+        private final List<Policy> policies = new ArrayList<>();
+        private int[] capacities = {1000};
+        private int[] threadCounts = {1};
+        private boolean warmup = true;
+        
+        private Builder() {
+        }
+        
+        public Builder trace(Trace trace) {
+            if (trace == null) {
+                throw new IllegalArgumentException("Trace cannot be null");
+            }
+            traces.add(trace);
+            return this;
+        }
+        
+        /**
+         * Adds an LRUCache policy, built for each run from the capacity under test.
+         *
+         * @param threadSafe whether the cache may be shared by several threads
+         */
+        public Builder cache(String name, IntFunction<? extends LRUCache<Long, Long>> factory, boolean threadSafe) {
+            return target(name, capacity -> CacheTarget.forCache(factory.apply(capacity)), threadSafe);
+        }
+        
+        /**
+         * Adds a KeyValueStore, built for each run from the capacity under test, which
+         * the factory must enforce; see unboundedStore otherwise. Stores are assumed
+         * to be thread-safe.
+         */
+        public Builder store(String name, IntFunction<? extends KeyValueStore<Long, Long>> factory) {
+            return target(name, capacity -> CacheTarget.forStore(factory.apply(capacity)), true);
+        }
+        
+        /**
+         * Adds a KeyValueStore with no capacity limit. It is run once per trace and
+         * thread count rather than once per capacity, since every capacity would
+         * measure the same thing.
+         */
+        public Builder unboundedStore(String name, Supplier<? extends KeyValueStore<Long, Long>> factory) {
+            if (factory == null) {
+                throw new IllegalArgumentException("Name and factory cannot be null");
+            }
+            return add(name, capacity -> CacheTarget.forStore(factory.get()), true, false);
+        }
+        
+        public Builder target(String name, IntFunction<CacheTarget> factory, boolean threadSafe) {
+            return add(name, factory, threadSafe, true);
+        }
+        
+        private Builder add(String name, IntFunction<CacheTarget> factory, boolean threadSafe, boolean bounded) {
+            if (name == null || factory == null) {
+                throw new IllegalArgumentException("Name and factory cannot be null");
+            }
+            policies.add(new Policy(name, factory, threadSafe, bounded));
+            return this;
+        }
+        
+        public Builder capacities(int... capacities) {
+            if (capacities.length == 0 || Arrays.stream(capacities).anyMatch(c -> c <= 0)) {
+                throw new IllegalArgumentException("Capacities must be positive");
+            }
+            this.capacities = capacities.clone();
+            return this;
+        }
+        
+        public Builder threads(int... threadCounts) {
+            if (threadCounts.length == 0 || Arrays.stream(threadCounts).anyMatch(t -> t <= 0)) {
+                throw new IllegalArgumentException("Thread counts must be positive");
+            }
+            this.threadCounts = threadCounts.clone();
+            return this;
+        }
+        
+        /**
+         * Disables the untimed replay that precedes each policy's run at each capacity.
+         */
+        public Builder withoutWarmup() {
+            this.warmup = false;
+            return this;
+        }
+        
+        public TraceReplayBenchmark build() {
+            if (traces.isEmpty() || policies.isEmpty()) {
+                throw new IllegalArgumentException("At least one trace and one policy are required");
+            }
+            return new TraceReplayBenchmark(this);
+        }
+    }
+}
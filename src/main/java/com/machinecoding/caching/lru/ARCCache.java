@@ -0,0 +1,352 @@
+package com.machinecoding.caching.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache using the Adaptive Replacement Cache (ARC) policy.
+ *
+ * Layout:
+ * - T1: resident entries seen once recently (recency)
+ * - T2: resident entries seen at least twice (frequency)
+ * - B1, B2: ghost lists holding only the keys recently evicted from T1 and T2
+ *
+ * A target size p for T1 decides which resident list gives up its LRU entry on
+ * eviction. A put for a key found in B1 means T1 was too small, so p grows; a put
+ * for a key in B2 means T2 was too small, so p shrinks. The split therefore follows
+ * the workload as it shifts between recency-heavy and frequency-heavy phases, and
+ * a one-pass scan can only flush T1, never the frequently used entries in T2.
+ *
+ * Ghost hits are recognised on put, when the key re-enters the cache; with the
+ * usual get-then-put-on-miss pattern that is the same access. T1 plus B1 never
+ * exceeds the capacity, and all four lists together never exceed twice the capacity.
+ *
+ * Like BasicLRUCache, this class is not thread-safe.
+ *
+ * Time Complexity: O(1) for all operations
+ * Space Complexity: O(capacity) entries plus O(capacity) ghost keys
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class ARCCache<K, V> implements LRUCache<K, V> {
+    
+    private final int capacity;
+    private final Map<K, Node<K, V>> cache;
+    private final Map<K, Node<K, V>> ghosts;
+    private final AccessOrderList<K, V> t1;
+    private final AccessOrderList<K, V> t2;
+    private final AccessOrderList<K, V> b1;
+    private final AccessOrderList<K, V> b2;
+    
+    // Target size of T1
+    private int p = 0;
+    
+    // Statistics
+    private long totalGets = 0;
+    private long totalPuts = 0;
+    private long totalRemoves = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long b1GhostHits = 0;
+    private long b2GhostHits = 0;
+    
+    public ARCCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        
+        this.capacity = capacity;
+        this.cache = new HashMap<>(capacity);
+        this.ghosts = new HashMap<>(capacity);
+        this.t1 = new AccessOrderList<>(ListId.T1);
+        this.t2 = new AccessOrderList<>(ListId.T2);
+        this.b1 = new AccessOrderList<>(ListId.B1);
+        this.b2 = new AccessOrderList<>(ListId.B2);
+    }
+    
+    @Override
+    public V get(K key) {
+        totalGets++;
+        
+        Node<K, V> node = key == null ? null : cache.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        
+        hits++;
+        promote(node);
+        return node.value;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        totalPuts++;
+        
+        Node<K, V> node = cache.get(key);
+        if (node != null) {
+            node.value = value;
+            promote(node);
+            return;
+        }
+        
+        Node<K, V> ghost = ghosts.remove(key);
+        if (ghost != null) {
+            boolean inB2 = ghost.list == ListId.B2;
+            if (inB2) {
+                b2GhostHits++;
+                p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+                b2.remove(ghost);
+            } else {
+                b1GhostHits++;
+                p = Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+                b1.remove(ghost);
+            }
+            makeRoom(inB2);
+            
+            ghost.value = value;
+            cache.put(key, ghost);
+            t2.addToHead(ghost);
+            return;
+        }
+        
+        // New key: keep T1 + B1 within capacity and all lists within twice the capacity
+        if (t1.size() + b1.size() >= capacity) {
+            if (b1.size() > 0) {
+                dropGhost(b1);
+                makeRoom(false);
+            } else {
+                evict(t1.removeTail());
+            }
+        } else if (t1.size() + t2.size() + b1.size() + b2.size() >= capacity) {
+            if (t1.size() + t2.size() + b1.size() + b2.size() >= 2 * capacity && b2.size() > 0) {
+                dropGhost(b2);
+            }
+            makeRoom(false);
+        }
+        
+        node = new Node<>(key, value);
+        cache.put(key, node);
+        t1.addToHead(node);
+    }
+    
+    @Override
+    public V remove(K key) {
+        totalRemoves++;
+        
+        Node<K, V> node = cache.remove(key);
+        if (node == null) {
+            return null;
+        }
+        
+        listOf(node).remove(node);
+        return node.value;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return cache.size();
+    }
+    
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return cache.isEmpty();
+    }
+    
+    @Override
+    public boolean isFull() {
+        return cache.size() >= capacity;
+    }
+    
+    @Override
+    public void clear() {
+        cache.clear();
+        ghosts.clear();
+        t1.clear();
+        t2.clear();
+        b1.clear();
+        b2.clear();
+        p = 0;
+    }
+    
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(
+            totalGets, totalPuts, totalRemoves,
+            hits, misses, evictions,
+            cache.size(), capacity
+        );
+    }
+    
+    /**
+     * Returns how many puts found their key in B1, each growing the recency target.
+     */
+    public long getB1GhostHits() {
+        return b1GhostHits;
+    }
+    
+    /**
+     * Returns how many puts found their key in B2, each shrinking the recency target.
+     */
+    public long getB2GhostHits() {
+        return b2GhostHits;
+    }
+    
+    /**
+     * Returns the current target size of T1, between 0 and the capacity.
+     */
+    public int getRecencyTarget() {
+        return p;
+    }
+    
+    /**
+     * Returns the sizes of the resident and ghost lists, for debugging.
+     */
+    public String toRegionString() {
+        return String.format("T1=%d, T2=%d, B1=%d, B2=%d, target T1=%d",
+                             t1.size(), t2.size(), b1.size(), b2.size(), p);
+    }
+    
+    /**
+     * Moves a resident entry to the MRU end of T2.
+     */
+    private void promote(Node<K, V> node) {
+        if (node.list == ListId.T2) {
+            t2.moveToHead(node);
+        } else {
+            t1.remove(node);
+            t2.addToHead(node);
+        }
+    }
+    
+    /**
+     * Evicts one resident entry to a ghost list if the cache is full. T1 gives up its
+     * LRU entry while it is above its target (or at it, when the miss came from B2).
+     */
+    private void makeRoom(boolean ghostHitInB2) {
+        if (cache.size() < capacity) {
+            return;
+        }
+        
+        boolean fromT1 = t1.size() > 0
+            && (t1.size() > p || (ghostHitInB2 && t1.size() == p) || t2.size() == 0);
+        AccessOrderList<K, V> ghostList = fromT1 ? b1 : b2;
+        Node<K, V> victim = (fromT1 ? t1 : t2).removeTail();
+        
+        evict(victim);
+        victim.value = null;
+        ghostList.addToHead(victim);
+        ghosts.put(victim.key, victim);
+    }
+    
+    private void evict(Node<K, V> victim) {
+        cache.remove(victim.key);
+        evictions++;
+    }
+    
+    private void dropGhost(AccessOrderList<K, V> ghostList) {
+        ghosts.remove(ghostList.removeTail().key);
+    }
+    
+    private AccessOrderList<K, V> listOf(Node<K, V> node) {
+        switch (node.list) {
+            case T1:
+                return t1;
+            case T2:
+                return t2;
+            case B1:
+                return b1;
+            default:
+                return b2;
+        }
+    }
+    
+    private enum ListId {
+        T1, T2, B1, B2
+    }
+    
+    /**
+     * Doubly linked list ordered from most to least recently used.
+     * Adding a node tags it with the list's id.
+     */
+    private static class AccessOrderList<K, V> {
+        private final ListId id;
+        private final Node<K, V> head;
+        private final Node<K, V> tail;
+        private int size;
+        
+        AccessOrderList(ListId id) {
+            this.id = id;
+            this.head = new Node<>(null, null);
+            this.tail = new Node<>(null, null);
+            clear();
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        void addToHead(Node<K, V> node) {
+            node.list = id;
+            node.prev = head;
+            node.next = head.next;
+            head.next.prev = node;
+            head.next = node;
+            size++;
+        }
+        
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            size--;
+        }
+        
+        void moveToHead(Node<K, V> node) {
+            remove(node);
+            addToHead(node);
+        }
+        
+        Node<K, V> removeTail() {
+            Node<K, V> last = tail.prev;
+            remove(last);
+            return last;
+        }
+        
+        void clear() {
+            head.next = tail;
+            tail.prev = head;
+            size = 0;
+        }
+    }
+    
+    /**
+     * Node class for the resident and ghost lists. Ghost nodes have no value.
+     */
+    private static class Node<K, V> {
+        K key;
+        V value;
+        ListId list;
+        Node<K, V> prev;
+        Node<K, V> next;
+        
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
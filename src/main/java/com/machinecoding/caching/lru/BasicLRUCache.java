@@ -7,6 +7,12 @@ import java.util.Map;
  * Basic LRU Cache implementation using HashMap + Doubly Linked List.
  * This is the classic implementation commonly asked in interviews.
  * 
+ * The cache is bounded either by entry count, or by total weight when built with a
+ * Weigher (e.g. approximate bytes per entry). In weighted mode, least recently used
+ * entries are evicted until the total weight fits. An entry heavier than the maximum
+ * weight is rejected without evicting anything else; it only replaces, by removing,
+ * an existing mapping for the same key.
+ * 
  * Time Complexity: O(1) for all operations
  * Space Complexity: O(capacity)
  * 
@@ -16,6 +22,8 @@ import java.util.Map;
 public class BasicLRUCache<K, V> implements LRUCache<K, V> {
     
     private final int capacity;
+    private final long maxWeight;
+    private final Weigher<K, V> weigher;
     private final Map<K, Node<K, V>> cache;
     private final Node<K, V> head;
     private final Node<K, V> tail;
@@ -27,14 +35,29 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
     private long hits = 0;
     private long misses = 0;
     private long evictions = 0;
+    private long weightedSize = 0;
+    private long evictedWeight = 0;
+    private long rejections = 0;
     
     public BasicLRUCache(int capacity) {
-        if (capacity <= 0) {
-            throw new IllegalArgumentException("Capacity must be positive");
-        }
-        
+        this(checkCapacity(capacity), capacity, Weigher.singleton());
+    }
+    
+    /**
+     * Creates a cache bounded by the total weight of its entries.
+     * 
+     * @param maxWeight the maximum total weight, e.g. a memory budget in bytes
+     * @param weigher computes the weight of each entry
+     */
+    public BasicLRUCache(long maxWeight, Weigher<K, V> weigher) {
+        this(Integer.MAX_VALUE, checkMaxWeight(maxWeight), checkWeigher(weigher));
+    }
+    
+    private BasicLRUCache(int capacity, long maxWeight, Weigher<K, V> weigher) {
         this.capacity = capacity;
-        this.cache = new HashMap<>(capacity);
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.cache = new HashMap<>(Math.min(capacity, 1 << 16));
         
         // Create dummy head and tail nodes
         this.head = new Node<>(null, null);
@@ -63,27 +86,38 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
     public void put(K key, V value) {
         totalPuts++;
         
+        int weight = weigh(key, value);
+        if (weight > maxWeight) {
+            // Can never fit: refuse it rather than flushing the whole cache first
+            rejections++;
+            Node<K, V> stale = cache.remove(key);
+            if (stale != null) {
+                removeNode(stale);
+                weightedSize -= stale.weight;
+            }
+            return;
+        }
+        
         Node<K, V> existing = cache.get(key);
         if (existing != null) {
             // Update existing node
+            weightedSize += weight - existing.weight;
             existing.value = value;
+            existing.weight = weight;
             moveToHead(existing);
+            evictUntilWithinWeight();
             return;
         }
         
         // Create new node
         Node<K, V> newNode = new Node<>(key, value);
-        
-        if (cache.size() >= capacity) {
-            // Remove least recently used (tail)
-            Node<K, V> lru = removeTail();
-            cache.remove(lru.key);
-            evictions++;
-        }
+        newNode.weight = weight;
         
         // Add new node to head
         addToHead(newNode);
         cache.put(key, newNode);
+        weightedSize += weight;
+        evictUntilWithinWeight();
     }
     
     @Override
@@ -96,6 +130,7 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
         }
         
         removeNode(node);
+        weightedSize -= node.weight;
         return node.value;
     }
     
@@ -121,7 +156,7 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
     
     @Override
     public boolean isFull() {
-        return cache.size() >= capacity;
+        return weightedSize >= maxWeight;
     }
     
     @Override
@@ -129,6 +164,7 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
         cache.clear();
         head.next = tail;
         tail.prev = head;
+        weightedSize = 0;
     }
     
     @Override
@@ -136,10 +172,60 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
         return new CacheStats(
             totalGets, totalPuts, totalRemoves,
             hits, misses, evictions,
-            cache.size(), capacity
+            cache.size(), capacity,
+            weightedSize, maxWeight, evictedWeight, rejections
         );
     }
     
+    /**
+     * Returns the total weight of all entries; equal to size() for count-bounded caches.
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+    
+    /**
+     * Removes least recently used entries until the total weight fits.
+     */
+    private void evictUntilWithinWeight() {
+        while (weightedSize > maxWeight) {
+            Node<K, V> lru = removeTail();
+            cache.remove(lru.key);
+            weightedSize -= lru.weight;
+            evictions++;
+            evictedWeight += lru.weight;
+        }
+    }
+    
+    private int weigh(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+        return weight;
+    }
+    
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        return capacity;
+    }
+    
+    private static long checkMaxWeight(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        return maxWeight;
+    }
+    
+    private static <K, V> Weigher<K, V> checkWeigher(Weigher<K, V> weigher) {
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+        return weigher;
+    }
+    
     // Doubly Linked List operations
     
     private void addToHead(Node<K, V> node) {
@@ -171,6 +257,7 @@ public class BasicLRUCache<K, V> implements LRUCache<K, V> {
     private static class Node<K, V> {
         K key;
         V value;
+        int weight;
         Node<K, V> prev;
         Node<K, V> next;
         
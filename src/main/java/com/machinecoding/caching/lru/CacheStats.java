@@ -12,10 +12,38 @@ public class CacheStats {
     private final long evictions;
     private final int currentSize;
     private final int capacity;
+    private final long currentWeight;
+    private final long maxWeight;
+    private final long evictedWeight;
+    private final long rejections;
     
     public CacheStats(long totalGets, long totalPuts, long totalRemoves,
                      long hits, long misses, long evictions,
                      int currentSize, int capacity) {
+        this(totalGets, totalPuts, totalRemoves, hits, misses, evictions,
+             currentSize, capacity, currentSize, capacity, evictions);
+    }
+    
+    /**
+     * Creates stats for a cache bounded by total weight. Caches bounded by entry
+     * count report each entry as weight 1.
+     */
+    public CacheStats(long totalGets, long totalPuts, long totalRemoves,
+                     long hits, long misses, long evictions,
+                     int currentSize, int capacity,
+                     long currentWeight, long maxWeight, long evictedWeight) {
+        this(totalGets, totalPuts, totalRemoves, hits, misses, evictions,
+             currentSize, capacity, currentWeight, maxWeight, evictedWeight, 0);
+    }
+    
+    /**
+     * Creates stats for a weighted cache that also counts rejections: puts of entries
+     * too heavy to ever fit, which are refused instead of flushing the cache.
+     */
+    public CacheStats(long totalGets, long totalPuts, long totalRemoves,
+                     long hits, long misses, long evictions,
+                     int currentSize, int capacity,
+                     long currentWeight, long maxWeight, long evictedWeight, long rejections) {
         this.totalGets = totalGets;
         this.totalPuts = totalPuts;
         this.totalRemoves = totalRemoves;
@@ -24,6 +52,10 @@ public class CacheStats {
         this.evictions = evictions;
         this.currentSize = currentSize;
         this.capacity = capacity;
+        this.currentWeight = currentWeight;
+        this.maxWeight = maxWeight;
+        this.evictedWeight = evictedWeight;
+        this.rejections = rejections;
     }
     
     public long getTotalGets() { return totalGets; }
@@ -34,6 +66,10 @@ public class CacheStats {
     public long getEvictions() { return evictions; }
     public int getCurrentSize() { return currentSize; }
     public int getCapacity() { return capacity; }
+    public long getCurrentWeight() { return currentWeight; }
+    public long getMaxWeight() { return maxWeight; }
+    public long getEvictedWeight() { return evictedWeight; }
+    public long getRejections() { return rejections; }
     
     public double getHitRate() {
         long total = hits + misses;
@@ -41,16 +77,16 @@ public class CacheStats {
     }
     
     public double getLoadFactor() {
-        return capacity == 0 ? 0.0 : (double) currentSize / capacity * 100;
+        return maxWeight == 0 ? 0.0 : (double) currentWeight / maxWeight * 100;
     }
     
     @Override
     public String toString() {
         return String.format(
             "CacheStats{gets=%d, puts=%d, removes=%d, hits=%d, misses=%d, " +
-            "evictions=%d, size=%d/%d, hitRate=%.1f%%, load=%.1f%%}",
+            "evictions=%d, size=%d/%d, weight=%d/%d, evictedWeight=%d, rejections=%d, hitRate=%.1f%%, load=%.1f%%}",
             totalGets, totalPuts, totalRemoves, hits, misses, evictions,
-            currentSize, capacity, getHitRate(), getLoadFactor()
+            currentSize, capacity, currentWeight, maxWeight, evictedWeight, rejections, getHitRate(), getLoadFactor()
         );
     }
 }
\ No newline at end of file
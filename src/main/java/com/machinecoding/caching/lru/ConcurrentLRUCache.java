@@ -0,0 +1,411 @@
+package com.machinecoding.caching.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe LRU Cache using lock striping.
+ *
+ * The key space is split into N independent segments. Each segment is a small
+ * BasicLRUCache-style HashMap + Doubly Linked List guarded by its own lock, so
+ * threads working on keys in different segments never contend with each other.
+ *
+ * Trade-offs:
+ * - Recency is tracked per segment, so eviction is approximately (not strictly) LRU
+ * - Capacity is divided evenly between segments
+ * - In weighted mode the maximum weight is divided too, so one entry can weigh at most
+ *   maxWeight / segments; heavier entries are rejected without evicting anything else
+ * - Statistics are kept in per-segment LongAdders and aggregated on demand
+ *
+ * Time Complexity: O(1) for all operations except size/getStats, which are O(segments)
+ * Space Complexity: O(capacity)
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class ConcurrentLRUCache<K, V> implements LRUCache<K, V> {
+    
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int MAX_SEGMENTS = 1 << 16;
+    
+    private final int capacity;
+    private final long maxWeight;
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    
+    public ConcurrentLRUCache(int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+    
+    public ConcurrentLRUCache(int capacity, int concurrencyLevel) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be positive");
+        }
+        
+        this.capacity = capacity;
+        this.maxWeight = capacity;
+        this.segments = createSegments(capacity, concurrencyLevel, Weigher.singleton());
+        this.segmentMask = segments.length - 1;
+    }
+    
+    /**
+     * Creates a cache bounded by the total weight of its entries.
+     * 
+     * @param maxWeight the maximum total weight, e.g. a memory budget in bytes
+     * @param weigher computes the weight of each entry
+     * @param concurrencyLevel the expected number of concurrently writing threads
+     */
+    public ConcurrentLRUCache(long maxWeight, Weigher<K, V> weigher, int concurrencyLevel) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be positive");
+        }
+        
+        this.capacity = Integer.MAX_VALUE;
+        this.maxWeight = maxWeight;
+        this.segments = createSegments(maxWeight, concurrencyLevel, weigher);
+        this.segmentMask = segments.length - 1;
+    }
+    
+    private static <K, V> Segment<K, V>[] createSegments(long maxWeight, int concurrencyLevel,
+                                                         Weigher<K, V> weigher) {
+        // Round down to a power of two so a key can be routed with a mask,
+        // and never create more segments than there are slots to fill
+        int segmentCount = Integer.highestOneBit((int) Math.min(Math.min(concurrencyLevel, maxWeight), MAX_SEGMENTS));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Segment<K, V>[] segments = new Segment[segmentCount];
+        
+        long baseWeight = maxWeight / segmentCount;
+        long remainder = maxWeight % segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(baseWeight + (i < remainder ? 1 : 0), weigher);
+        }
+        return segments;
+    }
+    
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(key).get(key);
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        segmentFor(key).put(key, value);
+    }
+    
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(key).remove(key);
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) {
+            return false;
+        }
+        return segmentFor(key).containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+    
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean isFull() {
+        return weightedSize() >= maxWeight;
+    }
+    
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+    
+    @Override
+    public CacheStats getStats() {
+        long totalGets = 0;
+        long totalPuts = 0;
+        long totalRemoves = 0;
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long evictedWeight = 0;
+        long rejections = 0;
+        long weight = 0;
+        int size = 0;
+        
+        for (Segment<K, V> segment : segments) {
+            totalGets += segment.totalGets.sum();
+            totalPuts += segment.totalPuts.sum();
+            totalRemoves += segment.totalRemoves.sum();
+            hits += segment.hits.sum();
+            misses += segment.misses.sum();
+            evictions += segment.evictions.sum();
+            evictedWeight += segment.evictedWeight.sum();
+            rejections += segment.rejections.sum();
+            weight += segment.weight;
+            size += segment.count;
+        }
+        
+        return new CacheStats(
+            totalGets, totalPuts, totalRemoves,
+            hits, misses, evictions,
+            size, capacity,
+            weight, maxWeight, evictedWeight, rejections
+        );
+    }
+    
+    /**
+     * Returns the total weight of all entries; equal to size() for count-bounded caches.
+     */
+    public long weightedSize() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            weight += segment.weight;
+        }
+        return weight;
+    }
+    
+    /**
+     * Returns the number of segments the key space is split into.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+    
+    private Segment<K, V> segmentFor(K key) {
+        return segments[spread(key.hashCode()) & segmentMask];
+    }
+    
+    /**
+     * Mixes the hash so keys with poor low-order bits still spread across segments.
+     */
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+    
+    /**
+     * A single lock-guarded LRU partition of the cache.
+     */
+    private static class Segment<K, V> {
+        private final long maxWeight;
+        private final Weigher<K, V> weigher;
+        private final Map<K, Node<K, V>> map;
+        private final Node<K, V> head;
+        private final Node<K, V> tail;
+        private final ReentrantLock lock;
+        
+        // Written under the lock, read without it by size()/isEmpty()
+        private volatile int count;
+        private volatile long weight;
+        
+        // Statistics
+        private final LongAdder totalGets = new LongAdder();
+        private final LongAdder totalPuts = new LongAdder();
+        private final LongAdder totalRemoves = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder evictedWeight = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        
+        Segment(long maxWeight, Weigher<K, V> weigher) {
+            this.maxWeight = maxWeight;
+            this.weigher = weigher;
+            this.map = new HashMap<>();
+            this.lock = new ReentrantLock();
+            this.head = new Node<>(null, null);
+            this.tail = new Node<>(null, null);
+            head.next = tail;
+            tail.prev = head;
+        }
+        
+        V get(K key) {
+            totalGets.increment();
+            
+            lock.lock();
+            try {
+                Node<K, V> node = map.get(key);
+                if (node == null) {
+                    misses.increment();
+                    return null;
+                }
+                
+                hits.increment();
+                moveToHead(node);
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void put(K key, V value) {
+            totalPuts.increment();
+            int entryWeight = weigher.weigh(key, value);
+            if (entryWeight < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative");
+            }
+            
+            lock.lock();
+            try {
+                if (entryWeight > maxWeight) {
+                    // Can never fit: refuse it rather than flushing the segment first
+                    rejections.increment();
+                    Node<K, V> stale = map.remove(key);
+                    if (stale != null) {
+                        removeNode(stale);
+                        weight -= stale.weight;
+                        count = map.size();
+                    }
+                    return;
+                }
+                
+                Node<K, V> existing = map.get(key);
+                if (existing != null) {
+                    weight += entryWeight - existing.weight;
+                    existing.value = value;
+                    existing.weight = entryWeight;
+                    moveToHead(existing);
+                } else {
+                    Node<K, V> newNode = new Node<>(key, value);
+                    newNode.weight = entryWeight;
+                    addToHead(newNode);
+                    map.put(key, newNode);
+                    weight += entryWeight;
+                }
+                
+                // Evict least recently used entries until the segment fits again
+                while (weight > maxWeight) {
+                    Node<K, V> lru = tail.prev;
+                    removeNode(lru);
+                    map.remove(lru.key);
+                    weight -= lru.weight;
+                    evictions.increment();
+                    evictedWeight.add(lru.weight);
+                }
+                count = map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        V remove(K key) {
+            totalRemoves.increment();
+            
+            lock.lock();
+            try {
+                Node<K, V> node = map.remove(key);
+                if (node == null) {
+                    return null;
+                }
+                
+                removeNode(node);
+                weight -= node.weight;
+                count = map.size();
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        boolean containsKey(K key) {
+            lock.lock();
+            try {
+                return map.containsKey(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void clear() {
+            lock.lock();
+            try {
+                map.clear();
+                head.next = tail;
+                tail.prev = head;
+                count = 0;
+                weight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        // Doubly Linked List operations (caller holds the lock)
+        
+        private void addToHead(Node<K, V> node) {
+            node.prev = head;
+            node.next = head.next;
+            head.next.prev = node;
+            head.next = node;
+        }
+        
+        private void removeNode(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+        }
+        
+        private void moveToHead(Node<K, V> node) {
+            removeNode(node);
+            addToHead(node);
+        }
+    }
+    
+    /**
+     * Node class for the per-segment doubly linked list.
+     */
+    private static class Node<K, V> {
+        K key;
+        V value;
+        int weight;
+        Node<K, V> prev;
+        Node<K, V> next;
+        
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.machinecoding.caching.lru;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min Sketch of access frequencies used by TinyLFU admission.
+ *
+ * Each long in the table packs sixteen 4-bit counters, so frequencies saturate at 15.
+ * An element is hashed to four counters across the table; its estimated frequency
+ * is the minimum of those counters. After a sample of accesses proportional to the
+ * cache capacity, every counter is halved ("aging") so the sketch follows changes
+ * in popularity instead of remembering old hot keys forever.
+ *
+ * Space Complexity: O(capacity) - roughly 8 bytes per cache entry
+ *
+ * @param <E> the type of elements being counted
+ */
+class FrequencySketch<E> {
+    
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_COUNT = 15;
+    private static final int SAMPLE_FACTOR = 10;
+    
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+    private long resets;
+    
+    FrequencySketch(int capacity) {
+        int tableSize = ceilingPowerOfTwo(Math.max(8, capacity));
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = (int) Math.min((long) capacity * SAMPLE_FACTOR, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Returns the estimated number of occurrences of the element, up to 15.
+     */
+    int frequency(E e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+    
+    /**
+     * Records one occurrence of the element, aging all counters once the sample fills up.
+     */
+    void increment(E e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+    
+    /**
+     * Returns how many times the counters have been aged.
+     */
+    long getResetCount() {
+        return resets;
+    }
+    
+    void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+    }
+    
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != ((long) MAX_COUNT << offset)) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Halves every counter. Odd counters lose their low bit, which is accounted
+     * for when shrinking the sample size.
+     */
+    private void reset() {
+        int oddCounters = 0;
+        for (int i = 0; i < table.length; i++) {
+            oddCounters += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (oddCounters >>> 2)) >>> 1;
+        resets++;
+    }
+    
+    private int indexOf(int item, int i) {
+        long hash = (item + SEEDS[i]) * SEEDS[i];
+        hash += (hash >>> 32);
+        return ((int) hash) & tableMask;
+    }
+    
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+    
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << (32 - Integer.numberOfLeadingZeros(Math.min(x, 1 << 30) - 1));
+    }
+}
@@ -1,5 +1,11 @@
 package com.machinecoding.caching.lru;
 
+import com.machinecoding.caching.benchmark.BenchmarkResult;
+import com.machinecoding.caching.benchmark.Trace;
+import com.machinecoding.caching.benchmark.TraceReplayBenchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
@@ -35,6 +41,26 @@ public class LRUCacheDemo {
         System.out.println("\n=== Demo 5: Cache Comparison ===");
         compareCacheSizes();
         
+        // Demo 6: Thread-safe striped cache under contention
+        System.out.println("\n=== Demo 6: Concurrent LRU Cache Scaling ===");
+        demonstrateConcurrentScaling();
+        
+        // Demo 7: Admission policy under scans
+        System.out.println("\n=== Demo 7: Scan Resistance (LRU vs W-TinyLFU) ===");
+        demonstrateScanResistance();
+        
+        // Demo 8: Capacity in bytes instead of entries
+        System.out.println("\n=== Demo 8: Byte-Weighted Capacity ===");
+        demonstrateWeightedCapacity();
+        
+        // Demo 9: Boxed vs primitive long-to-long cache
+        System.out.println("\n=== Demo 9: Primitive LongLongLRUCache Benchmark ===");
+        demonstratePrimitiveCache();
+        
+        // Demo 10: Self-tuning between recency and frequency
+        System.out.println("\n=== Demo 10: Adaptive Replacement Cache (ARC) ===");
+        demonstrateAdaptiveReplacement();
+        
         System.out.println("\n=== Demo Complete ===");
     }
     
@@ -162,38 +188,21 @@ public class LRUCacheDemo {
         System.out.println("   Locality pattern stats: " + localCache.getStats());
     }
     
-    private static void demonstratePerformance() {
-        System.out.println("1. Performance testing with different cache sizes:");
+    private static void demonstratePerformance() throws InterruptedException {
+        System.out.println("1. Replaying a Zipf trace at different cache sizes:");
         
-        int[] cacheSizes = {100, 1000, 10000};
-        int operations = 50000;
+        List<BenchmarkResult> results = TraceReplayBenchmark.builder()
+            .trace(Trace.zipf(20_000, 0.8, 200_000, 42))
+            .cache("BasicLRUCache", BasicLRUCache::new, false)
+            .capacities(100, 1000, 10000)
+            .build()
+            .run();
         
-        for (int cacheSize : cacheSizes) {
-            BasicLRUCache<Integer, String> cache = new BasicLRUCache<>(cacheSize);
-            Random random = new Random(42);
-            
-            long startTime = System.currentTimeMillis();
-            
-            // Mixed workload: 70% gets, 30% puts
-            for (int i = 0; i < operations; i++) {
-                if (random.nextDouble() < 0.7) {
-                    // Get operation
-                    int key = random.nextInt(cacheSize * 2);
-                    cache.get(key);
-                } else {
-                    // Put operation
-                    int key = random.nextInt(cacheSize * 2);
-                    cache.put(key, "value" + key);
-                }
-            }
-            
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-            
-            CacheStats stats = cache.getStats();
+        for (BenchmarkResult result : results) {
             System.out.println(String.format(
-                "   Cache size %d: %dms, %d ops/sec, hit rate %.1f%%",
-                cacheSize, duration, operations * 1000L / duration, stats.getHitRate()
+                "   Cache size %d: %,.0f ops/sec, hit rate %.1f%%, p50 %dns, p99 %dns",
+                result.getCapacity(), result.getThroughput(), result.getHitRate(),
+                result.getP50Nanos(), result.getP99Nanos()
             ));
         }
         
@@ -247,4 +256,313 @@ public class LRUCacheDemo {
         System.out.println("   - Larger caches have better hit rates but use more memory");
         System.out.println("   - Optimal cache size depends on access patterns and memory constraints");
     }
+    
+    private static void demonstrateConcurrentScaling() throws InterruptedException {
+        System.out.println("1. 90% get / 10% put mix, single lock vs lock striping:");
+        
+        int cacheSize = 10000;
+        int opsPerThread = 200000;
+        int[] threadCounts = {1, 4, 16};
+        
+        for (int threads : threadCounts) {
+            BasicLRUCache<Integer, Integer> basic = new BasicLRUCache<>(cacheSize);
+            LRUCache<Integer, Integer> globallyLocked = new SynchronizedCache<>(basic);
+            LRUCache<Integer, Integer> striped = new ConcurrentLRUCache<>(cacheSize, 64);
+            
+            long lockedOps = runMixedWorkload(globallyLocked, threads, opsPerThread, cacheSize);
+            long stripedOps = runMixedWorkload(striped, threads, opsPerThread, cacheSize);
+            
+            System.out.println(String.format(
+                "   %2d threads: single lock %,d ops/sec, striped %,d ops/sec (hit rate %.1f%%)",
+                threads, lockedOps, stripedOps, striped.getStats().getHitRate()
+            ));
+        }
+    }
+    
+    private static long runMixedWorkload(LRUCache<Integer, Integer> cache, int threads,
+                                         int opsPerThread, int cacheSize) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            executor.submit(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        int key = random.nextInt(cacheSize * 2);
+                        if (random.nextInt(10) == 0) {
+                            cache.put(key, key);
+                        } else {
+                            cache.get(key);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long duration = Math.max(1, System.nanoTime() - startTime);
+        executor.shutdown();
+        
+        return (long) threads * opsPerThread * 1_000_000_000L / duration;
+    }
+    
+    private static void demonstrateScanResistance() {
+        System.out.println("1. Hot set of 400 keys interleaved with a scan of cold keys:");
+        
+        int cacheSize = 500;
+        int[] trace = buildScanTrace(new Random(42), 400, 200000);
+        
+        LRUCache<Integer, Integer> lru = new BasicLRUCache<>(cacheSize);
+        WTinyLFUCache<Integer, Integer> tinyLfu = new WTinyLFUCache<>(cacheSize);
+        
+        replayTrace(lru, trace);
+        replayTrace(tinyLfu, trace);
+        
+        System.out.println(String.format("   BasicLRUCache:  hit rate %.1f%%", lru.getStats().getHitRate()));
+        System.out.println(String.format("   WTinyLFUCache:  hit rate %.1f%%", tinyLfu.getStats().getHitRate()));
+        System.out.println("   W-TinyLFU regions: " + tinyLfu.toRegionString() +
+                           ", rejected candidates: " + tinyLfu.getRejectedCandidates());
+    }
+    
+    /**
+     * Compares a count-bounded cache with one bounded by the bytes its values hold.
+     */
+    private static void demonstrateWeightedCapacity() {
+        System.out.println("1. Values from 50 bytes to 2 MB, 64 MB budget:");
+        
+        Random random = new Random(42);
+        long budget = 64L << 20;
+        BasicLRUCache<Integer, byte[]> byCount = new BasicLRUCache<>(1000);
+        BasicLRUCache<Integer, byte[]> byWeight = new BasicLRUCache<>(budget, (key, value) -> value.length);
+        
+        for (int i = 0; i < 5000; i++) {
+            // Mostly small values with an occasional large blob
+            int size = random.nextInt(20) == 0 ? 256 * 1024 + random.nextInt(2 * 1024 * 1024 - 256 * 1024)
+                                               : 50 + random.nextInt(4000);
+            byte[] value = new byte[size];
+            byCount.put(i, value);
+            byWeight.put(i, value);
+        }
+        
+        long countBytes = 0;
+        for (int i = 0; i < 5000; i++) {
+            byte[] value = byCount.get(i);
+            if (value != null) {
+                countBytes += value.length;
+            }
+        }
+        
+        System.out.println(String.format("   Count-bounded (1000 entries): %d entries holding %,d KB",
+            byCount.size(), countBytes / 1024));
+        System.out.println(String.format("   Weight-bounded (64 MB):       %d entries holding %,d KB",
+            byWeight.size(), byWeight.weightedSize() / 1024));
+        System.out.println("   " + byWeight.getStats());
+        
+        System.out.println("\n2. Thread-safe weighted cache (16 segments of 4 MB each):");
+        ConcurrentLRUCache<Integer, byte[]> concurrent =
+            new ConcurrentLRUCache<>(budget, (key, value) -> value.length, 16);
+        for (int i = 0; i < 5000; i++) {
+            concurrent.put(i, new byte[50 + random.nextInt(64 * 1024)]);
+        }
+        CacheStats stats = concurrent.getStats();
+        System.out.println(String.format("   %d entries, %,d KB of %,d KB used, %,d KB evicted",
+            stats.getCurrentSize(), stats.getCurrentWeight() / 1024,
+            stats.getMaxWeight() / 1024, stats.getEvictedWeight() / 1024));
+    }
+    
+    private static void demonstratePrimitiveCache() {
+        int capacity = 1_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        
+        System.out.println("1. Memory per entry at " + String.format("%,d", capacity) + " entries:");
+        long baseline = usedHeapAfterGc(runtime);
+        BasicLRUCache<Long, Long> boxed = new BasicLRUCache<>(capacity);
+        for (long i = 0; i < capacity; i++) {
+            boxed.put(i * 7919, i);
+        }
+        long boxedBytes = usedHeapAfterGc(runtime) - baseline;
+        
+        LongLongLRUCache primitive = new LongLongLRUCache(capacity);
+        for (long i = 0; i < capacity; i++) {
+            primitive.put(i * 7919, i);
+        }
+        long primitiveBytes = usedHeapAfterGc(runtime) - baseline - boxedBytes;
+        
+        System.out.println(String.format("   BasicLRUCache<Long, Long>: %d bytes/entry", boxedBytes / capacity));
+        System.out.println(String.format("   LongLongLRUCache:          %d bytes/entry", primitiveBytes / capacity));
+        
+        System.out.println("\n2. Throughput, 80% get / 20% put over 2x capacity keys:");
+        long[] trace = new long[4_000_000];
+        Random random = new Random(42);
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = random.nextInt(capacity * 2) * 7919L;
+        }
+        
+        for (int round = 0; round < 3; round++) {
+            long startTime = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < trace.length; i++) {
+                if (i % 5 == 0) {
+                    boxed.put(trace[i], trace[i]);
+                } else {
+                    Long value = boxed.get(trace[i]);
+                    checksum += value == null ? 0 : value;
+                }
+            }
+            long boxedNanos = System.nanoTime() - startTime;
+            
+            startTime = System.nanoTime();
+            for (int i = 0; i < trace.length; i++) {
+                if (i % 5 == 0) {
+                    primitive.put(trace[i], trace[i]);
+                } else {
+                    checksum += primitive.get(trace[i], 0);
+                }
+            }
+            long primitiveNanos = System.nanoTime() - startTime;
+            
+            System.out.println(String.format("   Round %d: boxed %,d ops/sec, primitive %,d ops/sec (checksum %d)",
+                round + 1, trace.length * 1_000_000_000L / boxedNanos,
+                trace.length * 1_000_000_000L / primitiveNanos, checksum % 10));
+        }
+        
+        System.out.println("\n3. Heap allocated per operation (this thread):");
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            long threadId = Thread.currentThread().getId();
+            
+            long before = allocation.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < trace.length; i++) {
+                if (i % 5 == 0) {
+                    boxed.put(trace[i], trace[i]);
+                } else {
+                    boxed.get(trace[i]);
+                }
+            }
+            long boxedAllocated = allocation.getThreadAllocatedBytes(threadId) - before;
+            
+            before = allocation.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < trace.length; i++) {
+                if (i % 5 == 0) {
+                    primitive.put(trace[i], trace[i]);
+                } else {
+                    primitive.get(trace[i], 0);
+                }
+            }
+            long primitiveAllocated = allocation.getThreadAllocatedBytes(threadId) - before;
+            
+            System.out.println(String.format("   BasicLRUCache<Long, Long>: %.1f bytes/op",
+                (double) boxedAllocated / trace.length));
+            System.out.println(String.format("   LongLongLRUCache:          %.1f bytes/op",
+                (double) primitiveAllocated / trace.length));
+        } else {
+            System.out.println("   (allocation counters not available on this JVM)");
+        }
+    }
+    
+    private static void demonstrateAdaptiveReplacement() {
+        System.out.println("1. Alternating phases, cache of 500 entries:");
+        System.out.println("   frequency = 400 hot keys mixed with a scan, recency = sliding working set");
+        
+        int cacheSize = 500;
+        Random random = new Random(42);
+        LRUCache<Integer, Integer> lru = new BasicLRUCache<>(cacheSize);
+        LRUCache<Integer, Integer> tinyLfu = new WTinyLFUCache<>(cacheSize);
+        ARCCache<Integer, Integer> arc = new ARCCache<>(cacheSize);
+        
+        int nextKey = 1_000_000;
+        for (int phase = 0; phase < 4; phase++) {
+            boolean frequencyPhase = phase % 2 == 0;
+            int[] trace = new int[100_000];
+            for (int i = 0; i < trace.length; i++) {
+                if (frequencyPhase) {
+                    trace[i] = random.nextBoolean() ? random.nextInt(400) : nextKey++;
+                } else {
+                    // A working set of 450 keys that shifts by one key every 20 accesses
+                    trace[i] = nextKey + i / 20 + random.nextInt(450);
+                }
+            }
+            if (!frequencyPhase) {
+                nextKey += trace.length / 20 + 450;
+            }
+            
+            System.out.println(String.format("   Phase %d (%-9s): LRU %5.1f%%, W-TinyLFU %5.1f%%, ARC %5.1f%%, ARC target T1=%d",
+                phase + 1, frequencyPhase ? "frequency" : "recency",
+                phaseHitRate(lru, trace), phaseHitRate(tinyLfu, trace), phaseHitRate(arc, trace),
+                arc.getRecencyTarget()));
+        }
+        
+        System.out.println("\n2. ARC state:");
+        System.out.println("   " + arc.toRegionString());
+        System.out.println(String.format("   Ghost hits: B1=%,d (grow T1), B2=%,d (grow T2)",
+            arc.getB1GhostHits(), arc.getB2GhostHits()));
+        System.out.println("   " + arc.getStats());
+    }
+    
+    private static double phaseHitRate(LRUCache<Integer, Integer> cache, int[] trace) {
+        long hitsBefore = cache.getStats().getHits();
+        replayTrace(cache, trace);
+        return (cache.getStats().getHits() - hitsBefore) * 100.0 / trace.length;
+    }
+    
+    private static long usedHeapAfterGc(Runtime runtime) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Builds a trace where half of the accesses hit the hot set and the other half
+     * belong to a sequential scan over keys that are never reused.
+     */
+    private static int[] buildScanTrace(Random random, int hotKeys, int length) {
+        int[] trace = new int[length];
+        int nextColdKey = hotKeys;
+        for (int i = 0; i < length; i++) {
+            trace[i] = random.nextBoolean() ? random.nextInt(hotKeys) : nextColdKey++;
+        }
+        return trace;
+    }
+    
+    private static void replayTrace(LRUCache<Integer, Integer> cache, int[] trace) {
+        for (int key : trace) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+    }
+    
+    /**
+     * Wraps a non thread-safe cache in one big lock, the way callers had to share BasicLRUCache.
+     */
+    private static class SynchronizedCache<K, V> implements LRUCache<K, V> {
+        private final LRUCache<K, V> delegate;
+        
+        SynchronizedCache(LRUCache<K, V> delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override public synchronized V get(K key) { return delegate.get(key); }
+        @Override public synchronized void put(K key, V value) { delegate.put(key, value); }
+        @Override public synchronized V remove(K key) { return delegate.remove(key); }
+        @Override public synchronized boolean containsKey(K key) { return delegate.containsKey(key); }
+        @Override public synchronized int size() { return delegate.size(); }
+        @Override public int capacity() { return delegate.capacity(); }
+        @Override public synchronized boolean isEmpty() { return delegate.isEmpty(); }
+        @Override public synchronized boolean isFull() { return delegate.isFull(); }
+        @Override public synchronized void clear() { delegate.clear(); }
+        @Override public synchronized CacheStats getStats() { return delegate.getStats(); }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,320 @@
+package com.machinecoding.caching.lru;
+
+import java.util.Arrays;
+
+/**
+ * LRU cache specialized for primitive long keys and values.
+ *
+ * Mirrors the LRUCache operations without boxing: all state lives in primitive arrays
+ * allocated up front, so get and put never allocate after construction.
+ *
+ * Layout:
+ * - Entries occupy slots 0..capacity-1 of parallel arrays (keys, values, prev, next)
+ * - The recency list is intrusive: prev/next hold slot indexes instead of references
+ * - An open-addressing hash table with linear probing maps keys to slot indexes;
+ *   it is kept at most half full and uses backward-shift deletion, so no tombstones
+ * - Free slots are chained through the next array
+ *
+ * Memory is 24 bytes per entry for the entry arrays plus 8-16 bytes of table (2-4 ints
+ * per entry, rounded to a power of two), compared with roughly 120 bytes for a
+ * BasicLRUCache<Long, Long> entry with its boxed key, boxed value, node and map entry.
+ *
+ * Not thread-safe.
+ *
+ * Time Complexity: O(1) expected for all operations
+ * Space Complexity: O(capacity), allocated at construction
+ */
+public class LongLongLRUCache {
+    
+    private static final int NONE = -1;
+    
+    private final int capacity;
+    private final long[] keys;
+    private final long[] values;
+    private final int[] prev;
+    private final int[] next;
+    
+    // Hash table of slot index + 1; 0 marks an empty bucket
+    private final int[] table;
+    private final int tableMask;
+    
+    private int head = NONE;
+    private int tail = NONE;
+    private int freeList = NONE;
+    private int unusedSlot = 0;
+    private int size = 0;
+    
+    // Statistics
+    private long totalGets = 0;
+    private long totalPuts = 0;
+    private long totalRemoves = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    public LongLongLRUCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (capacity > 1 << 29) {
+            throw new IllegalArgumentException("Capacity must be at most " + (1 << 29));
+        }
+        
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+    }
+    
+    /**
+     * Retrieves a value by key and marks it as recently used.
+     *
+     * @param key the key
+     * @param defaultValue returned when the key is not cached
+     * @return the cached value, or defaultValue
+     */
+    public long get(long key, long defaultValue) {
+        totalGets++;
+        
+        int slot = findSlot(key);
+        if (slot == NONE) {
+            misses++;
+            return defaultValue;
+        }
+        
+        hits++;
+        moveToHead(slot);
+        return values[slot];
+    }
+    
+    /**
+     * Stores a key-value pair and marks it as recently used.
+     * If the cache is at capacity, evicts the least recently used entry.
+     */
+    public void put(long key, long value) {
+        totalPuts++;
+        
+        int bucket = indexFor(key);
+        while (table[bucket] != 0) {
+            int slot = table[bucket] - 1;
+            if (keys[slot] == key) {
+                values[slot] = value;
+                moveToHead(slot);
+                return;
+            }
+            bucket = (bucket + 1) & tableMask;
+        }
+        
+        if (size == capacity) {
+            // Evicting may shift later buckets, so probe again afterwards
+            int lru = tail;
+            deleteFromTable(keys[lru]);
+            unlink(lru);
+            releaseSlot(lru);
+            size--;
+            evictions++;
+            
+            bucket = indexFor(key);
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & tableMask;
+            }
+        }
+        
+        int slot = acquireSlot();
+        keys[slot] = key;
+        values[slot] = value;
+        table[bucket] = slot + 1;
+        linkAtHead(slot);
+        size++;
+    }
+    
+    /**
+     * Removes a key from the cache.
+     *
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        totalRemoves++;
+        
+        int slot = deleteFromTable(key);
+        if (slot == NONE) {
+            return false;
+        }
+        
+        unlink(slot);
+        releaseSlot(slot);
+        size--;
+        return true;
+    }
+    
+    /**
+     * Checks if the cache contains the key, without changing its recency.
+     */
+    public boolean containsKey(long key) {
+        return findSlot(key) != NONE;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int capacity() {
+        return capacity;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public boolean isFull() {
+        return size >= capacity;
+    }
+    
+    public void clear() {
+        Arrays.fill(table, 0);
+        head = NONE;
+        tail = NONE;
+        freeList = NONE;
+        unusedSlot = 0;
+        size = 0;
+    }
+    
+    public CacheStats getStats() {
+        return new CacheStats(
+            totalGets, totalPuts, totalRemoves,
+            hits, misses, evictions,
+            size, capacity
+        );
+    }
+    
+    /**
+     * Returns the cached keys from most to least recently used, for debugging.
+     */
+    public String toOrderedString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[");
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (slot != head) {
+                sb.append(", ");
+            }
+            sb.append(keys[slot]).append("=").append(values[slot]);
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+    
+    // Hash table operations
+    
+    private int indexFor(long key) {
+        // Murmur3 finalizer, so sequential ids spread over the whole table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & tableMask;
+    }
+    
+    private int findSlot(long key) {
+        int bucket = indexFor(key);
+        while (table[bucket] != 0) {
+            int slot = table[bucket] - 1;
+            if (keys[slot] == key) {
+                return slot;
+            }
+            bucket = (bucket + 1) & tableMask;
+        }
+        return NONE;
+    }
+    
+    /**
+     * Removes a key from the table and returns its slot, or NONE if absent.
+     * Later entries of the probe run are shifted back so lookups never stop early.
+     */
+    private int deleteFromTable(long key) {
+        int bucket = indexFor(key);
+        while (true) {
+            if (table[bucket] == 0) {
+                return NONE;
+            }
+            if (keys[table[bucket] - 1] == key) {
+                break;
+            }
+            bucket = (bucket + 1) & tableMask;
+        }
+        
+        int removed = table[bucket] - 1;
+        int hole = bucket;
+        int current = (hole + 1) & tableMask;
+        while (table[current] != 0) {
+            int home = indexFor(keys[table[current] - 1]);
+            // Move the entry into the hole unless its home lies cyclically in (hole, current]
+            boolean homeBetween = hole <= current
+                ? home > hole && home <= current
+                : home > hole || home <= current;
+            if (!homeBetween) {
+                table[hole] = table[current];
+                hole = current;
+            }
+            current = (current + 1) & tableMask;
+        }
+        table[hole] = 0;
+        return removed;
+    }
+    
+    // Slot allocation
+    
+    private int acquireSlot() {
+        if (freeList != NONE) {
+            int slot = freeList;
+            freeList = next[slot];
+            return slot;
+        }
+        return unusedSlot++;
+    }
+    
+    private void releaseSlot(int slot) {
+        next[slot] = freeList;
+        freeList = slot;
+    }
+    
+    // Intrusive recency list operations
+    
+    private void linkAtHead(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        } else {
+            tail = slot;
+        }
+        head = slot;
+    }
+    
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            head = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        } else {
+            tail = before;
+        }
+    }
+    
+    private void moveToHead(int slot) {
+        if (slot != head) {
+            unlink(slot);
+            linkAtHead(slot);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.machinecoding.caching.lru;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scan-resistant cache using the W-TinyLFU policy.
+ *
+ * Layout:
+ * - Window: a small LRU (1% of capacity) that absorbs new entries and bursts
+ * - Main: a segmented LRU split into probation (20%) and protected (80%) regions
+ *
+ * New entries always enter the window. When the window overflows, its LRU entry
+ * becomes a candidate for the main region and competes with the main region's
+ * victim: the candidate is admitted only if a Count-Min Sketch says it has been
+ * accessed more often than the victim. One-hit wonders from a scan therefore die
+ * in the window instead of flushing hot keys out of the main region.
+ *
+ * Like BasicLRUCache, this class is not thread-safe.
+ *
+ * Time Complexity: O(1) for all operations
+ * Space Complexity: O(capacity)
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class WTinyLFUCache<K, V> implements LRUCache<K, V> {
+    
+    private static final double WINDOW_PERCENTAGE = 0.01;
+    private static final double PROTECTED_PERCENTAGE = 0.80;
+    
+    private final int capacity;
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final Map<K, Node<K, V>> cache;
+    private final FrequencySketch<K> sketch;
+    private final AccessOrderList<K, V> window;
+    private final AccessOrderList<K, V> probation;
+    private final AccessOrderList<K, V> protectedRegion;
+    
+    // Statistics
+    private long totalGets = 0;
+    private long totalPuts = 0;
+    private long totalRemoves = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long rejectedCandidates = 0;
+    
+    public WTinyLFUCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        
+        this.capacity = capacity;
+        this.windowCapacity = Math.max(1, (int) (capacity * WINDOW_PERCENTAGE));
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = (int) (mainCapacity * PROTECTED_PERCENTAGE);
+        this.cache = new HashMap<>(capacity);
+        this.sketch = new FrequencySketch<>(capacity);
+        this.window = new AccessOrderList<>(Region.WINDOW);
+        this.probation = new AccessOrderList<>(Region.PROBATION);
+        this.protectedRegion = new AccessOrderList<>(Region.PROTECTED);
+    }
+    
+    @Override
+    public V get(K key) {
+        totalGets++;
+        if (key == null) {
+            misses++;
+            return null;
+        }
+        
+        sketch.increment(key);
+        Node<K, V> node = cache.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        
+        hits++;
+        onHit(node);
+        return node.value;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        totalPuts++;
+        sketch.increment(key);
+        
+        Node<K, V> existing = cache.get(key);
+        if (existing != null) {
+            existing.value = value;
+            onHit(existing);
+            return;
+        }
+        
+        Node<K, V> node = new Node<>(key, value);
+        cache.put(key, node);
+        window.addToHead(node);
+        
+        if (window.size() > windowCapacity) {
+            admitFromWindow(window.removeTail());
+        }
+    }
+    
+    @Override
+    public V remove(K key) {
+        totalRemoves++;
+        
+        Node<K, V> node = cache.remove(key);
+        if (node == null) {
+            return null;
+        }
+        
+        listOf(node).remove(node);
+        return node.value;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return cache.size();
+    }
+    
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return cache.isEmpty();
+    }
+    
+    @Override
+    public boolean isFull() {
+        return cache.size() >= capacity;
+    }
+    
+    @Override
+    public void clear() {
+        cache.clear();
+        window.clear();
+        probation.clear();
+        protectedRegion.clear();
+        sketch.clear();
+    }
+    
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(
+            totalGets, totalPuts, totalRemoves,
+            hits, misses, evictions,
+            cache.size(), capacity
+        );
+    }
+    
+    /**
+     * Returns how many window candidates lost the frequency comparison and were dropped.
+     */
+    public long getRejectedCandidates() {
+        return rejectedCandidates;
+    }
+    
+    /**
+     * Returns how many times the frequency sketch has been aged.
+     */
+    public long getSketchResets() {
+        return sketch.getResetCount();
+    }
+    
+    /**
+     * Returns the sizes of the window, probation and protected regions, for debugging.
+     */
+    public String toRegionString() {
+        return String.format("window=%d/%d, probation=%d, protected=%d/%d",
+                             window.size(), windowCapacity, probation.size(),
+                             protectedRegion.size(), protectedCapacity);
+    }
+    
+    private void onHit(Node<K, V> node) {
+        switch (node.region) {
+            case WINDOW:
+                window.moveToHead(node);
+                break;
+            case PROBATION:
+                // Second access while in main: promote to protected
+                probation.remove(node);
+                protectedRegion.addToHead(node);
+                if (protectedRegion.size() > protectedCapacity) {
+                    probation.addToHead(protectedRegion.removeTail());
+                }
+                break;
+            case PROTECTED:
+                protectedRegion.moveToHead(node);
+                break;
+        }
+    }
+    
+    /**
+     * Moves a candidate evicted from the window into the main region, evicting
+     * either the candidate or the main region's victim when main is full.
+     */
+    private void admitFromWindow(Node<K, V> candidate) {
+        if (probation.size() + protectedRegion.size() < mainCapacity) {
+            probation.addToHead(candidate);
+            return;
+        }
+        
+        Node<K, V> victim = probation.size() > 0 ? probation.tail() : protectedRegion.tail();
+        if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+            listOf(victim).remove(victim);
+            cache.remove(victim.key);
+            probation.addToHead(candidate);
+        } else {
+            cache.remove(candidate.key);
+            rejectedCandidates++;
+        }
+        evictions++;
+    }
+    
+    private AccessOrderList<K, V> listOf(Node<K, V> node) {
+        switch (node.region) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedRegion;
+        }
+    }
+    
+    private enum Region {
+        WINDOW, PROBATION, PROTECTED
+    }
+    
+    /**
+     * Doubly linked list ordered from most to least recently used.
+     * Adding a node tags it with the list's region.
+     */
+    private static class AccessOrderList<K, V> {
+        private final Region region;
+        private final Node<K, V> head;
+        private final Node<K, V> tail;
+        private int size;
+        
+        AccessOrderList(Region region) {
+            this.region = region;
+            this.head = new Node<>(null, null);
+            this.tail = new Node<>(null, null);
+            clear();
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        Node<K, V> tail() {
+            return size == 0 ? null : tail.prev;
+        }
+        
+        void addToHead(Node<K, V> node) {
+            node.region = region;
+            node.prev = head;
+            node.next = head.next;
+            head.next.prev = node;
+            head.next = node;
+            size++;
+        }
+        
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            size--;
+        }
+        
+        void moveToHead(Node<K, V> node) {
+            remove(node);
+            addToHead(node);
+        }
+        
+        Node<K, V> removeTail() {
+            Node<K, V> last = tail.prev;
+            remove(last);
+            return last;
+        }
+        
+        void clear() {
+            head.next = tail;
+            tail.prev = head;
+            size = 0;
+        }
+    }
+    
+    /**
+     * Node class for the region lists.
+     */
+    private static class Node<K, V> {
+        K key;
+        V value;
+        Region region;
+        Node<K, V> prev;
+        Node<K, V> next;
+        
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
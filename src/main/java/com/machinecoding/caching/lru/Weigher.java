@@ -0,0 +1,26 @@
+package com.machinecoding.caching.lru;
+
+/**
+ * Computes the weight of a cache entry, typically its approximate size in bytes.
+ * Caches built with a weigher bound the total weight of their entries instead of
+ * the number of entries.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+    
+    /**
+     * Returns the weight of an entry. Must be non-negative and must not change
+     * while the entry is in the cache.
+     */
+    int weigh(K key, V value);
+    
+    /**
+     * Weigher that gives every entry a weight of 1, so weight equals entry count.
+     */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+}
@@ -0,0 +1,410 @@
+package com.machinecoding.caching.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records with group commit.
+ *
+ * Each record is framed as [int length][int crc32][payload]. Writers only enqueue
+ * framed records; a single background thread drains everything queued so far and
+ * writes it with one gathering FileChannel write. Under FsyncPolicy.ALWAYS the batch
+ * is forced before its writers are released, so concurrent writers share one fsync.
+ *
+ * Replay memory-maps the file and stops at the first torn or corrupt record,
+ * returning the length of the valid prefix.
+ */
+class AppendOnlyLog implements Closeable {
+    
+    static final int HEADER_BYTES = 8;
+    private static final long MAX_MAPPED_REGION = 1L << 30;
+    
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final ReentrantLock lock;
+    private final Condition workAvailable;
+    private final Condition batchWritten;
+    private final Thread writer;
+    
+    // Guarded by lock
+    private List<ByteBuffer> pending;
+    private long appendedSequence;
+    private long writtenSequence;
+    private Path rotationTarget;
+    private boolean closing;
+    private IOException failure;
+    
+    // Owned by the writer thread
+    private FileChannel channel;
+    
+    // Statistics, written by one thread each
+    private volatile long recordsLogged;
+    private volatile long batchesWritten;
+    private volatile long bytesWritten;
+    private volatile long fsyncs;
+    
+    /**
+     * Opens the log for appending, discarding anything past validLength (a torn tail).
+     */
+    AppendOnlyLog(Path file, long validLength, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.lock = new ReentrantLock();
+        this.workAvailable = lock.newCondition();
+        this.batchWritten = lock.newCondition();
+        this.pending = new ArrayList<>();
+        this.channel = openForAppend(file, validLength);
+        
+        this.writer = new Thread(this::runWriter, "AppendOnlyLog-Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * Queues a record for writing.
+     *
+     * @return sequence number to pass to {@link #awaitDurable(long)}
+     */
+    long append(byte[] payload) {
+        ByteBuffer record = frame(payload);
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Append-only log failed", failure);
+            }
+            if (closing) {
+                throw new IllegalStateException("Append-only log is closed");
+            }
+            pending.add(record);
+            recordsLogged++;
+            workAvailable.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Blocks until the record with the given sequence has been written, and forced
+     * if the policy is ALWAYS.
+     */
+    void awaitDurable(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (writtenSequence < sequence && failure == null) {
+                batchWritten.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Forces everything appended so far into the current file, then switches to a new file.
+     * Callers must prevent concurrent appends if they need a clean cut between files.
+     *
+     * @throws FileAlreadyExistsException if nextFile exists, since it may hold records
+     */
+    void rotate(Path nextFile) throws IOException {
+        if (Files.exists(nextFile)) {
+            throw new FileAlreadyExistsException(nextFile.toString());
+        }
+        lock.lock();
+        try {
+            rotationTarget = nextFile;
+            workAvailable.signal();
+            while (rotationTarget != null && failure == null) {
+                batchWritten.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closing = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    long getRecordsLogged() { return recordsLogged; }
+    long getBatchesWritten() { return batchesWritten; }
+    long getBytesWritten() { return bytesWritten; }
+    long getFsyncs() { return fsyncs; }
+    
+    private void runWriter() {
+        long lastForceTime = System.currentTimeMillis();
+        boolean dirty = false;
+        
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchEnd;
+            Path rotateTo;
+            boolean stopping;
+            
+            lock.lock();
+            try {
+                while (pending.isEmpty() && rotationTarget == null && !closing) {
+                    if (fsyncPolicy == FsyncPolicy.EVERY_INTERVAL && dirty) {
+                        long waitMillis = lastForceTime + fsyncIntervalMillis - System.currentTimeMillis();
+                        if (waitMillis <= 0) {
+                            break;
+                        }
+                        workAvailable.await(waitMillis, TimeUnit.MILLISECONDS);
+                    } else {
+                        workAvailable.await();
+                    }
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchEnd = appendedSequence;
+                rotateTo = rotationTarget;
+                stopping = closing;
+            } catch (InterruptedException e) {
+                // Fail the log so that appends, awaitDurable and rotate stop waiting for this thread
+                if (failure == null) {
+                    failure = new InterruptedIOException("Log writer interrupted");
+                }
+                batchWritten.signalAll();
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            
+            IOException error = null;
+            try {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    dirty = true;
+                }
+                
+                long now = System.currentTimeMillis();
+                boolean force = dirty && (fsyncPolicy == FsyncPolicy.ALWAYS || rotateTo != null || stopping
+                    || (fsyncPolicy == FsyncPolicy.EVERY_INTERVAL && now - lastForceTime >= fsyncIntervalMillis));
+                if (force) {
+                    channel.force(false);
+                    fsyncs++;
+                    lastForceTime = now;
+                    dirty = false;
+                }
+                
+                if (rotateTo != null) {
+                    // Never truncate an existing file: it may hold records that are not in any snapshot
+                    FileChannel next = FileChannel.open(rotateTo, StandardOpenOption.CREATE_NEW,
+                                                        StandardOpenOption.WRITE);
+                    channel.close();
+                    channel = next;
+                }
+                if (stopping) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            
+            lock.lock();
+            try {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                writtenSequence = batchEnd;
+                if (rotateTo != null) {
+                    rotationTarget = null;
+                }
+                batchWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            
+            if (stopping || error != null) {
+                return;
+            }
+        }
+    }
+    
+    private void writeBatch(List<ByteBuffer> batch) throws IOException {
+        ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        
+        long written = 0;
+        while (written < total) {
+            written += channel.write(buffers);
+        }
+        batchesWritten++;
+        bytesWritten += total;
+    }
+    
+    private static FileChannel openForAppend(Path file, long validLength) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        return channel;
+    }
+    
+    /**
+     * Frames a payload as [length][crc32][payload], ready for writing.
+     */
+    static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        record.flip();
+        return record;
+    }
+    
+    /**
+     * Memory-maps a log or snapshot file and hands every valid record payload to the handler.
+     *
+     * @return the length of the valid prefix of the file
+     */
+    static long replay(Path file, Consumer<ByteBuffer> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            
+            while (position < size) {
+                long regionSize = Math.min(size - position, MAX_MAPPED_REGION);
+                boolean lastRegion = position + regionSize == size;
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+                
+                int parsed = replayRegion(region, handler);
+                if (parsed < 0) {
+                    return position + ~parsed; // Corrupt record
+                }
+                position += parsed;
+                
+                if (parsed < regionSize) {
+                    if (lastRegion) {
+                        return position; // Torn tail
+                    }
+                    if (parsed == 0) {
+                        throw new IOException("Record larger than " + MAX_MAPPED_REGION + " bytes in " + file);
+                    }
+                }
+            }
+            return position;
+        }
+    }
+    
+    /**
+     * Replays all complete records in a mapped region.
+     *
+     * @return bytes consumed, or the bitwise complement of that if a corrupt record was found
+     */
+    private static int replayRegion(ByteBuffer region, Consumer<ByteBuffer> handler) {
+        CRC32 crc = new CRC32();
+        while (region.remaining() >= HEADER_BYTES) {
+            int start = region.position();
+            int length = region.getInt(start);
+            int checksum = region.getInt(start + 4);
+            if (length < 0 || length > region.remaining() - HEADER_BYTES) {
+                return start;
+            }
+            
+            ByteBuffer payload = region.duplicate();
+            payload.position(start + HEADER_BYTES).limit(start + HEADER_BYTES + length);
+            payload = payload.slice();
+            
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return ~start;
+            }
+            
+            handler.accept(payload.asReadOnlyBuffer());
+            region.position(start + HEADER_BYTES + length);
+        }
+        return region.position();
+    }
+    
+    /**
+     * Buffered, framed writer used to produce snapshot files.
+     */
+    static class RecordWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        
+        RecordWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.buffer = ByteBuffer.allocateDirect(1 << 16);
+        }
+        
+        void write(byte[] payload) throws IOException {
+            ByteBuffer record = frame(payload);
+            if (record.remaining() > buffer.remaining()) {
+                flush();
+            }
+            if (record.remaining() > buffer.capacity()) {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } else {
+                buffer.put(record);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+        
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.machinecoding.caching.store;
+
+/**
+ * Computes the value for a key that is missing from a store, typically by querying
+ * the system of record.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+    
+    /**
+     * Loads the value for a key.
+     *
+     * @param key the key, never null
+     * @return the value, or null if the key does not exist in the source
+     */
+    V load(K key);
+}
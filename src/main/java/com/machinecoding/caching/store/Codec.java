@@ -0,0 +1,70 @@
+package com.machinecoding.caching.store;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys or values to bytes and back, for stores that keep data outside the heap
+ * object graph (on disk or off-heap).
+ *
+ * @param <T> the type being encoded
+ */
+public interface Codec<T> {
+    
+    /**
+     * Encodes a non-null value to bytes.
+     */
+    byte[] encode(T value);
+    
+    /**
+     * Decodes bytes produced by {@link #encode(Object)}.
+     */
+    T decode(byte[] bytes);
+    
+    /**
+     * UTF-8 codec for strings.
+     */
+    static Codec<String> utf8() {
+        return new Codec<String>() {
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+            
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+    
+    /**
+     * Codec based on Java serialization, for any Serializable type.
+     */
+    static <T extends Serializable> Codec<T> serializable() {
+        return new Codec<T>() {
+            @Override
+            public byte[] encode(T value) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return bytes.toByteArray();
+            }
+            
+            @Override
+            @SuppressWarnings("unchecked")
+            public T decode(byte[] bytes) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (T) in.readObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("Cannot decode value", e);
+                }
+            }
+        };
+    }
+}
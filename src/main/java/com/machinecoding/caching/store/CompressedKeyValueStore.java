@@ -0,0 +1,406 @@
+package com.machinecoding.caching.store;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses large values before they reach the underlying store.
+ *
+ * Features:
+ * - Values are encoded with a Codec; those above a size threshold are deflated
+ * - Values that deflate poorly (less than 10% saved) are stored as they are
+ * - Decompression happens only when a value is read, never on write or eviction
+ * - Deflaters and Inflaters are pooled and reset between uses, never created per call
+ * - Compression ratio and CPU time statistics
+ *
+ * Works over any KeyValueStore of byte arrays, so it can be combined with the
+ * in-memory, durable, off-heap or sharded stores. Stored values carry a one-byte
+ * header (raw or deflated); deflated values also record their original length,
+ * so a read inflates straight into an array of the right size.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class CompressedKeyValueStore<K, V> implements KeyValueStore<K, V> {
+    
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+    private static final int DEFLATED_HEADER = 5;
+    private static final double MIN_SAVINGS = 0.10;
+    
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED =
+        THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    
+    private final KeyValueStore<K, byte[]> store;
+    private final Codec<V> codec;
+    private final int threshold;
+    private final int level;
+    private final BlockingQueue<Compressor> compressors;
+    
+    // Statistics
+    private final LongAdder compressedValues;
+    private final LongAdder rawValues;
+    private final LongAdder incompressibleValues;
+    private final LongAdder uncompressedBytes;
+    private final LongAdder compressedBytes;
+    private final LongAdder compressCpuNanos;
+    private final LongAdder decompressions;
+    private final LongAdder decompressCpuNanos;
+    
+    private CompressedKeyValueStore(Builder<K, V> builder) {
+        this.store = builder.store;
+        this.codec = builder.codec;
+        this.threshold = builder.threshold;
+        this.level = builder.level;
+        this.compressors = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+        
+        this.compressedValues = new LongAdder();
+        this.rawValues = new LongAdder();
+        this.incompressibleValues = new LongAdder();
+        this.uncompressedBytes = new LongAdder();
+        this.compressedBytes = new LongAdder();
+        this.compressCpuNanos = new LongAdder();
+        this.decompressions = new LongAdder();
+        this.decompressCpuNanos = new LongAdder();
+    }
+    
+    /**
+     * Starts building a compressed view of a byte-array store.
+     *
+     * @param store the store holding the encoded, possibly compressed values
+     * @param codec converts values to bytes and back
+     */
+    public static <K, V> Builder<K, V> builder(KeyValueStore<K, byte[]> store, Codec<V> codec) {
+        return new Builder<>(store, codec);
+    }
+    
+    @Override
+    public Optional<V> get(K key) {
+        return store.get(key).map(this::decode);
+    }
+    
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, byte[]> stored = store.getAll(keys);
+        Map<K, V> result = new HashMap<>(stored.size() * 2);
+        for (Map.Entry<K, byte[]> entry : stored.entrySet()) {
+            result.put(entry.getKey(), decode(entry.getValue()));
+        }
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        store.put(key, encode(key, value));
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        store.put(key, encode(key, value), ttl, unit);
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        store.putAll(encodeAll(entries));
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttl, TimeUnit unit) {
+        store.putAll(encodeAll(entries), ttl, unit);
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        return store.remove(key);
+    }
+    
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        return store.removeAll(keys);
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return store.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return store.size();
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+    
+    @Override
+    public void clear() {
+        store.clear();
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        return store.keySet();
+    }
+    
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return store.scan(cursor, count, matchPattern);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        return store.expire(key, ttl, unit);
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        return store.getTTL(key);
+    }
+    
+    @Override
+    public boolean hasExpiringKeys() {
+        return store.hasExpiringKeys();
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        return store.cleanupExpired();
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        return store.getStats();
+    }
+    
+    /**
+     * Gets compression statistics.
+     */
+    public CompressionStats getCompressionStats() {
+        return new CompressionStats(
+            compressedValues.sum(),
+            rawValues.sum(),
+            incompressibleValues.sum(),
+            uncompressedBytes.sum(),
+            compressedBytes.sum(),
+            compressCpuNanos.sum(),
+            decompressions.sum(),
+            decompressCpuNanos.sum()
+        );
+    }
+    
+    /**
+     * Releases the native memory of the pooled compressors. The underlying
+     * store is left running.
+     */
+    public void shutdown() {
+        Compressor compressor;
+        while ((compressor = compressors.poll()) != null) {
+            compressor.end();
+        }
+    }
+    
+    private Map<K, byte[]> encodeAll(Map<? extends K, ? extends V> entries) {
+        Map<K, byte[]> encoded = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            encoded.put(entry.getKey(), encode(entry.getKey(), entry.getValue()));
+        }
+        return encoded;
+    }
+    
+    private byte[] encode(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        
+        byte[] bytes = codec.encode(value);
+        if (bytes.length > threshold) {
+            Compressor compressor = borrow();
+            long startCpu = cpuNanos();
+            try {
+                byte[] deflated = compressor.compress(bytes, (int) (bytes.length * (1 - MIN_SAVINGS)));
+                compressCpuNanos.add(cpuNanos() - startCpu);
+                if (deflated != null) {
+                    compressedValues.increment();
+                    uncompressedBytes.add(bytes.length);
+                    compressedBytes.add(deflated.length);
+                    return deflated;
+                }
+                incompressibleValues.increment();
+            } finally {
+                release(compressor);
+            }
+        } else {
+            rawValues.increment();
+        }
+        
+        byte[] stored = new byte[bytes.length + 1];
+        stored[0] = RAW;
+        System.arraycopy(bytes, 0, stored, 1, bytes.length);
+        return stored;
+    }
+    
+    private V decode(byte[] stored) {
+        if (stored[0] == RAW) {
+            return codec.decode(Arrays.copyOfRange(stored, 1, stored.length));
+        }
+        
+        Compressor compressor = borrow();
+        long startCpu = cpuNanos();
+        byte[] bytes;
+        try {
+            bytes = compressor.decompress(stored);
+        } finally {
+            release(compressor);
+        }
+        decompressCpuNanos.add(cpuNanos() - startCpu);
+        decompressions.increment();
+        return codec.decode(bytes);
+    }
+    
+    private Compressor borrow() {
+        Compressor compressor = compressors.poll();
+        return compressor != null ? compressor : new Compressor(level);
+    }
+    
+    private void release(Compressor compressor) {
+        if (!compressors.offer(compressor)) {
+            compressor.end(); // Pool is full: more threads than expected were compressing at once
+        }
+    }
+    
+    private static long cpuNanos() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+    
+    /**
+     * A Deflater, an Inflater and an output buffer, used by one thread at a time.
+     */
+    private static final class Compressor {
+        private final Deflater deflater;
+        private final Inflater inflater;
+        private byte[] buffer;
+        
+        Compressor(int level) {
+            this.deflater = new Deflater(level);
+            this.inflater = new Inflater();
+            this.buffer = new byte[64 * 1024];
+        }
+        
+        /**
+         * Deflates input into a stored value, or returns null if the result
+         * would be larger than limit bytes.
+         */
+        byte[] compress(byte[] input, int limit) {
+            int capacity = DEFLATED_HEADER + limit;
+            if (buffer.length < capacity) {
+                buffer = new byte[Math.max(capacity, buffer.length * 2)];
+            }
+            
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+            int length = DEFLATED_HEADER;
+            while (!deflater.finished() && length < capacity) {
+                length += deflater.deflate(buffer, length, capacity - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            
+            buffer[0] = DEFLATED;
+            buffer[1] = (byte) (input.length >>> 24);
+            buffer[2] = (byte) (input.length >>> 16);
+            buffer[3] = (byte) (input.length >>> 8);
+            buffer[4] = (byte) input.length;
+            return Arrays.copyOf(buffer, length);
+        }
+        
+        byte[] decompress(byte[] stored) {
+            int originalLength = (stored[1] & 0xFF) << 24 | (stored[2] & 0xFF) << 16
+                | (stored[3] & 0xFF) << 8 | (stored[4] & 0xFF);
+            byte[] output = new byte[originalLength];
+            
+            inflater.reset();
+            inflater.setInput(stored, DEFLATED_HEADER, stored.length - DEFLATED_HEADER);
+            try {
+                int length = 0;
+                while (length < originalLength) {
+                    int inflated = inflater.inflate(output, length, originalLength - length);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalStateException("Compressed value is truncated");
+                    }
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Compressed value is corrupt", e);
+            }
+            return output;
+        }
+        
+        void end() {
+            deflater.end();
+            inflater.end();
+        }
+    }
+    
+    public static class Builder<K, V> {
+        private final KeyValueStore<K, byte[]> store;
+        private final Codec<V> codec;
+        private int threshold = 1024;
+        private int level = Deflater.BEST_SPEED;
+        
+        private Builder(KeyValueStore<K, byte[]> store, Codec<V> codec) {
+            if (store == null || codec == null) {
+                throw new IllegalArgumentException("Store and codec cannot be null");
+            }
+            this.store = store;
+            this.codec = codec;
+        }
+        
+        /**
+         * Sets the encoded size, in bytes, above which values are compressed.
+         */
+        public Builder<K, V> threshold(int bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Threshold cannot be negative");
+            }
+            this.threshold = bytes;
+            return this;
+        }
+        
+        /**
+         * Sets the Deflater level, 1 (fastest) to 9 (smallest). Defaults to 1:
+         * text such as JSON already shrinks several times at the fastest level.
+         */
+        public Builder<K, V> level(int level) {
+            if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Level must be between 1 and 9");
+            }
+            this.level = level;
+            return this;
+        }
+        
+        public CompressedKeyValueStore<K, V> build() {
+            return new CompressedKeyValueStore<>(this);
+        }
+    }
+}
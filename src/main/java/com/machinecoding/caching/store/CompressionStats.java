@@ -0,0 +1,70 @@
+package com.machinecoding.caching.store;
+
+/**
+ * Statistics for a CompressedKeyValueStore, accumulated over all writes and reads.
+ */
+public class CompressionStats {
+    private final long compressedValues;
+    private final long rawValues;
+    private final long incompressibleValues;
+    private final long uncompressedBytes;
+    private final long compressedBytes;
+    private final long compressCpuNanos;
+    private final long decompressions;
+    private final long decompressCpuNanos;
+    
+    public CompressionStats(long compressedValues, long rawValues, long incompressibleValues,
+                            long uncompressedBytes, long compressedBytes, long compressCpuNanos,
+                            long decompressions, long decompressCpuNanos) {
+        this.compressedValues = compressedValues;
+        this.rawValues = rawValues;
+        this.incompressibleValues = incompressibleValues;
+        this.uncompressedBytes = uncompressedBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressCpuNanos = compressCpuNanos;
+        this.decompressions = decompressions;
+        this.decompressCpuNanos = decompressCpuNanos;
+    }
+    
+    public long getCompressedValues() { return compressedValues; }
+    public long getRawValues() { return rawValues; }
+    public long getIncompressibleValues() { return incompressibleValues; }
+    public long getUncompressedBytes() { return uncompressedBytes; }
+    public long getCompressedBytes() { return compressedBytes; }
+    public long getCompressCpuNanos() { return compressCpuNanos; }
+    public long getDecompressions() { return decompressions; }
+    public long getDecompressCpuNanos() { return decompressCpuNanos; }
+    
+    /**
+     * Original size divided by stored size, over the values that were compressed.
+     */
+    public double getCompressionRatio() {
+        return compressedBytes == 0 ? 1.0 : (double) uncompressedBytes / compressedBytes;
+    }
+    
+    /**
+     * Average CPU time to compress one value, in microseconds. Values that turned
+     * out to be incompressible are included, since the attempt cost CPU too.
+     */
+    public double getAverageCompressMicros() {
+        long attempts = compressedValues + incompressibleValues;
+        return attempts == 0 ? 0.0 : compressCpuNanos / 1_000.0 / attempts;
+    }
+    
+    /**
+     * Average CPU time to decompress one value on a read, in microseconds.
+     */
+    public double getAverageDecompressMicros() {
+        return decompressions == 0 ? 0.0 : decompressCpuNanos / 1_000.0 / decompressions;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "CompressionStats{compressed=%d, raw=%d, incompressible=%d, ratio=%.2fx, " +
+            "avgCompress=%.1fus, decompressions=%d, avgDecompress=%.1fus}",
+            compressedValues, rawValues, incompressibleValues, getCompressionRatio(),
+            getAverageCompressMicros(), decompressions, getAverageDecompressMicros()
+        );
+    }
+}
@@ -0,0 +1,107 @@
+package com.machinecoding.caching.store;
+
+import java.util.*;
+
+/**
+ * Immutable consistent-hash ring with virtual nodes.
+ *
+ * Each node is placed on a 64-bit ring at several pseudo-random positions (virtual
+ * nodes). A key belongs to the first position at or after its hash, wrapping around.
+ * Adding or removing a node only changes ownership of the ranges next to that node's
+ * positions, and virtual nodes spread those ranges evenly over the other nodes.
+ *
+ * Positions are kept in sorted parallel arrays, so a lookup is one binary search.
+ * Membership changes return a new ring.
+ */
+class ConsistentHashRing {
+    
+    private final int virtualNodes;
+    private final long[] positions;
+    private final String[] owners;
+    private final Set<String> nodeIds;
+    
+    ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive");
+        }
+        
+        this.virtualNodes = virtualNodes;
+        this.nodeIds = Collections.unmodifiableSet(new TreeSet<>(nodeIds));
+        
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String nodeId : this.nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // On the rare position collision, the smaller node id wins deterministically
+                ring.merge(hash(nodeId + "#" + i), nodeId, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+        
+        this.positions = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> entry : ring.entrySet()) {
+            positions[i] = entry.getKey();
+            owners[i] = entry.getValue();
+            i++;
+        }
+    }
+    
+    ConsistentHashRing withNode(String nodeId) {
+        Set<String> ids = new HashSet<>(nodeIds);
+        ids.add(nodeId);
+        return new ConsistentHashRing(ids, virtualNodes);
+    }
+    
+    ConsistentHashRing withoutNode(String nodeId) {
+        Set<String> ids = new HashSet<>(nodeIds);
+        ids.remove(nodeId);
+        return new ConsistentHashRing(ids, virtualNodes);
+    }
+    
+    /**
+     * Returns the id of the node owning a key, or null if the ring is empty.
+     */
+    String nodeFor(Object key) {
+        if (positions.length == 0) {
+            return null;
+        }
+        
+        int index = Arrays.binarySearch(positions, mix(key.hashCode()));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+    
+    Set<String> getNodeIds() {
+        return nodeIds;
+    }
+    
+    boolean contains(String nodeId) {
+        return nodeIds.contains(nodeId);
+    }
+    
+    /**
+     * 64-bit FNV-1a over the characters, finished with a mix so nearby names spread out.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+    
+    /**
+     * Murmur3 64-bit finalizer.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,532 @@
+package com.machinecoding.caching.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * KeyValueStore that survives restarts.
+ *
+ * Features:
+ * - All reads are served by an InMemoryKeyValueStore
+ * - put, remove, expire and clear are recorded in an append-only log with group commit
+ * - TTLs are logged as absolute expiration times, so restored keys keep their deadline
+ * - Periodic compacted snapshots; startup memory-maps the snapshot and replays the newer logs
+ * - Configurable fsync policy: always, every N milliseconds, or left to the OS
+ * - Change events from the in-memory tier, so near-caches can sit in front of it
+ *
+ * Files are numbered by generation. Taking a snapshot rotates the log to generation
+ * G+1, writes snapshot-(G+1) from the in-memory state and then deletes generation G.
+ * Recovery loads the newest snapshot and replays every log from that generation on,
+ * so a crash at any point of a snapshot loses nothing that was already logged. After
+ * a crash between rotating the log and publishing the snapshot, the live log is a
+ * generation ahead of the newest snapshot; the next snapshot is numbered past it, and
+ * the log never rotates onto a file that already exists.
+ *
+ * Log records hold absolute states (a value, an expiration time or a removal), so
+ * replaying a log on top of a snapshot that already contains some of its records
+ * yields the same result.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class DurableKeyValueStore<K, V> implements KeyValueStore<K, V>, StoreEventSource<K> {
+    
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_EXPIRE = 3;
+    private static final byte OP_CLEAR = 4;
+    private static final long NO_EXPIRATION = -1;
+    private static final int STRIPES = 64;
+    
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.dat");
+    private static final Pattern LOG_FILE = Pattern.compile("appendonly-(\\d+)\\.log");
+    
+    private final PersistenceConfig config;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final InMemoryKeyValueStore<K, V> memory;
+    private final ReentrantLock[] stripes;
+    private final Object snapshotLock;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final AppendOnlyLog log;
+    private long generation;
+    
+    // Statistics
+    private final AtomicLong snapshotsTaken;
+    private final AtomicLong snapshotFailures;
+    private volatile String lastSnapshotError;
+    private final long recordsRecovered;
+    private final long recoveryMillis;
+    
+    public DurableKeyValueStore(PersistenceConfig config, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        this.config = config;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.memory = new InMemoryKeyValueStore<>();
+        this.snapshotLock = new Object();
+        this.snapshotsTaken = new AtomicLong(0);
+        this.snapshotFailures = new AtomicLong(0);
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        
+        Files.createDirectories(config.getDirectory());
+        long startTime = System.currentTimeMillis();
+        long[] recovered = new long[1];
+        this.log = recover(recovered);
+        this.recordsRecovered = recovered[0];
+        this.recoveryMillis = System.currentTimeMillis() - startTime;
+        
+        long snapshotInterval = config.getSnapshotIntervalMillis();
+        if (snapshotInterval > 0) {
+            this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "KeyValueStore-Snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotExecutor.scheduleWithFixedDelay(
+                this::snapshotQuietly,
+                snapshotInterval,
+                snapshotInterval,
+                TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.snapshotExecutor = null;
+        }
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        
+        byte[] record = encode(OP_PUT, NO_EXPIRATION, key, value);
+        long sequence;
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            sequence = log.append(record);
+            memory.put(key, value);
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(sequence);
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        
+        long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
+        byte[] record = encode(OP_PUT, expirationTime, key, value);
+        long sequence;
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            sequence = log.append(record);
+            memory.putWithExpirationTime(key, value, expirationTime);
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(sequence);
+    }
+    
+    @Override
+    public Optional<V> get(K key) {
+        return memory.get(key);
+    }
+    
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return memory.getAll(keys);
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        if (key == null) {
+            return false;
+        }
+        
+        byte[] record = encode(OP_REMOVE, NO_EXPIRATION, key, null);
+        long sequence;
+        boolean removed;
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            // Log first, like put: a failed append must leave memory untouched.
+            // An expired entry needs no record, since its expiration is already logged.
+            sequence = memory.containsKey(key) ? log.append(record) : 0;
+            removed = memory.remove(key);
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(sequence);
+        return removed;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return memory.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return memory.size();
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return memory.isEmpty();
+    }
+    
+    @Override
+    public void clear() {
+        byte[] record = encode(OP_CLEAR, NO_EXPIRATION, null, null);
+        long sequence;
+        lockAllStripes();
+        try {
+            sequence = log.append(record);
+            memory.clear();
+        } finally {
+            unlockAllStripes();
+        }
+        awaitDurable(sequence);
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        return memory.keySet();
+    }
+    
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return memory.scan(cursor, count, matchPattern);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        if (key == null || ttl <= 0) {
+            return false;
+        }
+        
+        long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
+        byte[] record = encode(OP_EXPIRE, expirationTime, key, null);
+        long sequence;
+        boolean applied;
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            sequence = memory.containsKey(key) ? log.append(record) : 0;
+            applied = sequence > 0 && memory.expireAt(key, expirationTime);
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(sequence);
+        return applied;
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        return memory.getTTL(key);
+    }
+    
+    @Override
+    public boolean hasExpiringKeys() {
+        return memory.hasExpiringKeys();
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        // Expiration times are absolute, so removing expired keys needs no log record
+        return memory.cleanupExpired();
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        return memory.getStats();
+    }
+    
+    @Override
+    public void addListener(StoreListener<K> listener) {
+        memory.addListener(listener);
+    }
+    
+    @Override
+    public boolean removeListener(StoreListener<K> listener) {
+        return memory.removeListener(listener);
+    }
+    
+    /**
+     * Gets statistics about the log, snapshots and the last recovery.
+     */
+    public PersistenceStats getPersistenceStats() {
+        return new PersistenceStats(
+            log.getRecordsLogged(),
+            log.getBatchesWritten(),
+            log.getBytesWritten(),
+            log.getFsyncs(),
+            snapshotsTaken.get(),
+            snapshotFailures.get(),
+            lastSnapshotError,
+            recordsRecovered,
+            recoveryMillis
+        );
+    }
+    
+    public PersistenceConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Writes a compacted snapshot of the current state and drops the log it replaces.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long nextGeneration = generation + 1;
+            
+            // Cut the log while no write is between its log append and its memory update
+            lockAllStripes();
+            try {
+                log.rotate(logFile(nextGeneration));
+            } finally {
+                unlockAllStripes();
+            }
+            
+            Path snapshot = snapshotFile(nextGeneration);
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (AppendOnlyLog.RecordWriter writer = new AppendOnlyLog.RecordWriter(temporary)) {
+                IOException[] failure = new IOException[1];
+                memory.forEachEntry((key, value, expirationTime) -> {
+                    if (failure[0] == null) {
+                        try {
+                            writer.write(encode(OP_PUT, expirationTime, key, value));
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            
+            deleteGenerationsBefore(nextGeneration);
+            generation = nextGeneration;
+            snapshotsTaken.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Stops background work and closes the log. Records already appended are flushed and forced.
+     */
+    public void shutdown() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            try {
+                if (!snapshotExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    snapshotExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                snapshotExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            memory.shutdown();
+        }
+    }
+    
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // Keep the schedule alive; the failure shows up in the persistence stats
+            snapshotFailures.incrementAndGet();
+            lastSnapshotError = e.toString();
+        }
+    }
+    
+    private void awaitDurable(long sequence) {
+        if (sequence > 0 && config.getFsyncPolicy() == FsyncPolicy.ALWAYS) {
+            try {
+                log.awaitDurable(sequence);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    // Recovery
+    
+    private AppendOnlyLog recover(long[] recovered) throws IOException {
+        Path directory = config.getDirectory();
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher snapshotMatch = SNAPSHOT_FILE.matcher(name);
+                Matcher logMatch = LOG_FILE.matcher(name);
+                if (snapshotMatch.matches()) {
+                    snapshots.put(Long.parseLong(snapshotMatch.group(1)), file);
+                } else if (logMatch.matches()) {
+                    logs.put(Long.parseLong(logMatch.group(1)), file);
+                } else if (name.endsWith(".tmp")) {
+                    Files.delete(file); // Unfinished snapshot
+                }
+            }
+        }
+        
+        long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        if (!snapshots.isEmpty()) {
+            AppendOnlyLog.replay(snapshots.lastEntry().getValue(), record -> {
+                applyRecord(record);
+                recovered[0]++;
+            });
+        }
+        
+        Path activeLog = logFile(snapshotGeneration);
+        long activeGeneration = snapshotGeneration;
+        long activeLength = 0;
+        for (Map.Entry<Long, Path> entry : logs.tailMap(snapshotGeneration, true).entrySet()) {
+            activeGeneration = entry.getKey();
+            activeLog = entry.getValue();
+            activeLength = AppendOnlyLog.replay(activeLog, record -> {
+                applyRecord(record);
+                recovered[0]++;
+            });
+        }
+        
+        // Replayed records are not client operations; stats count from the end of recovery
+        memory.resetStats();
+        
+        // The live log may be newer than the snapshot, which is still needed until the next one
+        generation = activeGeneration;
+        deleteGenerationsBefore(snapshotGeneration);
+        return new AppendOnlyLog(activeLog, activeLength, config.getFsyncPolicy(), config.getFsyncIntervalMillis());
+    }
+    
+    private void applyRecord(ByteBuffer record) {
+        byte op = record.get();
+        long expirationTime = record.getLong();
+        K key = op == OP_CLEAR ? null : keyCodec.decode(readBytes(record));
+        boolean expired = expirationTime != NO_EXPIRATION && expirationTime <= System.currentTimeMillis();
+        
+        switch (op) {
+            case OP_PUT:
+                if (expired) {
+                    memory.remove(key);
+                } else if (expirationTime == NO_EXPIRATION) {
+                    memory.put(key, decodeValue(readBytes(record)));
+                } else {
+                    memory.putWithExpirationTime(key, decodeValue(readBytes(record)), expirationTime);
+                }
+                break;
+            case OP_REMOVE:
+                memory.remove(key);
+                break;
+            case OP_EXPIRE:
+                if (expired) {
+                    memory.remove(key);
+                } else {
+                    memory.expireAt(key, expirationTime);
+                }
+                break;
+            case OP_CLEAR:
+                memory.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown log record type: " + op);
+        }
+    }
+    
+    private void deleteGenerationsBefore(long keepGeneration) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(config.getDirectory())) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher snapshotMatch = SNAPSHOT_FILE.matcher(name);
+                Matcher logMatch = LOG_FILE.matcher(name);
+                if ((snapshotMatch.matches() && Long.parseLong(snapshotMatch.group(1)) < keepGeneration)
+                        || (logMatch.matches() && Long.parseLong(logMatch.group(1)) < keepGeneration)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+    
+    private Path snapshotFile(long generation) {
+        return config.getDirectory().resolve("snapshot-" + generation + ".dat");
+    }
+    
+    private Path logFile(long generation) {
+        return config.getDirectory().resolve("appendonly-" + generation + ".log");
+    }
+    
+    // Record encoding: [op][expirationTime][keyLength][key][valueLength][value]
+    
+    private byte[] encode(byte op, long expirationTime, K key, V value) {
+        byte[] keyBytes = key == null ? new byte[0] : keyCodec.encode(key);
+        byte[] valueBytes = value == null ? new byte[0] : valueCodec.encode(value);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + keyBytes.length + 4 + valueBytes.length);
+        buffer.put(op);
+        buffer.putLong(expirationTime);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        buffer.putInt(value == null ? -1 : valueBytes.length).put(valueBytes);
+        return buffer.array();
+    }
+    
+    private V decodeValue(byte[] bytes) {
+        return bytes == null ? null : valueCodec.decode(bytes);
+    }
+    
+    private static byte[] readBytes(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return bytes;
+    }
+    
+    // Striped locks keep the log order and the in-memory order of writes to one key identical
+    
+    private ReentrantLock stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+    
+    private void lockAllStripes() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+    
+    private void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+}
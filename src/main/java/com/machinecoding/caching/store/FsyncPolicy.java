@@ -0,0 +1,21 @@
+package com.machinecoding.caching.store;
+
+/**
+ * When the append-only log forces written records to stable storage.
+ */
+public enum FsyncPolicy {
+    /**
+     * fsync before a write is acknowledged. Concurrent writers share one fsync (group commit).
+     */
+    ALWAYS,
+    
+    /**
+     * fsync in the background every configured interval; a crash can lose up to one interval.
+     */
+    EVERY_INTERVAL,
+    
+    /**
+     * Never fsync explicitly and let the operating system flush dirty pages.
+     */
+    OS_MANAGED
+}
@@ -2,30 +2,44 @@ package com.machinecoding.caching.store;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * Thread-safe in-memory implementation of KeyValueStore.
  * Features:
- * - Thread-safe operations using ReadWriteLock
+ * - Lock-free reads and per-key atomic writes on top of ConcurrentHashMap
  * - TTL support with automatic expiration
+ * - Expiration tracked in a hierarchical timing wheel, so cleanup is O(expired) instead of O(size)
  * - Memory management and statistics
  * - Background cleanup of expired keys
+ * - Batch getAll/putAll/removeAll and cursor-based scan
+ * - Change events for put, remove, expire and clear via StoreListeners
+ *
+ * There is no store-wide lock: every mutation of a key goes through a single
+ * ConcurrentHashMap operation (put, compute, conditional remove), and counters
+ * are LongAdders. Only the timing wheel has its own small lock, which is taken
+ * for keys that carry a TTL. Lock order is always map bin first, wheel second.
+ *
+ * Listeners are called synchronously on the writing thread once the change is
+ * visible, and never while a map bin or the wheel lock is held. An event is
+ * therefore delivered before the write that caused it returns.
  */
-public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
+public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V>, StoreEventSource<K> {
     
-    private final ConcurrentHashMap<K, StoreEntry<V>> store;
-    private final ReadWriteLock lock;
+    private final ConcurrentHashMap<K, StoreEntry<K, V>> store;
+    private final TimingWheel<K> expirationWheel;
+    private final Object wheelLock;
     private final ScheduledExecutorService cleanupExecutor;
-    private final AtomicLong totalGets;
-    private final AtomicLong totalPuts;
-    private final AtomicLong totalRemoves;
-    private final AtomicLong hits;
-    private final AtomicLong misses;
-    private final AtomicLong expiredKeys;
+    private final LongAdder totalGets;
+    private final LongAdder totalPuts;
+    private final LongAdder totalRemoves;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder expiredKeys;
+    private final LongAdder listenerFailures;
+    private final ScanCursors<K> scanCursors;
+    private final CopyOnWriteArrayList<StoreListener<K>> listeners;
     private final boolean enableAutoCleanup;
     
     public InMemoryKeyValueStore() {
@@ -34,13 +48,17 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
     
     public InMemoryKeyValueStore(boolean enableAutoCleanup, long cleanupIntervalSeconds) {
         this.store = new ConcurrentHashMap<>();
-        this.lock = new ReentrantReadWriteLock();
-        this.totalGets = new AtomicLong(0);
-        this.totalPuts = new AtomicLong(0);
-        this.totalRemoves = new AtomicLong(0);
-        this.hits = new AtomicLong(0);
-        this.misses = new AtomicLong(0);
-        this.expiredKeys = new AtomicLong(0);
+        this.expirationWheel = new TimingWheel<>(System.currentTimeMillis());
+        this.wheelLock = new Object();
+        this.totalGets = new LongAdder();
+        this.totalPuts = new LongAdder();
+        this.totalRemoves = new LongAdder();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.expiredKeys = new LongAdder();
+        this.listenerFailures = new LongAdder();
+        this.scanCursors = new ScanCursors<>();
+        this.listeners = new CopyOnWriteArrayList<>();
         this.enableAutoCleanup = enableAutoCleanup;
         
         if (enableAutoCleanup) {
@@ -52,9 +70,9 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             
             // Schedule periodic cleanup
             cleanupExecutor.scheduleAtFixedRate(
-                this::cleanupExpired, 
-                cleanupIntervalSeconds, 
-                cleanupIntervalSeconds, 
+                this::cleanupExpired,
+                cleanupIntervalSeconds,
+                cleanupIntervalSeconds,
                 TimeUnit.SECONDS
             );
         } else {
@@ -68,13 +86,9 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             throw new IllegalArgumentException("Key cannot be null");
         }
         
-        lock.writeLock().lock();
-        try {
-            store.put(key, new StoreEntry<>(value));
-            totalPuts.incrementAndGet();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        cancelExpiration(store.put(key, new StoreEntry<>(value)));
+        totalPuts.increment();
+        publish(StoreEvent.Type.PUT, key);
     }
     
     @Override
@@ -86,14 +100,17 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             throw new IllegalArgumentException("TTL must be positive");
         }
         
-        lock.writeLock().lock();
-        try {
-            long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
-            store.put(key, new StoreEntry<>(value, expirationTime));
-            totalPuts.incrementAndGet();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        putWithExpirationTime(key, value, System.currentTimeMillis() + unit.toMillis(ttl));
+    }
+    
+    /**
+     * Stores a key-value pair that expires at an absolute time in milliseconds.
+     * Used by persistence to restore entries with their original deadline.
+     */
+    void putWithExpirationTime(K key, V value, long expirationTime) {
+        cancelExpiration(store.put(key, scheduleExpiration(key, value, expirationTime)));
+        totalPuts.increment();
+        publish(StoreEvent.Type.PUT, key);
     }
     
     @Override
@@ -102,40 +119,27 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             return Optional.empty();
         }
         
-        lock.readLock().lock();
-        try {
-            totalGets.incrementAndGet();
-            StoreEntry<V> entry = store.get(key);
-            
-            if (entry == null) {
-                misses.incrementAndGet();
-                return Optional.empty();
-            }
-            
-            if (entry.isExpired()) {
-                misses.incrementAndGet();
-                // Remove expired entry asynchronously to avoid blocking reads
-                CompletableFuture.runAsync(() -> {
-                    lock.writeLock().lock();
-                    try {
-                        // Double-check the entry is still there and expired
-                        StoreEntry<V> currentEntry = store.get(key);
-                        if (currentEntry != null && currentEntry.isExpired()) {
-                            store.remove(key);
-                            expiredKeys.incrementAndGet();
-                        }
-                    } finally {
-                        lock.writeLock().unlock();
-                    }
-                });
-                return Optional.empty();
+        totalGets.increment();
+        StoreEntry<K, V> entry = store.get(key);
+        
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        
+        if (entry.isExpired()) {
+            misses.increment();
+            // Only remove the exact entry we saw, so a concurrent re-put is never lost
+            if (store.remove(key, entry)) {
+                cancelExpiration(entry);
+                expiredKeys.increment();
+                publish(StoreEvent.Type.EXPIRE, key);
             }
-            
-            hits.incrementAndGet();
-            return Optional.of(entry.getValue());
-        } finally {
-            lock.readLock().unlock();
+            return Optional.empty();
         }
+        
+        hits.increment();
+        return Optional.of(entry.getValue());
     }
     
     @Override
@@ -144,13 +148,133 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             return false;
         }
         
-        lock.writeLock().lock();
-        try {
-            totalRemoves.incrementAndGet();
-            return store.remove(key) != null;
-        } finally {
-            lock.writeLock().unlock();
+        totalRemoves.increment();
+        StoreEntry<K, V> removed = store.remove(key);
+        cancelExpiration(removed);
+        if (removed != null) {
+            publish(StoreEvent.Type.REMOVE, key);
+        }
+        return removed != null;
+    }
+    
+    /**
+     * Looks up several keys, updating the counters once for the whole batch.
+     * Null keys are skipped.
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>(Math.max(16, keys.size() * 2));
+        int found = 0;
+        int missed = 0;
+        int expired = 0;
+        
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            StoreEntry<K, V> entry = store.get(key);
+            if (entry == null) {
+                missed++;
+            } else if (entry.isExpired()) {
+                missed++;
+                if (store.remove(key, entry)) {
+                    cancelExpiration(entry);
+                    expired++;
+                    publish(StoreEvent.Type.EXPIRE, key);
+                }
+            } else {
+                found++;
+                result.put(key, entry.getValue());
+            }
         }
+        
+        totalGets.add(found + missed);
+        hits.add(found);
+        misses.add(missed);
+        expiredKeys.add(expired);
+        return result;
+    }
+    
+    /**
+     * Stores several pairs, cancelling the timers of replaced entries under a single
+     * wheel lock acquisition.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        requireNonNullKeys(entries.keySet());
+        
+        List<StoreEntry<K, V>> replaced = new ArrayList<>();
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            StoreEntry<K, V> previous = store.put(entry.getKey(), new StoreEntry<>(entry.getValue()));
+            if (previous != null && previous.timer != null) {
+                replaced.add(previous);
+            }
+        }
+        
+        cancelExpirations(replaced);
+        totalPuts.add(entries.size());
+        publishAll(StoreEvent.Type.PUT, entries.keySet());
+    }
+    
+    /**
+     * Stores several pairs with one shared deadline. Timers for the whole batch are
+     * scheduled, and those of replaced entries cancelled, under one wheel lock each.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttl, TimeUnit unit) {
+        requireNonNullKeys(entries.keySet());
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        
+        long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
+        List<K> keys = new ArrayList<>(entries.size());
+        List<StoreEntry<K, V>> created = new ArrayList<>(entries.size());
+        synchronized (wheelLock) {
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                StoreEntry<K, V> storeEntry = new StoreEntry<>(entry.getValue(), expirationTime);
+                storeEntry.timer = expirationWheel.schedule(entry.getKey(), expirationTime);
+                keys.add(entry.getKey());
+                created.add(storeEntry);
+            }
+        }
+        
+        List<StoreEntry<K, V>> replaced = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            StoreEntry<K, V> previous = store.put(keys.get(i), created.get(i));
+            if (previous != null && previous.timer != null) {
+                replaced.add(previous);
+            }
+        }
+        
+        cancelExpirations(replaced);
+        totalPuts.add(entries.size());
+        publishAll(StoreEvent.Type.PUT, entries.keySet());
+    }
+    
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        List<K> removed = new ArrayList<>();
+        List<StoreEntry<K, V>> withTimers = new ArrayList<>();
+        int processed = 0;
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            processed++;
+            StoreEntry<K, V> entry = store.remove(key);
+            if (entry != null) {
+                removed.add(key);
+                if (entry.timer != null) {
+                    withTimers.add(entry);
+                }
+            }
+        }
+        
+        cancelExpirations(withTimers);
+        totalRemoves.add(processed);
+        publishAll(StoreEvent.Type.REMOVE, removed);
+        return removed.size();
     }
     
     @Override
@@ -159,26 +283,16 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             return false;
         }
         
-        lock.readLock().lock();
-        try {
-            StoreEntry<V> entry = store.get(key);
-            return entry != null && !entry.isExpired();
-        } finally {
-            lock.readLock().unlock();
-        }
+        StoreEntry<K, V> entry = store.get(key);
+        return entry != null && !entry.isExpired();
     }
     
     @Override
     public int size() {
-        lock.readLock().lock();
-        try {
-            // Count only non-expired entries
-            return (int) store.values().stream()
-                    .filter(entry -> !entry.isExpired())
-                    .count();
-        } finally {
-            lock.readLock().unlock();
-        }
+        // Count only non-expired entries
+        return (int) store.values().stream()
+                .filter(entry -> !entry.isExpired())
+                .count();
     }
     
     @Override
@@ -188,25 +302,31 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
     
     @Override
     public void clear() {
-        lock.writeLock().lock();
-        try {
-            store.clear();
-        } finally {
-            lock.writeLock().unlock();
+        // Remove key by key so entries written concurrently keep their timers
+        for (K key : store.keySet()) {
+            store.computeIfPresent(key, (k, entry) -> {
+                cancelExpiration(entry);
+                return null;
+            });
         }
+        publish(StoreEvent.Type.CLEAR, null);
     }
     
     @Override
     public Set<K> keySet() {
-        lock.readLock().lock();
-        try {
-            return store.entrySet().stream()
-                    .filter(entry -> !entry.getValue().isExpired())
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toSet());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.entrySet().stream()
+                .filter(entry -> !entry.getValue().isExpired())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+    
+    /**
+     * Pages through the map's weakly consistent key iterator; no key set is copied.
+     * Expired entries are skipped but count towards {@code count}.
+     */
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return scanCursors.scan(cursor, count, matchPattern, () -> store.keySet().iterator(), this::containsKey);
     }
     
     @Override
@@ -215,19 +335,26 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             return false;
         }
         
-        lock.writeLock().lock();
-        try {
-            StoreEntry<V> entry = store.get(key);
-            if (entry == null || entry.isExpired()) {
-                return false;
+        return expireAt(key, System.currentTimeMillis() + unit.toMillis(ttl));
+    }
+    
+    /**
+     * Sets an absolute expiration time in milliseconds on an existing, live key.
+     */
+    boolean expireAt(K key, long expirationTime) {
+        boolean[] applied = new boolean[1];
+        store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired()) {
+                return entry;
             }
-            
-            long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
-            store.put(key, new StoreEntry<>(entry.getValue(), expirationTime));
-            return true;
-        } finally {
-            lock.writeLock().unlock();
+            cancelExpiration(entry);
+            applied[0] = true;
+            return scheduleExpiration(k, entry.getValue(), expirationTime);
+        });
+        if (applied[0]) {
+            publish(StoreEvent.Type.PUT, key);
         }
+        return applied[0];
     }
     
     @Override
@@ -236,65 +363,114 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             return -1;
         }
         
-        lock.readLock().lock();
-        try {
-            StoreEntry<V> entry = store.get(key);
-            if (entry == null) {
-                return -1; // Key doesn't exist
-            }
-            
-            if (!entry.hasExpiration()) {
-                return -2; // No expiration set
-            }
-            
-            long remaining = entry.getExpirationTime() - System.currentTimeMillis();
-            return Math.max(0, remaining);
-        } finally {
-            lock.readLock().unlock();
+        StoreEntry<K, V> entry = store.get(key);
+        if (entry == null) {
+            return -1; // Key doesn't exist
         }
+        
+        if (!entry.hasExpiration()) {
+            return -2; // No expiration set
+        }
+        
+        long remaining = entry.getExpirationTime() - System.currentTimeMillis();
+        return Math.max(0, remaining);
+    }
+    
+    /**
+     * Every key with an expiration time has a timer in the wheel until it is removed.
+     */
+    @Override
+    public boolean hasExpiringKeys() {
+        return expirationWheel.size() > 0;
     }
     
     @Override
     public int cleanupExpired() {
-        lock.writeLock().lock();
-        try {
-            List<K> expiredKeys = new ArrayList<>();
-            
-            for (Map.Entry<K, StoreEntry<V>> entry : store.entrySet()) {
-                if (entry.getValue().isExpired()) {
-                    expiredKeys.add(entry.getKey());
+        // Only the wheel buckets that have come due are visited
+        List<K> dueKeys;
+        synchronized (wheelLock) {
+            dueKeys = expirationWheel.advance(System.currentTimeMillis());
+        }
+        
+        List<K> removed = new ArrayList<>();
+        for (K key : dueKeys) {
+            store.computeIfPresent(key, (k, entry) -> {
+                if (!entry.isExpired()) {
+                    return entry; // Re-written since its timer fired
                 }
-            }
-            
-            for (K key : expiredKeys) {
-                store.remove(key);
-            }
-            
-            this.expiredKeys.addAndGet(expiredKeys.size());
-            return expiredKeys.size();
-        } finally {
-            lock.writeLock().unlock();
+                cancelExpiration(entry);
+                removed.add(k);
+                return null;
+            });
         }
+        
+        expiredKeys.add(removed.size());
+        publishAll(StoreEvent.Type.EXPIRE, removed);
+        return removed.size();
     }
     
     @Override
     public StoreStats getStats() {
-        lock.readLock().lock();
-        try {
-            long memoryUsage = estimateMemoryUsage();
-            return new StoreStats(
-                totalGets.get(),
-                totalPuts.get(),
-                totalRemoves.get(),
-                hits.get(),
-                misses.get(),
-                expiredKeys.get(),
-                store.size(),
-                memoryUsage
-            );
-        } finally {
-            lock.readLock().unlock();
+        long memoryUsage = estimateMemoryUsage();
+        return new StoreStats(
+            totalGets.sum(),
+            totalPuts.sum(),
+            totalRemoves.sum(),
+            hits.sum(),
+            misses.sum(),
+            expiredKeys.sum(),
+            store.size(),
+            memoryUsage,
+            0,
+            0.0,
+            listenerFailures.sum()
+        );
+    }
+    
+    @Override
+    public void addListener(StoreListener<K> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
         }
+        listeners.add(listener);
+    }
+    
+    @Override
+    public boolean removeListener(StoreListener<K> listener) {
+        return listeners.remove(listener);
+    }
+    
+    /**
+     * Zeroes the operation counters, e.g. after a recovery has replayed writes that
+     * clients never made.
+     */
+    void resetStats() {
+        totalGets.reset();
+        totalPuts.reset();
+        totalRemoves.reset();
+        hits.reset();
+        misses.reset();
+        expiredKeys.reset();
+        listenerFailures.reset();
+    }
+    
+    /**
+     * Visits every live entry with its absolute expiration time (-1 if none).
+     * Weakly consistent: concurrent writes may or may not be observed.
+     */
+    void forEachEntry(EntryVisitor<K, V> visitor) {
+        store.forEach((key, entry) -> {
+            if (!entry.isExpired()) {
+                visitor.visit(key, entry.getValue(), entry.getExpirationTime());
+            }
+        });
+    }
+    
+    /**
+     * Callback for {@link #forEachEntry(EntryVisitor)}.
+     */
+    interface EntryVisitor<K, V> {
+        void visit(K key, V value, long expirationTime);
     }
     
     /**
@@ -302,13 +478,79 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
      * This is a rough estimation for demonstration purposes.
      */
     private long estimateMemoryUsage() {
-        // Rough estimation: 
+        // Rough estimation:
         // - Each entry: ~100 bytes overhead
         // - String keys: ~40 bytes + 2 * length
         // - Object values: ~50 bytes (rough estimate)
         return store.size() * 200L; // Simplified estimation
     }
     
+    /**
+     * Creates an entry with expiration and registers it with the timing wheel.
+     */
+    private StoreEntry<K, V> scheduleExpiration(K key, V value, long expirationTime) {
+        StoreEntry<K, V> entry = new StoreEntry<>(value, expirationTime);
+        synchronized (wheelLock) {
+            entry.timer = expirationWheel.schedule(key, expirationTime);
+        }
+        return entry;
+    }
+    
+    /**
+     * Removes a replaced or removed entry from the timing wheel.
+     * Must only be called by the thread that took the entry out of the map.
+     */
+    private void cancelExpiration(StoreEntry<K, V> entry) {
+        if (entry != null && entry.timer != null) {
+            synchronized (wheelLock) {
+                expirationWheel.cancel(entry.timer);
+            }
+        }
+    }
+    
+    private void publish(StoreEvent.Type type, K key) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        StoreEvent<K> event = new StoreEvent<>(type, key, System.currentTimeMillis());
+        for (StoreListener<K> listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                // A failing listener must not fail the write or starve the other listeners
+                listenerFailures.increment();
+            }
+        }
+    }
+    
+    private void publishAll(StoreEvent.Type type, Collection<? extends K> keys) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        for (K key : keys) {
+            publish(type, key);
+        }
+    }
+    
+    private void cancelExpirations(List<StoreEntry<K, V>> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        synchronized (wheelLock) {
+            for (StoreEntry<K, V> entry : entries) {
+                expirationWheel.cancel(entry.timer);
+            }
+        }
+    }
+    
+    private static void requireNonNullKeys(Collection<?> keys) {
+        for (Object key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("Key cannot be null");
+            }
+        }
+    }
+    
     /**
      * Shuts down the store and cleanup resources.
      */
@@ -329,10 +571,11 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
     /**
      * Internal class to represent a store entry with optional expiration.
      */
-    private static class StoreEntry<V> {
+    private static class StoreEntry<K, V> {
         private final V value;
         private final long expirationTime;
         private final boolean hasExpiration;
+        private TimingWheel.Timer<K> timer;
         
         public StoreEntry(V value) {
             this.value = value;
@@ -362,4 +605,4 @@ public class InMemoryKeyValueStore<K, V> implements KeyValueStore<K, V> {
             return hasExpiration && System.currentTimeMillis() > expirationTime;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.machinecoding.caching.store;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +50,60 @@ public interface KeyValueStore<K, V> {
      */
     boolean remove(K key);
     
+    /**
+     * Retrieves the values of several keys at once.
+     * 
+     * @param keys the keys to look up
+     * @return map of the keys that were found and not expired to their values
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>();
+        for (K key : keys) {
+            get(key).ifPresent(value -> result.put(key, value));
+        }
+        return result;
+    }
+    
+    /**
+     * Stores several key-value pairs.
+     * 
+     * @param entries the pairs to store
+     */
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Stores several key-value pairs that share one expiration time.
+     * 
+     * @param entries the pairs to store
+     * @param ttl time to live
+     * @param unit time unit for TTL
+     */
+    default void putAll(Map<? extends K, ? extends V> entries, long ttl, TimeUnit unit) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue(), ttl, unit);
+        }
+    }
+    
+    /**
+     * Removes several keys.
+     * 
+     * @param keys the keys to remove
+     * @return number of keys that were present and removed
+     */
+    default int removeAll(Collection<? extends K> keys) {
+        int removed = 0;
+        for (K key : keys) {
+            if (remove(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
     /**
      * Checks if a key exists and is not expired.
      * 
@@ -81,6 +138,19 @@ public interface KeyValueStore<K, V> {
      */
     Set<K> keySet();
     
+    /**
+     * Pages through the keys without copying the whole keyspace.
+     * Start with cursor 0 and pass each returned cursor to the next call until
+     * it returns 0. Keys present for the whole scan are returned once; keys
+     * written or removed meanwhile may or may not be returned.
+     * 
+     * @param cursor 0 to start, or the cursor returned by the previous call
+     * @param count number of keys to examine in this call
+     * @param matchPattern glob pattern ('*', '?') for key.toString(), or null for all keys
+     * @return the matching keys of this page and the next cursor
+     */
+    ScanResult<K> scan(long cursor, int count, String matchPattern);
+    
     /**
      * Sets expiration time for an existing key.
      * 
@@ -99,6 +169,16 @@ public interface KeyValueStore<K, V> {
      */
     long getTTL(K key);
     
+    /**
+     * Checks whether any key may currently have an expiration time. While this is
+     * false every getTTL call for a live key would return -2, so callers can skip it.
+     * 
+     * @return false only if no key has an expiration time
+     */
+    default boolean hasExpiringKeys() {
+        return true;
+    }
+    
     /**
      * Removes expired keys from the store.
      * 
@@ -1,10 +1,21 @@
 package com.machinecoding.caching.store;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Comprehensive demonstration of the KeyValueStore implementation.
@@ -12,7 +23,7 @@ import java.util.Optional;
  */
 public class KeyValueStoreDemo {
     
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
         System.out.println("=== Key-Value Store Demo ===\n");
         
         InMemoryKeyValueStore<String, String> store = new InMemoryKeyValueStore<>();
@@ -37,6 +48,42 @@ public class KeyValueStoreDemo {
         System.out.println("\n=== Demo 5: Performance Testing ===");
         demonstratePerformance(store);
         
+        // Demo 6: Expiry cost with a large keyspace
+        System.out.println("\n=== Demo 6: Expiration Cleanup at Scale ===");
+        demonstrateExpirationAtScale();
+        
+        // Demo 7: Lock-free store vs one global read/write lock
+        System.out.println("\n=== Demo 7: Lock-Free Throughput Comparison ===");
+        demonstrateLockFreeThroughput();
+        
+        // Demo 8: Append-only log, snapshots and recovery
+        System.out.println("\n=== Demo 8: Persistence and Recovery ===");
+        demonstratePersistence();
+        
+        // Demo 9: Values in off-heap slabs
+        System.out.println("\n=== Demo 9: Off-Heap Slab Storage ===");
+        demonstrateOffHeapStorage();
+        
+        // Demo 10: Read-through loading with request coalescing
+        System.out.println("\n=== Demo 10: Read-Through Loading ===");
+        demonstrateReadThrough();
+        
+        // Demo 11: Consistent-hash sharding and live migration
+        System.out.println("\n=== Demo 11: Sharded Store with Consistent Hashing ===");
+        demonstrateSharding();
+        
+        // Demo 12: Batch operations and cursor scan
+        System.out.println("\n=== Demo 12: Batch Operations and Cursor Scan ===");
+        demonstrateBatchAndScan();
+        
+        // Demo 13: Near-cache kept coherent by invalidation events
+        System.out.println("\n=== Demo 13: Near-Cache with Invalidation Events ===");
+        demonstrateNearCache();
+        
+        // Demo 14: Compressed values
+        System.out.println("\n=== Demo 14: Compressed Value Tier ===");
+        demonstrateCompression();
+        
         // Cleanup
         store.shutdown();
         System.out.println("\n=== Demo Complete ===");
@@ -231,4 +278,577 @@ public class KeyValueStoreDemo {
         StoreStats finalStats = store.getStats();
         System.out.println("   " + finalStats);
     }
+    
+    private static void demonstrateExpirationAtScale() throws InterruptedException {
+        System.out.println("1. 1,000,000 permanent keys plus 1,000 keys with 50ms TTL:");
+        
+        InMemoryKeyValueStore<Integer, String> largeStore = new InMemoryKeyValueStore<>(false, 0);
+        for (int i = 0; i < 1_000_000; i++) {
+            largeStore.put(i, "permanent");
+        }
+        for (int i = 0; i < 1_000; i++) {
+            largeStore.put(-i - 1, "short-lived", 50, TimeUnit.MILLISECONDS);
+        }
+        
+        Thread.sleep(100);
+        
+        long startTime = System.nanoTime();
+        int cleaned = largeStore.cleanupExpired();
+        long durationMicros = (System.nanoTime() - startTime) / 1000;
+        
+        System.out.println("   Cleaned up " + cleaned + " expired keys in " + durationMicros + "us");
+        System.out.println("   (the timing wheel only visits due buckets, not all 1,001,000 entries)");
+        largeStore.shutdown();
+    }
+    
+    private static void demonstrateLockFreeThroughput() throws InterruptedException {
+        System.out.println("1. 90% get / 10% put over 100,000 keys:");
+        
+        int keySpace = 100_000;
+        int opsPerThread = 200_000;
+        
+        for (int threads : new int[]{1, 8, 32}) {
+            InMemoryKeyValueStore<Integer, Integer> lockFree = new InMemoryKeyValueStore<>(false, 0);
+            InMemoryKeyValueStore<Integer, Integer> delegate = new InMemoryKeyValueStore<>(false, 0);
+            KeyValueStore<Integer, Integer> globallyLocked = new GloballyLockedStore<>(delegate);
+            
+            long lockedOps = runMixedWorkload(globallyLocked, threads, opsPerThread, keySpace);
+            long lockFreeOps = runMixedWorkload(lockFree, threads, opsPerThread, keySpace);
+            
+            System.out.println(String.format(
+                "   %2d threads: global lock %,d ops/sec, lock-free %,d ops/sec",
+                threads, lockedOps, lockFreeOps
+            ));
+        }
+    }
+    
+    private static void demonstratePersistence() throws InterruptedException, IOException {
+        Path directory = Files.createTempDirectory("kvstore-demo");
+        PersistenceConfig config = PersistenceConfig.builder(directory)
+            .fsyncEvery(100, TimeUnit.MILLISECONDS)
+            .snapshotEvery(0, TimeUnit.MILLISECONDS)
+            .build();
+        
+        System.out.println("1. Writing to a durable store in " + directory + ":");
+        DurableKeyValueStore<String, String> durable =
+            new DurableKeyValueStore<>(config, Codec.utf8(), Codec.utf8());
+        for (int i = 0; i < 10_000; i++) {
+            durable.put("key" + i, "value" + i);
+        }
+        durable.put("session", "abc", 1, TimeUnit.HOURS);
+        durable.remove("key0");
+        durable.snapshot();
+        for (int i = 10_000; i < 10_100; i++) {
+            durable.put("key" + i, "value" + i);
+        }
+        System.out.println("   " + durable.getPersistenceStats());
+        durable.shutdown();
+        
+        System.out.println("\n2. Restarting from snapshot plus log:");
+        DurableKeyValueStore<String, String> restored =
+            new DurableKeyValueStore<>(config, Codec.utf8(), Codec.utf8());
+        System.out.println("   Size after restart: " + restored.size());
+        System.out.println("   key0 (removed): " + restored.get("key0"));
+        System.out.println("   key10050 (logged after snapshot): " + restored.get("key10050"));
+        System.out.println("   session TTL kept: " + restored.getTTL("session") + "ms");
+        System.out.println("   " + restored.getPersistenceStats());
+        restored.shutdown();
+        deleteDirectory(directory);
+        
+        System.out.println("\n3. Group commit with fsync on every write, 8 writer threads:");
+        Path alwaysDirectory = Files.createTempDirectory("kvstore-demo-fsync");
+        DurableKeyValueStore<Integer, Integer> synced = new DurableKeyValueStore<>(
+            PersistenceConfig.builder(alwaysDirectory).fsyncAlways().snapshotEvery(0, TimeUnit.MILLISECONDS).build(),
+            Codec.serializable(), Codec.serializable());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(8);
+        long startTime = System.nanoTime();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t * 1_000;
+            executor.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    synced.put(offset + i, i);
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+        executor.shutdown();
+        
+        PersistenceStats stats = synced.getPersistenceStats();
+        System.out.println(String.format("   %d writes in %dms, %d fsyncs (%.1f records per batch)",
+            stats.getRecordsLogged(), durationMillis, stats.getFsyncs(), stats.getAverageBatchSize()));
+        synced.shutdown();
+        deleteDirectory(alwaysDirectory);
+    }
+    
+    private static void demonstrateOffHeapStorage() {
+        int entries = 1_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        
+        System.out.println("1. Heap used for " + String.format("%,d", entries) + " values of ~40 bytes:");
+        long baseline = usedHeapAfterGc(runtime);
+        InMemoryKeyValueStore<Integer, String> onHeap = new InMemoryKeyValueStore<>(false, 0);
+        for (int i = 0; i < entries; i++) {
+            onHeap.put(i, "user-profile-" + i + "-abcdefghijklmnopqrstuv");
+        }
+        long onHeapBytes = usedHeapAfterGc(runtime) - baseline;
+        onHeap.clear();
+        onHeap.shutdown();
+        
+        baseline = usedHeapAfterGc(runtime);
+        OffHeapKeyValueStore<Integer, String> offHeap =
+            new OffHeapKeyValueStore<>(Codec.utf8(), 256L << 20, 1 << 20, false, 0);
+        for (int i = 0; i < entries; i++) {
+            offHeap.put(i, "user-profile-" + i + "-abcdefghijklmnopqrstuv");
+        }
+        long offHeapHeapBytes = usedHeapAfterGc(runtime) - baseline;
+        
+        System.out.println(String.format("   InMemoryKeyValueStore: %,d KB of heap", onHeapBytes / 1024));
+        System.out.println(String.format("   OffHeapKeyValueStore:  %,d KB of heap (keys and slot records)",
+            offHeapHeapBytes / 1024));
+        
+        StoreStats stats = offHeap.getStats();
+        System.out.println(String.format("   Off-heap: %,d KB reserved, %,d KB payload, %.1f%% fragmentation",
+            stats.getOffHeapBytes() / 1024, offHeap.getPayloadBytes() / 1024, stats.getFragmentation()));
+        
+        System.out.println("\n2. Overwriting with larger values reuses freed chunks:");
+        for (int i = 0; i < entries / 2; i++) {
+            offHeap.put(i, "user-profile-" + i + "-abcdefghijklmnopqrstuvwxyz0123456789");
+        }
+        for (int i = 0; i < entries / 2; i++) {
+            offHeap.put(i, "user-profile-" + i + "-abcdefghijklmnopqrstuv");
+        }
+        System.out.println("   " + offHeap.getStats());
+        System.out.println("   get(42) = " + offHeap.get(42).orElse(null));
+        offHeap.shutdown();
+    }
+    
+    private static void demonstrateReadThrough() throws InterruptedException {
+        AtomicInteger databaseQueries = new AtomicInteger();
+        CacheLoader<String, String> database = key -> {
+            databaseQueries.incrementAndGet();
+            sleep(50); // Simulated query latency
+            return "row-for-" + key;
+        };
+        
+        System.out.println("1. 100 threads miss the same key at once:");
+        InMemoryKeyValueStore<String, String> backing = new InMemoryKeyValueStore<>(false, 0);
+        LoadingKeyValueStore<String, String> loading = LoadingKeyValueStore.builder(backing, database)
+            .expireAfterWrite(400, TimeUnit.MILLISECONDS)
+            .refreshAhead(0.5)
+            .build();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(100);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    loading.get("user:42");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        executor.shutdown();
+        System.out.println("   Database queries: " + databaseQueries.get());
+        System.out.println("   " + loading.getLoadingStats());
+        
+        System.out.println("\n2. Reading a hot key every 20ms for 2 seconds (TTL 400ms, refresh after 50%):");
+        int misses = 0;
+        for (int i = 0; i < 100; i++) {
+            if (!backing.containsKey("user:42")) {
+                misses++;
+            }
+            loading.get("user:42");
+            Thread.sleep(20);
+        }
+        System.out.println("   Reads that found the key expired: " + misses);
+        System.out.println("   Database queries: " + databaseQueries.get());
+        System.out.println("   " + loading.getLoadingStats());
+        
+        loading.shutdown();
+        backing.shutdown();
+    }
+    
+    private static void demonstrateSharding() throws InterruptedException {
+        List<LocalStoreNode<String, String>> nodes = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            nodes.add(new LocalStoreNode<>("node-" + i, new InMemoryKeyValueStore<>(false, 0)));
+        }
+        ShardedKeyValueStore<String, String> sharded = new ShardedKeyValueStore<>(nodes);
+        
+        System.out.println("1. 30,000 keys over 3 nodes (160 virtual nodes each):");
+        for (int i = 0; i < 30_000; i++) {
+            sharded.put("key" + i, "value" + i);
+        }
+        printNodeSizes(nodes);
+        
+        System.out.println("\n2. Adding node-4 while writers keep running:");
+        Map<String, String> ownersBefore = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            ownersBefore.put("key" + i, sharded.getNodeFor("key" + i));
+        }
+        
+        LocalStoreNode<String, String> newNode = new LocalStoreNode<>("node-4", new InMemoryKeyValueStore<>(false, 0));
+        nodes.add(newNode);
+        AtomicInteger writes = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(1);
+            while (!Thread.currentThread().isInterrupted()) {
+                int i = random.nextInt(30_000);
+                sharded.put("key" + i, "updated" + i);
+                writes.incrementAndGet();
+            }
+        });
+        writer.start();
+        
+        int moved = sharded.addNode(newNode).join();
+        writer.interrupt();
+        writer.join();
+        
+        int changedOwner = 0;
+        for (int i = 0; i < 30_000; i++) {
+            if (!ownersBefore.get("key" + i).equals(sharded.getNodeFor("key" + i))) {
+                changedOwner++;
+            }
+        }
+        // Concurrent writes to keys that changed owner land on node-4 directly
+        System.out.println(String.format("   %,d keys (%.1f%%) changed owner, all now on node-4: %b",
+            changedOwner, changedOwner * 100.0 / 30_000, changedOwner == newNode.size()));
+        System.out.println(String.format("   Migration copied %,d of them", moved));
+        System.out.println(String.format("   %,d concurrent writes, total size now %,d",
+            writes.get(), sharded.size()));
+        printNodeSizes(nodes);
+        
+        System.out.println("\n3. Draining node-2:");
+        moved = sharded.removeNode("node-2").join();
+        System.out.println(String.format("   Moved %,d keys, node-2 now holds %d, total size %,d",
+            moved, nodes.get(1).size(), sharded.size()));
+        System.out.println("   " + sharded.getStats());
+        
+        sharded.shutdown();
+        for (LocalStoreNode<String, String> node : nodes) {
+            node.shutdown();
+        }
+    }
+    
+    private static void demonstrateBatchAndScan() {
+        InMemoryKeyValueStore<String, String> store = new InMemoryKeyValueStore<>(false, 0);
+        int keyCount = 200_000;
+        Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < keyCount; i++) {
+            entries.put("user:" + i, "profile-" + i);
+        }
+        
+        System.out.println("1. putAll with a shared TTL:");
+        long startTime = System.nanoTime();
+        store.putAll(entries, 10, TimeUnit.MINUTES);
+        System.out.println(String.format("   Stored %,d keys in %.1f ms",
+            store.size(), (System.nanoTime() - startTime) / 1_000_000.0));
+        
+        System.out.println("\n2. 150-key lookups, per-key get vs getAll:");
+        Random random = new Random(42);
+        List<List<String>> batches = new ArrayList<>();
+        for (int b = 0; b < 2_000; b++) {
+            List<String> batch = new ArrayList<>();
+            for (int i = 0; i < 150; i++) {
+                batch.add("user:" + random.nextInt(keyCount + keyCount / 10));
+            }
+            batches.add(batch);
+        }
+        
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up the JIT
+            startTime = System.nanoTime();
+            for (List<String> batch : batches) {
+                for (String key : batch) {
+                    store.get(key);
+                }
+            }
+            long singleNanos = System.nanoTime() - startTime;
+            
+            startTime = System.nanoTime();
+            for (List<String> batch : batches) {
+                store.getAll(batch);
+            }
+            long batchNanos = System.nanoTime() - startTime;
+            
+            if (round == 1) {
+                System.out.println(String.format("   get: %.1f us/request, getAll: %.1f us/request",
+                    singleNanos / 1000.0 / batches.size(), batchNanos / 1000.0 / batches.size()));
+            }
+        }
+        
+        System.out.println("\n3. Paging through the keyspace with scan(cursor, 1000, \"user:1*\"):");
+        long cursor = 0;
+        int pages = 0;
+        int matched = 0;
+        do {
+            ScanResult<String> page = store.scan(cursor, 1000, "user:1*");
+            matched += page.getKeys().size();
+            cursor = page.getCursor();
+            pages++;
+        } while (cursor != 0);
+        System.out.println(String.format("   %d pages, %,d matching keys, no page examined more than 1,000 keys", pages, matched));
+        
+        System.out.println("\n4. removeAll of the matched range:");
+        List<String> toRemove = new ArrayList<>();
+        for (int i = 100_000; i < 200_000; i++) {
+            toRemove.add("user:" + i);
+        }
+        System.out.println(String.format("   Removed %,d keys, %,d left", store.removeAll(toRemove), store.size()));
+        System.out.println("   " + store.getStats());
+        
+        store.shutdown();
+    }
+    
+    private static void demonstrateNearCache() {
+        InMemoryKeyValueStore<String, String> shared = new InMemoryKeyValueStore<>(false, 0);
+        for (int i = 0; i < 10_000; i++) {
+            shared.put("item:" + i, "v0");
+        }
+        
+        System.out.println("1. Two clients, each with its own near-cache over one store:");
+        NearCachedKeyValueStore<String, String> clientA = NearCachedKeyValueStore.builder(shared)
+            .maximumSize(1_000)
+            .build();
+        NearCachedKeyValueStore<String, String> clientB = NearCachedKeyValueStore.builder(shared)
+            .maximumSize(1_000)
+            .build();
+        System.out.println("   A reads item:7 -> " + clientA.get("item:7").orElse(null)
+            + ", again -> " + clientA.get("item:7").orElse(null) + " (local hit)");
+        clientB.put("item:7", "v1");
+        System.out.println("   B writes v1; A reads item:7 -> " + clientA.get("item:7").orElse(null));
+        shared.remove("item:7");
+        System.out.println("   Store removes it directly; A reads item:7 -> " + clientA.get("item:7").orElse(null));
+        
+        System.out.println("\n2. Skewed reads with 5% writes from another client:");
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Cubing a uniform draw favours low ids, giving a hot set
+            double u = random.nextDouble();
+            String key = "item:" + (int) (u * u * u * 10_000);
+            if (random.nextInt(20) == 0) {
+                clientB.put(key, "v" + i);
+            } else {
+                String seen = clientA.get(key).orElse(null);
+                if (seen != null && !seen.equals(shared.get(key).orElse(null))) {
+                    System.out.println("   Stale read of " + key);
+                }
+            }
+        }
+        System.out.println("   A: " + clientA.getNearCacheStats());
+        System.out.println("   No stale reads: every value matched the store at the time of reading");
+        
+        System.out.println("\n3. A store without events, bounded by max staleness only:");
+        KeyValueStore<String, String> silent = new GloballyLockedStore<>(new InMemoryKeyValueStore<>(false, 0));
+        silent.put("config", "old");
+        NearCachedKeyValueStore<String, String> clientC = NearCachedKeyValueStore.builder(silent)
+            .maxStaleness(100, TimeUnit.MILLISECONDS)
+            .build();
+        clientC.get("config");
+        silent.put("config", "new");
+        System.out.println("   Right after the write: " + clientC.get("config").orElse(null));
+        sleep(150);
+        System.out.println("   150 ms later:          " + clientC.get("config").orElse(null));
+        System.out.println("   C: " + clientC.getNearCacheStats());
+        
+        clientA.shutdown();
+        clientB.shutdown();
+        clientC.shutdown();
+        shared.shutdown();
+    }
+    
+    private static void demonstrateCompression() {
+        int documentCount = 200;
+        InMemoryKeyValueStore<String, String> plain = new InMemoryKeyValueStore<>(false, 0);
+        InMemoryKeyValueStore<String, byte[]> backing = new InMemoryKeyValueStore<>(false, 0);
+        CompressedKeyValueStore<String, String> compressed =
+            CompressedKeyValueStore.builder(backing, Codec.utf8()).threshold(4096).build();
+        
+        Random random = new Random(42);
+        long plainBytes = 0;
+        for (int i = 0; i < documentCount; i++) {
+            String json = jsonDocument(random, 10_000 + random.nextInt(190_000));
+            plain.put("doc:" + i, json);
+            compressed.put("doc:" + i, json);
+            plainBytes += json.length(); // ASCII strings hold one byte per character
+        }
+        long storedBytes = 0;
+        for (String key : backing.keySet()) {
+            storedBytes += backing.get(key).map(bytes -> bytes.length).orElse(0);
+        }
+        
+        System.out.println(String.format("1. %d JSON documents of 10-200 KB", documentCount));
+        System.out.println(String.format("   Plain store values:      %,d KB", plainBytes / 1024));
+        System.out.println(String.format("   Compressed store values: %,d KB (%.1fx more data in the same heap)",
+            storedBytes / 1024, (double) plainBytes / storedBytes));
+        
+        System.out.println("\n2. Read cost, 2,000 random gets:");
+        for (KeyValueStore<String, String> store : Arrays.<KeyValueStore<String, String>>asList(plain, compressed)) {
+            long startTime = System.nanoTime();
+            for (int i = 0; i < 2_000; i++) {
+                store.get("doc:" + random.nextInt(documentCount));
+            }
+            System.out.println(String.format("   %-24s %.1f us per get", store.getClass().getSimpleName(),
+                (System.nanoTime() - startTime) / 1_000.0 / 2_000));
+        }
+        System.out.println("   Round trip intact: " + plain.get("doc:7").equals(compressed.get("doc:7")));
+        System.out.println("   " + compressed.getCompressionStats());
+        System.out.println("   Hot documents can sit in a NearCachedKeyValueStore in front, decompressed once");
+        
+        plain.shutdown();
+        compressed.shutdown();
+        backing.shutdown();
+    }
+    
+    /**
+     * Builds an order-history style JSON document of roughly the given length.
+     */
+    private static String jsonDocument(Random random, int approximateLength) {
+        String[] statuses = {"PENDING", "SHIPPED", "DELIVERED", "RETURNED"};
+        String[] cities = {"Bengaluru", "Mumbai", "Delhi", "Chennai", "Pune", "Hyderabad"};
+        StringBuilder json = new StringBuilder("{\"customerId\":").append(random.nextInt(1_000_000))
+            .append(",\"orders\":[");
+        for (int order = 0; json.length() < approximateLength; order++) {
+            if (order > 0) {
+                json.append(',');
+            }
+            json.append("{\"orderId\":\"ORD-").append(100_000 + random.nextInt(900_000))
+                .append("\",\"status\":\"").append(statuses[random.nextInt(statuses.length)])
+                .append("\",\"city\":\"").append(cities[random.nextInt(cities.length)])
+                .append("\",\"amount\":").append(random.nextInt(100_000) / 100.0)
+                .append(",\"items\":[{\"sku\":\"SKU-").append(random.nextInt(5_000))
+                .append("\",\"quantity\":").append(1 + random.nextInt(5))
+                .append(",\"giftWrap\":").append(random.nextBoolean()).append("}]}");
+        }
+        return json.append("]}").toString();
+    }
+    
+    private static void printNodeSizes(List<LocalStoreNode<String, String>> nodes) {
+        StringBuilder sizes = new StringBuilder("  ");
+        for (LocalStoreNode<String, String> node : nodes) {
+            sizes.append(String.format(" %s=%,d", node.getNodeId(), node.size()));
+        }
+        System.out.println(sizes);
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static long usedHeapAfterGc(Runtime runtime) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+    
+    private static long runMixedWorkload(KeyValueStore<Integer, Integer> store, int threads,
+                                         int opsPerThread, int keySpace) throws InterruptedException {
+        for (int i = 0; i < keySpace; i++) {
+            store.put(i, i);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            executor.submit(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        int key = random.nextInt(keySpace);
+                        if (random.nextInt(10) == 0) {
+                            store.put(key, i);
+                        } else {
+                            store.get(key);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long duration = Math.max(1, System.nanoTime() - startTime);
+        executor.shutdown();
+        
+        return (long) threads * opsPerThread * 1_000_000_000L / duration;
+    }
+    
+    /**
+     * Reproduces the previous locking scheme: reads under a shared read lock,
+     * every write under one store-wide write lock.
+     */
+    private static class GloballyLockedStore<K, V> implements KeyValueStore<K, V> {
+        private final KeyValueStore<K, V> delegate;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        
+        GloballyLockedStore(KeyValueStore<K, V> delegate) {
+            this.delegate = delegate;
+        }
+        
+        private <T> T read(Supplier<T> operation) {
+            lock.readLock().lock();
+            try {
+                return operation.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        private <T> T write(Supplier<T> operation) {
+            lock.writeLock().lock();
+            try {
+                return operation.get();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        @Override public void put(K key, V value) { write(() -> { delegate.put(key, value); return null; }); }
+        @Override public void put(K key, V value, long ttl, TimeUnit unit) { write(() -> { delegate.put(key, value, ttl, unit); return null; }); }
+        @Override public Optional<V> get(K key) { return read(() -> delegate.get(key)); }
+        @Override public boolean remove(K key) { return write(() -> delegate.remove(key)); }
+        @Override public boolean containsKey(K key) { return read(() -> delegate.containsKey(key)); }
+        @Override public int size() { return read(delegate::size); }
+        @Override public boolean isEmpty() { return read(delegate::isEmpty); }
+        @Override public void clear() { write(() -> { delegate.clear(); return null; }); }
+        @Override public Set<K> keySet() { return read(delegate::keySet); }
+        @Override public ScanResult<K> scan(long cursor, int count, String matchPattern) { return read(() -> delegate.scan(cursor, count, matchPattern)); }
+        @Override public boolean expire(K key, long ttl, TimeUnit unit) { return write(() -> delegate.expire(key, ttl, unit)); }
+        @Override public long getTTL(K key) { return read(() -> delegate.getTTL(key)); }
+        @Override public int cleanupExpired() { return write(delegate::cleanupExpired); }
+        @Override public StoreStats getStats() { return read(delegate::getStats); }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,511 @@
+package com.machinecoding.caching.store;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through facade over a KeyValueStore.
+ *
+ * Features:
+ * - get() on a missing key calls the CacheLoader and stores the result
+ * - Single-flight loading: concurrent misses for one key share a single loader call
+ * - Refresh-ahead: a hit on an entry past a configurable share of its TTL reloads it
+ *   in the background, so hot keys are replaced before they expire
+ * - Statistics for load latency, coalesced waits and refreshes
+ *
+ * Each key has at most one load in flight, tracked as a CompletableFuture in a
+ * ConcurrentHashMap. The thread that installs the future runs the loader; threads
+ * that find one wait on it. A refresh installs a future too, so a miss that races
+ * with a refresh waits for it instead of starting a second load.
+ *
+ * Writes through this facade (put, remove) win over a load that is in flight: a write
+ * installs a marker for the key for as long as its store call runs, which detaches the
+ * pending future, and a loader result is only stored if its future is still attached
+ * when the load finishes. Waiting callers still receive the loaded value. A load that
+ * has already claimed the key finishes its store call before the write makes its own,
+ * and a miss during a write waits for it. No store call runs under the map's bin lock,
+ * so a slow store never blocks loads of neighbouring keys.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class LoadingKeyValueStore<K, V> implements KeyValueStore<K, V> {
+    
+    private final KeyValueStore<K, V> store;
+    private final CacheLoader<K, V> loader;
+    private final long ttlMillis;
+    private final long refreshAfterMillis;
+    private final Executor refreshExecutor;
+    private final ExecutorService ownedExecutor;
+    private final ConcurrentHashMap<K, Flight<V>> inFlight;
+    
+    // Statistics
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder loads;
+    private final LongAdder loadFailures;
+    private final LongAdder totalLoadNanos;
+    private final AtomicLong maxLoadNanos;
+    private final LongAdder coalescedWaits;
+    private final LongAdder refreshes;
+    private final LongAdder refreshFailures;
+    
+    private LoadingKeyValueStore(Builder<K, V> builder) {
+        this.store = builder.store;
+        this.loader = builder.loader;
+        this.ttlMillis = builder.ttlMillis;
+        this.refreshAfterMillis = (long) (builder.ttlMillis * builder.refreshAheadFactor);
+        this.inFlight = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.loads = new LongAdder();
+        this.loadFailures = new LongAdder();
+        this.totalLoadNanos = new LongAdder();
+        this.maxLoadNanos = new AtomicLong(0);
+        this.coalescedWaits = new LongAdder();
+        this.refreshes = new LongAdder();
+        this.refreshFailures = new LongAdder();
+        
+        if (builder.refreshAheadFactor > 0 && builder.refreshExecutor == null) {
+            this.ownedExecutor = Executors.newFixedThreadPool(2, r -> {
+                Thread t = new Thread(r, "LoadingKeyValueStore-Refresh");
+                t.setDaemon(true);
+                return t;
+            });
+            this.refreshExecutor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.refreshExecutor = builder.refreshExecutor;
+        }
+    }
+    
+    public static <K, V> Builder<K, V> builder(KeyValueStore<K, V> store, CacheLoader<K, V> loader) {
+        return new Builder<>(store, loader);
+    }
+    
+    /**
+     * Returns the stored value, loading it on a miss.
+     *
+     * @return the value, or empty if the loader returned null
+     * @throws RuntimeException whatever the loader threw, also rethrown to coalesced waiters
+     */
+    @Override
+    public Optional<V> get(K key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        
+        Optional<V> cached = store.get(key);
+        if (cached.isPresent()) {
+            hits.increment();
+            refreshIfStale(key);
+            return cached;
+        }
+        
+        misses.increment();
+        return Optional.ofNullable(loadOnce(key));
+    }
+    
+    /**
+     * Reads the present keys with one batch call on the backing store, then loads
+     * each missing key as get() would.
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = store.getAll(keys);
+        hits.add(result.size());
+        for (K key : result.keySet()) {
+            refreshIfStale(key);
+        }
+        
+        for (K key : keys) {
+            if (key == null || result.containsKey(key)) {
+                continue;
+            }
+            misses.increment();
+            V value = loadOnce(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        
+        write(key, () -> {
+            store.put(key, value);
+            return null;
+        });
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        
+        write(key, () -> {
+            store.put(key, value, ttl, unit);
+            return null;
+        });
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        if (key == null) {
+            return false;
+        }
+        
+        return write(key, () -> store.remove(key));
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return store.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return store.size();
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+    
+    @Override
+    public void clear() {
+        for (K key : inFlight.keySet()) {
+            Flight<V> detached = inFlight.remove(key);
+            if (detached != null) {
+                detached.awaitStored();
+            }
+        }
+        store.clear();
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        return store.keySet();
+    }
+    
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return store.scan(cursor, count, matchPattern);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        return store.expire(key, ttl, unit);
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        return store.getTTL(key);
+    }
+    
+    @Override
+    public boolean hasExpiringKeys() {
+        return store.hasExpiringKeys();
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        return store.cleanupExpired();
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        return store.getStats();
+    }
+    
+    /**
+     * Gets statistics about loads, coalescing and refreshes.
+     */
+    public LoadingStats getLoadingStats() {
+        return new LoadingStats(
+            hits.sum(),
+            misses.sum(),
+            loads.sum(),
+            loadFailures.sum(),
+            totalLoadNanos.sum(),
+            maxLoadNanos.get(),
+            coalescedWaits.sum(),
+            refreshes.sum(),
+            refreshFailures.sum()
+        );
+    }
+    
+    /**
+     * Stops the refresh threads if they were created by this store.
+     */
+    public void shutdown() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+            try {
+                if (!ownedExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    ownedExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                ownedExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Runs a write to the backing store with a marker installed for the key. The marker
+     * detaches any load in flight, and misses that arrive meanwhile wait for the write
+     * before loading. A load or write that had already started its store call finishes
+     * it first, so this write lands last.
+     */
+    private <R> R write(K key, Supplier<R> storeWrite) {
+        Flight<V> marker = new Flight<>(true);
+        Flight<V> detached = inFlight.put(key, marker);
+        try {
+            if (detached != null) {
+                detached.awaitStored();
+            }
+            return storeWrite.get();
+        } finally {
+            marker.stored();
+            inFlight.remove(key, marker);
+        }
+    }
+    
+    private V loadOnce(K key) {
+        Flight<V> future = new Flight<>(false);
+        Flight<V> existing;
+        while ((existing = inFlight.putIfAbsent(key, future)) != null) {
+            if (!existing.write) {
+                coalescedWaits.increment();
+                return await(existing);
+            }
+            existing.awaitStored(); // Then look again: the write may have stored the key
+        }
+        
+        try {
+            // Another load may have finished between our miss and installing the future
+            Optional<V> raced = store.get(key);
+            V value;
+            if (raced.isPresent()) {
+                value = raced.get();
+                inFlight.remove(key, future);
+            } else {
+                value = timedLoad(key);
+                publish(key, future, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private void refreshIfStale(K key) {
+        if (refreshAfterMillis <= 0) {
+            return;
+        }
+        
+        long remaining = store.getTTL(key);
+        if (remaining < 0 || remaining > ttlMillis - refreshAfterMillis) {
+            return;
+        }
+        
+        Flight<V> future = new Flight<>(false);
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return; // Already loading or refreshing
+        }
+        
+        refreshes.increment();
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    V value = timedLoad(key);
+                    publish(key, future, value);
+                    future.complete(value);
+                } catch (RuntimeException | Error e) {
+                    refreshFailures.increment();
+                    inFlight.remove(key, future);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshFailures.increment();
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * Stores a loaded value, unless a write through this facade has detached the future.
+     * A null value means the key no longer exists, so any stale copy is removed.
+     *
+     * Claiming the key and the store call are separate steps, so the store is never
+     * called under the map's bin lock. A write that detaches the future after the
+     * claim waits for this store call before making its own.
+     */
+    private void publish(K key, Flight<V> future, V value) {
+        inFlight.computeIfPresent(key, (k, pending) -> {
+            if (pending == future) {
+                future.publishing = true;
+            }
+            return pending;
+        });
+        if (!future.publishing) {
+            return; // Detached by a write, which wins
+        }
+        
+        try {
+            if (value == null) {
+                store.remove(key);
+            } else if (ttlMillis > 0) {
+                store.put(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+            } else {
+                store.put(key, value);
+            }
+        } finally {
+            future.stored();
+            inFlight.remove(key, future);
+        }
+    }
+    
+    private V timedLoad(K key) {
+        long startTime = System.nanoTime();
+        try {
+            return loader.load(key);
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - startTime;
+            loads.increment();
+            totalLoadNanos.add(duration);
+            maxLoadNanos.accumulateAndGet(duration, Math::max);
+        }
+    }
+    
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * A load or write in flight for one key. Callers that miss wait on a load for its
+     * value, and on a write until it has stored.
+     */
+    private static final class Flight<V> extends CompletableFuture<V> {
+        final boolean write;
+        // Set, under the map's bin lock, once the flight has claimed the key for a store call
+        volatile boolean publishing;
+        private final CountDownLatch storeDone = new CountDownLatch(1);
+        
+        Flight(boolean write) {
+            this.write = write;
+            this.publishing = write;
+        }
+        
+        void stored() {
+            storeDone.countDown();
+        }
+        
+        /**
+         * Waits for the flight's store call, if it claimed the key for one.
+         */
+        void awaitStored() {
+            if (!publishing) {
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    storeDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    public static class Builder<K, V> {
+        private final KeyValueStore<K, V> store;
+        private final CacheLoader<K, V> loader;
+        private long ttlMillis;
+        private double refreshAheadFactor;
+        private Executor refreshExecutor;
+        
+        private Builder(KeyValueStore<K, V> store, CacheLoader<K, V> loader) {
+            if (store == null || loader == null) {
+                throw new IllegalArgumentException("Store and loader cannot be null");
+            }
+            this.store = store;
+            this.loader = loader;
+        }
+        
+        /**
+         * Stores loaded values with a TTL. Without it, loaded values never expire.
+         */
+        public Builder<K, V> expireAfterWrite(long ttl, TimeUnit unit) {
+            if (ttl <= 0) {
+                throw new IllegalArgumentException("TTL must be positive");
+            }
+            this.ttlMillis = unit.toMillis(ttl);
+            return this;
+        }
+        
+        /**
+         * Reloads an entry in the background when it is hit after this share of its TTL
+         * has passed, e.g. 0.8 refreshes during the last 20% of its lifetime.
+         */
+        public Builder<K, V> refreshAhead(double factor) {
+            if (factor <= 0 || factor >= 1) {
+                throw new IllegalArgumentException("Refresh-ahead factor must be between 0 and 1");
+            }
+            this.refreshAheadFactor = factor;
+            return this;
+        }
+        
+        /**
+         * Runs refreshes on the given executor instead of two internal daemon threads.
+         */
+        public Builder<K, V> refreshExecutor(Executor executor) {
+            this.refreshExecutor = executor;
+            return this;
+        }
+        
+        public LoadingKeyValueStore<K, V> build() {
+            if (refreshAheadFactor > 0 && ttlMillis == 0) {
+                throw new IllegalArgumentException("Refresh-ahead requires expireAfterWrite");
+            }
+            return new LoadingKeyValueStore<>(this);
+        }
+    }
+}
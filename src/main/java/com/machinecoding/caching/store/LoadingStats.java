@@ -0,0 +1,62 @@
+package com.machinecoding.caching.store;
+
+/**
+ * Statistics for a read-through LoadingKeyValueStore.
+ */
+public class LoadingStats {
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long loadFailures;
+    private final long totalLoadNanos;
+    private final long maxLoadNanos;
+    private final long coalescedWaits;
+    private final long refreshes;
+    private final long refreshFailures;
+    
+    public LoadingStats(long hits, long misses, long loads, long loadFailures,
+                        long totalLoadNanos, long maxLoadNanos, long coalescedWaits,
+                        long refreshes, long refreshFailures) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.totalLoadNanos = totalLoadNanos;
+        this.maxLoadNanos = maxLoadNanos;
+        this.coalescedWaits = coalescedWaits;
+        this.refreshes = refreshes;
+        this.refreshFailures = refreshFailures;
+    }
+    
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getLoads() { return loads; }
+    public long getLoadFailures() { return loadFailures; }
+    public long getTotalLoadNanos() { return totalLoadNanos; }
+    public long getMaxLoadNanos() { return maxLoadNanos; }
+    public long getCoalescedWaits() { return coalescedWaits; }
+    public long getRefreshes() { return refreshes; }
+    public long getRefreshFailures() { return refreshFailures; }
+    
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total * 100;
+    }
+    
+    /**
+     * Average loader latency in milliseconds, over both miss loads and refreshes.
+     */
+    public double getAverageLoadMillis() {
+        return loads == 0 ? 0.0 : totalLoadNanos / 1_000_000.0 / loads;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "LoadingStats{hits=%d, misses=%d, loads=%d, failures=%d, avgLoad=%.2fms, maxLoad=%.2fms, " +
+            "coalesced=%d, refreshes=%d, refreshFailures=%d, hitRate=%.1f%%}",
+            hits, misses, loads, loadFailures, getAverageLoadMillis(), maxLoadNanos / 1_000_000.0,
+            coalescedWaits, refreshes, refreshFailures, getHitRate()
+        );
+    }
+}
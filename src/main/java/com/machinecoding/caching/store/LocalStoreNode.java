@@ -0,0 +1,140 @@
+package com.machinecoding.caching.store;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process StoreNode backed by an InMemoryKeyValueStore.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class LocalStoreNode<K, V> implements StoreNode<K, V> {
+    
+    private final String nodeId;
+    private final InMemoryKeyValueStore<K, V> store;
+    
+    public LocalStoreNode(String nodeId) {
+        this(nodeId, new InMemoryKeyValueStore<>());
+    }
+    
+    public LocalStoreNode(String nodeId, InMemoryKeyValueStore<K, V> store) {
+        if (nodeId == null || store == null) {
+            throw new IllegalArgumentException("Node id and store cannot be null");
+        }
+        this.nodeId = nodeId;
+        this.store = store;
+    }
+    
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        store.put(key, value);
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        store.put(key, value, ttl, unit);
+    }
+    
+    @Override
+    public Optional<V> get(K key) {
+        return store.get(key);
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        return store.remove(key);
+    }
+    
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return store.getAll(keys);
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        store.putAll(entries);
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttl, TimeUnit unit) {
+        store.putAll(entries, ttl, unit);
+    }
+    
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        return store.removeAll(keys);
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return store.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return store.size();
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+    
+    @Override
+    public void clear() {
+        store.clear();
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        return store.keySet();
+    }
+    
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return store.scan(cursor, count, matchPattern);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        return store.expire(key, ttl, unit);
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        return store.getTTL(key);
+    }
+    
+    @Override
+    public boolean hasExpiringKeys() {
+        return store.hasExpiringKeys();
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        return store.cleanupExpired();
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        return store.getStats();
+    }
+    
+    public void shutdown() {
+        store.shutdown();
+    }
+    
+    @Override
+    public String toString() {
+        return "LocalStoreNode{" + nodeId + "}";
+    }
+}
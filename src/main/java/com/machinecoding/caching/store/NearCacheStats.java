@@ -0,0 +1,61 @@
+package com.machinecoding.caching.store;
+
+/**
+ * Statistics for the local tier of a NearCachedKeyValueStore.
+ */
+public class NearCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long eventsReceived;
+    private final long invalidations;
+    private final long staleExpirations;
+    private final long discardedLoads;
+    private final int localSize;
+    private final int maximumSize;
+    private final long staleReadWindowMillis;
+    
+    public NearCacheStats(long hits, long misses, long eventsReceived, long invalidations,
+                          long staleExpirations, long discardedLoads,
+                          int localSize, int maximumSize, long staleReadWindowMillis) {
+        this.hits = hits;
+        this.misses = misses;
+        this.eventsReceived = eventsReceived;
+        this.invalidations = invalidations;
+        this.staleExpirations = staleExpirations;
+        this.discardedLoads = discardedLoads;
+        this.localSize = localSize;
+        this.maximumSize = maximumSize;
+        this.staleReadWindowMillis = staleReadWindowMillis;
+    }
+    
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEventsReceived() { return eventsReceived; }
+    public long getInvalidations() { return invalidations; }
+    public long getStaleExpirations() { return staleExpirations; }
+    public long getDiscardedLoads() { return discardedLoads; }
+    public int getLocalSize() { return localSize; }
+    public int getMaximumSize() { return maximumSize; }
+    
+    /**
+     * Upper bound in milliseconds on how long a local copy is served without
+     * being re-read from the backing store, or -1 if only invalidation events bound it.
+     */
+    public long getStaleReadWindowMillis() { return staleReadWindowMillis; }
+    
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total * 100;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "NearCacheStats{hits=%d, misses=%d, events=%d, invalidations=%d, staleExpirations=%d, " +
+            "discardedLoads=%d, size=%d/%d, staleWindow=%s, hitRate=%.1f%%}",
+            hits, misses, eventsReceived, invalidations, staleExpirations, discardedLoads,
+            localSize, maximumSize, staleReadWindowMillis < 0 ? "events" : staleReadWindowMillis + "ms",
+            getHitRate()
+        );
+    }
+}
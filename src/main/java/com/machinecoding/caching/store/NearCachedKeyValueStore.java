@@ -0,0 +1,429 @@
+package com.machinecoding.caching.store;
+
+import com.machinecoding.caching.lru.ConcurrentLRUCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client-side near-cache in front of any KeyValueStore.
+ *
+ * Features:
+ * - Bounded local LRU (a ConcurrentLRUCache) that serves repeated reads without
+ *   touching the backing store
+ * - Kept coherent by the backing store's change events (put, remove, expire, clear)
+ * - Optional maximum staleness, for stores without events or with delayed events
+ * - Local entries never outlive the TTL they had in the backing store
+ * - Hit, invalidation and discarded-load statistics
+ *
+ * Stale-read window:
+ * - With an in-process event source such as InMemoryKeyValueStore, events are
+ *   delivered before the write returns. A near-cache read that starts after a
+ *   write has returned never sees the overwritten value, whoever made the write.
+ * - Without events, or with events relayed with a delay, a local copy is served
+ *   for at most the configured max staleness after it was read from the store.
+ * - Writes made through this near-cache invalidate its local copy before returning.
+ *
+ * Keys hash to epoch stripes. Every invalidation bumps its stripe's epoch, and each
+ * local entry remembers the epoch it was loaded under. A hit is served only while
+ * that epoch is unchanged, so a load that raced with a write can never be served
+ * after the write's invalidation. A write to one key also retires cached neighbours
+ * in its stripe; there are eight stripes per local entry to keep this rare.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class NearCachedKeyValueStore<K, V> implements KeyValueStore<K, V> {
+    
+    private final KeyValueStore<K, V> store;
+    private final StoreEventSource<K> events;
+    private final StoreListener<K> listener;
+    private final ConcurrentLRUCache<K, LocalEntry<V>> local;
+    private final int maximumSize;
+    private final long maxStalenessNanos;
+    private final AtomicLongArray epochs;
+    private final int epochMask;
+    
+    // Statistics
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder eventsReceived;
+    private final LongAdder invalidations;
+    private final LongAdder staleExpirations;
+    private final LongAdder discardedLoads;
+    
+    private NearCachedKeyValueStore(Builder<K, V> builder) {
+        this.store = builder.store;
+        this.maximumSize = builder.maximumSize;
+        this.maxStalenessNanos = builder.maxStalenessNanos;
+        this.local = new ConcurrentLRUCache<>(builder.maximumSize);
+        
+        int stripes = Integer.highestOneBit((int) Math.min(1 << 20, Math.max(4096L, builder.maximumSize * 8L)) * 2 - 1);
+        this.epochs = new AtomicLongArray(stripes);
+        this.epochMask = stripes - 1;
+        
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.eventsReceived = new LongAdder();
+        this.invalidations = new LongAdder();
+        this.staleExpirations = new LongAdder();
+        this.discardedLoads = new LongAdder();
+        
+        this.events = builder.events;
+        this.listener = this::onEvent;
+        if (events != null) {
+            events.addListener(listener);
+        }
+    }
+    
+    /**
+     * Starts building a near-cache over a store. If the store is a StoreEventSource
+     * its events are used for invalidation unless another source is given.
+     */
+    public static <K, V> Builder<K, V> builder(KeyValueStore<K, V> store) {
+        return new Builder<>(store);
+    }
+    
+    @Override
+    public Optional<V> get(K key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        
+        LocalEntry<V> entry = freshEntry(key);
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(entry.value);
+        }
+        
+        misses.increment();
+        int stripe = stripeFor(key);
+        long epoch = epochs.get(stripe);
+        Optional<V> value = store.get(key);
+        value.ifPresent(v -> populate(key, v, stripe, epoch));
+        return value;
+    }
+    
+    /**
+     * Serves what it can locally and fetches the rest with one getAll on the store.
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            LocalEntry<V> entry = freshEntry(key);
+            if (entry != null) {
+                result.put(key, entry.value);
+            } else {
+                missing.add(key);
+            }
+        }
+        hits.add(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        
+        misses.add(missing.size());
+        long[] loadEpochs = new long[missing.size()];
+        for (int i = 0; i < missing.size(); i++) {
+            loadEpochs[i] = epochs.get(stripeFor(missing.get(i)));
+        }
+        Map<K, V> loaded = store.getAll(missing);
+        for (int i = 0; i < missing.size(); i++) {
+            K key = missing.get(i);
+            V value = loaded.get(key);
+            if (value != null) {
+                populate(key, value, stripeFor(key), loadEpochs[i]);
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        store.put(key, value);
+        invalidate(key);
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        store.put(key, value, ttl, unit);
+        invalidate(key);
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        store.putAll(entries);
+        invalidateAll(entries.keySet());
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttl, TimeUnit unit) {
+        store.putAll(entries, ttl, unit);
+        invalidateAll(entries.keySet());
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        boolean removed = store.remove(key);
+        if (key != null) {
+            invalidate(key);
+        }
+        return removed;
+    }
+    
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        int removed = store.removeAll(keys);
+        invalidateAll(keys);
+        return removed;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return key != null && (freshEntry(key) != null || store.containsKey(key));
+    }
+    
+    @Override
+    public int size() {
+        return store.size();
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+    
+    @Override
+    public void clear() {
+        store.clear();
+        invalidateEverything();
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        return store.keySet();
+    }
+    
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return store.scan(cursor, count, matchPattern);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        boolean applied = store.expire(key, ttl, unit);
+        if (applied) {
+            invalidate(key);
+        }
+        return applied;
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        return store.getTTL(key);
+    }
+    
+    @Override
+    public boolean hasExpiringKeys() {
+        return store.hasExpiringKeys();
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        return store.cleanupExpired();
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        return store.getStats();
+    }
+    
+    /**
+     * Gets statistics about the local tier.
+     */
+    public NearCacheStats getNearCacheStats() {
+        return new NearCacheStats(
+            hits.sum(),
+            misses.sum(),
+            eventsReceived.sum(),
+            invalidations.sum(),
+            staleExpirations.sum(),
+            discardedLoads.sum(),
+            local.size(),
+            maximumSize,
+            maxStalenessNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(maxStalenessNanos) : -1
+        );
+    }
+    
+    /**
+     * Stops listening to the backing store's events and drops the local copies.
+     * The backing store is left running.
+     */
+    public void shutdown() {
+        if (events != null) {
+            events.removeListener(listener);
+        }
+        local.clear();
+    }
+    
+    private void onEvent(StoreEvent<K> event) {
+        eventsReceived.increment();
+        if (event.getType() == StoreEvent.Type.CLEAR) {
+            invalidateEverything();
+        } else {
+            invalidate(event.getKey());
+        }
+    }
+    
+    /**
+     * Returns the local entry if it may still be served, dropping it otherwise.
+     */
+    private LocalEntry<V> freshEntry(K key) {
+        LocalEntry<V> entry = local.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.epoch != epochs.get(stripeFor(key))) {
+            local.remove(key); // Superseded by a write to this key or a stripe neighbour
+            return null;
+        }
+        if (System.nanoTime() - entry.deadlineNanos > 0) {
+            local.remove(key);
+            staleExpirations.increment();
+            return null;
+        }
+        return entry;
+    }
+    
+    private void populate(K key, V value, int stripe, long epoch) {
+        long now = System.nanoTime();
+        long lifetime = maxStalenessNanos > 0 ? maxStalenessNanos : Long.MAX_VALUE / 2;
+        // Skip the second round trip when no key can expire; a removal racing this
+        // load still bumps the epoch, or is bounded by the max staleness
+        long ttl = store.hasExpiringKeys() ? store.getTTL(key) : -2;
+        if (ttl == 0 || ttl == -1) {
+            return; // Expired or removed since it was read
+        }
+        if (ttl > 0) {
+            lifetime = Math.min(lifetime, TimeUnit.MILLISECONDS.toNanos(ttl));
+        }
+        
+        local.put(key, new LocalEntry<>(value, epoch, now + lifetime));
+        if (epochs.get(stripe) != epoch) {
+            // Invalidated while loading: the value may already be overwritten
+            local.remove(key);
+            discardedLoads.increment();
+        }
+    }
+    
+    private void invalidate(K key) {
+        // Bump the epoch first, so a concurrent load cannot re-insert the old value unseen
+        epochs.incrementAndGet(stripeFor(key));
+        if (local.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+    
+    private void invalidateAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            if (key != null) {
+                invalidate(key);
+            }
+        }
+    }
+    
+    private void invalidateEverything() {
+        for (int i = 0; i < epochs.length(); i++) {
+            epochs.incrementAndGet(i);
+        }
+        invalidations.add(local.size());
+        local.clear();
+    }
+    
+    private int stripeFor(K key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & epochMask;
+    }
+    
+    private static final class LocalEntry<V> {
+        final V value;
+        final long epoch;
+        final long deadlineNanos;
+        
+        LocalEntry(V value, long epoch, long deadlineNanos) {
+            this.value = value;
+            this.epoch = epoch;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+    
+    public static class Builder<K, V> {
+        private final KeyValueStore<K, V> store;
+        private StoreEventSource<K> events;
+        private int maximumSize = 10_000;
+        private long maxStalenessNanos;
+        
+        private Builder(KeyValueStore<K, V> store) {
+            if (store == null) {
+                throw new IllegalArgumentException("Store cannot be null");
+            }
+            this.store = store;
+        }
+        
+        /**
+         * Sets the number of entries kept locally.
+         */
+        public Builder<K, V> maximumSize(int maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("Maximum size must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+        
+        /**
+         * Uses the given source's events to invalidate local copies.
+         */
+        public Builder<K, V> invalidatedBy(StoreEventSource<K> events) {
+            this.events = events;
+            return this;
+        }
+        
+        /**
+         * Re-reads a key from the store once its local copy is this old,
+         * bounding staleness when events are missing or delayed.
+         */
+        public Builder<K, V> maxStaleness(long duration, TimeUnit unit) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("Max staleness must be positive");
+            }
+            this.maxStalenessNanos = unit.toNanos(duration);
+            return this;
+        }
+        
+        @SuppressWarnings("unchecked")
+        public NearCachedKeyValueStore<K, V> build() {
+            if (events == null && store instanceof StoreEventSource) {
+                events = (StoreEventSource<K>) store;
+            }
+            if (events == null && maxStalenessNanos == 0) {
+                throw new IllegalArgumentException("A near-cache needs an event source or a max staleness");
+            }
+            return new NearCachedKeyValueStore<>(this);
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package com.machinecoding.caching.store;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * KeyValueStore that keeps serialized values in off-heap slabs.
+ *
+ * Features:
+ * - Values are encoded with a pluggable Codec and copied into direct ByteBuffer slabs
+ * - Slab chunks come in geometric size classes, so space is reused without compaction
+ * - The heap only holds keys and small fixed-size slot records, which keeps GC work
+ *   independent of the volume of value data
+ * - TTL support through the same timing wheel as InMemoryKeyValueStore
+ * - Statistics report reserved off-heap bytes and fragmentation
+ *
+ * Keys are split into segments, each a HashMap guarded by a read/write lock. A reader
+ * copies a value out of its chunk while holding the segment's read lock, and a chunk
+ * is only freed after its slot has been replaced under the write lock, so a chunk is
+ * never reused while it is being read.
+ *
+ * Trade-offs:
+ * - Every get deserializes the value, so this suits many small values more than hot,
+ *   expensive-to-decode objects
+ * - Off-heap capacity is fixed up front; put fails once it is exhausted
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class OffHeapKeyValueStore<K, V> implements KeyValueStore<K, V> {
+    
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final int MIN_CHUNK_SIZE = 48;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final int SEGMENTS = 16;
+    
+    private final Codec<V> valueCodec;
+    private final SlabAllocator allocator;
+    private final Segment<K>[] segments;
+    private final TimingWheel<K> expirationWheel;
+    private final Object wheelLock;
+    private final ScheduledExecutorService cleanupExecutor;
+    private final LongAdder totalGets;
+    private final LongAdder totalPuts;
+    private final LongAdder totalRemoves;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder expiredKeys;
+    private final ScanCursors<K> scanCursors;
+    
+    public OffHeapKeyValueStore(Codec<V> valueCodec, long maxOffHeapBytes) {
+        this(valueCodec, maxOffHeapBytes, DEFAULT_SLAB_SIZE, true, 60);
+    }
+    
+    public OffHeapKeyValueStore(Codec<V> valueCodec, long maxOffHeapBytes, int slabSize,
+                                boolean enableAutoCleanup, long cleanupIntervalSeconds) {
+        if (valueCodec == null) {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
+        
+        this.valueCodec = valueCodec;
+        this.allocator = new SlabAllocator(maxOffHeapBytes, slabSize, MIN_CHUNK_SIZE, GROWTH_FACTOR);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Segment<K>[] segments = new Segment[SEGMENTS];
+        this.segments = segments;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+        this.expirationWheel = new TimingWheel<>(System.currentTimeMillis());
+        this.wheelLock = new Object();
+        this.totalGets = new LongAdder();
+        this.totalPuts = new LongAdder();
+        this.totalRemoves = new LongAdder();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.expiredKeys = new LongAdder();
+        this.scanCursors = new ScanCursors<>();
+        
+        if (enableAutoCleanup) {
+            this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "KeyValueStore-Cleanup");
+                t.setDaemon(true);
+                return t;
+            });
+            
+            // Schedule periodic cleanup
+            cleanupExecutor.scheduleAtFixedRate(
+                this::cleanupExpired,
+                cleanupIntervalSeconds,
+                cleanupIntervalSeconds,
+                TimeUnit.SECONDS
+            );
+        } else {
+            this.cleanupExecutor = null;
+        }
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        
+        store(key, value, -1);
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        
+        store(key, value, System.currentTimeMillis() + unit.toMillis(ttl));
+    }
+    
+    @Override
+    public Optional<V> get(K key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        
+        totalGets.increment();
+        Segment<K> segment = segmentFor(key);
+        byte[] bytes;
+        Slot<K> expiredSlot = null;
+        
+        segment.lock.readLock().lock();
+        try {
+            Slot<K> slot = segment.entries.get(key);
+            if (slot == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            if (slot.isExpired()) {
+                expiredSlot = slot;
+                bytes = null;
+            } else {
+                bytes = allocator.load(slot.handle);
+            }
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+        
+        if (expiredSlot != null) {
+            misses.increment();
+            removeIfSame(segment, key, expiredSlot);
+            return Optional.empty();
+        }
+        
+        hits.increment();
+        return Optional.of(valueCodec.decode(bytes));
+    }
+    
+    /**
+     * Looks up several keys, taking each segment's read lock once for all of its keys.
+     * Values are decoded after the locks are released.
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        List<List<K>> bySegment = new ArrayList<>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            bySegment.add(new ArrayList<>());
+        }
+        for (K key : keys) {
+            if (key != null) {
+                bySegment.get(segmentIndex(key)).add(key);
+            }
+        }
+        
+        Map<K, byte[]> found = new HashMap<>();
+        int lookups = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            List<K> segmentKeys = bySegment.get(i);
+            if (segmentKeys.isEmpty()) {
+                continue;
+            }
+            lookups += segmentKeys.size();
+            
+            Segment<K> segment = segments[i];
+            Map<K, Slot<K>> expired = null;
+            segment.lock.readLock().lock();
+            try {
+                for (K key : segmentKeys) {
+                    Slot<K> slot = segment.entries.get(key);
+                    if (slot == null) {
+                        continue;
+                    }
+                    if (slot.isExpired()) {
+                        if (expired == null) {
+                            expired = new HashMap<>();
+                        }
+                        expired.put(key, slot);
+                    } else {
+                        found.put(key, allocator.load(slot.handle));
+                    }
+                }
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+            
+            if (expired != null) {
+                for (Map.Entry<K, Slot<K>> entry : expired.entrySet()) {
+                    removeIfSame(segment, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        
+        totalGets.add(lookups);
+        hits.add(found.size());
+        misses.add(lookups - found.size());
+        
+        Map<K, V> result = new HashMap<>(Math.max(16, found.size() * 2));
+        for (Map.Entry<K, byte[]> entry : found.entrySet()) {
+            result.put(entry.getKey(), valueCodec.decode(entry.getValue()));
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        if (key == null) {
+            return false;
+        }
+        
+        totalRemoves.increment();
+        Segment<K> segment = segmentFor(key);
+        Slot<K> removed;
+        
+        segment.lock.writeLock().lock();
+        try {
+            removed = segment.entries.remove(key);
+            cancelExpiration(removed);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+        
+        if (removed != null) {
+            allocator.free(removed.handle);
+        }
+        return removed != null;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) {
+            return false;
+        }
+        
+        Segment<K> segment = segmentFor(key);
+        segment.lock.readLock().lock();
+        try {
+            Slot<K> slot = segment.entries.get(key);
+            return slot != null && !slot.isExpired();
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public int size() {
+        // Count only non-expired entries
+        int size = 0;
+        for (Segment<K> segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                for (Slot<K> slot : segment.entries.values()) {
+                    if (!slot.isExpired()) {
+                        size++;
+                    }
+                }
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    @Override
+    public void clear() {
+        for (Segment<K> segment : segments) {
+            List<Slot<K>> removed;
+            segment.lock.writeLock().lock();
+            try {
+                removed = new ArrayList<>(segment.entries.values());
+                segment.entries.clear();
+                for (Slot<K> slot : removed) {
+                    cancelExpiration(slot);
+                }
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+            
+            for (Slot<K> slot : removed) {
+                allocator.free(slot.handle);
+            }
+        }
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        for (Segment<K> segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                for (Map.Entry<K, Slot<K>> entry : segment.entries.entrySet()) {
+                    if (!entry.getValue().isExpired()) {
+                        keys.add(entry.getKey());
+                    }
+                }
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * Pages through the keys one segment at a time: a segment's live keys are copied
+     * under its read lock when the scan reaches it, so at most 1/16 of the keyspace
+     * is held by an open cursor.
+     */
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return scanCursors.scan(cursor, count, matchPattern, SegmentKeyIterator::new, this::containsKey);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        if (key == null || ttl <= 0) {
+            return false;
+        }
+        
+        long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
+        Segment<K> segment = segmentFor(key);
+        segment.lock.writeLock().lock();
+        try {
+            Slot<K> slot = segment.entries.get(key);
+            if (slot == null || slot.isExpired()) {
+                return false;
+            }
+            cancelExpiration(slot);
+            segment.entries.put(key, scheduleExpiration(key, slot.handle, expirationTime));
+            return true;
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        if (key == null) {
+            return -1;
+        }
+        
+        Segment<K> segment = segmentFor(key);
+        Slot<K> slot;
+        segment.lock.readLock().lock();
+        try {
+            slot = segment.entries.get(key);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+        
+        if (slot == null) {
+            return -1; // Key doesn't exist
+        }
+        
+        if (slot.expirationTime < 0) {
+            return -2; // No expiration set
+        }
+        
+        long remaining = slot.expirationTime - System.currentTimeMillis();
+        return Math.max(0, remaining);
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        // Only the wheel buckets that have come due are visited
+        List<K> dueKeys;
+        synchronized (wheelLock) {
+            dueKeys = expirationWheel.advance(System.currentTimeMillis());
+        }
+        
+        int removed = 0;
+        for (K key : dueKeys) {
+            Segment<K> segment = segmentFor(key);
+            Slot<K> slot;
+            segment.lock.writeLock().lock();
+            try {
+                slot = segment.entries.get(key);
+                if (slot == null || !slot.isExpired()) {
+                    continue; // Removed or re-written since its timer fired
+                }
+                segment.entries.remove(key);
+                cancelExpiration(slot);
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+            allocator.free(slot.handle);
+            removed++;
+        }
+        
+        expiredKeys.add(removed);
+        return removed;
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        int currentSize = 0;
+        for (Segment<K> segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                currentSize += segment.entries.size();
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        
+        long offHeapBytes = allocator.getReservedBytes();
+        return new StoreStats(
+            totalGets.sum(),
+            totalPuts.sum(),
+            totalRemoves.sum(),
+            hits.sum(),
+            misses.sum(),
+            expiredKeys.sum(),
+            currentSize,
+            offHeapBytes,
+            offHeapBytes,
+            allocator.getFragmentation()
+        );
+    }
+    
+    /**
+     * Bytes of value payload currently stored off-heap, excluding headers and chunk slack.
+     */
+    public long getPayloadBytes() {
+        return allocator.getUsedBytes();
+    }
+    
+    /**
+     * Shuts down the store and cleanup resources.
+     * Off-heap slabs are released once the store is no longer referenced.
+     */
+    public void shutdown() {
+        if (cleanupExecutor != null && !cleanupExecutor.isShutdown()) {
+            cleanupExecutor.shutdown();
+            try {
+                if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    cleanupExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                cleanupExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void store(K key, V value, long expirationTime) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        
+        // Encode and copy outside the lock; only the slot swap is serialized
+        long handle = allocator.store(valueCodec.encode(value));
+        Segment<K> segment = segmentFor(key);
+        Slot<K> previous;
+        
+        segment.lock.writeLock().lock();
+        try {
+            Slot<K> slot = expirationTime < 0
+                ? new Slot<>(handle, -1)
+                : scheduleExpiration(key, handle, expirationTime);
+            previous = segment.entries.put(key, slot);
+            cancelExpiration(previous);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+        
+        // Readers copy under the read lock, so nobody can still be reading the old chunk
+        if (previous != null) {
+            allocator.free(previous.handle);
+        }
+        totalPuts.increment();
+    }
+    
+    private void removeIfSame(Segment<K> segment, K key, Slot<K> expected) {
+        segment.lock.writeLock().lock();
+        try {
+            if (segment.entries.get(key) != expected) {
+                return;
+            }
+            segment.entries.remove(key);
+            cancelExpiration(expected);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+        allocator.free(expected.handle);
+        expiredKeys.increment();
+    }
+    
+    private Segment<K> segmentFor(K key) {
+        return segments[segmentIndex(key)];
+    }
+    
+    private static int segmentIndex(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (SEGMENTS - 1);
+    }
+    
+    /**
+     * Creates a slot with expiration and registers it with the timing wheel.
+     */
+    private Slot<K> scheduleExpiration(K key, long handle, long expirationTime) {
+        Slot<K> slot = new Slot<>(handle, expirationTime);
+        synchronized (wheelLock) {
+            slot.timer = expirationWheel.schedule(key, expirationTime);
+        }
+        return slot;
+    }
+    
+    private void cancelExpiration(Slot<K> slot) {
+        if (slot != null && slot.timer != null) {
+            synchronized (wheelLock) {
+                expirationWheel.cancel(slot.timer);
+            }
+        }
+    }
+    
+    /**
+     * Iterates the live keys of each segment in turn, copying one segment at a time.
+     */
+    private class SegmentKeyIterator implements Iterator<K> {
+        private int nextSegment = 0;
+        private Iterator<K> current = Collections.emptyIterator();
+        
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && nextSegment < SEGMENTS) {
+                Segment<K> segment = segments[nextSegment++];
+                List<K> keys = new ArrayList<>();
+                segment.lock.readLock().lock();
+                try {
+                    for (Map.Entry<K, Slot<K>> entry : segment.entries.entrySet()) {
+                        if (!entry.getValue().isExpired()) {
+                            keys.add(entry.getKey());
+                        }
+                    }
+                } finally {
+                    segment.lock.readLock().unlock();
+                }
+                current = keys.iterator();
+            }
+            return current.hasNext();
+        }
+        
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+    
+    private static class Segment<K> {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final HashMap<K, Slot<K>> entries = new HashMap<>();
+    }
+    
+    /**
+     * On-heap record of where a value lives off-heap.
+     */
+    private static class Slot<K> {
+        final long handle;
+        final long expirationTime;
+        TimingWheel.Timer<K> timer;
+        
+        Slot(long handle, long expirationTime) {
+            this.handle = handle;
+            this.expirationTime = expirationTime;
+        }
+        
+        boolean isExpired() {
+            return expirationTime >= 0 && System.currentTimeMillis() > expirationTime;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.machinecoding.caching.store;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for DurableKeyValueStore.
+ */
+public class PersistenceConfig {
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long snapshotIntervalMillis;
+    
+    private PersistenceConfig(Builder builder) {
+        this.directory = builder.directory;
+        this.fsyncPolicy = builder.fsyncPolicy;
+        this.fsyncIntervalMillis = builder.fsyncIntervalMillis;
+        this.snapshotIntervalMillis = builder.snapshotIntervalMillis;
+    }
+    
+    public Path getDirectory() { return directory; }
+    public FsyncPolicy getFsyncPolicy() { return fsyncPolicy; }
+    public long getFsyncIntervalMillis() { return fsyncIntervalMillis; }
+    public long getSnapshotIntervalMillis() { return snapshotIntervalMillis; }
+    
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("PersistenceConfig{dir=%s, fsync=%s, fsyncInterval=%dms, snapshotInterval=%dms}",
+                             directory, fsyncPolicy, fsyncIntervalMillis, snapshotIntervalMillis);
+    }
+    
+    public static class Builder {
+        private final Path directory;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.EVERY_INTERVAL;
+        private long fsyncIntervalMillis = 1000;
+        private long snapshotIntervalMillis = TimeUnit.MINUTES.toMillis(10);
+        
+        private Builder(Path directory) {
+            if (directory == null) {
+                throw new IllegalArgumentException("Directory cannot be null");
+            }
+            this.directory = directory;
+        }
+        
+        public Builder fsyncAlways() {
+            this.fsyncPolicy = FsyncPolicy.ALWAYS;
+            return this;
+        }
+        
+        public Builder fsyncEvery(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("Fsync interval must be positive");
+            }
+            this.fsyncPolicy = FsyncPolicy.EVERY_INTERVAL;
+            this.fsyncIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+        
+        public Builder fsyncManagedByOs() {
+            this.fsyncPolicy = FsyncPolicy.OS_MANAGED;
+            return this;
+        }
+        
+        /**
+         * Sets how often a compacted snapshot is written; 0 disables periodic snapshots.
+         */
+        public Builder snapshotEvery(long interval, TimeUnit unit) {
+            if (interval < 0) {
+                throw new IllegalArgumentException("Snapshot interval cannot be negative");
+            }
+            this.snapshotIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+        
+        public PersistenceConfig build() {
+            return new PersistenceConfig(this);
+        }
+    }
+}
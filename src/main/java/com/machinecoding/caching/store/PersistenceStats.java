@@ -0,0 +1,54 @@
+package com.machinecoding.caching.store;
+
+/**
+ * Statistics for the append-only log and snapshots of a durable store.
+ */
+public class PersistenceStats {
+    private final long recordsLogged;
+    private final long batchesWritten;
+    private final long bytesWritten;
+    private final long fsyncs;
+    private final long snapshotsTaken;
+    private final long snapshotFailures;
+    private final String lastSnapshotError;
+    private final long recordsRecovered;
+    private final long recoveryMillis;
+    
+    public PersistenceStats(long recordsLogged, long batchesWritten, long bytesWritten, long fsyncs,
+                            long snapshotsTaken, long snapshotFailures, String lastSnapshotError,
+                            long recordsRecovered, long recoveryMillis) {
+        this.recordsLogged = recordsLogged;
+        this.batchesWritten = batchesWritten;
+        this.bytesWritten = bytesWritten;
+        this.fsyncs = fsyncs;
+        this.snapshotsTaken = snapshotsTaken;
+        this.snapshotFailures = snapshotFailures;
+        this.lastSnapshotError = lastSnapshotError;
+        this.recordsRecovered = recordsRecovered;
+        this.recoveryMillis = recoveryMillis;
+    }
+    
+    public long getRecordsLogged() { return recordsLogged; }
+    public long getBatchesWritten() { return batchesWritten; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getFsyncs() { return fsyncs; }
+    public long getSnapshotsTaken() { return snapshotsTaken; }
+    public long getSnapshotFailures() { return snapshotFailures; }
+    public String getLastSnapshotError() { return lastSnapshotError; }
+    public long getRecordsRecovered() { return recordsRecovered; }
+    public long getRecoveryMillis() { return recoveryMillis; }
+    
+    public double getAverageBatchSize() {
+        return batchesWritten == 0 ? 0.0 : (double) recordsLogged / batchesWritten;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "PersistenceStats{records=%d, batches=%d, avgBatch=%.1f, bytes=%dB, fsyncs=%d, " +
+            "snapshots=%d, snapshotFailures=%d, recovered=%d in %dms}",
+            recordsLogged, batchesWritten, getAverageBatchSize(), bytesWritten, fsyncs,
+            snapshotsTaken, snapshotFailures, recordsRecovered, recoveryMillis
+        );
+    }
+}
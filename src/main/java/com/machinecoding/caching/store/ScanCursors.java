@@ -0,0 +1,154 @@
+package com.machinecoding.caching.store;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Open scan iterations of one store, addressed by cursor id.
+ *
+ * Cursor 0 starts a scan over a fresh key iterator supplied by the store. When a
+ * page does not exhaust the iterator it is parked under a new cursor id; resuming
+ * takes it out again, so every cursor is valid for exactly one call and two callers
+ * can never advance the same iterator. Cursors idle for longer than a minute are
+ * dropped when the next scan starts, and when 1024 cursors are open a new scan
+ * drops the least recently used one, so abandoned scans never block new ones.
+ *
+ * Guarantees follow from the store's iterator: with the weakly consistent iterators
+ * used here, keys present for the whole scan are returned exactly once, and keys
+ * added or removed meanwhile may or may not be returned.
+ *
+ * @param <K> the type of keys
+ */
+class ScanCursors<K> {
+    
+    static final long IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final int MAX_OPEN_CURSORS = 1024;
+    
+    private final ConcurrentHashMap<Long, OpenScan<K>> open;
+    private final AtomicLong nextCursor;
+    
+    ScanCursors() {
+        this.open = new ConcurrentHashMap<>();
+        this.nextCursor = new AtomicLong(1);
+    }
+    
+    /**
+     * Returns the next page of a scan.
+     *
+     * @param cursor 0 to start, or the cursor returned by the previous page
+     * @param count number of keys to examine; fewer may match the pattern
+     * @param matchPattern glob pattern ('*' and '?') matched against key.toString(), or null for all keys
+     * @param source creates the key iterator when a scan starts
+     * @param include extra filter applied to each key, e.g. to skip expired entries
+     * @throws IllegalArgumentException if the cursor is unknown, already used, expired or evicted
+     */
+    ScanResult<K> scan(long cursor, int count, String matchPattern,
+                       Supplier<Iterator<K>> source, Predicate<K> include) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        Predicate<Object> matcher = globMatcher(matchPattern);
+        
+        OpenScan<K> scan;
+        if (cursor == 0) {
+            pruneIdle();
+            while (open.size() >= MAX_OPEN_CURSORS) {
+                evictLeastRecentlyUsed();
+            }
+            scan = new OpenScan<>(source.get());
+        } else {
+            scan = open.remove(cursor);
+            if (scan == null) {
+                throw new IllegalArgumentException("Unknown or expired scan cursor: " + cursor);
+            }
+        }
+        
+        List<K> keys = new ArrayList<>();
+        Iterator<K> iterator = scan.iterator;
+        for (int examined = 0; examined < count && iterator.hasNext(); examined++) {
+            K key = iterator.next();
+            if (matcher.test(key) && include.test(key)) {
+                keys.add(key);
+            }
+        }
+        
+        if (!iterator.hasNext()) {
+            return new ScanResult<>(0, keys);
+        }
+        long next = nextCursor.getAndIncrement();
+        scan.lastUsed = System.currentTimeMillis();
+        open.put(next, scan);
+        return new ScanResult<>(next, keys);
+    }
+    
+    int openCursors() {
+        return open.size();
+    }
+    
+    private void pruneIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MILLIS;
+        for (Map.Entry<Long, OpenScan<K>> entry : open.entrySet()) {
+            if (entry.getValue().lastUsed < cutoff) {
+                open.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Every page parks its scan under a fresh, increasing id, so the smallest open
+     * id is the least recently used cursor.
+     */
+    private void evictLeastRecentlyUsed() {
+        long oldest = Long.MAX_VALUE;
+        for (Long cursor : open.keySet()) {
+            oldest = Math.min(oldest, cursor);
+        }
+        open.remove(oldest);
+    }
+    
+    /**
+     * Compiles a glob pattern where '*' matches any run of characters and '?' one character.
+     */
+    static Predicate<Object> globMatcher(String pattern) {
+        if (pattern == null || pattern.equals("*")) {
+            return key -> true;
+        }
+        
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        
+        Pattern compiled = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        return key -> compiled.matcher(String.valueOf(key)).matches();
+    }
+    
+    private static class OpenScan<K> {
+        final Iterator<K> iterator;
+        volatile long lastUsed;
+        
+        OpenScan(Iterator<K> iterator) {
+            this.iterator = iterator;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
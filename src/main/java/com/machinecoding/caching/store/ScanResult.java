@@ -0,0 +1,42 @@
+package com.machinecoding.caching.store;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a {@link KeyValueStore#scan(long, int, String)} iteration.
+ *
+ * @param <K> the type of keys
+ */
+public class ScanResult<K> {
+    private final long cursor;
+    private final List<K> keys;
+    
+    public ScanResult(long cursor, List<K> keys) {
+        this.cursor = cursor;
+        this.keys = Collections.unmodifiableList(keys);
+    }
+    
+    /**
+     * Cursor to pass to the next scan call, or 0 when the iteration is complete.
+     */
+    public long getCursor() {
+        return cursor;
+    }
+    
+    /**
+     * Matching keys of this page. May be empty even when the scan is not complete.
+     */
+    public List<K> getKeys() {
+        return keys;
+    }
+    
+    public boolean isComplete() {
+        return cursor == 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ScanResult{cursor=%d, keys=%d}", cursor, keys.size());
+    }
+}
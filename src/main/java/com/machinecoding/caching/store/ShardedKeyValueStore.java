@@ -0,0 +1,574 @@
+package com.machinecoding.caching.store;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * KeyValueStore that partitions keys over several StoreNodes with consistent hashing.
+ *
+ * Features:
+ * - Keys are placed on a hash ring with virtual nodes, so load spreads evenly
+ * - Nodes are reached through the StoreNode interface; LocalStoreNode runs in-process
+ * - Adding or removing a node moves only the keys whose owner changed, in the background
+ * - keySet(), size(), getStats(), cleanupExpired() and clear() fan out to all nodes in parallel
+ * - getAll() sends one batch per owning node, in parallel
+ *
+ * During a migration the store keeps both the new ring and the previous one. Writes go
+ * to the new owner and delete any copy on the previous owner; reads that miss on the
+ * new owner fall back to the previous one. Writes and the move of a single key are
+ * serialized by striped locks, so a migrated value never overwrites a newer write.
+ * Membership changes are applied one at a time, in the order they were requested.
+ *
+ * Aggregates are weakly consistent: size() may count a key twice while it is being
+ * moved between two nodes, and a scan that overlaps a migration may miss or repeat
+ * keys that move to a node it has already passed.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class ShardedKeyValueStore<K, V> implements KeyValueStore<K, V> {
+    
+    private static final int DEFAULT_VIRTUAL_NODES = 160;
+    private static final int STRIPES = 64;
+    private static final int SCAN_BATCH = 256;
+    
+    private final ConcurrentHashMap<String, StoreNode<K, V>> nodes;
+    private final ReentrantLock[] stripes;
+    private final Object membershipLock;
+    private final ExecutorService migrationExecutor;
+    private final ExecutorService fanOutExecutor;
+    private final ScanCursors<K> scanCursors;
+    private volatile RingState state;
+    
+    // Ring after all requested membership changes, used to validate new requests
+    private ConsistentHashRing targetRing;
+    
+    // Statistics
+    private final AtomicLong migrations;
+    private final AtomicLong migratedKeys;
+    
+    public ShardedKeyValueStore(Collection<? extends StoreNode<K, V>> initialNodes) {
+        this(initialNodes, DEFAULT_VIRTUAL_NODES);
+    }
+    
+    public ShardedKeyValueStore(Collection<? extends StoreNode<K, V>> initialNodes, int virtualNodes) {
+        if (initialNodes == null || initialNodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        
+        this.nodes = new ConcurrentHashMap<>();
+        for (StoreNode<K, V> node : initialNodes) {
+            if (nodes.putIfAbsent(node.getNodeId(), node) != null) {
+                throw new IllegalArgumentException("Duplicate node id: " + node.getNodeId());
+            }
+        }
+        
+        ConsistentHashRing ring = new ConsistentHashRing(nodes.keySet(), virtualNodes);
+        this.state = new RingState(ring, null);
+        this.targetRing = ring;
+        this.membershipLock = new Object();
+        this.migrations = new AtomicLong(0);
+        this.migratedKeys = new AtomicLong(0);
+        this.scanCursors = new ScanCursors<>();
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        
+        this.migrationExecutor = Executors.newSingleThreadExecutor(daemonThreads("ShardedKeyValueStore-Migration"));
+        this.fanOutExecutor = Executors.newCachedThreadPool(daemonThreads("ShardedKeyValueStore-FanOut"));
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        write(key, node -> {
+            node.put(key, value);
+            return null;
+        });
+    }
+    
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        write(key, node -> {
+            node.put(key, value, ttl, unit);
+            return null;
+        });
+    }
+    
+    @Override
+    public Optional<V> get(K key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        
+        RingState current = state;
+        StoreNode<K, V> owner = nodes.get(current.ring.nodeFor(key));
+        Optional<V> value = owner.get(key);
+        StoreNode<K, V> previousOwner = previousOwner(current, key);
+        if (value.isPresent() || previousOwner == null) {
+            return value;
+        }
+        
+        value = previousOwner.get(key);
+        if (value.isPresent()) {
+            return value;
+        }
+        // The key may have been moved between the two reads
+        return owner.get(key);
+    }
+    
+    /**
+     * Groups the keys by owner and queries the owners in parallel. Keys that are not
+     * found while a migration is running fall back to a single-key get.
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        RingState current = state;
+        Map<String, List<K>> byOwner = new HashMap<>();
+        for (K key : keys) {
+            if (key != null) {
+                byOwner.computeIfAbsent(current.ring.nodeFor(key), id -> new ArrayList<>()).add(key);
+            }
+        }
+        
+        List<CompletableFuture<Map<K, V>>> futures = new ArrayList<>();
+        for (Map.Entry<String, List<K>> entry : byOwner.entrySet()) {
+            StoreNode<K, V> owner = nodes.get(entry.getKey());
+            futures.add(CompletableFuture.supplyAsync(() -> owner.getAll(entry.getValue()), fanOutExecutor));
+        }
+        Map<K, V> result = new HashMap<>();
+        for (CompletableFuture<Map<K, V>> future : futures) {
+            result.putAll(future.join());
+        }
+        
+        if (current.previous != null || state != current) {
+            for (K key : keys) {
+                if (key != null && !result.containsKey(key)) {
+                    get(key).ifPresent(value -> result.put(key, value));
+                }
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        if (key == null) {
+            return false;
+        }
+        
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            RingState current = state;
+            boolean removed = nodes.get(current.ring.nodeFor(key)).remove(key);
+            StoreNode<K, V> previousOwner = previousOwner(current, key);
+            if (previousOwner != null) {
+                removed |= previousOwner.remove(key);
+            }
+            return removed;
+        } finally {
+            stripe.unlock();
+        }
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        return get(key).isPresent();
+    }
+    
+    @Override
+    public int size() {
+        int size = 0;
+        for (int nodeSize : fanOut(StoreNode::size)) {
+            size += nodeSize;
+        }
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    @Override
+    public void clear() {
+        lockAllStripes();
+        try {
+            fanOut(node -> {
+                node.clear();
+                return null;
+            });
+        } finally {
+            unlockAllStripes();
+        }
+    }
+    
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        for (Set<K> nodeKeys : fanOut(StoreNode::keySet)) {
+            keys.addAll(nodeKeys);
+        }
+        return keys;
+    }
+    
+    /**
+     * Scans the nodes one after another, paging through each node's own scan.
+     */
+    @Override
+    public ScanResult<K> scan(long cursor, int count, String matchPattern) {
+        return scanCursors.scan(cursor, count, matchPattern,
+            () -> new NodeScanIterator(new ArrayList<>(nodes.values())), key -> true);
+    }
+    
+    @Override
+    public boolean expire(K key, long ttl, TimeUnit unit) {
+        if (key == null) {
+            return false;
+        }
+        
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            RingState current = state;
+            if (nodes.get(current.ring.nodeFor(key)).expire(key, ttl, unit)) {
+                return true;
+            }
+            // Not moved yet: the migration carries the new TTL over
+            StoreNode<K, V> previousOwner = previousOwner(current, key);
+            return previousOwner != null && previousOwner.expire(key, ttl, unit);
+        } finally {
+            stripe.unlock();
+        }
+    }
+    
+    @Override
+    public long getTTL(K key) {
+        if (key == null) {
+            return -1;
+        }
+        
+        RingState current = state;
+        long ttl = nodes.get(current.ring.nodeFor(key)).getTTL(key);
+        StoreNode<K, V> previousOwner = previousOwner(current, key);
+        if (ttl != -1 || previousOwner == null) {
+            return ttl;
+        }
+        return previousOwner.getTTL(key);
+    }
+    
+    @Override
+    public int cleanupExpired() {
+        int removed = 0;
+        for (int nodeRemoved : fanOut(StoreNode::cleanupExpired)) {
+            removed += nodeRemoved;
+        }
+        return removed;
+    }
+    
+    @Override
+    public StoreStats getStats() {
+        long totalGets = 0;
+        long totalPuts = 0;
+        long totalRemoves = 0;
+        long hits = 0;
+        long misses = 0;
+        long expiredKeys = 0;
+        int currentSize = 0;
+        long memoryUsage = 0;
+        
+        for (StoreStats stats : fanOut(StoreNode::getStats)) {
+            totalGets += stats.getTotalGets();
+            totalPuts += stats.getTotalPuts();
+            totalRemoves += stats.getTotalRemoves();
+            hits += stats.getHits();
+            misses += stats.getMisses();
+            expiredKeys += stats.getExpiredKeys();
+            currentSize += stats.getCurrentSize();
+            memoryUsage += stats.getMemoryUsage();
+        }
+        
+        return new StoreStats(totalGets, totalPuts, totalRemoves, hits, misses,
+                              expiredKeys, currentSize, memoryUsage);
+    }
+    
+    /**
+     * Adds a node to the ring and moves the keys it now owns from the other nodes.
+     *
+     * @return completes with the number of keys moved once the migration is done
+     */
+    public CompletableFuture<Integer> addNode(StoreNode<K, V> node) {
+        String nodeId = node.getNodeId();
+        synchronized (membershipLock) {
+            if (targetRing.contains(nodeId) || nodes.putIfAbsent(nodeId, node) != null) {
+                throw new IllegalArgumentException("Duplicate node id: " + nodeId);
+            }
+            targetRing = targetRing.withNode(nodeId);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> rebalance(ring -> ring.withNode(nodeId)), migrationExecutor);
+    }
+    
+    /**
+     * Removes a node from the ring after moving all of its keys to their new owners.
+     *
+     * @return completes with the number of keys moved once the node has been drained
+     */
+    public CompletableFuture<Integer> removeNode(String nodeId) {
+        synchronized (membershipLock) {
+            if (!targetRing.contains(nodeId)) {
+                throw new IllegalArgumentException("Unknown node id: " + nodeId);
+            }
+            if (targetRing.getNodeIds().size() == 1) {
+                throw new IllegalStateException("Cannot remove the last node");
+            }
+            targetRing = targetRing.withoutNode(nodeId);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            int moved = rebalance(ring -> ring.withoutNode(nodeId));
+            nodes.remove(nodeId);
+            return moved;
+        }, migrationExecutor);
+    }
+    
+    /**
+     * Returns the id of the node that currently owns a key.
+     */
+    public String getNodeFor(K key) {
+        return state.ring.nodeFor(key);
+    }
+    
+    /**
+     * Returns the ids of the nodes on the current ring.
+     */
+    public Set<String> getNodeIds() {
+        return state.ring.getNodeIds();
+    }
+    
+    public boolean isMigrating() {
+        return state.previous != null;
+    }
+    
+    public long getMigrations() {
+        return migrations.get();
+    }
+    
+    public long getMigratedKeys() {
+        return migratedKeys.get();
+    }
+    
+    /**
+     * Stops the migration and fan-out threads. Nodes are left running.
+     */
+    public void shutdown() {
+        migrationExecutor.shutdown();
+        fanOutExecutor.shutdown();
+        try {
+            if (!migrationExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                migrationExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            migrationExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Migration
+    
+    private int rebalance(UnaryOperator<ConsistentHashRing> change) {
+        ConsistentHashRing oldRing = state.ring;
+        ConsistentHashRing newRing = change.apply(oldRing);
+        
+        // Switch rings while no write is in progress, so every write after this
+        // point also clears the previous owner's copy
+        switchState(new RingState(newRing, oldRing));
+        
+        // Only nodes that lost ranges need to be scanned: all nodes when one joins,
+        // just the leaving node when one is removed
+        Set<String> sources = new HashSet<>(oldRing.getNodeIds());
+        if (!newRing.getNodeIds().containsAll(sources)) {
+            sources.removeAll(newRing.getNodeIds());
+        }
+        
+        int moved = 0;
+        for (String sourceId : sources) {
+            StoreNode<K, V> source = nodes.get(sourceId);
+            Iterator<K> keys = new NodeScanIterator(Collections.singletonList(source));
+            while (keys.hasNext()) {
+                K key = keys.next();
+                String ownerId = newRing.nodeFor(key);
+                if (!ownerId.equals(sourceId) && moveKey(key, source, nodes.get(ownerId))) {
+                    moved++;
+                }
+            }
+        }
+        
+        switchState(new RingState(newRing, null));
+        migrations.incrementAndGet();
+        migratedKeys.addAndGet(moved);
+        return moved;
+    }
+    
+    private boolean moveKey(K key, StoreNode<K, V> source, StoreNode<K, V> target) {
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            long ttl = source.getTTL(key);
+            Optional<V> value = source.get(key);
+            if (!value.isPresent() || ttl == 0) {
+                return false; // Removed or expired since the scan
+            }
+            
+            // A write since the ring switch already went to the target and wins
+            if (!target.containsKey(key)) {
+                if (ttl > 0) {
+                    target.put(key, value.get(), ttl, TimeUnit.MILLISECONDS);
+                } else {
+                    target.put(key, value.get());
+                }
+            }
+            source.remove(key);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+    
+    private void switchState(RingState next) {
+        lockAllStripes();
+        try {
+            state = next;
+        } finally {
+            unlockAllStripes();
+        }
+    }
+    
+    // Helpers
+    
+    private void write(K key, Function<StoreNode<K, V>, Void> operation) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            RingState current = state;
+            operation.apply(nodes.get(current.ring.nodeFor(key)));
+            StoreNode<K, V> previousOwner = previousOwner(current, key);
+            if (previousOwner != null) {
+                previousOwner.remove(key);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+    
+    /**
+     * Returns the key's owner on the previous ring if a migration is running and
+     * that owner differs from the current one, otherwise null.
+     */
+    private StoreNode<K, V> previousOwner(RingState current, K key) {
+        if (current.previous == null) {
+            return null;
+        }
+        String previousId = current.previous.nodeFor(key);
+        return previousId.equals(current.ring.nodeFor(key)) ? null : nodes.get(previousId);
+    }
+    
+    private <R> List<R> fanOut(Function<StoreNode<K, V>, R> operation) {
+        List<CompletableFuture<R>> futures = new ArrayList<>();
+        for (StoreNode<K, V> node : nodes.values()) {
+            futures.add(CompletableFuture.supplyAsync(() -> operation.apply(node), fanOutExecutor));
+        }
+        
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+    
+    private ReentrantLock stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+    
+    private void lockAllStripes() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+    
+    private void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+    
+    /**
+     * Iterates the keys of several nodes in turn, fetching them in scan pages.
+     */
+    private class NodeScanIterator implements Iterator<K> {
+        private final Iterator<StoreNode<K, V>> remainingNodes;
+        private StoreNode<K, V> node;
+        private long cursor;
+        private Iterator<K> page = Collections.emptyIterator();
+        
+        NodeScanIterator(List<StoreNode<K, V>> nodes) {
+            this.remainingNodes = nodes.iterator();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                if (node == null || cursor == 0) {
+                    if (!remainingNodes.hasNext()) {
+                        return false;
+                    }
+                    node = remainingNodes.next();
+                    cursor = 0;
+                }
+                ScanResult<K> result = node.scan(cursor, SCAN_BATCH, null);
+                cursor = result.getCursor();
+                page = result.getKeys().iterator();
+            }
+            return true;
+        }
+        
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+    
+    /**
+     * The current ring, plus the ring before it while keys are being migrated.
+     */
+    private static final class RingState {
+        final ConsistentHashRing ring;
+        final ConsistentHashRing previous;
+        
+        RingState(ConsistentHashRing ring, ConsistentHashRing previous) {
+            this.ring = ring;
+            this.previous = previous;
+        }
+    }
+}
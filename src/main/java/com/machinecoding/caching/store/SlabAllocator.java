@@ -0,0 +1,305 @@
+package com.machinecoding.caching.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memcached-style slab allocator over direct ByteBuffers.
+ *
+ * Memory is reserved in fixed-size slabs. Each slab is handed to one size class
+ * and cut into equal chunks; chunk sizes grow geometrically from the smallest class,
+ * so a value wastes at most one growth step of space. Freed chunks go on their
+ * class's free list and are reused before a new slab is taken. When the last chunk
+ * of a slab is freed the slab leaves its class and returns to a shared pool, so
+ * memory freed by one size class (for example by clear()) can serve another.
+ *
+ * A chunk is addressed by a long handle: slab index in the high 32 bits, byte offset
+ * in the low 32 bits. Each chunk starts with a 4-byte length header.
+ *
+ * Thread-safety: allocate and free are safe to call concurrently. Reading or writing a
+ * chunk is not synchronized here; callers must make sure a chunk is not freed while it
+ * is being read (the store does this with its segment locks).
+ */
+class SlabAllocator {
+    
+    static final int HEADER_BYTES = 4;
+    
+    private final int slabSize;
+    private final int maxSlabs;
+    private final int[] chunkSizes;
+    private final SizeClass[] sizeClasses;
+    private final ByteBuffer[] slabs;
+    private final int[] slabOwners;
+    private final int[] slabChunks; // chunks in use per slab, guarded by the owning class
+    private final int[] freeSlabs;
+    private int freeSlabCount;
+    private int slabCount;
+    
+    // Statistics
+    private final AtomicLong usedBytes;
+    private final AtomicLong chunkBytes;
+    
+    SlabAllocator(long maxBytes, int slabSize, int minChunkSize, double growthFactor) {
+        if (slabSize <= 0 || minChunkSize <= HEADER_BYTES || minChunkSize > slabSize) {
+            throw new IllegalArgumentException("Invalid slab or chunk size");
+        }
+        if (growthFactor <= 1.0) {
+            throw new IllegalArgumentException("Growth factor must be greater than 1");
+        }
+        if (maxBytes < slabSize) {
+            throw new IllegalArgumentException("Capacity must hold at least one slab");
+        }
+        
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(maxBytes / slabSize, Integer.MAX_VALUE);
+        this.slabs = new ByteBuffer[maxSlabs];
+        this.slabOwners = new int[maxSlabs];
+        this.slabChunks = new int[maxSlabs];
+        this.freeSlabs = new int[maxSlabs];
+        this.usedBytes = new AtomicLong(0);
+        this.chunkBytes = new AtomicLong(0);
+        
+        // Chunk sizes are 8-byte aligned, and the last class is one chunk per slab
+        List<Integer> sizes = new ArrayList<>();
+        int size = minChunkSize;
+        while (size < slabSize / 2) {
+            sizes.add(size);
+            size = Math.max(size + 8, (int) (size * growthFactor + 7) & ~7);
+        }
+        sizes.add(slabSize);
+        
+        this.chunkSizes = new int[sizes.size()];
+        this.sizeClasses = new SizeClass[sizes.size()];
+        for (int i = 0; i < chunkSizes.length; i++) {
+            chunkSizes[i] = sizes.get(i);
+            sizeClasses[i] = new SizeClass(i, chunkSizes[i]);
+        }
+    }
+    
+    /**
+     * Copies a value into a free chunk of the smallest class that fits it.
+     *
+     * @return the chunk handle
+     * @throws IllegalArgumentException if the value is larger than a slab
+     * @throws IllegalStateException if all slabs are in use and the class has no free chunk
+     */
+    long store(byte[] value) {
+        int needed = HEADER_BYTES + value.length;
+        int classIndex = classFor(needed);
+        if (classIndex < 0) {
+            throw new IllegalArgumentException(
+                "Value of " + value.length + " bytes exceeds slab size " + slabSize);
+        }
+        
+        long handle = sizeClasses[classIndex].allocate();
+        ByteBuffer chunk = slabs[slabIndex(handle)].duplicate();
+        chunk.position(offset(handle));
+        chunk.putInt(value.length);
+        chunk.put(value);
+        
+        usedBytes.addAndGet(value.length);
+        chunkBytes.addAndGet(chunkSizes[classIndex]);
+        return handle;
+    }
+    
+    /**
+     * Copies a chunk's value out to the heap.
+     */
+    byte[] load(long handle) {
+        ByteBuffer chunk = slabs[slabIndex(handle)].duplicate();
+        chunk.position(offset(handle));
+        byte[] value = new byte[chunk.getInt()];
+        chunk.get(value);
+        return value;
+    }
+    
+    /**
+     * Returns a chunk to its size class. The handle must not be used afterwards.
+     */
+    void free(long handle) {
+        int slab = slabIndex(handle);
+        int length = slabs[slab].getInt(offset(handle));
+        SizeClass sizeClass = sizeClasses[slabOwner(slab)];
+        sizeClass.release(handle);
+        
+        usedBytes.addAndGet(-length);
+        chunkBytes.addAndGet(-sizeClass.chunkSize);
+    }
+    
+    /**
+     * Bytes of direct memory reserved by slabs.
+     */
+    long getReservedBytes() {
+        synchronized (slabs) {
+            return (long) slabCount * slabSize;
+        }
+    }
+    
+    /**
+     * Bytes of value payload currently stored.
+     */
+    long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    /**
+     * Bytes held by chunks that are in use, including headers and unused chunk tails.
+     */
+    long getChunkBytes() {
+        return chunkBytes.get();
+    }
+    
+    /**
+     * Share of reserved memory that does not hold payload: chunk headers, unused
+     * chunk tails, free chunks, uncarved slab space and pooled empty slabs.
+     * 0 when nothing is reserved.
+     */
+    double getFragmentation() {
+        long reserved = getReservedBytes();
+        return reserved == 0 ? 0.0 : 1.0 - (double) usedBytes.get() / reserved;
+    }
+    
+    int getSizeClassCount() {
+        return chunkSizes.length;
+    }
+    
+    int getChunkSize(int classIndex) {
+        return chunkSizes[classIndex];
+    }
+    
+    private int classFor(int needed) {
+        int low = 0;
+        int high = chunkSizes.length - 1;
+        if (needed > chunkSizes[high]) {
+            return -1;
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunkSizes[mid] < needed) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Hands a slab to a size class, reusing a pooled empty slab before reserving a new one.
+     */
+    private int newSlab(int classIndex) {
+        synchronized (slabs) {
+            int slab;
+            if (freeSlabCount > 0) {
+                slab = freeSlabs[--freeSlabCount];
+            } else if (slabCount < maxSlabs) {
+                slab = slabCount++;
+                slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+            } else {
+                return -1;
+            }
+            slabOwners[slab] = classIndex;
+            return slab;
+        }
+    }
+    
+    /**
+     * Returns an empty slab to the pool. Its buffer stays reserved for the next class.
+     */
+    private void poolSlab(int slab) {
+        synchronized (slabs) {
+            freeSlabs[freeSlabCount++] = slab;
+        }
+    }
+    
+    private int slabOwner(int slab) {
+        synchronized (slabs) {
+            return slabOwners[slab];
+        }
+    }
+    
+    private static int slabIndex(long handle) {
+        return (int) (handle >>> 32);
+    }
+    
+    private static int offset(long handle) {
+        return (int) handle;
+    }
+    
+    /**
+     * Chunks of one size: a free list of released chunks plus the uncarved
+     * remainder of the class's newest slab. Counts the chunks in use per slab so
+     * that a slab can be pooled as soon as it is empty.
+     */
+    private class SizeClass {
+        private final int index;
+        private final int chunkSize;
+        private long[] freeList;
+        private int freeCount;
+        private int currentSlab;
+        private int nextOffset;
+        
+        SizeClass(int index, int chunkSize) {
+            this.index = index;
+            this.chunkSize = chunkSize;
+            this.freeList = new long[16];
+            this.currentSlab = -1;
+            this.nextOffset = slabSize;
+        }
+        
+        synchronized long allocate() {
+            if (freeCount > 0) {
+                long handle = freeList[--freeCount];
+                slabChunks[slabIndex(handle)]++;
+                return handle;
+            }
+            if (nextOffset + chunkSize > slabSize) {
+                int slab = newSlab(index);
+                if (slab < 0) {
+                    throw new IllegalStateException(
+                        "Off-heap capacity exhausted for " + chunkSize + "-byte chunks");
+                }
+                currentSlab = slab;
+                nextOffset = 0;
+            }
+            long handle = ((long) currentSlab << 32) | nextOffset;
+            nextOffset += chunkSize;
+            slabChunks[currentSlab]++;
+            return handle;
+        }
+        
+        synchronized void release(long handle) {
+            int slab = slabIndex(handle);
+            if (--slabChunks[slab] == 0) {
+                retire(slab);
+                return;
+            }
+            if (freeCount == freeList.length) {
+                long[] grown = new long[freeList.length * 2];
+                System.arraycopy(freeList, 0, grown, 0, freeCount);
+                freeList = grown;
+            }
+            freeList[freeCount++] = handle;
+        }
+        
+        /**
+         * Drops an empty slab's chunks from this class and returns it to the pool.
+         */
+        private void retire(int slab) {
+            int kept = 0;
+            for (int i = 0; i < freeCount; i++) {
+                if (slabIndex(freeList[i]) != slab) {
+                    freeList[kept++] = freeList[i];
+                }
+            }
+            freeCount = kept;
+            if (currentSlab == slab) {
+                currentSlab = -1;
+                nextOffset = slabSize;
+            }
+            poolSlab(slab);
+        }
+    }
+}
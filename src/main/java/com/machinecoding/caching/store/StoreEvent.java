@@ -0,0 +1,39 @@
+package com.machinecoding.caching.store;
+
+/**
+ * A change to a key-value store, published to StoreListeners.
+ *
+ * @param <K> the type of keys
+ */
+public class StoreEvent<K> {
+    
+    public enum Type {
+        /** A value was written, or an existing key got a new expiration time */
+        PUT,
+        /** A key was removed explicitly */
+        REMOVE,
+        /** A key was removed because its TTL elapsed */
+        EXPIRE,
+        /** All keys were removed; the event has no key */
+        CLEAR
+    }
+    
+    private final Type type;
+    private final K key;
+    private final long timestamp;
+    
+    public StoreEvent(Type type, K key, long timestamp) {
+        this.type = type;
+        this.key = key;
+        this.timestamp = timestamp;
+    }
+    
+    public Type getType() { return type; }
+    public K getKey() { return key; }
+    public long getTimestamp() { return timestamp; }
+    
+    @Override
+    public String toString() {
+        return "StoreEvent{" + type + (key == null ? "" : ", key=" + key) + ", at=" + timestamp + "}";
+    }
+}
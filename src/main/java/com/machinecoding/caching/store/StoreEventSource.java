@@ -0,0 +1,21 @@
+package com.machinecoding.caching.store;
+
+/**
+ * A store that publishes put, remove, expire and clear events.
+ *
+ * @param <K> the type of keys
+ */
+public interface StoreEventSource<K> {
+    
+    /**
+     * Registers a listener for all subsequent changes.
+     */
+    void addListener(StoreListener<K> listener);
+    
+    /**
+     * Unregisters a listener.
+     *
+     * @return true if the listener was registered
+     */
+    boolean removeListener(StoreListener<K> listener);
+}
@@ -0,0 +1,15 @@
+package com.machinecoding.caching.store;
+
+/**
+ * Receives change events from a StoreEventSource.
+ *
+ * Listeners are called on the thread that made the change, after the change is
+ * visible to readers, so they should return quickly and must not block.
+ *
+ * @param <K> the type of keys
+ */
+@FunctionalInterface
+public interface StoreListener<K> {
+    
+    void onEvent(StoreEvent<K> event);
+}
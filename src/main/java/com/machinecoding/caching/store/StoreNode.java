@@ -0,0 +1,21 @@
+package com.machinecoding.caching.store;
+
+/**
+ * A backend that holds one shard of a ShardedKeyValueStore.
+ *
+ * Implementations may be in-process (LocalStoreNode) or a client for a store
+ * running in another process. Besides the usual operations, migration pages
+ * through the node's keys with scan(), so a remote node should serve scan
+ * cheaply and without building its whole key set. It also uses getTTL() to
+ * carry expiration times over.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public interface StoreNode<K, V> extends KeyValueStore<K, V> {
+    
+    /**
+     * Returns the node's unique id, which also determines its positions on the hash ring.
+     */
+    String getNodeId();
+}
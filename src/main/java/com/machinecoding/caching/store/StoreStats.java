@@ -1,5 +1,9 @@
 package com.machinecoding.caching.store;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Statistics for key-value store operations.
  */
@@ -12,10 +16,39 @@ public class StoreStats {
     private final long expiredKeys;
     private final int currentSize;
     private final long memoryUsage;
+    private final long offHeapBytes;
+    private final double fragmentation;
+    private final long listenerFailures;
     
     public StoreStats(long totalGets, long totalPuts, long totalRemoves, 
                      long hits, long misses, long expiredKeys, 
                      int currentSize, long memoryUsage) {
+        this(totalGets, totalPuts, totalRemoves, hits, misses, expiredKeys, currentSize, memoryUsage, 0, 0.0);
+    }
+    
+    /**
+     * Creates stats for a store that keeps values off-heap.
+     *
+     * @param offHeapBytes direct memory reserved for values
+     * @param fragmentation share of offHeapBytes not holding value payload, as a ratio
+     *                      from 0.0 to 1.0; getFragmentation reports it as a percentage
+     */
+    public StoreStats(long totalGets, long totalPuts, long totalRemoves,
+                     long hits, long misses, long expiredKeys,
+                     int currentSize, long memoryUsage, long offHeapBytes, double fragmentation) {
+        this(totalGets, totalPuts, totalRemoves, hits, misses, expiredKeys, currentSize, memoryUsage,
+             offHeapBytes, fragmentation, 0);
+    }
+    
+    /**
+     * Creates stats for a store that publishes change events.
+     *
+     * @param listenerFailures listener calls that threw, which the store swallowed
+     */
+    public StoreStats(long totalGets, long totalPuts, long totalRemoves,
+                     long hits, long misses, long expiredKeys,
+                     int currentSize, long memoryUsage, long offHeapBytes, double fragmentation,
+                     long listenerFailures) {
         this.totalGets = totalGets;
         this.totalPuts = totalPuts;
         this.totalRemoves = totalRemoves;
@@ -24,6 +57,9 @@ public class StoreStats {
         this.expiredKeys = expiredKeys;
         this.currentSize = currentSize;
         this.memoryUsage = memoryUsage;
+        this.offHeapBytes = offHeapBytes;
+        this.fragmentation = fragmentation;
+        this.listenerFailures = listenerFailures;
     }
     
     public long getTotalGets() { return totalGets; }
@@ -34,6 +70,16 @@ public class StoreStats {
     public long getExpiredKeys() { return expiredKeys; }
     public int getCurrentSize() { return currentSize; }
     public long getMemoryUsage() { return memoryUsage; }
+    public long getOffHeapBytes() { return offHeapBytes; }
+    public long getListenerFailures() { return listenerFailures; }
+    
+    /**
+     * Gets the share of off-heap bytes not holding value payload, as a percentage
+     * from 0 to 100.
+     */
+    public double getFragmentation() {
+        return fragmentation * 100;
+    }
     
     public double getHitRate() {
         long total = hits + misses;
@@ -42,11 +88,22 @@ public class StoreStats {
     
     @Override
     public String toString() {
-        return String.format(
-            "StoreStats{gets=%d, puts=%d, removes=%d, hits=%d, misses=%d, " +
-            "expired=%d, size=%d, memory=%dB, hitRate=%.1f%%}",
-            totalGets, totalPuts, totalRemoves, hits, misses, 
-            expiredKeys, currentSize, memoryUsage, getHitRate()
-        );
+        // Optional fields appear only when they are non-zero
+        StringBuilder format = new StringBuilder(
+            "StoreStats{gets=%d, puts=%d, removes=%d, hits=%d, misses=%d, expired=%d, size=%d, memory=%dB");
+        List<Object> args = new ArrayList<>(Arrays.<Object>asList(
+            totalGets, totalPuts, totalRemoves, hits, misses, expiredKeys, currentSize, memoryUsage));
+        if (offHeapBytes > 0) {
+            format.append(", offHeap=%dB, fragmentation=%.1f%%");
+            args.add(offHeapBytes);
+            args.add(getFragmentation());
+        }
+        if (listenerFailures > 0) {
+            format.append(", listenerFailures=%d");
+            args.add(listenerFailures);
+        }
+        format.append(", hitRate=%.1f%%}");
+        args.add(getHitRate());
+        return String.format(format.toString(), args.toArray());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package com.machinecoding.caching.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel that tracks keys by expiration time.
+ *
+ * Each level is a ring of buckets; a bucket holds a doubly linked list of timers.
+ * Level 0 has 16ms buckets, and every following level has buckets 64x wider:
+ *
+ *   level 0: 64 x 16ms     (~1 second)
+ *   level 1: 64 x ~1s      (~65 seconds)
+ *   level 2: 64 x ~65s     (~70 minutes)
+ *   level 3: 64 x ~70min   (~3 days)
+ *   level 4: 1 overflow bucket for anything further out
+ *
+ * Advancing the wheel only visits the buckets whose time range has passed. Timers in
+ * those buckets are either expired, or are cascaded down into a finer level. This makes
+ * expiry cost proportional to the number of expiring timers instead of the number of keys.
+ *
+ * Not thread-safe: callers must guard all operations with their own lock.
+ *
+ * @param <K> the type of keys
+ */
+class TimingWheel<K> {
+    
+    private static final int[] SHIFTS = {4, 10, 16, 22, 28};
+    private static final int[] BUCKETS = {64, 64, 64, 64, 1};
+    
+    private final Timer<K>[][] wheel;
+    private long currentTime;
+    private volatile int size; // Written under the owner's lock, read without it
+    
+    TimingWheel(long currentTime) {
+        this.currentTime = currentTime;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Timer<K>[][] levels = new Timer[BUCKETS.length][];
+        this.wheel = levels;
+        for (int level = 0; level < BUCKETS.length; level++) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Timer<K>[] buckets = new Timer[BUCKETS[level]];
+            wheel[level] = buckets;
+            for (int bucket = 0; bucket < BUCKETS[level]; bucket++) {
+                wheel[level][bucket] = Timer.sentinel();
+            }
+        }
+    }
+    
+    /**
+     * Schedules a key to expire at the given absolute time in milliseconds.
+     *
+     * @return a handle that can be passed to {@link #cancel(Timer)}
+     */
+    Timer<K> schedule(K key, long expirationTime) {
+        Timer<K> timer = new Timer<>(key, expirationTime);
+        link(findBucket(expirationTime), timer);
+        size++;
+        return timer;
+    }
+    
+    /**
+     * Removes a timer that has not fired yet. Cancelling twice is harmless.
+     */
+    void cancel(Timer<K> timer) {
+        if (timer != null && timer.prev != null) {
+            unlink(timer);
+            size--;
+        }
+    }
+    
+    /**
+     * Moves the wheel forward to the given time and returns the keys of all timers
+     * that expired strictly before it.
+     */
+    List<K> advance(long now) {
+        List<K> expired = new ArrayList<>();
+        long previousTime = currentTime;
+        currentTime = Math.max(currentTime, now);
+        
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long previousTicks = previousTime >>> SHIFTS[level];
+            long currentTicks = currentTime >>> SHIFTS[level];
+            long delta = currentTicks - previousTicks;
+            
+            // Level 0 always re-checks its current bucket so keys expiring inside the
+            // current tick are not left behind; coarser levels only move when they tick
+            if (delta <= 0 && level > 0) {
+                break;
+            }
+            expireBuckets(level, previousTicks, delta, expired);
+        }
+        return expired;
+    }
+    
+    /**
+     * Returns the number of scheduled timers.
+     */
+    int size() {
+        return size;
+    }
+    
+    void clear() {
+        for (Timer<K>[] level : wheel) {
+            for (Timer<K> sentinel : level) {
+                Timer<K> node = sentinel.next;
+                while (node != sentinel) {
+                    Timer<K> next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    node = next;
+                }
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+        size = 0;
+    }
+    
+    private void expireBuckets(int level, long previousTicks, long delta, List<K> expired) {
+        Timer<K>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + Math.max(delta, 0), buckets.length);
+        int start = (int) (previousTicks & mask);
+        
+        for (int i = start; i < start + steps; i++) {
+            Timer<K> sentinel = buckets[i & mask];
+            
+            // Detach the whole bucket first, since timers may be re-linked into it
+            Timer<K> node = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            
+            while (node != sentinel) {
+                Timer<K> next = node.next;
+                node.prev = null;
+                node.next = null;
+                
+                if (node.expirationTime < currentTime) {
+                    expired.add(node.key);
+                    size--;
+                } else {
+                    link(findBucket(node.expirationTime), node);
+                }
+                node = next;
+            }
+        }
+    }
+    
+    private Timer<K> findBucket(long expirationTime) {
+        long time = Math.max(expirationTime, currentTime);
+        long duration = time - currentTime;
+        int lastLevel = SHIFTS.length - 1;
+        
+        for (int level = 0; level < lastLevel; level++) {
+            if (duration < (1L << SHIFTS[level + 1])) {
+                long ticks = time >>> SHIFTS[level];
+                return wheel[level][(int) (ticks & (wheel[level].length - 1))];
+            }
+        }
+        return wheel[lastLevel][0];
+    }
+    
+    private static <K> void link(Timer<K> sentinel, Timer<K> timer) {
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+    
+    private static <K> void unlink(Timer<K> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+    
+    /**
+     * A scheduled expiration, linked into exactly one bucket while pending.
+     */
+    static final class Timer<K> {
+        private final K key;
+        private final long expirationTime;
+        private Timer<K> prev;
+        private Timer<K> next;
+        
+        private Timer(K key, long expirationTime) {
+            this.key = key;
+            this.expirationTime = expirationTime;
+        }
+        
+        private static <K> Timer<K> sentinel() {
+            Timer<K> sentinel = new Timer<>(null, Long.MAX_VALUE);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+        
+        K getKey() { return key; }
+        long getExpirationTime() { return expirationTime; }
+    }
+}
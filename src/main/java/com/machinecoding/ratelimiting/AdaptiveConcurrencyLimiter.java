@@ -0,0 +1,272 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive Concurrency Limiter implementation.
+ *
+ * Instead of a fixed rate, this limits how many requests may be in flight to a
+ * downstream at once, and finds that number by watching latency, in the manner of
+ * TCP Vegas. The fastest round trip seen recently (minRTT) is taken as the latency
+ * with no queueing. For each completed request,
+ *
+ *   queue = limit * (1 - minRTT / rtt)
+ *
+ * estimates how many requests were waiting rather than being served. A small queue
+ * means the downstream has headroom and the limit grows; a large one means requests
+ * are piling up and the limit shrinks. Timeouts and errors reported as drops cut the
+ * limit multiplicatively, as in AIMD.
+ *
+ * Characteristics:
+ * - No rate to configure: the limit follows the downstream's actual capacity
+ * - Steps scale with log10(limit), so small limits move gently and large ones quickly
+ * - The limit only grows while it is actually being used
+ * - minRTT is re-learned periodically, so a downstream that becomes permanently slower
+ *   (or faster) does not leave the limiter measuring against a stale baseline
+ * - Admission is a compare-and-set on the in-flight count; only completions take a lock
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final int probeMultiplier;
+    private final AtomicInteger inFlight;
+    private volatile int limit;
+    
+    // Guarded by this
+    private double estimatedLimit;
+    private long minRttNanos;
+    private long samplesUntilProbe;
+    
+    // Statistics
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    private final LongAdder droppedRequests;
+    
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.probeMultiplier = builder.probeMultiplier;
+        this.inFlight = new AtomicInteger();
+        this.estimatedLimit = builder.initialLimit;
+        this.limit = builder.initialLimit;
+        this.minRttNanos = Long.MAX_VALUE;
+        this.samplesUntilProbe = (long) probeMultiplier * builder.initialLimit;
+        
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+        this.droppedRequests = new LongAdder();
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Attempts to start a request.
+     *
+     * @return a permit to complete when the request finishes, or empty if the limit
+     *         has been reached and the request should be shed
+     */
+    public Optional<Permit> tryAcquire() {
+        totalRequests.increment();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejectedRequests.increment();
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                allowedRequests.increment();
+                return Optional.of(new Permit(current + 1));
+            }
+        }
+    }
+    
+    /**
+     * Gets the current concurrency limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public ConcurrencyLimitStats getStats() {
+        long minRtt;
+        synchronized (this) {
+            minRtt = minRttNanos == Long.MAX_VALUE ? 0 : minRttNanos;
+        }
+        return new ConcurrencyLimitStats(
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
+            limit,
+            inFlight.get(),
+            minRtt,
+            droppedRequests.sum(),
+            "AdaptiveConcurrency"
+        );
+    }
+    
+    /**
+     * Adjusts the limit for one completed request. Package-private so that tests can
+     * feed exact latencies. Non-positive samples carry no latency and are ignored, so
+     * the baseline never drops to zero.
+     */
+    synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (--samplesUntilProbe <= 0) {
+            // Forget the baseline so that a lasting shift in latency is learned
+            minRttNanos = rttNanos;
+            samplesUntilProbe = (long) probeMultiplier * limit;
+        } else if (rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+        
+        double queue = estimatedLimit * (1 - (double) minRttNanos / rttNanos);
+        double step = Math.max(1, Math.log10(estimatedLimit));
+        if (queue <= 3 * step) {
+            // Growing a limit that is not being reached would only let a later burst through
+            if (inFlightAtStart * 2 >= estimatedLimit) {
+                estimatedLimit += step;
+            }
+        } else if (queue >= 6 * step) {
+            estimatedLimit -= step;
+        }
+        updateLimit();
+    }
+    
+    private synchronized void onDrop() {
+        estimatedLimit *= backoffRatio;
+        updateLimit();
+    }
+    
+    private void updateLimit() {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+        limit = (int) estimatedLimit;
+    }
+    
+    /**
+     * An admitted request. Exactly one of the completion methods must be called,
+     * typically in a finally block; later calls are ignored.
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released;
+        
+        private Permit(int inFlightAtStart) {
+            this.startNanos = System.nanoTime();
+            this.inFlightAtStart = inFlightAtStart;
+            this.released = new AtomicBoolean();
+        }
+        
+        /**
+         * The request completed normally; its latency is used to adjust the limit.
+         */
+        public void onSuccess() {
+            if (release()) {
+                // A request faster than the clock's resolution still took some time
+                onSample(Math.max(1, System.nanoTime() - startNanos), inFlightAtStart);
+            }
+        }
+        
+        /**
+         * The request timed out or was rejected by an overloaded downstream; the
+         * limit is cut.
+         */
+        public void onDropped() {
+            if (release()) {
+                droppedRequests.increment();
+                onDrop();
+            }
+        }
+        
+        /**
+         * The request failed for a reason unrelated to load, such as a validation
+         * error; its latency says nothing about capacity and is not used.
+         */
+        public void onIgnore() {
+            release();
+        }
+        
+        private boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+    
+    public static class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double backoffRatio = 0.9;
+        private int probeMultiplier = 30;
+        
+        private Builder() {
+        }
+        
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+        
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+        
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+        
+        /**
+         * Sets the factor applied to the limit when a request is dropped. Defaults to 0.9.
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+        
+        /**
+         * Sets how often minRTT is re-learned, in multiples of the limit: with the
+         * default of 30, every 30 * limit completed requests.
+         */
+        public Builder probeMultiplier(int probeMultiplier) {
+            if (probeMultiplier <= 0) {
+                throw new IllegalArgumentException("Probe multiplier must be positive");
+            }
+            this.probeMultiplier = probeMultiplier;
+            return this;
+        }
+        
+        public AdaptiveConcurrencyLimiter build() {
+            if (minLimit <= 0 || minLimit > maxLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 0 < minLimit <= maxLimit");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Initial limit must be between minLimit and maxLimit");
+            }
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+}
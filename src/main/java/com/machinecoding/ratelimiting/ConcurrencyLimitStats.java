@@ -0,0 +1,40 @@
+package com.machinecoding.ratelimiting;
+
+/**
+ * Statistics for an adaptive concurrency limiter: the usual request counts plus
+ * the limit it has converged on and the latency it measures against.
+ */
+public class ConcurrencyLimitStats extends RateLimitStats {
+    private final int limit;
+    private final int inFlight;
+    private final long minRttNanos;
+    private final long droppedRequests;
+    
+    public ConcurrencyLimitStats(long totalRequests, long allowedRequests, long rejectedRequests,
+                                 int limit, int inFlight, long minRttNanos, long droppedRequests,
+                                 String algorithm) {
+        super(totalRequests, allowedRequests, rejectedRequests, 0, algorithm);
+        this.limit = limit;
+        this.inFlight = inFlight;
+        this.minRttNanos = minRttNanos;
+        this.droppedRequests = droppedRequests;
+    }
+    
+    public int getLimit() { return limit; }
+    public int getInFlight() { return inFlight; }
+    public long getMinRttNanos() { return minRttNanos; }
+    public long getDroppedRequests() { return droppedRequests; }
+    
+    public double getMinRttMillis() {
+        return minRttNanos / 1_000_000.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "%s Stats{total=%d, allowed=%d, rejected=%d, dropped=%d, limit=%d, inFlight=%d, minRtt=%.2fms, rejectRate=%.1f%%}",
+            getAlgorithm(), getTotalRequests(), getAllowedRequests(), getRejectedRequests(), droppedRequests,
+            limit, inFlight, getMinRttMillis(), getRejectRate()
+        );
+    }
+}
@@ -2,8 +2,11 @@ package com.machinecoding.ratelimiting;
 
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Random;
 
 /**
@@ -37,6 +40,14 @@ public class DistributedLockDemo {
         System.out.println("\n=== Demo 5: Performance & Scalability ===");
         demonstratePerformance(lockSystem);
         
+        // Demo 6: Many threads over many resources
+        System.out.println("\n=== Demo 6: Contention Across Resources ===");
+        demonstrateContentionScaling();
+        
+        // Demo 7: Waiting for a lock
+        System.out.println("\n=== Demo 7: FIFO Waiting & Handoff ===");
+        demonstrateWaiting();
+        
         // Cleanup
         lockSystem.shutdown();
         System.out.println("\n=== Demo Complete ===");
@@ -323,4 +334,166 @@ public class DistributedLockDemo {
         System.out.println("\n3. Final performance statistics:");
         System.out.println("   " + lockSystem.getStats());
     }
-}
\ No newline at end of file
+    
+    private static void demonstrateContentionScaling() throws InterruptedException {
+        final int threads = 32;
+        final int resources = 1000;
+        System.out.println("1. " + threads + " threads locking and releasing random resources out of " + resources
+            + " for 1s (" + Runtime.getRuntime().availableProcessors() + " cores):");
+        
+        // Warm up both paths before measuring
+        runContention(new InMemoryDistributedLock(), threads, resources, 300, false);
+        runContention(new InMemoryDistributedLock(), threads, resources, 300, true);
+        
+        long[] serialized = runContention(new InMemoryDistributedLock(), threads, resources, 1000, true);
+        long[] perResource = runContention(new InMemoryDistributedLock(), threads, resources, 1000, false);
+        
+        System.out.println("   One global mutex:     " + serialized[0] + " ops/sec, overlaps=" + serialized[1]);
+        System.out.println("   Per-resource updates: " + perResource[0] + " ops/sec, overlaps=" + perResource[1]);
+        System.out.printf("   Speedup: %.2fx%n", (double) perResource[0] / Math.max(1, serialized[0]));
+        System.out.println("   (an overlap would be two holders inside the same resource at once)");
+    }
+    
+    /**
+     * Runs tryLock/releaseLock pairs from many threads and returns {ops/sec, overlaps}.
+     * With serialize set, every call goes through one shared monitor, which is how the
+     * lock table behaved when it was guarded by a single global lock.
+     */
+    private static long[] runContention(InMemoryDistributedLock lockSystem, int threads, int resources,
+                                        long durationMillis, boolean serialize) throws InterruptedException {
+        String[] names = new String[resources];
+        for (int i = 0; i < resources; i++) {
+            names[i] = "contended-resource-" + i;
+        }
+        Object globalMutex = new Object();
+        AtomicIntegerArray occupancy = new AtomicIntegerArray(resources);
+        LongAdder operations = new LongAdder();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final String lockId = "worker-" + t;
+            executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() - deadline[0] < 0) {
+                    int r = random.nextInt(resources);
+                    boolean acquired;
+                    if (serialize) {
+                        synchronized (globalMutex) {
+                            acquired = lockSystem.tryLock(names[r], lockId, 1, TimeUnit.SECONDS);
+                        }
+                    } else {
+                        acquired = lockSystem.tryLock(names[r], lockId, 1, TimeUnit.SECONDS);
+                    }
+                    if (acquired) {
+                        if (occupancy.incrementAndGet(r) != 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        occupancy.decrementAndGet(r);
+                        if (serialize) {
+                            synchronized (globalMutex) {
+                                lockSystem.releaseLock(names[r], lockId);
+                            }
+                        } else {
+                            lockSystem.releaseLock(names[r], lockId);
+                        }
+                    }
+                    operations.increment();
+                }
+                return null;
+            });
+        }
+        
+        deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(durationMillis + 5000, TimeUnit.MILLISECONDS);
+        lockSystem.shutdown();
+        
+        return new long[] {operations.sum() * 1000 / durationMillis, overlaps.get()};
+    }
+    
+    private static void demonstrateWaiting() throws InterruptedException {
+        InMemoryDistributedLock lockSystem = new InMemoryDistributedLock();
+        String resource = "queued-resource";
+        
+        System.out.println("1. Five clients queue behind a holder, arriving 20ms apart:");
+        lockSystem.tryLock(resource, "holder", 10, TimeUnit.SECONDS);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        LongAdder handoffNanos = new LongAdder();
+        long[] releasedAt = new long[1];
+        Object releaseClock = new Object();
+        
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final String lockId = "client-" + i;
+            Thread client = new Thread(() -> {
+                if (lockSystem.tryLock(resource, lockId, 10, TimeUnit.SECONDS, 5, TimeUnit.SECONDS)) {
+                    synchronized (releaseClock) {
+                        handoffNanos.add(System.nanoTime() - releasedAt[0]);
+                    }
+                    order.add(lockId);
+                    sleepQuietly(10); // Simulate work
+                    synchronized (releaseClock) {
+                        releasedAt[0] = System.nanoTime();
+                    }
+                    lockSystem.releaseLock(resource, lockId);
+                }
+            });
+            clients.add(client);
+            client.start();
+            Thread.sleep(20);
+        }
+        
+        synchronized (releaseClock) {
+            releasedAt[0] = System.nanoTime();
+        }
+        lockSystem.releaseLock(resource, "holder");
+        for (Thread client : clients) {
+            client.join();
+        }
+        System.out.println("   Acquisition order: " + order);
+        System.out.printf("   Average release-to-acquire handoff: %.3fms (sleep polling waited up to 100ms)%n",
+            handoffNanos.sum() / 1e6 / Math.max(1, order.size()));
+        
+        System.out.println("\n2. A waiter behind a holder that never releases (200ms TTL):");
+        lockSystem.tryLock(resource, "crashed-holder", 200, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        boolean acquired = lockSystem.tryLock(resource, "patient-client", 1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS);
+        System.out.printf("   Acquired after TTL expiry: %s, waited %dms%n",
+            acquired, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lockSystem.releaseLock(resource, "patient-client");
+        
+        System.out.println("\n3. Eight clients passing one lock around for 1s:");
+        AtomicInteger handoffs = new AtomicInteger();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            final String lockId = "relay-" + i;
+            executor.submit(() -> {
+                while (System.nanoTime() - deadline < 0) {
+                    if (lockSystem.tryLock(resource, lockId, 1, TimeUnit.SECONDS, 1, TimeUnit.SECONDS)) {
+                        handoffs.incrementAndGet();
+                        lockSystem.releaseLock(resource, lockId);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.println("   Acquisitions: " + handoffs.get());
+        System.out.println("   " + lockSystem.getStats());
+        lockSystem.shutdown();
+    }
+    
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
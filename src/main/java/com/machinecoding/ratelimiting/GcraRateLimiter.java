@@ -0,0 +1,334 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generic Cell Rate Algorithm (GCRA) Rate Limiter implementation.
+ *
+ * Each key stores a single long, its theoretical arrival time (TAT): the time at which
+ * the key would be back to an idle, full-burst state. With an emission interval
+ * T = window / maxRequests and a tolerance of maxRequests * T, a request for n
+ * permits is allowed if max(TAT, now) + n * T - now does not exceed the tolerance,
+ * and then moves the TAT there. It behaves like a token bucket of maxRequests tokens
+ * refilled one every T, without storing a token count.
+ *
+ * Characteristics:
+ * - One long per key, kept in open-addressing primitive tables (no objects per key)
+ * - Allocation-free on the hot path once the tables have grown
+ * - Keys whose TAT has passed are indistinguishable from unseen keys, so they are
+ *   purged whenever a table needs room; memory tracks the keys active in the last window
+ * - Retry-after hints: exactly how long until a rejected request would be allowed
+ *
+ * String identifiers are reduced to a 64-bit hash, so two identifiers share a limit
+ * only if their hashes collide (about one chance in 10^4 with 50 million active keys).
+ * Callers with numeric keys, such as IPv4 addresses, can use the long-keyed methods,
+ * which never collide.
+ */
+public class GcraRateLimiter implements RateLimiter {
+    
+    private static final int SEGMENTS = 256;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    private static final long NEVER = Long.MAX_VALUE;
+    
+    private final RateLimitConfig config;
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final long epoch;
+    private final Segment[] segments;
+    private final AtomicLong globalTat;
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    
+    public GcraRateLimiter(long maxRequests, long timeWindow, TimeUnit timeUnit) {
+        this.config = new RateLimitConfig(maxRequests, timeWindow, timeUnit, "GCRA");
+        this.emissionNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getTimeWindowMillis()) / maxRequests);
+        this.toleranceNanos = emissionNanos * maxRequests;
+        this.epoch = System.nanoTime();
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        this.globalTat = new AtomicLong();
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+    }
+    
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+    
+    @Override
+    public boolean tryAcquire(int permits) {
+        return record(acquireGlobal(permits) == 0);
+    }
+    
+    @Override
+    public boolean tryAcquire(String identifier) {
+        return tryAcquire(identifier, 1);
+    }
+    
+    @Override
+    public boolean tryAcquire(String identifier, int permits) {
+        return tryAcquire(hash(identifier), permits);
+    }
+    
+    /**
+     * Attempts to acquire permits for a numeric key, such as an IPv4 address.
+     */
+    public boolean tryAcquire(long key, int permits) {
+        return tryAcquireOrRetryAfter(key, permits) == 0;
+    }
+    
+    /**
+     * Attempts to acquire permits and, if rejected, says how long to wait.
+     *
+     * @return 0 if the permits were acquired, otherwise nanoseconds until they would
+     *         be, or Long.MAX_VALUE if permits exceeds the burst size
+     */
+    public long tryAcquireOrRetryAfter(String identifier, int permits) {
+        return tryAcquireOrRetryAfter(hash(identifier), permits);
+    }
+    
+    /**
+     * Numeric-key form of {@link #tryAcquireOrRetryAfter(String, int)}.
+     */
+    public long tryAcquireOrRetryAfter(long key, int permits) {
+        long cost = cost(permits);
+        long slot = mix(key);
+        long wait = cost == NEVER ? NEVER : segmentFor(slot).acquire(slot, now(), cost, toleranceNanos);
+        record(wait == 0);
+        return wait;
+    }
+    
+    @Override
+    public long getAvailablePermits() {
+        long now = now();
+        return (now + toleranceNanos - Math.max(globalTat.get(), now)) / emissionNanos;
+    }
+    
+    @Override
+    public long getAvailablePermits(String identifier) {
+        long slot = mix(hash(identifier));
+        long now = now();
+        return (now + toleranceNanos - Math.max(segmentFor(slot).tat(slot), now)) / emissionNanos;
+    }
+    
+    /**
+     * Gets how long until the given identifier can next be admitted a single request.
+     *
+     * @param identifier the identifier to check
+     * @return milliseconds to wait, 0 if a request would be allowed now
+     */
+    public long getRetryAfterMillis(String identifier) {
+        long slot = mix(hash(identifier));
+        long now = now();
+        long wait = Math.max(segmentFor(slot).tat(slot), now) + emissionNanos - toleranceNanos - now;
+        return wait <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(wait + 999_999);
+    }
+    
+    @Override
+    public RateLimitConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Gets statistics. Active identifiers counts stored keys, including ones that
+     * have gone idle but have not been purged yet.
+     */
+    @Override
+    public RateLimitStats getStats() {
+        long keys = 0;
+        for (Segment segment : segments) {
+            keys += segment.size();
+        }
+        return new RateLimitStats(
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
+            keys,
+            "GCRA"
+        );
+    }
+    
+    @Override
+    public void reset() {
+        globalTat.set(0);
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        totalRequests.reset();
+        allowedRequests.reset();
+        rejectedRequests.reset();
+    }
+    
+    @Override
+    public void reset(String identifier) {
+        long slot = mix(hash(identifier));
+        segmentFor(slot).forget(slot);
+    }
+    
+    private long acquireGlobal(int permits) {
+        long cost = cost(permits);
+        if (cost == NEVER) {
+            return NEVER;
+        }
+        while (true) {
+            long tat = globalTat.get();
+            long now = now();
+            long newTat = Math.max(tat, now) + cost;
+            long wait = newTat - toleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (globalTat.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+    
+    private long cost(int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        return permits > config.getMaxRequests() ? NEVER : permits * emissionNanos;
+    }
+    
+    private boolean record(boolean allowed) {
+        totalRequests.increment();
+        if (allowed) {
+            allowedRequests.increment();
+        } else {
+            rejectedRequests.increment();
+        }
+        return allowed;
+    }
+    
+    private Segment segmentFor(long slot) {
+        return segments[(int) (slot >>> 56) & (SEGMENTS - 1)];
+    }
+    
+    // Times are offset from the epoch so that 0 is always in the past
+    private long now() {
+        return System.nanoTime() - epoch + 1;
+    }
+    
+    /**
+     * 64-bit hash of a string, computed without allocating.
+     */
+    private static long hash(String identifier) {
+        if (identifier == null) {
+            throw new IllegalArgumentException("Identifier cannot be null");
+        }
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < identifier.length(); i++) {
+            h = (h ^ identifier.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+    
+    /**
+     * Spreads a key over all 64 bits (a bijection, so distinct keys stay distinct).
+     * The result is never 0, which marks an empty table slot.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key == 0 ? 0x9E3779B97F4A7C15L : key;
+    }
+    
+    /**
+     * Open-addressing table from mixed key to TAT, guarded by its own monitor.
+     * Kept at most half full; idle keys are purged before the table grows.
+     */
+    private static class Segment {
+        private long[] keys = new long[MIN_SEGMENT_CAPACITY];
+        private long[] tats = new long[MIN_SEGMENT_CAPACITY];
+        private int size;
+        
+        synchronized long acquire(long key, long now, long cost, long tolerance) {
+            int index = find(key);
+            boolean present = keys[index] == key;
+            long newTat = Math.max(present ? tats[index] : now, now) + cost;
+            long wait = newTat - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            
+            if (!present) {
+                if (size + 1 > keys.length >> 1) {
+                    rebuild(now);
+                    index = find(key);
+                }
+                keys[index] = key;
+                size++;
+            }
+            tats[index] = newTat;
+            return 0;
+        }
+        
+        synchronized long tat(long key) {
+            int index = find(key);
+            return keys[index] == key ? tats[index] : 0;
+        }
+        
+        synchronized void forget(long key) {
+            int index = find(key);
+            if (keys[index] == key) {
+                tats[index] = 0; // Idle: purged at the next rebuild
+            }
+        }
+        
+        synchronized void clear() {
+            keys = new long[MIN_SEGMENT_CAPACITY];
+            tats = new long[MIN_SEGMENT_CAPACITY];
+            size = 0;
+        }
+        
+        synchronized int size() {
+            return size;
+        }
+        
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int index = (int) key & mask;
+            while (keys[index] != 0 && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+        
+        /**
+         * Drops idle keys and resizes so the live ones fill at most a quarter of the table.
+         */
+        private void rebuild(long now) {
+            long[] oldKeys = keys;
+            long[] oldTats = tats;
+            int live = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0 && oldTats[i] > now) {
+                    live++;
+                }
+            }
+            
+            int capacity = Math.max(MIN_SEGMENT_CAPACITY, Integer.highestOneBit(Math.max(1, live * 4 - 1)) << 1);
+            keys = new long[capacity];
+            tats = new long[capacity];
+            size = live;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0 && oldTats[i] > now) {
+                    int index = find(oldKeys[i]);
+                    keys[index] = oldKeys[i];
+                    tats[index] = oldTats[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hierarchical Rate Limiter: several limit tiers checked in one call.
+ *
+ * A gateway typically enforces per-user, per-endpoint, per-tenant and global limits.
+ * Chaining separate RateLimiter calls leaks permits: when a later limiter rejects,
+ * the earlier ones have already been charged for a request that never ran. Here a
+ * request is charged to every tier or to none, and the result names the tier that
+ * rejected it.
+ *
+ * Characteristics:
+ * - All or nothing: permits taken from earlier tiers are refunded when a later one rejects
+ * - Tiers are evaluated in declaration order; a rejection by the first tier writes nothing,
+ *   so declare the most specific (most often exceeded) tier first
+ * - Each tier is a lock-free token bucket per identifier, like TokenBucketRateLimiter
+ * - Allocation-free per call: results are shared constants, refunds unwind on the stack
+ * - Per-tier statistics, and idle buckets evicted by a background sweep once per
+ *   longest tier window (at most once a second) unless disabled in the builder
+ *
+ * Between a charge and its refund, a concurrent request may see one tier with fewer
+ * permits than it will end up with, so contention can cause a spurious rejection but
+ * never an over-admission.
+ */
+public class HierarchicalRateLimiter {
+    
+    private final Tier[] tiers;
+    private final int keyedTiers;
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    private final ScheduledExecutorService evictionExecutor;
+    
+    private HierarchicalRateLimiter(Builder builder) {
+        this.tiers = builder.tiers.toArray(new Tier[0]);
+        int keyed = 0;
+        for (Tier tier : tiers) {
+            if (tier.keyIndex >= 0) {
+                keyed++;
+            }
+        }
+        this.keyedTiers = keyed;
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+        
+        if (builder.enableAutoEviction) {
+            long evictionIntervalMillis = builder.evictionIntervalMillis;
+            if (evictionIntervalMillis == 0) {
+                // Sweep once per longest window, but no more often than once a second
+                evictionIntervalMillis = 1000;
+                for (Tier tier : tiers) {
+                    evictionIntervalMillis = Math.max(evictionIntervalMillis, tier.config.getTimeWindowMillis());
+                }
+            }
+            this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "HierarchicalRateLimiter-Eviction");
+                t.setDaemon(true);
+                return t;
+            });
+            
+            evictionExecutor.scheduleWithFixedDelay(
+                this::evictIdleBuckets,
+                evictionIntervalMillis,
+                evictionIntervalMillis,
+                TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.evictionExecutor = null;
+        }
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Attempts to acquire a permit from every tier.
+     *
+     * @param identifiers one identifier per keyed tier, in the order those tiers were declared
+     * @return the decision, naming the rejecting tier if there was one
+     */
+    public Result tryAcquire(String... identifiers) {
+        return tryAcquire(1, identifiers);
+    }
+    
+    /**
+     * Attempts to acquire permits from every tier.
+     *
+     * @param permits number of permits to take from each tier
+     * @param identifiers one identifier per keyed tier, in the order those tiers were declared
+     * @return the decision, naming the rejecting tier if there was one
+     */
+    public Result tryAcquire(int permits, String... identifiers) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        if (identifiers == null || identifiers.length != keyedTiers) {
+            throw new IllegalArgumentException("Expected " + keyedTiers + " identifiers");
+        }
+        
+        totalRequests.increment();
+        int rejectedBy = acquire(0, identifiers, permits);
+        if (rejectedBy < 0) {
+            allowedRequests.increment();
+            return Result.ALLOWED;
+        }
+        rejectedRequests.increment();
+        return tiers[rejectedBy].rejection;
+    }
+    
+    /**
+     * Gets the permits a tier currently has for an identifier.
+     *
+     * @param tierName the tier to check
+     * @param identifier the identifier within that tier, ignored for unkeyed tiers
+     */
+    public long getAvailablePermits(String tierName, String identifier) {
+        Tier tier = tier(tierName);
+        LockFreeTokenBucket bucket = tier.keyIndex < 0 ? tier.globalBucket : tier.buckets.get(identifier);
+        return bucket != null && !bucket.isRetired() ? bucket.getAvailableTokens()
+                                                     : tier.config.getMaxRequests();
+    }
+    
+    /**
+     * Gets overall statistics. Active identifiers counts buckets across all tiers.
+     */
+    public RateLimitStats getStats() {
+        long buckets = 0;
+        long evicted = 0;
+        for (Tier tier : tiers) {
+            buckets += tier.keyIndex < 0 ? 1 : tier.buckets.size();
+            evicted += tier.evictions.sum();
+        }
+        return new RateLimitStats(
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
+            buckets,
+            evicted,
+            "Hierarchical"
+        );
+    }
+    
+    /**
+     * Gets statistics per tier, in evaluation order. A tier's total counts the requests
+     * that reached it, and its rejections are the requests it turned away; requests it
+     * allowed may still have been rejected, and refunded, by a later tier.
+     */
+    public List<RateLimitStats> getTierStats() {
+        List<RateLimitStats> stats = new ArrayList<>(tiers.length);
+        for (Tier tier : tiers) {
+            long evaluated = tier.evaluated.sum();
+            long rejected = tier.rejected.sum();
+            stats.add(new RateLimitStats(
+                evaluated,
+                evaluated - rejected,
+                rejected,
+                tier.keyIndex < 0 ? 1 : tier.buckets.size(),
+                tier.evictions.sum(),
+                tier.name
+            ));
+        }
+        return Collections.unmodifiableList(stats);
+    }
+    
+    /**
+     * Removes buckets that have refilled to full, in every tier. A full bucket is
+     * indistinguishable from a new one, so no decision changes. Runs on the background
+     * sweep when auto eviction is enabled; requests are never blocked by it.
+     *
+     * @return number of buckets evicted
+     */
+    public int evictIdleBuckets() {
+        int evicted = 0;
+        for (Tier tier : tiers) {
+            if (tier.keyIndex < 0) {
+                continue;
+            }
+            int tierEvicted = 0;
+            for (Map.Entry<String, LockFreeTokenBucket> entry : tier.buckets.entrySet()) {
+                LockFreeTokenBucket bucket = entry.getValue();
+                if (bucket.retireIfFull() && tier.buckets.remove(entry.getKey(), bucket)) {
+                    tierEvicted++;
+                }
+            }
+            tier.evictions.add(tierEvicted);
+            evicted += tierEvicted;
+        }
+        return evicted;
+    }
+    
+    /**
+     * Stops the background eviction sweep. The limiter keeps working; idle buckets
+     * are then only removed by calling evictIdleBuckets.
+     */
+    public void shutdown() {
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdown();
+        }
+    }
+    
+    public void reset() {
+        for (Tier tier : tiers) {
+            tier.globalBucket.reset();
+            tier.buckets.clear();
+            tier.evaluated.reset();
+            tier.rejected.reset();
+            tier.evictions.reset();
+        }
+        totalRequests.reset();
+        allowedRequests.reset();
+        rejectedRequests.reset();
+    }
+    
+    /**
+     * Charges tier level and the tiers after it, refunding on the way back out if a
+     * later tier rejects.
+     *
+     * @return index of the rejecting tier, or -1 if every tier was charged
+     */
+    private int acquire(int level, String[] identifiers, int permits) {
+        if (level == tiers.length) {
+            return -1;
+        }
+        
+        Tier tier = tiers[level];
+        tier.evaluated.increment();
+        LockFreeTokenBucket bucket = tier.tryConsume(identifiers, permits);
+        if (bucket == null) {
+            tier.rejected.increment();
+            return level;
+        }
+        
+        int rejectedBy = acquire(level + 1, identifiers, permits);
+        if (rejectedBy >= 0) {
+            bucket.refund(permits);
+        }
+        return rejectedBy;
+    }
+    
+    private Tier tier(String name) {
+        for (Tier tier : tiers) {
+            if (tier.name.equals(name)) {
+                return tier;
+            }
+        }
+        throw new IllegalArgumentException("Unknown tier: " + name);
+    }
+    
+    /**
+     * Outcome of a hierarchical acquire. Instances are shared: one for success and
+     * one per tier for rejections.
+     */
+    public static final class Result {
+        static final Result ALLOWED = new Result(null);
+        
+        private final String rejectedTier;
+        
+        private Result(String rejectedTier) {
+            this.rejectedTier = rejectedTier;
+        }
+        
+        public boolean isAllowed() {
+            return rejectedTier == null;
+        }
+        
+        /**
+         * Gets the name of the tier that rejected the request, or null if it was allowed.
+         */
+        public String getRejectedTier() {
+            return rejectedTier;
+        }
+        
+        @Override
+        public String toString() {
+            return isAllowed() ? "ALLOWED" : "REJECTED by " + rejectedTier;
+        }
+    }
+    
+    /**
+     * One level of the hierarchy: a limit, and a bucket per identifier (or a single
+     * bucket for an unkeyed tier).
+     */
+    private static final class Tier {
+        private final String name;
+        private final RateLimitConfig config;
+        private final int keyIndex;
+        private final long nanosPerToken;
+        private final LockFreeTokenBucket globalBucket;
+        private final ConcurrentHashMap<String, LockFreeTokenBucket> buckets;
+        private final Result rejection;
+        private final LongAdder evaluated;
+        private final LongAdder rejected;
+        private final LongAdder evictions;
+        
+        Tier(String name, RateLimitConfig config, int keyIndex) {
+            this.name = name;
+            this.config = config;
+            this.keyIndex = keyIndex;
+            this.nanosPerToken = Math.max(1,
+                TimeUnit.MILLISECONDS.toNanos(config.getTimeWindowMillis()) / config.getMaxRequests());
+            this.globalBucket = new LockFreeTokenBucket(config.getMaxRequests(), nanosPerToken);
+            this.buckets = new ConcurrentHashMap<>();
+            this.rejection = new Result(name);
+            this.evaluated = new LongAdder();
+            this.rejected = new LongAdder();
+            this.evictions = new LongAdder();
+        }
+        
+        /**
+         * Takes permits from the request's bucket in this tier.
+         *
+         * @return the charged bucket, or null if this tier rejects the request
+         */
+        LockFreeTokenBucket tryConsume(String[] identifiers, int permits) {
+            if (keyIndex < 0) {
+                return globalBucket.tryConsume(permits) ? globalBucket : null;
+            }
+            
+            String identifier = identifiers[keyIndex];
+            if (identifier == null) {
+                throw new IllegalArgumentException("Identifier for tier " + name + " cannot be null");
+            }
+            while (true) {
+                LockFreeTokenBucket bucket = buckets.get(identifier);
+                if (bucket == null) {
+                    bucket = buckets.computeIfAbsent(identifier,
+                        k -> new LockFreeTokenBucket(config.getMaxRequests(), nanosPerToken));
+                }
+                if (bucket.tryConsume(permits)) {
+                    return bucket;
+                }
+                if (!bucket.isRetired()) {
+                    return null;
+                }
+                // Evicted while full: a fresh bucket is in exactly the same state
+                buckets.remove(identifier, bucket);
+            }
+        }
+    }
+    
+    public static class Builder {
+        private final List<Tier> tiers = new ArrayList<>();
+        private int keyedTiers;
+        private boolean enableAutoEviction = true;
+        private long evictionIntervalMillis;
+        
+        private Builder() {
+        }
+        
+        /**
+         * Adds a tier with one limit per identifier, such as per user or per tenant.
+         * Requests pass this tier's identifier in the position of the tier among the
+         * keyed tiers.
+         */
+        public Builder tier(String name, long maxRequests, long timeWindow, TimeUnit timeUnit) {
+            add(name, maxRequests, timeWindow, timeUnit, keyedTiers);
+            keyedTiers++;
+            return this;
+        }
+        
+        /**
+         * Adds a tier with a single limit shared by all requests.
+         */
+        public Builder globalTier(String name, long maxRequests, long timeWindow, TimeUnit timeUnit) {
+            add(name, maxRequests, timeWindow, timeUnit, -1);
+            return this;
+        }
+        
+        /**
+         * Sets how often the background sweep evicts idle buckets. Defaults to the
+         * longest tier window, but no more often than once a second.
+         */
+        public Builder evictionInterval(long interval, TimeUnit timeUnit) {
+            long millis = timeUnit.toMillis(interval);
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Eviction interval must be positive");
+            }
+            this.evictionIntervalMillis = millis;
+            return this;
+        }
+        
+        /**
+         * Disables the background sweep; idle buckets are then only removed by calling
+         * evictIdleBuckets.
+         */
+        public Builder disableAutoEviction() {
+            this.enableAutoEviction = false;
+            return this;
+        }
+        
+        private void add(String name, long maxRequests, long timeWindow, TimeUnit timeUnit, int keyIndex) {
+            if (name == null) {
+                throw new IllegalArgumentException("Tier name cannot be null");
+            }
+            for (Tier tier : tiers) {
+                if (tier.name.equals(name)) {
+                    throw new IllegalArgumentException("Duplicate tier: " + name);
+                }
+            }
+            tiers.add(new Tier(name, new RateLimitConfig(maxRequests, timeWindow, timeUnit, name), keyIndex));
+        }
+        
+        public HierarchicalRateLimiter build() {
+            if (tiers.isEmpty()) {
+                throw new IllegalArgumentException("At least one tier is required");
+            }
+            return new HierarchicalRateLimiter(this);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.machinecoding.ratelimiting;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * In-memory implementation of distributed locking system.
@@ -14,25 +17,40 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * - Deadlock detection and prevention
  * - Automatic cleanup of expired locks
  * - Comprehensive statistics and monitoring
+ * - No global lock: each resource changes hands with one atomic compute on its own
+ *   map entry, so operations on different resources proceed in parallel
+ * - FIFO waiting: a timed tryLock joins the resource's queue and parks. Release,
+ *   force release and TTL expiry hand the lock straight to the longest waiter,
+ *   so a handoff costs one wakeup instead of a polling interval
  * 
  * Note: This is a single-node implementation for demonstration.
  * In production, you would use Redis, Zookeeper, or etcd for true distributed locking.
  */
 public class InMemoryDistributedLock implements DistributedLock {
     
+    private static final int WAIT_BUCKETS = 40;
+    
     private final ConcurrentHashMap<String, LockEntry> locks;
     private final ConcurrentHashMap<String, Set<String>> lockHolders; // lockId -> resources held
-    private final ReentrantReadWriteLock globalLock;
+    // resource -> waiters in arrival order; a queue is only touched while computing that resource's entry in locks
+    private final ConcurrentHashMap<String, ArrayDeque<Waiter>> waitQueues;
     private final ScheduledExecutorService cleanupExecutor;
     
     // Statistics
-    private final AtomicLong totalLockAttempts;
-    private final AtomicLong successfulLocks;
-    private final AtomicLong failedLocks;
-    private final AtomicLong lockRenewals;
-    private final AtomicLong lockReleases;
-    private final AtomicLong expiredLocks;
-    private final AtomicLong deadlockDetections;
+    private final LongAdder totalLockAttempts;
+    private final LongAdder successfulLocks;
+    private final LongAdder failedLocks;
+    private final LongAdder lockRenewals;
+    private final LongAdder lockReleases;
+    private final LongAdder expiredLocks;
+    private final LongAdder deadlockDetections;
+    private final AtomicInteger waitingThreads;
+    private final AtomicInteger maxQueueDepth;
+    private final LongAdder waitedAcquisitions;
+    private final LongAdder waitTimeouts;
+    private final LongAdder totalWaitNanos;
+    private final AtomicLong maxWaitNanos;
+    private final AtomicLongArray waitHistogram; // bucket i counts waits under 2^i microseconds
     
     public InMemoryDistributedLock() {
         this(true, 30); // Auto cleanup every 30 seconds
@@ -41,15 +59,22 @@ public class InMemoryDistributedLock implements DistributedLock {
     public InMemoryDistributedLock(boolean enableAutoCleanup, long cleanupIntervalSeconds) {
         this.locks = new ConcurrentHashMap<>();
         this.lockHolders = new ConcurrentHashMap<>();
-        this.globalLock = new ReentrantReadWriteLock();
+        this.waitQueues = new ConcurrentHashMap<>();
         
-        this.totalLockAttempts = new AtomicLong(0);
-        this.successfulLocks = new AtomicLong(0);
-        this.failedLocks = new AtomicLong(0);
-        this.lockRenewals = new AtomicLong(0);
-        this.lockReleases = new AtomicLong(0);
-        this.expiredLocks = new AtomicLong(0);
-        this.deadlockDetections = new AtomicLong(0);
+        this.totalLockAttempts = new LongAdder();
+        this.successfulLocks = new LongAdder();
+        this.failedLocks = new LongAdder();
+        this.lockRenewals = new LongAdder();
+        this.lockReleases = new LongAdder();
+        this.expiredLocks = new LongAdder();
+        this.deadlockDetections = new LongAdder();
+        this.waitingThreads = new AtomicInteger();
+        this.maxQueueDepth = new AtomicInteger();
+        this.waitedAcquisitions = new LongAdder();
+        this.waitTimeouts = new LongAdder();
+        this.totalWaitNanos = new LongAdder();
+        this.maxWaitNanos = new AtomicLong();
+        this.waitHistogram = new AtomicLongArray(WAIT_BUCKETS);
         
         if (enableAutoCleanup) {
             this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -71,68 +96,204 @@ public class InMemoryDistributedLock implements DistributedLock {
     
     @Override
     public boolean tryLock(String resource, String lockId, long ttl, TimeUnit unit) {
-        totalLockAttempts.incrementAndGet();
+        return tryLock(resource, lockId, ttl, unit, 0, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public boolean tryLock(String resource, String lockId, long ttl, TimeUnit ttlUnit,
+                          long timeout, TimeUnit timeoutUnit) {
+        totalLockAttempts.increment();
         
         if (resource == null || lockId == null) {
-            failedLocks.incrementAndGet();
+            failedLocks.increment();
             return false;
         }
         
-        long expirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
+        // Check for deadlock potential
+        if (wouldCauseDeadlock(resource, lockId)) {
+            deadlockDetections.increment();
+            failedLocks.increment();
+            return false;
+        }
         
-        globalLock.writeLock().lock();
-        try {
-            // Check for deadlock potential
-            if (wouldCauseDeadlock(resource, lockId)) {
-                deadlockDetections.incrementAndGet();
-                failedLocks.incrementAndGet();
-                return false;
+        long ttlMillis = ttlUnit.toMillis(ttl);
+        long timeoutNanos = timeoutUnit.toNanos(timeout);
+        Waiter waiter = timeoutNanos > 0 ? new Waiter(lockId, ttlMillis) : null;
+        if (acquireOrEnqueue(resource, lockId, ttlMillis, waiter)) {
+            successfulLocks.increment();
+            return true;
+        }
+        if (waiter == null) {
+            failedLocks.increment();
+            return false;
+        }
+        return awaitHandOff(resource, waiter, waiter.enqueuedAt + timeoutNanos);
+    }
+    
+    /**
+     * Takes the resource if it is free, expired or already ours and nobody is queued
+     * for it. Otherwise the waiter, if given, joins the back of the queue.
+     */
+    private boolean acquireOrEnqueue(String resource, String lockId, long ttlMillis, Waiter waiter) {
+        long now = System.currentTimeMillis();
+        LockEntry newLock = new LockEntry(lockId, now + ttlMillis, now);
+        LockEntry result = locks.compute(resource, (key, existingLock) -> {
+            if (existingLock != null && existingLock.getLockId().equals(lockId)) {
+                return newLock; // Re-acquiring our own lock renews it
             }
-            
-            LockEntry existingLock = locks.get(resource);
-            
-            // Check if resource is already locked by someone else
-            if (existingLock != null && !existingLock.isExpired() && !existingLock.getLockId().equals(lockId)) {
-                failedLocks.incrementAndGet();
-                return false;
+            if (existingLock != null && !existingLock.isExpired()) {
+                enqueue(resource, waiter); // Already locked by someone else
+                return existingLock;
             }
             
-            // Acquire or renew the lock
-            LockEntry newLock = new LockEntry(lockId, expirationTime, System.currentTimeMillis());
-            locks.put(resource, newLock);
-            
-            // Track lock holder
-            lockHolders.computeIfAbsent(lockId, k -> ConcurrentHashMap.newKeySet()).add(resource);
-            
-            successfulLocks.incrementAndGet();
-            return true;
+            if (existingLock != null) {
+                // Take over an expired lock from its previous holder
+                untrack(existingLock.getLockId(), resource);
+                expiredLocks.increment();
+            }
+            if (waitQueues.containsKey(resource)) {
+                // Earlier waiters go first; a newcomer joins behind them
+                enqueue(resource, waiter);
+                return handOff(resource, now);
+            }
+            track(lockId, resource);
+            return newLock;
+        });
+        return result == newLock;
+    }
+    
+    /**
+     * Parks until a releasing thread hands the resource over, the holder's TTL runs
+     * out, or the timeout passes. Interruption gives up the wait and keeps the flag set.
+     */
+    private boolean awaitHandOff(String resource, Waiter waiter, long deadline) {
+        boolean interrupted = false;
+        while (!waiter.granted) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || interrupted) {
+                if (cancel(resource, waiter)) {
+                    waitTimeouts.increment();
+                    failedLocks.increment();
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return false;
+                }
+                break; // Granted while we were giving up
+            }
             
-        } finally {
-            globalLock.writeLock().unlock();
+            LockEntry current = locks.get(resource);
+            long untilExpiry = current == null ? 0
+                : TimeUnit.MILLISECONDS.toNanos(current.getExpirationTime() - System.currentTimeMillis() + 1);
+            if (untilExpiry <= 0) {
+                expireAndHandOff(resource);
+                continue;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, untilExpiry));
+            interrupted = Thread.interrupted();
         }
+        
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
     }
     
-    @Override
-    public boolean tryLock(String resource, String lockId, long ttl, TimeUnit ttlUnit,
-                          long timeout, TimeUnit timeoutUnit) {
-        long timeoutMillis = timeoutUnit.toMillis(timeout);
-        long startTime = System.currentTimeMillis();
-        
-        while (System.currentTimeMillis() - startTime < timeoutMillis) {
-            if (tryLock(resource, lockId, ttl, ttlUnit)) {
-                return true;
+    private void expireAndHandOff(String resource) {
+        locks.compute(resource, (key, existingLock) -> {
+            if (existingLock != null && !existingLock.isExpired()) {
+                return existingLock;
             }
-            
-            // Wait a bit before retrying
-            try {
-                Thread.sleep(Math.min(100, timeoutMillis / 10));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+            if (existingLock != null) {
+                untrack(existingLock.getLockId(), resource);
+                expiredLocks.increment();
+            }
+            return handOff(resource, System.currentTimeMillis());
+        });
+    }
+    
+    /**
+     * Removes a waiter that gave up. Returns false if it was granted the lock first.
+     */
+    private boolean cancel(String resource, Waiter waiter) {
+        boolean[] cancelled = new boolean[1];
+        locks.compute(resource, (key, existingLock) -> {
+            if (!waiter.granted) {
+                ArrayDeque<Waiter> queue = waitQueues.get(resource);
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    waitQueues.remove(resource);
+                }
+                waitingThreads.decrementAndGet();
+                cancelled[0] = true;
             }
+            return existingLock;
+        });
+        return cancelled[0];
+    }
+    
+    /**
+     * Adds a waiter to the back of the resource's queue. Called only while the
+     * resource's entry in locks is being computed.
+     */
+    private void enqueue(String resource, Waiter waiter) {
+        if (waiter == null) {
+            return;
         }
+        ArrayDeque<Waiter> queue = waitQueues.computeIfAbsent(resource, key -> new ArrayDeque<>());
+        queue.addLast(waiter);
+        waitingThreads.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+    
+    /**
+     * Grants the resource to its longest waiter and wakes it, returning the waiter's
+     * lock entry, or null if nobody is waiting. Called only while the resource's
+     * entry in locks is being computed, with the previous holder already untracked.
+     */
+    private LockEntry handOff(String resource, long now) {
+        ArrayDeque<Waiter> queue = waitQueues.get(resource);
+        if (queue == null) {
+            return null;
+        }
+        Waiter next = queue.pollFirst();
+        if (queue.isEmpty()) {
+            waitQueues.remove(resource);
+        }
+        waitingThreads.decrementAndGet();
         
-        return false;
+        track(next.lockId, resource);
+        successfulLocks.increment();
+        waitedAcquisitions.increment();
+        recordWait(System.nanoTime() - next.enqueuedAt);
+        next.granted = true;
+        LockSupport.unpark(next.thread);
+        return new LockEntry(next.lockId, now + next.ttlMillis, now);
+    }
+    
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        int bucket = 64 - Long.numberOfLeadingZeros(waitNanos / 1000);
+        waitHistogram.incrementAndGet(Math.min(bucket, WAIT_BUCKETS - 1));
+    }
+    
+    /**
+     * Upper bound of the histogram bucket holding the given quantile of waits.
+     */
+    private double waitPercentileMillis(double quantile, long waits) {
+        if (waits == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(quantile * waits);
+        long seen = 0;
+        for (int i = 0; i < WAIT_BUCKETS; i++) {
+            seen += waitHistogram.get(i);
+            if (seen >= rank) {
+                return Math.min((1L << i) / 1000.0, maxWaitNanos.get() / 1e6);
+            }
+        }
+        return maxWaitNanos.get() / 1e6;
     }
     
     @Override
@@ -141,24 +302,20 @@ public class InMemoryDistributedLock implements DistributedLock {
             return false;
         }
         
-        globalLock.writeLock().lock();
-        try {
-            LockEntry existingLock = locks.get(resource);
-            
-            if (existingLock == null || existingLock.isExpired() || !existingLock.getLockId().equals(lockId)) {
-                return false;
+        long newExpirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
+        boolean[] renewed = new boolean[1];
+        locks.computeIfPresent(resource, (key, existingLock) -> {
+            if (existingLock.isExpired() || !existingLock.getLockId().equals(lockId)) {
+                return existingLock;
             }
-            
-            long newExpirationTime = System.currentTimeMillis() + unit.toMillis(ttl);
-            LockEntry renewedLock = new LockEntry(lockId, newExpirationTime, existingLock.getAcquiredTime());
-            locks.put(resource, renewedLock);
-            
-            lockRenewals.incrementAndGet();
-            return true;
-            
-        } finally {
-            globalLock.writeLock().unlock();
+            renewed[0] = true;
+            return new LockEntry(lockId, newExpirationTime, existingLock.getAcquiredTime());
+        });
+        
+        if (renewed[0]) {
+            lockRenewals.increment();
         }
+        return renewed[0];
     }
     
     @Override
@@ -167,31 +324,20 @@ public class InMemoryDistributedLock implements DistributedLock {
             return false;
         }
         
-        globalLock.writeLock().lock();
-        try {
-            LockEntry existingLock = locks.get(resource);
-            
-            if (existingLock == null || !existingLock.getLockId().equals(lockId)) {
-                return false;
+        boolean[] released = new boolean[1];
+        locks.computeIfPresent(resource, (key, existingLock) -> {
+            if (!existingLock.getLockId().equals(lockId)) {
+                return existingLock;
             }
-            
-            locks.remove(resource);
-            
-            // Remove from lock holders tracking
-            Set<String> heldResources = lockHolders.get(lockId);
-            if (heldResources != null) {
-                heldResources.remove(resource);
-                if (heldResources.isEmpty()) {
-                    lockHolders.remove(lockId);
-                }
-            }
-            
-            lockReleases.incrementAndGet();
-            return true;
-            
-        } finally {
-            globalLock.writeLock().unlock();
+            untrack(lockId, resource);
+            released[0] = true;
+            return handOff(resource, System.currentTimeMillis());
+        });
+        
+        if (released[0]) {
+            lockReleases.increment();
         }
+        return released[0];
     }
     
     @Override
@@ -200,13 +346,8 @@ public class InMemoryDistributedLock implements DistributedLock {
             return false;
         }
         
-        globalLock.readLock().lock();
-        try {
-            LockEntry lock = locks.get(resource);
-            return lock != null && !lock.isExpired();
-        } finally {
-            globalLock.readLock().unlock();
-        }
+        LockEntry lock = locks.get(resource);
+        return lock != null && !lock.isExpired();
     }
     
     @Override
@@ -215,13 +356,8 @@ public class InMemoryDistributedLock implements DistributedLock {
             return null;
         }
         
-        globalLock.readLock().lock();
-        try {
-            LockEntry lock = locks.get(resource);
-            return (lock != null && !lock.isExpired()) ? lock.getLockId() : null;
-        } finally {
-            globalLock.readLock().unlock();
-        }
+        LockEntry lock = locks.get(resource);
+        return (lock != null && !lock.isExpired()) ? lock.getLockId() : null;
     }
     
     @Override
@@ -230,17 +366,12 @@ public class InMemoryDistributedLock implements DistributedLock {
             return -1;
         }
         
-        globalLock.readLock().lock();
-        try {
-            LockEntry lock = locks.get(resource);
-            if (lock == null || lock.isExpired()) {
-                return -1;
-            }
-            
-            return Math.max(0, lock.getExpirationTime() - System.currentTimeMillis());
-        } finally {
-            globalLock.readLock().unlock();
+        LockEntry lock = locks.get(resource);
+        if (lock == null || lock.isExpired()) {
+            return -1;
         }
+        
+        return Math.max(0, lock.getExpirationTime() - System.currentTimeMillis());
     }
     
     @Override
@@ -249,86 +380,89 @@ public class InMemoryDistributedLock implements DistributedLock {
             return false;
         }
         
-        globalLock.writeLock().lock();
-        try {
-            LockEntry removedLock = locks.remove(resource);
-            
-            if (removedLock != null) {
-                // Remove from lock holders tracking
-                String lockId = removedLock.getLockId();
-                Set<String> heldResources = lockHolders.get(lockId);
-                if (heldResources != null) {
-                    heldResources.remove(resource);
-                    if (heldResources.isEmpty()) {
-                        lockHolders.remove(lockId);
-                    }
-                }
-                return true;
-            }
-            
-            return false;
-        } finally {
-            globalLock.writeLock().unlock();
-        }
+        boolean[] released = new boolean[1];
+        locks.computeIfPresent(resource, (key, existingLock) -> {
+            untrack(existingLock.getLockId(), resource);
+            released[0] = true;
+            return handOff(resource, System.currentTimeMillis());
+        });
+        return released[0];
     }
     
     @Override
     public LockStats getStats() {
-        globalLock.readLock().lock();
-        try {
-            return new LockStats(
-                totalLockAttempts.get(),
-                successfulLocks.get(),
-                failedLocks.get(),
-                lockRenewals.get(),
-                lockReleases.get(),
-                expiredLocks.get(),
-                locks.size(),
-                deadlockDetections.get()
-            );
-        } finally {
-            globalLock.readLock().unlock();
-        }
+        long waited = waitedAcquisitions.sum();
+        return new LockStats(
+            totalLockAttempts.sum(),
+            successfulLocks.sum(),
+            failedLocks.sum(),
+            lockRenewals.sum(),
+            lockReleases.sum(),
+            expiredLocks.sum(),
+            locks.size(),
+            deadlockDetections.sum(),
+            waitingThreads.get(),
+            maxQueueDepth.get(),
+            waited,
+            waitTimeouts.sum(),
+            waited == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / waited,
+            waitPercentileMillis(0.50, waited),
+            waitPercentileMillis(0.99, waited),
+            maxWaitNanos.get() / 1e6
+        );
     }
     
     @Override
     public int cleanupExpiredLocks() {
-        globalLock.writeLock().lock();
-        try {
-            List<String> expiredResources = new ArrayList<>();
-            
-            for (Map.Entry<String, LockEntry> entry : locks.entrySet()) {
-                if (entry.getValue().isExpired()) {
-                    expiredResources.add(entry.getKey());
-                }
-            }
-            
-            for (String resource : expiredResources) {
-                LockEntry expiredLock = locks.remove(resource);
-                if (expiredLock != null) {
-                    // Remove from lock holders tracking
-                    String lockId = expiredLock.getLockId();
-                    Set<String> heldResources = lockHolders.get(lockId);
-                    if (heldResources != null) {
-                        heldResources.remove(resource);
-                        if (heldResources.isEmpty()) {
-                            lockHolders.remove(lockId);
-                        }
-                    }
+        int expired = 0;
+        for (String resource : locks.keySet()) {
+            boolean[] removed = new boolean[1];
+            // Re-checked inside the compute: the lock may have been renewed or taken over since
+            locks.computeIfPresent(resource, (key, existingLock) -> {
+                if (!existingLock.isExpired()) {
+                    return existingLock;
                 }
+                untrack(existingLock.getLockId(), resource);
+                removed[0] = true;
+                return handOff(resource, System.currentTimeMillis());
+            });
+            if (removed[0]) {
+                expired++;
             }
-            
-            expiredLocks.addAndGet(expiredResources.size());
-            return expiredResources.size();
-            
-        } finally {
-            globalLock.writeLock().unlock();
         }
+        
+        expiredLocks.add(expired);
+        return expired;
+    }
+    
+    /**
+     * Records that lockId holds resource. Called only while the resource's entry in
+     * locks is being computed, so index updates for one resource never interleave.
+     */
+    private void track(String lockId, String resource) {
+        lockHolders.compute(lockId, (key, held) -> {
+            Set<String> resources = held != null ? held : ConcurrentHashMap.newKeySet();
+            resources.add(resource);
+            return resources;
+        });
+    }
+    
+    /**
+     * Records that lockId no longer holds resource, dropping the holder once it holds
+     * nothing. Called only while the resource's entry in locks is being computed.
+     */
+    private void untrack(String lockId, String resource) {
+        lockHolders.computeIfPresent(lockId, (key, held) -> {
+            held.remove(resource);
+            return held.isEmpty() ? null : held;
+        });
     }
     
     /**
      * Simple deadlock detection: check if acquiring this lock would create a cycle.
      * This is a simplified version - in production, you'd use more sophisticated algorithms.
+     * It reads only the requested resource and the two holders involved, without
+     * locking, so it judges a snapshot that concurrent operations may have moved on from.
      */
     private boolean wouldCauseDeadlock(String resource, String lockId) {
         // Get resources currently held by this lockId
@@ -375,6 +509,24 @@ public class InMemoryDistributedLock implements DistributedLock {
         }
     }
     
+    /**
+     * A thread parked in a timed tryLock, waiting for the resource to be handed over.
+     */
+    private static class Waiter {
+        private final String lockId;
+        private final long ttlMillis;
+        private final Thread thread;
+        private final long enqueuedAt;
+        private volatile boolean granted;
+        
+        Waiter(String lockId, long ttlMillis) {
+            this.lockId = lockId;
+            this.ttlMillis = ttlMillis;
+            this.thread = Thread.currentThread();
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+    
     /**
      * Internal class representing a lock entry.
      */
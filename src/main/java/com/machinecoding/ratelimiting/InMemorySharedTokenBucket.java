@@ -0,0 +1,85 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for a central token bucket.
+ *
+ * Features:
+ * - Same LockFreeTokenBucket as TokenBucketRateLimiter
+ * - Partial grants: a lease gets whatever is available, up to the amount requested
+ * - Optional simulated round-trip latency, to see how leasing hides it
+ * - Counts lease calls, the load a real central store would see
+ *
+ * Note: In production the bucket would live in a shared store, for example as a
+ * Redis script doing the same arithmetic atomically.
+ */
+public class InMemorySharedTokenBucket implements SharedTokenBucket {
+    
+    private final RateLimitConfig config;
+    private final LockFreeTokenBucket bucket;
+    private final long latencyNanos;
+    private final LongAdder leaseCalls;
+    private final LongAdder grantedPermits;
+    
+    public InMemorySharedTokenBucket(long maxRequests, long timeWindow, TimeUnit timeUnit) {
+        this(maxRequests, timeWindow, timeUnit, 0, TimeUnit.NANOSECONDS);
+    }
+    
+    public InMemorySharedTokenBucket(long maxRequests, long timeWindow, TimeUnit timeUnit,
+                                     long latency, TimeUnit latencyUnit) {
+        this.config = new RateLimitConfig(maxRequests, timeWindow, timeUnit, "SharedTokenBucket");
+        this.bucket = new LockFreeTokenBucket(maxRequests,
+            Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getTimeWindowMillis()) / maxRequests));
+        this.latencyNanos = latencyUnit.toNanos(latency);
+        this.leaseCalls = new LongAdder();
+        this.grantedPermits = new LongAdder();
+    }
+    
+    @Override
+    public long lease(long requested) {
+        if (requested < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        leaseCalls.increment();
+        simulateLatency();
+        
+        long granted = bucket.lease(requested);
+        grantedPermits.add(granted);
+        return granted;
+    }
+    
+    @Override
+    public long getAvailablePermits() {
+        return bucket.getAvailableTokens();
+    }
+    
+    @Override
+    public RateLimitConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Gets the number of lease calls made so far.
+     */
+    public long getLeaseCalls() {
+        return leaseCalls.sum();
+    }
+    
+    /**
+     * Gets the total number of permits handed out in leases.
+     */
+    public long getGrantedPermits() {
+        return grantedPermits.sum();
+    }
+    
+    private void simulateLatency() {
+        long deadline = System.nanoTime() + latencyNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
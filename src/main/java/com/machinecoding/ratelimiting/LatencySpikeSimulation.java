@@ -0,0 +1,276 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulation harness for AdaptiveConcurrencyLimiter.
+ *
+ * Closed-loop clients send requests through the limiter to a simulated downstream
+ * that serves a fixed number of requests at full speed. Beyond that capacity every
+ * request slows down in proportion to the overload, as a CPU-bound server would.
+ * The run is divided into phases, each multiplying the downstream's base latency,
+ * so latency spikes and recoveries can be injected at known times.
+ *
+ * Requests slower than the timeout count as dropped and are reported to the
+ * limiter as such. Rejected clients back off for a millisecond before retrying.
+ *
+ * Features:
+ * - Phases with their own latency multiplier and duration
+ * - Per-phase throughput, timeouts, rejections, p50/p99 latency and limit range
+ * - Runs any limiter configuration, so a fixed limit (minLimit == maxLimit) can be
+ *   compared with an adaptive one on the same workload
+ */
+public class LatencySpikeSimulation {
+    
+    private final int clients;
+    private final int capacity;
+    private final long baseLatencyMicros;
+    private final long timeoutMicros;
+    private final List<Phase> phases;
+    
+    private LatencySpikeSimulation(Builder builder) {
+        this.clients = builder.clients;
+        this.capacity = builder.capacity;
+        this.baseLatencyMicros = builder.baseLatencyMicros;
+        this.timeoutMicros = builder.timeoutMicros;
+        this.phases = new ArrayList<>(builder.phases);
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Runs every phase in order against the given limiter.
+     *
+     * @return one result per phase
+     */
+    public List<PhaseResult> run(AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        AtomicInteger inService = new AtomicInteger();
+        List<PhaseResult> results = new ArrayList<>();
+        for (Phase phase : phases) {
+            results.add(runPhase(limiter, phase, inService));
+        }
+        return Collections.unmodifiableList(results);
+    }
+    
+    private PhaseResult runPhase(AdaptiveConcurrencyLimiter limiter, Phase phase, AtomicInteger inService)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + phase.durationMillis * 1_000_000L;
+        LongAdder completed = new LongAdder();
+        LongAdder timedOut = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(clients);
+        
+        for (int c = 0; c < clients; c++) {
+            Thread client = new Thread(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        Optional<AdaptiveConcurrencyLimiter.Permit> permit = limiter.tryAcquire();
+                        if (!permit.isPresent()) {
+                            rejected.increment();
+                            Thread.sleep(1);
+                            continue;
+                        }
+                        
+                        long latencyMicros = serve(phase, inService);
+                        if (latencyMicros > timeoutMicros) {
+                            timedOut.increment();
+                            permit.get().onDropped();
+                        } else {
+                            completed.increment();
+                            permit.get().onSuccess();
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = Math.min(latencyMicros, timeoutMicros);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies.add(Arrays.copyOf(samples, count));
+                    done.countDown();
+                }
+            }, "Simulation-Client-" + c);
+            client.setDaemon(true);
+            client.start();
+        }
+        
+        // Sample the limit while the clients run
+        int minSeen = Integer.MAX_VALUE;
+        int maxSeen = 0;
+        while (!done.await(10, TimeUnit.MILLISECONDS)) {
+            int current = limiter.getLimit();
+            minSeen = Math.min(minSeen, current);
+            maxSeen = Math.max(maxSeen, current);
+        }
+        
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new PhaseResult(
+            phase.name,
+            completed.sum() * 1000 / phase.durationMillis,
+            timedOut.sum(),
+            rejected.sum(),
+            percentile(all, 0.50),
+            percentile(all, 0.99),
+            minSeen == Integer.MAX_VALUE ? limiter.getLimit() : minSeen,
+            Math.max(maxSeen, limiter.getLimit()),
+            limiter.getLimit()
+        );
+    }
+    
+    /**
+     * Serves one request on the simulated downstream.
+     *
+     * @return the request's latency in microseconds, capped at just over the timeout
+     *         since the client gives up then
+     */
+    private long serve(Phase phase, AtomicInteger inService) throws InterruptedException {
+        int concurrent = inService.incrementAndGet();
+        try {
+            double overload = Math.max(1.0, (double) concurrent / capacity);
+            long latencyMicros = (long) (baseLatencyMicros * phase.latencyMultiplier * overload);
+            long waitMicros = Math.min(latencyMicros, timeoutMicros + 1);
+            Thread.sleep(waitMicros / 1000, (int) (waitMicros % 1000) * 1000);
+            return latencyMicros;
+        } finally {
+            inService.decrementAndGet();
+        }
+    }
+    
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1000.0;
+    }
+    
+    private static final class Phase {
+        private final String name;
+        private final long durationMillis;
+        private final double latencyMultiplier;
+        
+        Phase(String name, long durationMillis, double latencyMultiplier) {
+            this.name = name;
+            this.durationMillis = durationMillis;
+            this.latencyMultiplier = latencyMultiplier;
+        }
+    }
+    
+    /**
+     * What happened during one phase.
+     */
+    public static class PhaseResult {
+        private final String phase;
+        private final long throughput;
+        private final long timedOut;
+        private final long rejected;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final int minLimit;
+        private final int maxLimit;
+        private final int finalLimit;
+        
+        PhaseResult(String phase, long throughput, long timedOut, long rejected, double p50Millis,
+                    double p99Millis, int minLimit, int maxLimit, int finalLimit) {
+            this.phase = phase;
+            this.throughput = throughput;
+            this.timedOut = timedOut;
+            this.rejected = rejected;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.finalLimit = finalLimit;
+        }
+        
+        public String getPhase() { return phase; }
+        public long getThroughput() { return throughput; }
+        public long getTimedOut() { return timedOut; }
+        public long getRejected() { return rejected; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public int getMinLimit() { return minLimit; }
+        public int getMaxLimit() { return maxLimit; }
+        public int getFinalLimit() { return finalLimit; }
+        
+        @Override
+        public String toString() {
+            return String.format(
+                "%-9s %,7d ok/s  timeouts=%,6d  rejected=%,7d  p50=%6.1fms  p99=%6.1fms  limit %d..%d (end %d)",
+                phase, throughput, timedOut, rejected, p50Millis, p99Millis, minLimit, maxLimit, finalLimit
+            );
+        }
+    }
+    
+    public static class Builder {
+        private int clients = 64;
+        private int capacity = 16;
+        private long baseLatencyMicros = 5_000;
+        private long timeoutMicros = 50_000;
+        private final List<Phase> phases = new ArrayList<>();
+        
+        private Builder() {
+        }
+        
+        /**
+         * Sets the number of closed-loop client threads.
+         */
+        public Builder clients(int clients) {
+            this.clients = clients;
+            return this;
+        }
+        
+        /**
+         * Sets how many requests the downstream serves concurrently at full speed.
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+        
+        public Builder baseLatencyMillis(double millis) {
+            this.baseLatencyMicros = (long) (millis * 1000);
+            return this;
+        }
+        
+        public Builder timeoutMillis(double millis) {
+            this.timeoutMicros = (long) (millis * 1000);
+            return this;
+        }
+        
+        /**
+         * Adds a phase during which the downstream's base latency is multiplied by
+         * latencyMultiplier.
+         */
+        public Builder phase(String name, long durationMillis, double latencyMultiplier) {
+            if (durationMillis <= 0 || latencyMultiplier <= 0) {
+                throw new IllegalArgumentException("Phase duration and latency multiplier must be positive");
+            }
+            phases.add(new Phase(name, durationMillis, latencyMultiplier));
+            return this;
+        }
+        
+        public LatencySpikeSimulation build() {
+            if (clients <= 0 || capacity <= 0 || baseLatencyMicros <= 0 || timeoutMicros <= 0) {
+                throw new IllegalArgumentException("Clients, capacity, latency and timeout must be positive");
+            }
+            if (phases.isEmpty()) {
+                throw new IllegalArgumentException("At least one phase is required");
+            }
+            return new LatencySpikeSimulation(this);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-local limiter that spends permits leased from a shared bucket.
+ *
+ * Each gateway node holds a small local balance of permits. Requests are served from
+ * it with a compare-and-set, never touching the shared bucket. When the balance falls
+ * below a low watermark a background refill leases another batch, so that in steady
+ * state the next lease arrives before the balance runs out.
+ *
+ * Characteristics:
+ * - One shared-bucket call per lease instead of per request
+ * - Lease size adapts to the node's consumption rate: about one lease duration's
+ *   worth of permits, within the configured minimum and maximum
+ * - The low watermark covers the consumption expected during two measured round
+ *   trips to the shared bucket, so refills are issued early enough to hide latency
+ * - When the shared bucket is empty, a node backs off for a quarter of the lease
+ *   duration instead of asking again on every request
+ *
+ * Over-admission is bounded. A permit leased at one moment and spent later can make
+ * some window admit more than the shared bucket alone would. Leases expire after the
+ * lease duration and unspent permits are discarded, so over any window the excess is
+ * at most the permits held by the nodes when it started: no more than
+ * nodes * (maxLease + low watermark), where the watermark never exceeds the lease
+ * size. Expired permits are counted, since they are quota the nodes could not use.
+ */
+public class LeasingRateLimiter {
+    
+    private static final double RATE_SMOOTHING = 0.3;
+    
+    private final SharedTokenBucket central;
+    private final long minLease;
+    private final long maxLease;
+    private final long leaseDurationNanos;
+    private final Executor refillExecutor;
+    private final ExecutorService ownedExecutor;
+    
+    private final AtomicLong permits;
+    private final AtomicBoolean refillInFlight;
+    private volatile long expiresAt;
+    private volatile long retryAt;
+    private volatile long leaseSize;
+    private volatile long lowWatermark;
+    
+    // Written only by the refill task, which never runs concurrently with itself
+    private volatile double consumptionRate;
+    private volatile long centralRttNanos;
+    private long lastRefillAt;
+    private long consumedAtLastRefill;
+    
+    // Statistics
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    private final LongAdder consumedPermits;
+    private final LongAdder leases;
+    private final LongAdder leasedPermits;
+    private final LongAdder expiredPermits;
+    
+    private LeasingRateLimiter(Builder builder) {
+        this.central = builder.central;
+        this.minLease = builder.minLease;
+        this.maxLease = builder.maxLease;
+        this.leaseDurationNanos = builder.leaseDurationNanos;
+        if (builder.refillExecutor != null) {
+            this.refillExecutor = builder.refillExecutor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "LeasingRateLimiter-Refill");
+                t.setDaemon(true);
+                return t;
+            });
+            this.refillExecutor = ownedExecutor;
+        }
+        
+        long now = System.nanoTime();
+        this.permits = new AtomicLong();
+        this.refillInFlight = new AtomicBoolean();
+        this.expiresAt = now;
+        this.retryAt = now;
+        this.leaseSize = minLease;
+        this.lowWatermark = 0;
+        this.lastRefillAt = now;
+        
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+        this.consumedPermits = new LongAdder();
+        this.leases = new LongAdder();
+        this.leasedPermits = new LongAdder();
+        this.expiredPermits = new LongAdder();
+        
+        requestRefill(); // Prefetch the first lease
+    }
+    
+    /**
+     * Starts building a node that leases from the given shared bucket.
+     */
+    public static Builder builder(SharedTokenBucket central) {
+        return new Builder(central);
+    }
+    
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+    
+    /**
+     * Attempts to acquire permits from the local balance. Never waits for the shared
+     * bucket: if the balance is short, a refill is requested and the call fails.
+     *
+     * @param permits number of permits to acquire
+     * @return true if the permits were acquired
+     */
+    public boolean tryAcquire(int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        totalRequests.increment();
+        expireIfDue();
+        
+        while (true) {
+            long current = this.permits.get();
+            if (current < permits) {
+                rejectedRequests.increment();
+                requestRefill();
+                return false;
+            }
+            if (this.permits.compareAndSet(current, current - permits)) {
+                allowedRequests.increment();
+                consumedPermits.add(permits);
+                if (current - permits <= lowWatermark) {
+                    requestRefill();
+                }
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Gets the permits this node currently holds.
+     */
+    public long getHeldPermits() {
+        return permits.get();
+    }
+    
+    public LeasingStats getStats() {
+        return new LeasingStats(
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
+            leases.sum(),
+            leasedPermits.sum(),
+            expiredPermits.sum(),
+            permits.get(),
+            leaseSize,
+            consumptionRate,
+            centralRttNanos,
+            "Leasing"
+        );
+    }
+    
+    /**
+     * Stops the refill thread, if this node created its own. Held permits are
+     * kept until they expire.
+     */
+    public void shutdown() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+    
+    private void expireIfDue() {
+        if (System.nanoTime() - expiresAt > 0 && permits.get() > 0) {
+            synchronized (this) {
+                if (System.nanoTime() - expiresAt > 0) {
+                    expiredPermits.add(permits.getAndSet(0));
+                }
+            }
+        }
+    }
+    
+    private void requestRefill() {
+        if (System.nanoTime() - retryAt < 0 || !refillInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refillExecutor.execute(this::refill);
+        } catch (RejectedExecutionException e) {
+            refillInFlight.set(false); // Shut down: keep serving what is held
+        }
+    }
+    
+    private void refill() {
+        try {
+            long start = System.nanoTime();
+            updateConsumptionRate(start);
+            long requested = leaseSize;
+            long granted = central.lease(requested);
+            long end = System.nanoTime();
+            
+            long rtt = end - start;
+            centralRttNanos = centralRttNanos == 0 ? rtt
+                : (long) (RATE_SMOOTHING * rtt + (1 - RATE_SMOOTHING) * centralRttNanos);
+            leases.increment();
+            if (granted > 0) {
+                leasedPermits.add(granted);
+                synchronized (this) {
+                    // Set the expiry first so that a concurrent expiry check keeps the new permits
+                    expiresAt = end + leaseDurationNanos;
+                    permits.addAndGet(granted);
+                }
+            }
+            if (granted < requested) {
+                retryAt = end + leaseDurationNanos / 4;
+            }
+            resize();
+        } finally {
+            refillInFlight.set(false);
+        }
+    }
+    
+    private void updateConsumptionRate(long now) {
+        long consumed = consumedPermits.sum();
+        long elapsed = now - lastRefillAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        double rate = (consumed - consumedAtLastRefill) * 1e9 / elapsed;
+        consumptionRate = consumptionRate == 0 ? rate
+            : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * consumptionRate;
+        lastRefillAt = now;
+        consumedAtLastRefill = consumed;
+    }
+    
+    private void resize() {
+        double perNano = consumptionRate / 1e9;
+        long size = Math.max(minLease, Math.min(maxLease, (long) Math.ceil(perNano * leaseDurationNanos)));
+        leaseSize = size;
+        lowWatermark = Math.min(size, (long) Math.ceil(perNano * 2 * centralRttNanos));
+    }
+    
+    public static class Builder {
+        private final SharedTokenBucket central;
+        private long minLease = 10;
+        private long maxLease = 1000;
+        private long leaseDurationNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private Executor refillExecutor;
+        
+        private Builder(SharedTokenBucket central) {
+            if (central == null) {
+                throw new IllegalArgumentException("Shared bucket cannot be null");
+            }
+            this.central = central;
+        }
+        
+        public Builder minLease(long minLease) {
+            this.minLease = minLease;
+            return this;
+        }
+        
+        public Builder maxLease(long maxLease) {
+            this.maxLease = maxLease;
+            return this;
+        }
+        
+        /**
+         * Sets how long a lease lasts, which is also how much consumption a lease
+         * aims to cover. Defaults to 100 ms.
+         */
+        public Builder leaseDuration(long duration, TimeUnit unit) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("Lease duration must be positive");
+            }
+            this.leaseDurationNanos = unit.toNanos(duration);
+            return this;
+        }
+        
+        /**
+         * Sets the executor that runs refills, for example one shared by every limiter
+         * in the process. By default each limiter starts its own daemon thread.
+         */
+        public Builder refillExecutor(Executor executor) {
+            this.refillExecutor = executor;
+            return this;
+        }
+        
+        public LeasingRateLimiter build() {
+            if (minLease <= 0 || minLease > maxLease) {
+                throw new IllegalArgumentException("Leases must satisfy 0 < minLease <= maxLease");
+            }
+            return new LeasingRateLimiter(this);
+        }
+    }
+}
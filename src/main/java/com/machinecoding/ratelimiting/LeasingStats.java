@@ -0,0 +1,53 @@
+package com.machinecoding.ratelimiting;
+
+/**
+ * Statistics for one node of a LeasingRateLimiter: request counts plus the state
+ * of its leases from the shared bucket.
+ */
+public class LeasingStats extends RateLimitStats {
+    private final long leases;
+    private final long leasedPermits;
+    private final long expiredPermits;
+    private final long heldPermits;
+    private final long leaseSize;
+    private final double consumptionRate;
+    private final long centralRttNanos;
+    
+    public LeasingStats(long totalRequests, long allowedRequests, long rejectedRequests,
+                        long leases, long leasedPermits, long expiredPermits, long heldPermits,
+                        long leaseSize, double consumptionRate, long centralRttNanos, String algorithm) {
+        super(totalRequests, allowedRequests, rejectedRequests, 0, algorithm);
+        this.leases = leases;
+        this.leasedPermits = leasedPermits;
+        this.expiredPermits = expiredPermits;
+        this.heldPermits = heldPermits;
+        this.leaseSize = leaseSize;
+        this.consumptionRate = consumptionRate;
+        this.centralRttNanos = centralRttNanos;
+    }
+    
+    public long getLeases() { return leases; }
+    public long getLeasedPermits() { return leasedPermits; }
+    public long getExpiredPermits() { return expiredPermits; }
+    public long getHeldPermits() { return heldPermits; }
+    public long getLeaseSize() { return leaseSize; }
+    public double getConsumptionRate() { return consumptionRate; }
+    public long getCentralRttNanos() { return centralRttNanos; }
+    
+    /**
+     * Average permits per lease call.
+     */
+    public double getAverageLease() {
+        return leases == 0 ? 0.0 : (double) leasedPermits / leases;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "%s Stats{total=%d, allowed=%d, rejected=%d, leases=%d, avgLease=%.1f, leaseSize=%d, " +
+            "held=%d, expired=%d, rate=%.0f/s, centralRtt=%.2fms}",
+            getAlgorithm(), getTotalRequests(), getAllowedRequests(), getRejectedRequests(), leases,
+            getAverageLease(), leaseSize, heldPermits, expiredPermits, consumptionRate, centralRttNanos / 1e6
+        );
+    }
+}
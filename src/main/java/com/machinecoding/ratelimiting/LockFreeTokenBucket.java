@@ -0,0 +1,192 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free token bucket shared by TokenBucketRateLimiter, HierarchicalRateLimiter
+ * and InMemorySharedTokenBucket.
+ *
+ * The whole state is one long: the instant, in nanoseconds since the bucket was
+ * created, at which the bucket held zero tokens. At time t it holds
+ * min(capacity, (t - emptyAt) / nanosPerToken) tokens, so the token count is kept
+ * in fixed point with nanosecond resolution and the refill timestamp is implicit.
+ *
+ * Refill is lazy and costs nothing. Taking n tokens advances emptyAt by
+ * n * nanosPerToken with a compare-and-set, retried only if another thread
+ * changed the bucket in between. A rejection writes nothing, so a drained bucket
+ * stays cheap however many threads keep asking.
+ *
+ * Operations:
+ * - tryConsume / refund: take tokens available now, and give them back if a later
+ *   check rejects the request
+ * - reserve / cancel: take tokens into debt for a caller that waits until they are due
+ * - lease: take as many tokens as are available, up to a requested amount
+ * - retireIfFull: swap in RETIRED so the owner can drop a full bucket. That
+ *   compare-and-set races with consumers like any other update, so a bucket is never
+ *   retired after handing out tokens the sweep did not see, and a retired bucket
+ *   refuses all later use so racing callers retry on a fresh one
+ */
+class LockFreeTokenBucket {
+    
+    static final long NOT_RESERVED = Long.MIN_VALUE;
+    private static final long RETIRED = Long.MIN_VALUE;
+    
+    private final long capacity;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final long epoch;
+    private final AtomicLong emptyAt;
+    
+    LockFreeTokenBucket(long capacity, long nanosPerToken) {
+        this.capacity = capacity;
+        this.nanosPerToken = nanosPerToken;
+        this.burstNanos = capacity * nanosPerToken;
+        this.epoch = System.nanoTime();
+        this.emptyAt = new AtomicLong(-burstNanos); // Starts full
+    }
+    
+    boolean tryConsume(int tokensToConsume) {
+        if (tokensToConsume < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        if (tokensToConsume > capacity) {
+            return false;
+        }
+        long cost = tokensToConsume * nanosPerToken;
+        
+        while (true) {
+            long current = emptyAt.get();
+            if (current == RETIRED) {
+                return false;
+            }
+            long now = now();
+            // Tokens beyond capacity are never accumulated
+            long next = Math.max(current, now - burstNanos) + cost;
+            if (next > now) {
+                return false;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Gives back tokens taken by tryConsume, e.g. when a later check rejects the request.
+     * Does nothing to a retired bucket.
+     */
+    void refund(int tokensConsumed) {
+        long cost = tokensConsumed * nanosPerToken;
+        while (true) {
+            long current = emptyAt.get();
+            if (current == RETIRED || emptyAt.compareAndSet(current, current - cost)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Takes whatever tokens are available now, up to the requested number.
+     *
+     * @return number of tokens taken, between 0 and requested
+     */
+    long lease(long requested) {
+        if (requested < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        
+        while (true) {
+            long current = emptyAt.get();
+            if (current == RETIRED) {
+                return 0;
+            }
+            long now = now();
+            long start = Math.max(current, now - burstNanos);
+            long granted = Math.min(requested, (now - start) / nanosPerToken);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (emptyAt.compareAndSet(current, start + granted * nanosPerToken)) {
+                return granted;
+            }
+        }
+    }
+    
+    /**
+     * Takes tokens now, letting the bucket go into debt, if they will have refilled
+     * within maxWaitNanos.
+     *
+     * @return the bucket time at which the tokens are due, or NOT_RESERVED
+     */
+    long reserve(int tokensToReserve, long maxWaitNanos) {
+        if (tokensToReserve < 0) {
+            throw new IllegalArgumentException("Permits cannot be negative");
+        }
+        if (tokensToReserve > capacity) {
+            return NOT_RESERVED;
+        }
+        long cost = tokensToReserve * nanosPerToken;
+        
+        while (true) {
+            long current = emptyAt.get();
+            long now = now();
+            long due = Math.max(current, now - burstNanos) + cost;
+            if (due - now > maxWaitNanos) {
+                return NOT_RESERVED;
+            }
+            if (emptyAt.compareAndSet(current, due)) {
+                return due;
+            }
+        }
+    }
+    
+    /**
+     * Gives back a reservation, which is only possible while it is the last one.
+     */
+    void cancel(int tokensReserved, long due) {
+        emptyAt.compareAndSet(due, due - tokensReserved * nanosPerToken);
+    }
+    
+    long nanosUntil(long due) {
+        return due - now();
+    }
+    
+    void awaitDue(long due) throws InterruptedException {
+        long remaining;
+        while ((remaining = due - now()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+    
+    long getAvailableTokens() {
+        long now = now();
+        // A bucket in debt to queued callers has nothing available
+        return Math.max(0, (now - Math.max(emptyAt.get(), now - burstNanos)) / nanosPerToken);
+    }
+    
+    long getCapacity() {
+        return capacity;
+    }
+    
+    boolean retireIfFull() {
+        long current = emptyAt.get();
+        return current != RETIRED && current <= now() - burstNanos
+            && emptyAt.compareAndSet(current, RETIRED);
+    }
+    
+    boolean isRetired() {
+        return emptyAt.get() == RETIRED;
+    }
+    
+    void reset() {
+        emptyAt.set(now() - burstNanos);
+    }
+    
+    private long now() {
+        return System.nanoTime() - epoch;
+    }
+}
@@ -1,7 +1,8 @@
 package com.machinecoding.ratelimiting;
 
 /**
- * Statistics for distributed locking operations.
+ * Statistics for distributed locking operations, including the queues of threads
+ * waiting in a timed tryLock and how long granted waiters waited.
  */
 public class LockStats {
     private final long totalLockAttempts;
@@ -12,10 +13,27 @@ public class LockStats {
     private final long expiredLocks;
     private final long currentActiveLocks;
     private final long deadlockDetections;
+    private final long waitingThreads;
+    private final long maxQueueDepth;
+    private final long waitedAcquisitions;
+    private final long waitTimeouts;
+    private final double averageWaitMillis;
+    private final double p50WaitMillis;
+    private final double p99WaitMillis;
+    private final double maxWaitMillis;
     
     public LockStats(long totalLockAttempts, long successfulLocks, long failedLocks,
                     long lockRenewals, long lockReleases, long expiredLocks,
                     long currentActiveLocks, long deadlockDetections) {
+        this(totalLockAttempts, successfulLocks, failedLocks, lockRenewals, lockReleases, expiredLocks,
+             currentActiveLocks, deadlockDetections, 0, 0, 0, 0, 0.0, 0.0, 0.0, 0.0);
+    }
+    
+    public LockStats(long totalLockAttempts, long successfulLocks, long failedLocks,
+                    long lockRenewals, long lockReleases, long expiredLocks,
+                    long currentActiveLocks, long deadlockDetections,
+                    long waitingThreads, long maxQueueDepth, long waitedAcquisitions, long waitTimeouts,
+                    double averageWaitMillis, double p50WaitMillis, double p99WaitMillis, double maxWaitMillis) {
         this.totalLockAttempts = totalLockAttempts;
         this.successfulLocks = successfulLocks;
         this.failedLocks = failedLocks;
@@ -24,6 +42,14 @@ public class LockStats {
         this.expiredLocks = expiredLocks;
         this.currentActiveLocks = currentActiveLocks;
         this.deadlockDetections = deadlockDetections;
+        this.waitingThreads = waitingThreads;
+        this.maxQueueDepth = maxQueueDepth;
+        this.waitedAcquisitions = waitedAcquisitions;
+        this.waitTimeouts = waitTimeouts;
+        this.averageWaitMillis = averageWaitMillis;
+        this.p50WaitMillis = p50WaitMillis;
+        this.p99WaitMillis = p99WaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
     }
     
     public long getTotalLockAttempts() { return totalLockAttempts; }
@@ -34,6 +60,14 @@ public class LockStats {
     public long getExpiredLocks() { return expiredLocks; }
     public long getCurrentActiveLocks() { return currentActiveLocks; }
     public long getDeadlockDetections() { return deadlockDetections; }
+    public long getWaitingThreads() { return waitingThreads; }
+    public long getMaxQueueDepth() { return maxQueueDepth; }
+    public long getWaitedAcquisitions() { return waitedAcquisitions; }
+    public long getWaitTimeouts() { return waitTimeouts; }
+    public double getAverageWaitMillis() { return averageWaitMillis; }
+    public double getP50WaitMillis() { return p50WaitMillis; }
+    public double getP99WaitMillis() { return p99WaitMillis; }
+    public double getMaxWaitMillis() { return maxWaitMillis; }
     
     public double getSuccessRate() {
         return totalLockAttempts == 0 ? 0.0 : (double) successfulLocks / totalLockAttempts * 100;
@@ -43,9 +77,12 @@ public class LockStats {
     public String toString() {
         return String.format(
             "LockStats{attempts=%d, successful=%d, failed=%d, renewals=%d, releases=%d, " +
-            "expired=%d, active=%d, deadlocks=%d, successRate=%.1f%%}",
+            "expired=%d, active=%d, deadlocks=%d, successRate=%.1f%%, waiting=%d, maxQueue=%d, " +
+            "waited=%d, waitTimeouts=%d, wait avg/p50/p99/max=%.2f/%.2f/%.2f/%.2fms}",
             totalLockAttempts, successfulLocks, failedLocks, lockRenewals, lockReleases,
-            expiredLocks, currentActiveLocks, deadlockDetections, getSuccessRate()
+            expiredLocks, currentActiveLocks, deadlockDetections, getSuccessRate(), waitingThreads,
+            maxQueueDepth, waitedAcquisitions, waitTimeouts, averageWaitMillis, p50WaitMillis,
+            p99WaitMillis, maxWaitMillis
         );
     }
 }
\ No newline at end of file
@@ -8,14 +8,21 @@ public class RateLimitStats {
     private final long allowedRequests;
     private final long rejectedRequests;
     private final long activeIdentifiers;
+    private final long evictedIdentifiers;
     private final String algorithm;
     
     public RateLimitStats(long totalRequests, long allowedRequests, long rejectedRequests,
                          long activeIdentifiers, String algorithm) {
+        this(totalRequests, allowedRequests, rejectedRequests, activeIdentifiers, 0, algorithm);
+    }
+    
+    public RateLimitStats(long totalRequests, long allowedRequests, long rejectedRequests,
+                         long activeIdentifiers, long evictedIdentifiers, String algorithm) {
         this.totalRequests = totalRequests;
         this.allowedRequests = allowedRequests;
         this.rejectedRequests = rejectedRequests;
         this.activeIdentifiers = activeIdentifiers;
+        this.evictedIdentifiers = evictedIdentifiers;
         this.algorithm = algorithm;
     }
     
@@ -23,6 +30,7 @@ public class RateLimitStats {
     public long getAllowedRequests() { return allowedRequests; }
     public long getRejectedRequests() { return rejectedRequests; }
     public long getActiveIdentifiers() { return activeIdentifiers; }
+    public long getEvictedIdentifiers() { return evictedIdentifiers; }
     public String getAlgorithm() { return algorithm; }
     
     public double getAllowRate() {
@@ -36,9 +44,9 @@ public class RateLimitStats {
     @Override
     public String toString() {
         return String.format(
-            "%s Stats{total=%d, allowed=%d, rejected=%d, identifiers=%d, allowRate=%.1f%%, rejectRate=%.1f%%}",
+            "%s Stats{total=%d, allowed=%d, rejected=%d, identifiers=%d, evicted=%d, allowRate=%.1f%%, rejectRate=%.1f%%}",
             algorithm, totalRequests, allowedRequests, rejectedRequests, activeIdentifiers,
-            getAllowRate(), getRejectRate()
+            evictedIdentifiers, getAllowRate(), getRejectRate()
         );
     }
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.machinecoding.ratelimiting;
 
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 
 /**
  * Comprehensive demonstration of Rate Limiter implementations.
@@ -34,6 +40,38 @@ public class RateLimiterDemo {
         System.out.println("\n=== Demo 5: Performance Testing ===");
         demonstratePerformance();
         
+        // Demo 6: Lock-free bucket vs the previous lock-based bucket under contention
+        System.out.println("\n=== Demo 6: Hot Bucket Contention at 64 Threads ===");
+        demonstrateContention();
+        
+        // Demo 7: Rolling-window limits
+        System.out.println("\n=== Demo 7: Sliding Window Log and Counter ===");
+        demonstrateSlidingWindows();
+        
+        // Demo 8: GCRA with one timestamp per key
+        System.out.println("\n=== Demo 8: GCRA for Millions of Keys ===");
+        demonstrateGcra();
+        
+        // Demo 9: Idle bucket eviction
+        System.out.println("\n=== Demo 9: Idle Bucket Eviction ===");
+        demonstrateIdleEviction();
+        
+        // Demo 10: Several limit tiers in one call
+        System.out.println("\n=== Demo 10: Hierarchical Limits ===");
+        demonstrateHierarchicalLimits();
+        
+        // Demo 11: Concurrency limit learned from latency
+        System.out.println("\n=== Demo 11: Adaptive Concurrency Limit Under a Latency Spike ===");
+        demonstrateAdaptiveConcurrency();
+        
+        // Demo 12: Waiting for permits instead of spinning
+        System.out.println("\n=== Demo 12: Blocking and Async Acquisition ===");
+        demonstrateWaitingAcquisition();
+        
+        // Demo 13: Nodes leasing permits from one shared quota
+        System.out.println("\n=== Demo 13: Leasing From a Shared Bucket ===");
+        demonstrateLeasing();
+        
         System.out.println("\n=== Demo Complete ===");
     }
     
@@ -234,4 +272,508 @@ public class RateLimiterDemo {
         System.out.println("   1000 requests with locality: " + (endTime - startTime) + "ms");
         System.out.println("   Final stats: " + limiter.getStats());
     }
+    
+    private static void demonstrateContention() throws InterruptedException {
+        int threads = 64;
+        int callsPerThread = 50_000;
+        System.out.println(String.format("1. %d threads, %,d calls each, all on the global bucket (%d cores available):",
+            threads, callsPerThread, Runtime.getRuntime().availableProcessors()));
+        
+        // An effectively unlimited bucket: every call is admitted and writes the bucket
+        long unlimited = 1_000_000_000L;
+        TokenBucketRateLimiter lockFree = new TokenBucketRateLimiter(unlimited, 1, TimeUnit.SECONDS);
+        LockedTokenBucket locked = new LockedTokenBucket(unlimited, 1, TimeUnit.SECONDS);
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up the JIT
+            long[] lockFreeResult = runContention(lockFree::tryAcquire, threads, callsPerThread);
+            long[] lockedResult = runContention(locked::tryAcquire, threads, callsPerThread);
+            if (round == 1) {
+                printContention("Admitting  - lock-free CAS", lockFreeResult);
+                printContention("Admitting  - ReentrantLock", lockedResult);
+            }
+        }
+        
+        // A drained bucket: nearly every call is rejected
+        lockFree = new TokenBucketRateLimiter(1_000, 1, TimeUnit.SECONDS);
+        locked = new LockedTokenBucket(1_000, 1, TimeUnit.SECONDS);
+        long startTime = System.nanoTime();
+        long[] lockFreeResult = runContention(lockFree::tryAcquire, threads, callsPerThread);
+        long[] lockedResult = runContention(locked::tryAcquire, threads, callsPerThread);
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        printContention("Rejecting  - lock-free CAS", lockFreeResult);
+        printContention("Rejecting  - ReentrantLock", lockedResult);
+        
+        System.out.println(String.format("\n2. Admission stays exact: lock-free admitted %,d of at most %,d (1,000 burst + 1,000/sec)",
+            lockFreeResult[1], 1_000 + (long) (elapsedSeconds * 1_000) + 1));
+        System.out.println("   " + lockFree.getStats());
+    }
+    
+    private static void demonstrateSlidingWindows() throws InterruptedException {
+        System.out.println("1. Limit of 10 requests per rolling second; bursts of 15 at t=0.9s and t=1.1s:");
+        List<RateLimiter> limiters = new ArrayList<>();
+        limiters.add(new SlidingWindowLogRateLimiter(10, 1, TimeUnit.SECONDS));
+        limiters.add(new SlidingWindowCounterRateLimiter(10, 1, TimeUnit.SECONDS));
+        limiters.add(new TokenBucketRateLimiter(10, 1, TimeUnit.SECONDS));
+        int[][] admitted = new int[limiters.size()][2];
+        
+        long start = System.nanoTime();
+        for (int burst = 0; burst < 2; burst++) {
+            long burstAt = start + (burst == 0 ? 900 : 1_100) * 1_000_000L;
+            Thread.sleep(Math.max(0, (burstAt - System.nanoTime()) / 1_000_000));
+            for (int l = 0; l < limiters.size(); l++) {
+                for (int i = 0; i < 15; i++) {
+                    if (limiters.get(l).tryAcquire()) {
+                        admitted[l][burst]++;
+                    }
+                }
+            }
+        }
+        for (int l = 0; l < limiters.size(); l++) {
+            System.out.println(String.format("   %-22s %2d + %2d admitted within 0.2s",
+                limiters.get(l).getConfig().getAlgorithm(), admitted[l][0], admitted[l][1]));
+        }
+        System.out.println("   (a fixed-window counter would admit 10 + 10 across its boundary)");
+        
+        System.out.println("\n2. Per-partner limits with retry hints from the exact log:");
+        SlidingWindowLogRateLimiter partners = new SlidingWindowLogRateLimiter(3, 500, TimeUnit.MILLISECONDS);
+        for (int i = 1; i <= 4; i++) {
+            boolean allowed = partners.tryAcquire("partner-a");
+            System.out.println("   partner-a request " + i + ": " + (allowed ? "ALLOWED" : "REJECTED")
+                + (allowed ? "" : ", retry after " + partners.getRetryAfterMillis("partner-a") + "ms"));
+        }
+        System.out.println("   partner-b available: " + partners.getAvailablePermits("partner-b"));
+        System.out.println("   " + partners.getStats());
+    }
+    
+    private static void demonstrateGcra() {
+        System.out.println("1. Per-IP limit of 5 requests per second, with retry hints:");
+        GcraRateLimiter limiter = new GcraRateLimiter(5, 1, TimeUnit.SECONDS);
+        long ip = ipv4(203, 0, 113, 7);
+        for (int i = 1; i <= 7; i++) {
+            long retryAfter = limiter.tryAcquireOrRetryAfter(ip, 1);
+            System.out.println("   Request " + i + ": " + (retryAfter == 0 ? "ALLOWED"
+                : String.format("REJECTED, retry after %.1f ms", retryAfter / 1e6)));
+        }
+        
+        int keys = 1_000_000;
+        System.out.println(String.format("\n2. Heap for %,d active keys:", keys));
+        Runtime runtime = Runtime.getRuntime();
+        long baseline = usedHeapAfterGc(runtime);
+        GcraRateLimiter gcra = new GcraRateLimiter(100, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < keys; i++) {
+            gcra.tryAcquire(ipv4(10, i >>> 16, (i >>> 8) & 0xFF, i & 0xFF), 1);
+        }
+        long gcraBytes = usedHeapAfterGc(runtime) - baseline;
+        
+        baseline = usedHeapAfterGc(runtime);
+        TokenBucketRateLimiter tokenBucket = new TokenBucketRateLimiter(100, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < keys; i++) {
+            tokenBucket.tryAcquire("10." + (i >>> 16) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF));
+        }
+        long tokenBucketBytes = usedHeapAfterGc(runtime) - baseline;
+        System.out.println(String.format("   GCRA:        %,6d MB (%d bytes per key)",
+            gcraBytes >> 20, gcraBytes / keys));
+        System.out.println(String.format("   TokenBucket: %,6d MB (%d bytes per key, string identifiers)",
+            tokenBucketBytes >> 20, tokenBucketBytes / keys));
+        
+        System.out.println("\n3. Hot path allocation, 1,000,000 calls on existing keys:");
+        long allocated = 0;
+        long duration = 0;
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up the JIT
+            long startTime = System.nanoTime();
+            long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < keys; i++) {
+                int k = (int) ((long) i * 7919 % keys);
+                gcra.tryAcquire(ipv4(10, k >>> 16, (k >>> 8) & 0xFF, k & 0xFF), 1);
+            }
+            allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+            duration = System.nanoTime() - startTime;
+        }
+        System.out.println(String.format("   %,d calls/sec, %s bytes allocated per call",
+            (long) keys * 1_000_000_000L / duration,
+            allocated < 0 ? "(unmeasurable on this JVM)" : String.format("%.3f", (double) allocated / keys)));
+        System.out.println("   " + gcra.getStats());
+    }
+    
+    private static void demonstrateIdleEviction() throws InterruptedException {
+        System.out.println("100,000 one-off client IPs, 10 requests per 100 ms each, swept every 200 ms:");
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 100, TimeUnit.MILLISECONDS, true, 200);
+        for (int i = 0; i < 100_000; i++) {
+            limiter.tryAcquire("198.51." + (i >>> 8) + "." + (i & 0xFF));
+        }
+        System.out.println("   After the burst: " + limiter.getStats());
+        
+        // A client that keeps draining its bucket is never full when the sweep runs
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("busy-client", 10);
+            Thread.sleep(50);
+        }
+        System.out.println("   Half a second later: " + limiter.getStats());
+        
+        // An evicted bucket was full, so a returning client sees no difference
+        System.out.println("   Returning client 198.51.0.1 has "
+            + limiter.getAvailablePermits("198.51.0.1") + " permits");
+        limiter.shutdown();
+    }
+    
+    private static void demonstrateHierarchicalLimits() {
+        System.out.println("1. User 5/s, endpoint 8/s, tenant 10/s, global 1000/s:");
+        HierarchicalRateLimiter limiter = HierarchicalRateLimiter.builder()
+            .tier("user", 5, 1, TimeUnit.SECONDS)
+            .tier("endpoint", 8, 1, TimeUnit.SECONDS)
+            .tier("tenant", 10, 1, TimeUnit.SECONDS)
+            .globalTier("global", 1_000, 1, TimeUnit.SECONDS)
+            .build();
+        String[] users = {"alice", "alice", "alice", "alice", "alice", "alice", "bob", "bob", "bob", "carol", "carol", "dave"};
+        for (int i = 0; i < users.length; i++) {
+            String endpoint = i % 2 == 0 ? "/orders" : "/search";
+            System.out.println(String.format("   %-5s %-8s -> %s",
+                users[i], endpoint, limiter.tryAcquire(users[i], "acme:" + endpoint, "acme")));
+        }
+        for (RateLimitStats stats : limiter.getTierStats()) {
+            System.out.println("   " + stats);
+        }
+        limiter.shutdown();
+        
+        System.out.println("\n2. Chaining separate limiters instead, 20 requests from one user:");
+        TokenBucketRateLimiter user = new TokenBucketRateLimiter(100, 1, TimeUnit.SECONDS, false, 0);
+        TokenBucketRateLimiter tenant = new TokenBucketRateLimiter(10, 1, TimeUnit.SECONDS, false, 0);
+        HierarchicalRateLimiter combined = HierarchicalRateLimiter.builder()
+            .tier("user", 100, 1, TimeUnit.SECONDS)
+            .tier("tenant", 10, 1, TimeUnit.SECONDS)
+            .build();
+        int chainedAllowed = 0;
+        int combinedAllowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (user.tryAcquire("alice") && tenant.tryAcquire("acme")) {
+                chainedAllowed++;
+            }
+            if (combined.tryAcquire("alice", "acme").isAllowed()) {
+                combinedAllowed++;
+            }
+        }
+        System.out.println(String.format("   Chained:      %d allowed, user bucket charged %d (%d permits leaked)",
+            chainedAllowed, 100 - user.getAvailablePermits("alice"),
+            100 - user.getAvailablePermits("alice") - chainedAllowed));
+        System.out.println(String.format("   Hierarchical: %d allowed, user bucket charged %d",
+            combinedAllowed, 100 - combined.getAvailablePermits("user", "alice")));
+        combined.shutdown();
+        
+        int users10k = 10_000;
+        int calls = 2_000_000;
+        System.out.println(String.format("\n3. Four tiers, %,d users in 100 tenants, %,d calls:", users10k, calls));
+        HierarchicalRateLimiter gateway = HierarchicalRateLimiter.builder()
+            .tier("user", 1_000_000, 1, TimeUnit.SECONDS)
+            .tier("endpoint", 10_000_000, 1, TimeUnit.SECONDS)
+            .tier("tenant", 10_000_000, 1, TimeUnit.SECONDS)
+            .globalTier("global", 100_000_000, 1, TimeUnit.SECONDS)
+            .build();
+        String[][] requests = new String[users10k][];
+        for (int i = 0; i < users10k; i++) {
+            String tenantId = "tenant-" + (i % 100);
+            requests[i] = new String[] {"user-" + i, tenantId + ":/api/v" + (i % 4), tenantId};
+        }
+        long duration = 0;
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up the JIT
+            long startTime = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                gateway.tryAcquire(requests[(int) ((long) i * 7919 % users10k)]);
+            }
+            duration = System.nanoTime() - startTime;
+        }
+        System.out.println(String.format("   %,d decisions/sec on %d core(s), %.0f ns per 4-tier decision",
+            (long) calls * 1_000_000_000L / duration, Runtime.getRuntime().availableProcessors(),
+            (double) duration / calls));
+        gateway.shutdown();
+    }
+    
+    private static void demonstrateAdaptiveConcurrency() throws InterruptedException {
+        System.out.println("64 clients, downstream serves 16 at 5 ms, 50 ms timeout, latency x4 during the spike:");
+        LatencySpikeSimulation simulation = LatencySpikeSimulation.builder()
+            .clients(64)
+            .capacity(16)
+            .baseLatencyMillis(5)
+            .timeoutMillis(50)
+            .phase("steady", 1_500, 1.0)
+            .phase("spike", 1_500, 4.0)
+            .phase("recovery", 1_500, 1.0)
+            .build();
+        
+        System.out.println("\n1. Fixed limit of 64:");
+        AdaptiveConcurrencyLimiter fixed = AdaptiveConcurrencyLimiter.builder()
+            .initialLimit(64).minLimit(64).maxLimit(64).build();
+        for (LatencySpikeSimulation.PhaseResult result : simulation.run(fixed)) {
+            System.out.println("   " + result);
+        }
+        
+        System.out.println("\n2. Adaptive limit starting at 64:");
+        AdaptiveConcurrencyLimiter adaptive = AdaptiveConcurrencyLimiter.builder()
+            .initialLimit(64).maxLimit(256).build();
+        for (LatencySpikeSimulation.PhaseResult result : simulation.run(adaptive)) {
+            System.out.println("   " + result);
+        }
+        System.out.println("   " + adaptive.getStats());
+    }
+    
+    private static void demonstrateWaitingAcquisition() throws InterruptedException {
+        System.out.println("1. Four batch workers sharing 200 permits/s for one second:");
+        TokenBucketRateLimiter spinLimiter = new TokenBucketRateLimiter(200, 1, TimeUnit.SECONDS, false, 0);
+        spinLimiter.tryAcquire(200); // Start empty so that throughput is refill-bound
+        long[] spin = runBatchWorkers(4, 1_000, () -> {
+            while (!spinLimiter.tryAcquire()) {
+                Thread.sleep(0, 100_000);
+            }
+        });
+        
+        TokenBucketRateLimiter blockingLimiter = new TokenBucketRateLimiter(200, 1, TimeUnit.SECONDS, false, 0);
+        blockingLimiter.tryAcquire(200);
+        long[] blocking = runBatchWorkers(4, 1_000, () -> blockingLimiter.acquire(1, 1, TimeUnit.SECONDS));
+        
+        System.out.println(String.format("   tryAcquire + sleep: %,4d permits, %,6.1f ms CPU",
+            spin[0], spin[1] / 1e6));
+        System.out.println(String.format("   acquire (parked):   %,4d permits, %,6.1f ms CPU",
+            blocking[0], blocking[1] / 1e6));
+        
+        System.out.println("\n2. Ten async requests for 5 permits each at 100 permits/s, bucket empty:");
+        TokenBucketRateLimiter asyncLimiter = new TokenBucketRateLimiter(100, 1, TimeUnit.SECONDS, false, 0);
+        asyncLimiter.tryAcquire(100);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Long> completions = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            int request = i;
+            futures.add(asyncLimiter.acquireAsync(5).thenRun(() ->
+                completions.add((long) request << 32 | (System.nanoTime() - start) / 1_000_000)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        StringBuilder order = new StringBuilder();
+        for (long completion : completions) {
+            order.append(String.format(" #%d@%dms", completion >>> 32, completion & 0xFFFFFFFFL));
+        }
+        System.out.println("   Completed in order:" + order);
+        asyncLimiter.shutdown();
+    }
+    
+    private static void demonstrateLeasing() throws InterruptedException {
+        int nodes = 40;
+        long quota = 20_000;
+        System.out.println(String.format("%d nodes sharing %,d permits/s, 1 ms round trip to the shared bucket:", nodes, quota));
+        InMemorySharedTokenBucket central = new InMemorySharedTokenBucket(quota, 1, TimeUnit.SECONDS, 1, TimeUnit.MILLISECONDS);
+        central.lease(quota); // Start empty so that admissions are refill-bound
+        
+        ExecutorService refills = Executors.newFixedThreadPool(8, r -> {
+            Thread t = new Thread(r, "Demo-Refill");
+            t.setDaemon(true);
+            return t;
+        });
+        long maxLease = 500;
+        LeasingRateLimiter[] limiters = new LeasingRateLimiter[nodes];
+        for (int n = 0; n < nodes; n++) {
+            limiters[n] = LeasingRateLimiter.builder(central)
+                .minLease(5)
+                .maxLease(maxLease)
+                .leaseDuration(100, TimeUnit.MILLISECONDS)
+                .refillExecutor(refills)
+                .build();
+        }
+        
+        // Skewed demand: node 0 gets the most traffic, node 39 the least
+        long durationMillis = 3_000;
+        int slotMillis = 10;
+        AtomicLongArray admittedPerSlot = new AtomicLongArray((int) (durationMillis / slotMillis) + 1);
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[8];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long elapsed;
+                while ((elapsed = System.nanoTime() - start) < durationMillis * 1_000_000L) {
+                    double r = random.nextDouble();
+                    if (limiters[(int) (r * r * nodes)].tryAcquire()) {
+                        admittedPerSlot.incrementAndGet((int) (elapsed / 1_000_000L / slotMillis));
+                    }
+                }
+            });
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        
+        long admitted = 0;
+        long requests = 0;
+        long expired = 0;
+        for (LeasingRateLimiter limiter : limiters) {
+            LeasingStats stats = limiter.getStats();
+            admitted += stats.getAllowedRequests();
+            requests += stats.getTotalRequests();
+            expired += stats.getExpiredPermits();
+        }
+        System.out.println(String.format("   Admitted %,d of %,d requests with %,d shared-bucket calls (%.1f admissions per call)",
+            admitted, requests, central.getLeaseCalls(), (double) admitted / central.getLeaseCalls()));
+        System.out.println(String.format("   Expired unspent: %,d permits", expired));
+        for (int window : new int[] {100, 1_000}) {
+            int slots = window / slotMillis;
+            long worst = 0;
+            long running = 0;
+            for (int i = 0; i < admittedPerSlot.length(); i++) {
+                running += admittedPerSlot.get(i) - (i >= slots ? admittedPerSlot.get(i - slots) : 0);
+                worst = Math.max(worst, running);
+            }
+            long allowed = quota * window / 1_000;
+            System.out.println(String.format("   Busiest %,5d ms window: %,6d admitted vs %,6d quota (over by %,d, bound %,d)",
+                window, worst, allowed, Math.max(0, worst - allowed), nodes * 2 * maxLease));
+        }
+        System.out.println("   Node 0:  " + limiters[0].getStats());
+        System.out.println("   Node 39: " + limiters[nodes - 1].getStats());
+        refills.shutdown();
+    }
+    
+    private interface BatchStep {
+        void run() throws InterruptedException;
+    }
+    
+    /**
+     * Runs workers that each acquire and count permits until the duration is up.
+     *
+     * @return permits acquired and total CPU nanoseconds used by the workers
+     */
+    private static long[] runBatchWorkers(int workers, long durationMillis, BatchStep step)
+            throws InterruptedException {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AtomicLong permits = new AtomicLong();
+        AtomicLong cpuNanos = new AtomicLong();
+        long deadline = System.nanoTime() + durationMillis * 1_000_000L;
+        Thread[] running = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            running[w] = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        step.run();
+                        permits.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                cpuNanos.addAndGet(threads.getCurrentThreadCpuTime());
+            });
+            running[w].start();
+        }
+        for (Thread worker : running) {
+            worker.join();
+        }
+        return new long[] {permits.get(), cpuNanos.get()};
+    }
+    
+    private static long ipv4(int a, int b, int c, int d) {
+        return (long) a << 24 | b << 16 | c << 8 | d;
+    }
+    
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+    
+    private static long usedHeapAfterGc(Runtime runtime) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Runs the calls on all threads at once.
+     *
+     * @return calls per second and number of admitted calls
+     */
+    private static long[] runContention(BooleanSupplier acquire, int threads, int callsPerThread)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong admitted = new AtomicLong();
+        
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    long allowed = 0;
+                    for (int i = 0; i < callsPerThread; i++) {
+                        if (acquire.getAsBoolean()) {
+                            allowed++;
+                        }
+                    }
+                    admitted.addAndGet(allowed);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long duration = Math.max(1, System.nanoTime() - startTime);
+        executor.shutdown();
+        
+        return new long[] {(long) threads * callsPerThread * 1_000_000_000L / duration, admitted.get()};
+    }
+    
+    private static void printContention(String label, long[] result) {
+        System.out.println(String.format("   %s: %,12d calls/sec, %,d admitted", label, result[0], result[1]));
+    }
+    
+    /**
+     * Reproduces the previous global path: a ReentrantLock around a double token
+     * count, and shared AtomicLong counters.
+     */
+    private static class LockedTokenBucket {
+        private final long capacity;
+        private final double refillRate;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicLong totalRequests = new AtomicLong();
+        private final AtomicLong allowedRequests = new AtomicLong();
+        private final AtomicLong rejectedRequests = new AtomicLong();
+        private double tokens;
+        private long lastRefillTime;
+        
+        LockedTokenBucket(long maxRequests, long timeWindow, TimeUnit timeUnit) {
+            this.capacity = maxRequests;
+            this.refillRate = (double) maxRequests / timeUnit.toMillis(timeWindow);
+            this.tokens = maxRequests;
+            this.lastRefillTime = System.currentTimeMillis();
+        }
+        
+        boolean tryAcquire() {
+            totalRequests.incrementAndGet();
+            boolean allowed;
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                if (now > lastRefillTime) {
+                    tokens = Math.min(capacity, tokens + (now - lastRefillTime) * refillRate);
+                    lastRefillTime = now;
+                }
+                allowed = tokens >= 1;
+                if (allowed) {
+                    tokens -= 1;
+                }
+            } finally {
+                lock.unlock();
+            }
+            (allowed ? allowedRequests : rejectedRequests).incrementAndGet();
+            return allowed;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.machinecoding.ratelimiting;
+
+/**
+ * A token bucket shared by many nodes, such as one kept in Redis or a quota service.
+ * Nodes do not ask it about every request; they lease batches of permits from it
+ * and spend them locally (see LeasingRateLimiter).
+ */
+public interface SharedTokenBucket {
+    
+    /**
+     * Takes up to the requested number of permits from the shared bucket.
+     * Implementations may block for a network round trip.
+     *
+     * @param requested number of permits wanted
+     * @return number of permits granted, between 0 and requested
+     */
+    long lease(long requested);
+    
+    /**
+     * Gets the number of permits currently left in the shared bucket.
+     *
+     * @return available permits
+     */
+    long getAvailablePermits();
+    
+    /**
+     * Gets the limit the shared bucket enforces.
+     *
+     * @return rate limit configuration
+     */
+    RateLimitConfig getConfig();
+}
@@ -0,0 +1,172 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding Window Counter Rate Limiter implementation.
+ *
+ * Time is cut into fixed windows of the configured length, and each identifier keeps
+ * only the request counts of the current and the previous window. The number of
+ * requests in the rolling window ending now is estimated by weighting the previous
+ * window's count by how much of it still overlaps the rolling window:
+ *
+ *   estimate = previous * (1 - elapsed / window) + current
+ *
+ * Characteristics:
+ * - O(1) memory per identifier: two counters and a window index
+ * - No burst of twice the limit across a window boundary, unlike fixed windows
+ * - Approximate: assumes the previous window's requests were evenly spread
+ * - Good for "N requests per rolling period" limits on many identifiers
+ */
+public class SlidingWindowCounterRateLimiter implements RateLimiter {
+    
+    private final RateLimitConfig config;
+    private final long windowNanos;
+    private final long epoch;
+    private final ConcurrentHashMap<String, WindowCounter> counters;
+    private final WindowCounter globalCounter;
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    
+    public SlidingWindowCounterRateLimiter(long maxRequests, long timeWindow, TimeUnit timeUnit) {
+        this.config = new RateLimitConfig(maxRequests, timeWindow, timeUnit, "SlidingWindowCounter");
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(config.getTimeWindowMillis());
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Time window must be at least one millisecond");
+        }
+        this.epoch = System.nanoTime();
+        this.counters = new ConcurrentHashMap<>();
+        this.globalCounter = new WindowCounter();
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+    }
+    
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+    
+    @Override
+    public boolean tryAcquire(int permits) {
+        return record(globalCounter.tryAcquire(now(), permits, windowNanos, config.getMaxRequests()));
+    }
+    
+    @Override
+    public boolean tryAcquire(String identifier) {
+        return tryAcquire(identifier, 1);
+    }
+    
+    @Override
+    public boolean tryAcquire(String identifier, int permits) {
+        WindowCounter counter = counters.get(identifier);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(identifier, k -> new WindowCounter());
+        }
+        return record(counter.tryAcquire(now(), permits, windowNanos, config.getMaxRequests()));
+    }
+    
+    @Override
+    public long getAvailablePermits() {
+        return globalCounter.available(now(), windowNanos, config.getMaxRequests());
+    }
+    
+    @Override
+    public long getAvailablePermits(String identifier) {
+        WindowCounter counter = counters.get(identifier);
+        return counter != null ? counter.available(now(), windowNanos, config.getMaxRequests())
+                               : config.getMaxRequests();
+    }
+    
+    @Override
+    public RateLimitConfig getConfig() {
+        return config;
+    }
+    
+    @Override
+    public RateLimitStats getStats() {
+        return new RateLimitStats(
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
+            counters.size(),
+            "SlidingWindowCounter"
+        );
+    }
+    
+    @Override
+    public void reset() {
+        globalCounter.reset();
+        totalRequests.reset();
+        allowedRequests.reset();
+        rejectedRequests.reset();
+    }
+    
+    @Override
+    public void reset(String identifier) {
+        counters.remove(identifier);
+    }
+    
+    private boolean record(boolean allowed) {
+        totalRequests.increment();
+        if (allowed) {
+            allowedRequests.increment();
+        } else {
+            rejectedRequests.increment();
+        }
+        return allowed;
+    }
+    
+    private long now() {
+        return System.nanoTime() - epoch;
+    }
+    
+    /**
+     * Counts for the current and the previous fixed window of one identifier.
+     */
+    private static class WindowCounter {
+        private long windowIndex;
+        private long previous;
+        private long current;
+        
+        synchronized boolean tryAcquire(long now, int permits, long windowNanos, long maxRequests) {
+            if (permits < 0) {
+                throw new IllegalArgumentException("Permits cannot be negative");
+            }
+            roll(now, windowNanos);
+            if (estimate(now, windowNanos) + permits > maxRequests) {
+                return false;
+            }
+            current += permits;
+            return true;
+        }
+        
+        synchronized long available(long now, long windowNanos, long maxRequests) {
+            roll(now, windowNanos);
+            return Math.max(0, maxRequests - (long) Math.ceil(estimate(now, windowNanos)));
+        }
+        
+        synchronized void reset() {
+            previous = 0;
+            current = 0;
+        }
+        
+        private void roll(long now, long windowNanos) {
+            long index = now / windowNanos;
+            if (index != windowIndex) {
+                // Counts older than the previous window no longer overlap the rolling window
+                previous = index == windowIndex + 1 ? current : 0;
+                current = 0;
+                windowIndex = index;
+            }
+        }
+        
+        private double estimate(long now, long windowNanos) {
+            double elapsed = (double) (now % windowNanos) / windowNanos;
+            return previous * (1 - elapsed) + current;
+        }
+    }
+}
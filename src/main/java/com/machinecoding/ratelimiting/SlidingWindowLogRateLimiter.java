@@ -0,0 +1,215 @@
+package com.machinecoding.ratelimiting;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding Window Log Rate Limiter implementation.
+ *
+ * Each identifier keeps the timestamps of its admitted requests in a ring buffer of
+ * primitive longs. A request is allowed if fewer than the limit of those timestamps
+ * fall inside the rolling window ending now; timestamps that have left the window
+ * are dropped from the head of the ring as it is consulted.
+ *
+ * Characteristics:
+ * - Exact: never more than the limit in any rolling window
+ * - Memory proportional to the limit: 8 bytes per request in the window
+ * - Rings start small and grow only for identifiers that actually get busy
+ * - Good for contractual "N requests per rolling period" limits
+ */
+public class SlidingWindowLogRateLimiter implements RateLimiter {
+    
+    private static final int MAX_LOG_SIZE = 1 << 24;
+    private static final int INITIAL_LOG_SIZE = 16;
+    
+    private final RateLimitConfig config;
+    private final long windowNanos;
+    private final long epoch;
+    private final ConcurrentHashMap<String, TimestampLog> logs;
+    private final TimestampLog globalLog;
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    
+    public SlidingWindowLogRateLimiter(long maxRequests, long timeWindow, TimeUnit timeUnit) {
+        this.config = new RateLimitConfig(maxRequests, timeWindow, timeUnit, "SlidingWindowLog");
+        if (maxRequests > MAX_LOG_SIZE) {
+            throw new IllegalArgumentException("Sliding window log supports at most " + MAX_LOG_SIZE + " requests per window");
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(config.getTimeWindowMillis());
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Time window must be at least one millisecond");
+        }
+        this.epoch = System.nanoTime();
+        this.logs = new ConcurrentHashMap<>();
+        this.globalLog = new TimestampLog((int) maxRequests);
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+    }
+    
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+    
+    @Override
+    public boolean tryAcquire(int permits) {
+        return record(globalLog.tryAcquire(now(), permits, windowNanos));
+    }
+    
+    @Override
+    public boolean tryAcquire(String identifier) {
+        return tryAcquire(identifier, 1);
+    }
+    
+    @Override
+    public boolean tryAcquire(String identifier, int permits) {
+        TimestampLog log = logs.get(identifier);
+        if (log == null) {
+            log = logs.computeIfAbsent(identifier, k -> new TimestampLog((int) config.getMaxRequests()));
+        }
+        return record(log.tryAcquire(now(), permits, windowNanos));
+    }
+    
+    @Override
+    public long getAvailablePermits() {
+        return globalLog.available(now(), windowNanos);
+    }
+    
+    @Override
+    public long getAvailablePermits(String identifier) {
+        TimestampLog log = logs.get(identifier);
+        return log != null ? log.available(now(), windowNanos) : config.getMaxRequests();
+    }
+    
+    /**
+     * Gets how long until the given identifier can next be admitted a single request.
+     *
+     * @param identifier the identifier to check
+     * @return milliseconds to wait, 0 if a request would be allowed now
+     */
+    public long getRetryAfterMillis(String identifier) {
+        TimestampLog log = logs.get(identifier);
+        long wait = log != null ? log.retryAfter(now(), windowNanos) : 0;
+        // Round up: a sub-millisecond wait must not read as "allowed now"
+        return wait <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(wait + 999_999);
+    }
+    
+    @Override
+    public RateLimitConfig getConfig() {
+        return config;
+    }
+    
+    @Override
+    public RateLimitStats getStats() {
+        return new RateLimitStats(
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
+            logs.size(),
+            "SlidingWindowLog"
+        );
+    }
+    
+    @Override
+    public void reset() {
+        globalLog.reset();
+        totalRequests.reset();
+        allowedRequests.reset();
+        rejectedRequests.reset();
+    }
+    
+    @Override
+    public void reset(String identifier) {
+        logs.remove(identifier);
+    }
+    
+    private boolean record(boolean allowed) {
+        totalRequests.increment();
+        if (allowed) {
+            allowedRequests.increment();
+        } else {
+            rejectedRequests.increment();
+        }
+        return allowed;
+    }
+    
+    private long now() {
+        return System.nanoTime() - epoch;
+    }
+    
+    /**
+     * Ring buffer of admission timestamps for one identifier, oldest at head.
+     */
+    private static class TimestampLog {
+        private final int limit;
+        private long[] timestamps;
+        private int head;
+        private int size;
+        
+        TimestampLog(int limit) {
+            this.limit = limit;
+            this.timestamps = new long[Math.min(limit, INITIAL_LOG_SIZE)];
+        }
+        
+        synchronized boolean tryAcquire(long now, int permits, long windowNanos) {
+            if (permits < 0) {
+                throw new IllegalArgumentException("Permits cannot be negative");
+            }
+            evictOlderThan(now - windowNanos);
+            if (size + permits > limit) {
+                return false;
+            }
+            ensureCapacity(size + permits);
+            for (int i = 0; i < permits; i++) {
+                timestamps[index(size++)] = now;
+            }
+            return true;
+        }
+        
+        synchronized long available(long now, long windowNanos) {
+            evictOlderThan(now - windowNanos);
+            return limit - size;
+        }
+        
+        synchronized long retryAfter(long now, long windowNanos) {
+            evictOlderThan(now - windowNanos);
+            if (size < limit) {
+                return 0;
+            }
+            // The oldest admission has to leave the window first
+            return timestamps[head] + windowNanos - now + 1;
+        }
+        
+        synchronized void reset() {
+            head = 0;
+            size = 0;
+        }
+        
+        private void evictOlderThan(long cutoff) {
+            while (size > 0 && timestamps[head] <= cutoff) {
+                head = index(1);
+                size--;
+            }
+        }
+        
+        private void ensureCapacity(int needed) {
+            if (needed <= timestamps.length) {
+                return;
+            }
+            long[] grown = new long[(int) Math.min(limit, Math.max(needed, timestamps.length * 2L))];
+            for (int i = 0; i < size; i++) {
+                grown[i] = timestamps[index(i)];
+            }
+            timestamps = grown;
+            head = 0;
+        }
+        
+        private int index(int offset) {
+            int i = head + offset;
+            return i >= timestamps.length ? i - timestamps.length : i;
+        }
+    }
+}
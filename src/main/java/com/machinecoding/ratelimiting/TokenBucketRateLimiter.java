@@ -1,9 +1,14 @@
 package com.machinecoding.ratelimiting;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Token Bucket Rate Limiter implementation.
@@ -16,23 +21,66 @@ import java.util.concurrent.locks.ReentrantLock;
  * - Smooth rate limiting over time
  * - Memory efficient
  * - Good for APIs that need to handle occasional spikes
+ * - Lock-free: each bucket is a single AtomicLong updated with compare-and-set
+ * - Idle buckets are evicted: once a bucket has refilled to full it is indistinguishable
+ *   from a new one, so a background sweep drops it without changing any decision
+ * - Blocking and asynchronous acquisition of the global bucket, served in FIFO order
+ *
+ * Waiting callers reserve their tokens up front: the bucket goes into debt and each
+ * reservation is due when the tokens it took have refilled. Reservations are made in
+ * arrival order and each is due after the previous one, so the bucket's timeline is
+ * the FIFO queue. A blocked thread parks until exactly its due time and an async
+ * caller's future is completed by a timer at that time; nothing polls. Callers of
+ * tryAcquire are not allowed to jump the queue while the bucket is in debt.
  */
 public class TokenBucketRateLimiter implements RateLimiter {
     
     private final RateLimitConfig config;
-    private final ConcurrentHashMap<String, TokenBucket> buckets;
-    private final TokenBucket globalBucket;
-    private final AtomicLong totalRequests;
-    private final AtomicLong allowedRequests;
-    private final AtomicLong rejectedRequests;
+    private final ConcurrentHashMap<String, LockFreeTokenBucket> buckets;
+    private final LockFreeTokenBucket globalBucket;
+    private final LongAdder totalRequests;
+    private final LongAdder allowedRequests;
+    private final LongAdder rejectedRequests;
+    private final LongAdder evictedBuckets;
+    private final ScheduledExecutorService evictionExecutor;
+    private volatile ScheduledExecutorService waitScheduler;
+    private volatile boolean shutdown;
     
     public TokenBucketRateLimiter(long maxRequests, long timeWindow, TimeUnit timeUnit) {
+        // Sweep once per window, but no more often than once a second
+        this(maxRequests, timeWindow, timeUnit, true,
+             Math.max(1000, timeUnit.toMillis(timeWindow)));
+    }
+    
+    public TokenBucketRateLimiter(long maxRequests, long timeWindow, TimeUnit timeUnit,
+                                  boolean enableAutoEviction, long evictionIntervalMillis) {
         this.config = new RateLimitConfig(maxRequests, timeWindow, timeUnit, "TokenBucket");
         this.buckets = new ConcurrentHashMap<>();
-        this.globalBucket = new TokenBucket(maxRequests, calculateRefillRate());
-        this.totalRequests = new AtomicLong(0);
-        this.allowedRequests = new AtomicLong(0);
-        this.rejectedRequests = new AtomicLong(0);
+        this.globalBucket = new LockFreeTokenBucket(maxRequests, calculateNanosPerToken());
+        this.totalRequests = new LongAdder();
+        this.allowedRequests = new LongAdder();
+        this.rejectedRequests = new LongAdder();
+        this.evictedBuckets = new LongAdder();
+        
+        if (enableAutoEviction) {
+            if (evictionIntervalMillis <= 0) {
+                throw new IllegalArgumentException("Eviction interval must be positive");
+            }
+            this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "TokenBucket-Eviction");
+                t.setDaemon(true);
+                return t;
+            });
+            
+            evictionExecutor.scheduleWithFixedDelay(
+                this::evictIdleBuckets,
+                evictionIntervalMillis,
+                evictionIntervalMillis,
+                TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.evictionExecutor = null;
+        }
     }
     
     @Override
@@ -42,15 +90,104 @@ public class TokenBucketRateLimiter implements RateLimiter {
     
     @Override
     public boolean tryAcquire(int permits) {
-        totalRequests.incrementAndGet();
+        totalRequests.increment();
         
         if (globalBucket.tryConsume(permits)) {
-            allowedRequests.incrementAndGet();
+            allowedRequests.increment();
             return true;
         } else {
-            rejectedRequests.incrementAndGet();
+            rejectedRequests.increment();
+            return false;
+        }
+    }
+    
+    /**
+     * Acquires permits from the global bucket, waiting for them to refill if needed.
+     * Returns false at once, without waiting, if they could not be had within the timeout.
+     *
+     * @param permits number of permits to acquire
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return true if the permits were acquired, false if the timeout would be exceeded
+     * @throws InterruptedException if interrupted while waiting; the permits are given
+     *         back if no later caller has queued behind them
+     */
+    public boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        totalRequests.increment();
+        long due = globalBucket.reserve(permits, unit.toNanos(timeout));
+        if (due == LockFreeTokenBucket.NOT_RESERVED) {
+            rejectedRequests.increment();
             return false;
         }
+        
+        try {
+            globalBucket.awaitDue(due);
+        } catch (InterruptedException e) {
+            globalBucket.cancel(permits, due);
+            rejectedRequests.increment();
+            throw e;
+        }
+        allowedRequests.increment();
+        return true;
+    }
+    
+    /**
+     * Acquires permits from the global bucket asynchronously. The future completes
+     * when the permits have refilled, on a timer thread; chain slow work with the
+     * async variants of CompletableFuture. Cancelling the future gives the permits
+     * back if no later caller has queued behind them. The request counts as allowed
+     * once the future completes, and as rejected if it is cancelled first.
+     *
+     * @param permits number of permits to acquire
+     * @return a future completed once the permits are acquired, or failed with
+     *         IllegalArgumentException if permits exceeds the bucket capacity, or with
+     *         IllegalStateException if the limiter has been shut down
+     */
+    public CompletableFuture<Void> acquireAsync(int permits) {
+        totalRequests.increment();
+        if (shutdown) {
+            return rejectAsync(new IllegalStateException("Rate limiter is shut down"));
+        }
+        long due = globalBucket.reserve(permits, Long.MAX_VALUE);
+        if (due == LockFreeTokenBucket.NOT_RESERVED) {
+            return rejectAsync(new IllegalArgumentException("Permits exceed bucket capacity"));
+        }
+        
+        long wait = globalBucket.nanosUntil(due);
+        if (wait <= 0) {
+            allowedRequests.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ScheduledFuture<?> timer;
+        try {
+            timer = waitScheduler().schedule(() -> {
+                // Counted before completing, so callers chained on the future see it
+                allowedRequests.increment();
+                if (!future.complete(null)) {
+                    allowedRequests.decrement(); // Cancelled first
+                }
+            }, wait, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down after the check above: give the permits back
+            globalBucket.cancel(permits, due);
+            return rejectAsync(new IllegalStateException("Rate limiter is shut down"));
+        }
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                timer.cancel(false);
+                globalBucket.cancel(permits, due);
+                rejectedRequests.increment();
+            }
+        });
+        return future;
+    }
+    
+    private CompletableFuture<Void> rejectAsync(RuntimeException error) {
+        rejectedRequests.increment();
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
     }
     
     @Override
@@ -60,17 +197,25 @@ public class TokenBucketRateLimiter implements RateLimiter {
     
     @Override
     public boolean tryAcquire(String identifier, int permits) {
-        totalRequests.incrementAndGet();
+        totalRequests.increment();
         
-        TokenBucket bucket = buckets.computeIfAbsent(identifier, 
-            k -> new TokenBucket(config.getMaxRequests(), calculateRefillRate()));
-        
-        if (bucket.tryConsume(permits)) {
-            allowedRequests.incrementAndGet();
-            return true;
-        } else {
-            rejectedRequests.incrementAndGet();
-            return false;
+        while (true) {
+            LockFreeTokenBucket bucket = buckets.get(identifier);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(identifier,
+                    k -> new LockFreeTokenBucket(config.getMaxRequests(), calculateNanosPerToken()));
+            }
+            
+            if (bucket.tryConsume(permits)) {
+                allowedRequests.increment();
+                return true;
+            }
+            if (!bucket.isRetired()) {
+                rejectedRequests.increment();
+                return false;
+            }
+            // Evicted while full: a fresh bucket is in exactly the same state
+            buckets.remove(identifier, bucket);
         }
     }
     
@@ -81,7 +226,7 @@ public class TokenBucketRateLimiter implements RateLimiter {
     
     @Override
     public long getAvailablePermits(String identifier) {
-        TokenBucket bucket = buckets.get(identifier);
+        LockFreeTokenBucket bucket = buckets.get(identifier);
         return bucket != null ? bucket.getAvailableTokens() : config.getMaxRequests();
     }
     
@@ -93,97 +238,89 @@ public class TokenBucketRateLimiter implements RateLimiter {
     @Override
     public RateLimitStats getStats() {
         return new RateLimitStats(
-            totalRequests.get(),
-            allowedRequests.get(),
-            rejectedRequests.get(),
+            totalRequests.sum(),
+            allowedRequests.sum(),
+            rejectedRequests.sum(),
             buckets.size(),
+            evictedBuckets.sum(),
             "TokenBucket"
         );
     }
     
+    /**
+     * Removes the buckets that have refilled to full. Runs on the background sweep
+     * when auto eviction is enabled; requests are never blocked by it.
+     *
+     * @return number of buckets evicted
+     */
+    public int evictIdleBuckets() {
+        int evicted = 0;
+        for (Map.Entry<String, LockFreeTokenBucket> entry : buckets.entrySet()) {
+            LockFreeTokenBucket bucket = entry.getValue();
+            if (bucket.retireIfFull() && buckets.remove(entry.getKey(), bucket)) {
+                evicted++;
+            }
+        }
+        evictedBuckets.add(evicted);
+        return evicted;
+    }
+    
+    /**
+     * Stops the background eviction sweep and the timer for asynchronous waiters.
+     * Futures already waiting still complete when their permits are due; later
+     * acquireAsync calls fail with IllegalStateException.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdown();
+        }
+        synchronized (this) {
+            if (waitScheduler != null) {
+                waitScheduler.shutdown();
+            }
+        }
+    }
+    
+    private ScheduledExecutorService waitScheduler() {
+        ScheduledExecutorService scheduler = waitScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = waitScheduler;
+                if (scheduler == null && shutdown) {
+                    throw new RejectedExecutionException("Rate limiter is shut down");
+                }
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "TokenBucket-Waiters");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    waitScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+    
     @Override
     public void reset() {
         globalBucket.reset();
-        totalRequests.set(0);
-        allowedRequests.set(0);
-        rejectedRequests.set(0);
+        totalRequests.reset();
+        allowedRequests.reset();
+        rejectedRequests.reset();
     }
     
     @Override
     public void reset(String identifier) {
-        TokenBucket bucket = buckets.get(identifier);
+        LockFreeTokenBucket bucket = buckets.get(identifier);
         if (bucket != null) {
             bucket.reset();
         }
     }
     
-    private double calculateRefillRate() {
-        // Tokens per millisecond
-        return (double) config.getMaxRequests() / config.getTimeWindowMillis();
-    }
-    
-    /**
-     * Internal token bucket implementation.
-     */
-    private static class TokenBucket {
-        private final long capacity;
-        private final double refillRate;
-        private final ReentrantLock lock;
-        private double tokens;
-        private long lastRefillTime;
-        
-        public TokenBucket(long capacity, double refillRate) {
-            this.capacity = capacity;
-            this.refillRate = refillRate;
-            this.lock = new ReentrantLock();
-            this.tokens = capacity;
-            this.lastRefillTime = System.currentTimeMillis();
-        }
-        
-        public boolean tryConsume(int tokensToConsume) {
-            lock.lock();
-            try {
-                refill();
-                
-                if (tokens >= tokensToConsume) {
-                    tokens -= tokensToConsume;
-                    return true;
-                }
-                return false;
-            } finally {
-                lock.unlock();
-            }
-        }
-        
-        public long getAvailableTokens() {
-            lock.lock();
-            try {
-                refill();
-                return (long) tokens;
-            } finally {
-                lock.unlock();
-            }
-        }
-        
-        public void reset() {
-            lock.lock();
-            try {
-                tokens = capacity;
-                lastRefillTime = System.currentTimeMillis();
-            } finally {
-                lock.unlock();
-            }
-        }
-        
-        private void refill() {
-            long now = System.currentTimeMillis();
-            long timePassed = now - lastRefillTime;
-            
-            if (timePassed > 0) {
-                double tokensToAdd = timePassed * refillRate;
-                tokens = Math.min(capacity, tokens + tokensToAdd);
-                lastRefillTime = now;
-            }
-        }
+    private long calculateNanosPerToken() {
+        // Refill interval per token; rates above one token per nanosecond are capped there
+        return Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getTimeWindowMillis()) / config.getMaxRequests());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,1562 @@
+package com.machinecoding.caching;
+
+import com.machinecoding.caching.store.Codec;
+import com.machinecoding.caching.store.CompressedKeyValueStore;
+import com.machinecoding.caching.store.CompressionStats;
+import com.machinecoding.caching.store.DurableKeyValueStore;
+import com.machinecoding.caching.store.InMemoryKeyValueStore;
+import com.machinecoding.caching.store.LoadingKeyValueStore;
+import com.machinecoding.caching.store.LoadingStats;
+import com.machinecoding.caching.store.LocalStoreNode;
+import com.machinecoding.caching.store.NearCacheStats;
+import com.machinecoding.caching.store.NearCachedKeyValueStore;
+import com.machinecoding.caching.store.OffHeapKeyValueStore;
+import com.machinecoding.caching.store.KeyValueStore;
+import com.machinecoding.caching.store.PersistenceConfig;
+import com.machinecoding.caching.store.PersistenceStats;
+import com.machinecoding.caching.store.ScanResult;
+import com.machinecoding.caching.store.ShardedKeyValueStore;
+import com.machinecoding.caching.store.StoreEvent;
+import com.machinecoding.caching.store.StoreStats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Test suite for KeyValueStore implementations.
+ */
+public class KeyValueStoreTest {
+    
+    @Nested
+    @DisplayName("InMemoryKeyValueStore Expiration Tests")
+    class ExpirationTests {
+        
+        private InMemoryKeyValueStore<String, String> store;
+        
+        @BeforeEach
+        void setUp() {
+            store = new InMemoryKeyValueStore<>(false, 0);
+        }
+        
+        @AfterEach
+        void tearDown() {
+            store.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should report TTL states like before")
+        void testGetTTL() {
+            store.put("permanent", "v");
+            store.put("temp", "v", 10, TimeUnit.SECONDS);
+            
+            assertEquals(-2, store.getTTL("permanent"));
+            assertEquals(-1, store.getTTL("missing"));
+            long ttl = store.getTTL("temp");
+            assertTrue(ttl > 9000 && ttl <= 10000, "ttl " + ttl);
+        }
+        
+        @Test
+        @DisplayName("Should clean up only expired keys")
+        void testCleanupExpired() throws InterruptedException {
+            for (int i = 0; i < 500; i++) {
+                store.put("short:" + i, "v", 50, TimeUnit.MILLISECONDS);
+                store.put("long:" + i, "v", 1, TimeUnit.HOURS);
+                store.put("permanent:" + i, "v");
+            }
+            
+            Thread.sleep(100);
+            
+            assertEquals(500, store.cleanupExpired());
+            assertEquals(0, store.cleanupExpired());
+            assertEquals(1000, store.size());
+            assertEquals(500, store.getStats().getExpiredKeys());
+        }
+        
+        @Test
+        @DisplayName("Should not expire keys that were overwritten or removed")
+        void testOverwriteCancelsExpiration() throws InterruptedException {
+            store.put("a", "v1", 50, TimeUnit.MILLISECONDS);
+            store.put("a", "v2");
+            store.put("b", "v1", 50, TimeUnit.MILLISECONDS);
+            store.put("b", "v2", 1, TimeUnit.HOURS);
+            store.put("c", "v1", 50, TimeUnit.MILLISECONDS);
+            store.remove("c");
+            
+            Thread.sleep(100);
+            
+            assertEquals(0, store.cleanupExpired());
+            assertEquals("v2", store.get("a").orElse(null));
+            assertEquals("v2", store.get("b").orElse(null));
+        }
+        
+        @Test
+        @DisplayName("Should reschedule expiration on expire()")
+        void testExpire() throws InterruptedException {
+            store.put("a", "v");
+            store.put("b", "v", 50, TimeUnit.MILLISECONDS);
+            
+            assertTrue(store.expire("a", 50, TimeUnit.MILLISECONDS));
+            assertTrue(store.expire("b", 1, TimeUnit.HOURS));
+            assertFalse(store.expire("missing", 1, TimeUnit.SECONDS));
+            
+            Thread.sleep(100);
+            
+            assertEquals(1, store.cleanupExpired());
+            assertFalse(store.containsKey("a"));
+            assertTrue(store.containsKey("b"));
+        }
+        
+        @Test
+        @DisplayName("Should hide expired keys before cleanup runs")
+        void testLazyExpiry() throws InterruptedException {
+            KeyValueStore<String, String> kv = store;
+            kv.put("a", "v", 30, TimeUnit.MILLISECONDS);
+            assertTrue(kv.get("a").isPresent());
+            
+            Thread.sleep(60);
+            
+            assertFalse(kv.get("a").isPresent());
+            assertFalse(kv.containsKey("a"));
+        }
+    }
+    
+    @Nested
+    @DisplayName("InMemoryKeyValueStore Concurrency Tests")
+    class ConcurrencyTests {
+        
+        @Test
+        @DisplayName("Should reclaim every expired key after racing writers")
+        @Timeout(20)
+        void testNoLostExpirations() throws InterruptedException {
+            InMemoryKeyValueStore<Integer, Integer> store = new InMemoryKeyValueStore<>(false, 0);
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch done = new CountDownLatch(threads);
+            
+            for (int t = 0; t < threads; t++) {
+                final int seed = t;
+                executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        int key = random.nextInt(200);
+                        switch (random.nextInt(5)) {
+                            case 0:
+                                store.put(key, i, 20 + random.nextInt(30), TimeUnit.MILLISECONDS);
+                                break;
+                            case 1:
+                                store.expire(key, 20 + random.nextInt(30), TimeUnit.MILLISECONDS);
+                                break;
+                            case 2:
+                                store.remove(key);
+                                break;
+                            case 3:
+                                store.cleanupExpired();
+                                break;
+                            default:
+                                store.get(key);
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            
+            assertTrue(done.await(15, TimeUnit.SECONDS));
+            executor.shutdown();
+            
+            Thread.sleep(100);
+            store.cleanupExpired();
+            
+            // Every key left in the map had a TTL, so the wheel must have found all of them
+            assertEquals(0, store.getStats().getCurrentSize());
+            StoreStats stats = store.getStats();
+            assertEquals(stats.getTotalGets(), stats.getHits() + stats.getMisses());
+        }
+    }
+    
+    @Nested
+    @DisplayName("DurableKeyValueStore Tests")
+    class DurabilityTests {
+        
+        @TempDir
+        Path directory;
+        
+        private DurableKeyValueStore<String, String> open(PersistenceConfig config) throws IOException {
+            return new DurableKeyValueStore<>(config, Codec.utf8(), Codec.utf8());
+        }
+        
+        private PersistenceConfig.Builder config() {
+            return PersistenceConfig.builder(directory).snapshotEvery(0, TimeUnit.MILLISECONDS);
+        }
+        
+        @Test
+        @DisplayName("Should recover puts, removes and clears after restart")
+        void testRecoverFromLog() throws IOException {
+            DurableKeyValueStore<String, String> store = open(config().build());
+            store.put("a", "1");
+            store.put("b", "2");
+            store.put("a", "3");
+            store.remove("b");
+            store.shutdown();
+            
+            DurableKeyValueStore<String, String> restored = open(config().build());
+            assertEquals("3", restored.get("a").orElse(null));
+            assertFalse(restored.containsKey("b"));
+            assertEquals(4, restored.getPersistenceStats().getRecordsRecovered());
+            assertEquals(0, restored.getStats().getTotalPuts());
+            assertEquals(0, restored.getStats().getTotalRemoves());
+            
+            restored.clear();
+            restored.put("c", "4");
+            restored.shutdown();
+            
+            DurableKeyValueStore<String, String> cleared = open(config().build());
+            assertEquals(1, cleared.size());
+            assertEquals("4", cleared.get("c").orElse(null));
+            cleared.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should keep absolute expiration times across restarts")
+        void testAbsoluteTTL() throws IOException, InterruptedException {
+            DurableKeyValueStore<String, String> store = open(config().build());
+            store.put("short", "v", 50, TimeUnit.MILLISECONDS);
+            store.put("long", "v", 1, TimeUnit.HOURS);
+            store.put("expiring", "v");
+            assertTrue(store.expire("expiring", 50, TimeUnit.MILLISECONDS));
+            long deadline = System.currentTimeMillis() + store.getTTL("long");
+            store.shutdown();
+            
+            Thread.sleep(100);
+            
+            DurableKeyValueStore<String, String> restored = open(config().build());
+            assertFalse(restored.containsKey("short"));
+            assertFalse(restored.containsKey("expiring"));
+            long restoredDeadline = System.currentTimeMillis() + restored.getTTL("long");
+            assertTrue(Math.abs(restoredDeadline - deadline) < 50, "deadline moved");
+            restored.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should recover from a snapshot plus the newer log")
+        void testSnapshotAndLog() throws IOException {
+            DurableKeyValueStore<String, String> store = open(config().build());
+            for (int i = 0; i < 1000; i++) {
+                store.put("key" + i, "v" + i);
+            }
+            store.snapshot();
+            store.remove("key0");
+            store.put("key1", "updated");
+            assertEquals(1, store.getPersistenceStats().getSnapshotsTaken());
+            store.shutdown();
+            
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(2, files.count(), "old generation should be deleted");
+            }
+            
+            DurableKeyValueStore<String, String> restored = open(config().build());
+            assertEquals(999, restored.size());
+            assertEquals("updated", restored.get("key1").orElse(null));
+            assertEquals("v999", restored.get("key999").orElse(null));
+            restored.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should not reuse the live log after a crash between rotation and snapshot")
+        void testCrashBetweenRotateAndSnapshot() throws IOException {
+            DurableKeyValueStore<String, String> store = open(config().build());
+            store.put("a", "1");
+            store.snapshot();
+            store.put("b", "2");
+            store.shutdown();
+            
+            // The log was rotated to generation 2 but snapshot-2 was never published
+            Files.move(directory.resolve("appendonly-1.log"), directory.resolve("appendonly-2.log"));
+            Files.createFile(directory.resolve("appendonly-1.log"));
+            
+            DurableKeyValueStore<String, String> restored = open(config().build());
+            assertEquals("2", restored.get("b").orElse(null));
+            
+            // Rotation must refuse a file that exists rather than truncate it
+            Files.createFile(directory.resolve("appendonly-3.log"));
+            assertThrows(IOException.class, restored::snapshot);
+            Files.delete(directory.resolve("appendonly-3.log"));
+            assertTrue(Files.size(directory.resolve("appendonly-2.log")) > 0);
+            
+            restored.snapshot();
+            restored.put("c", "3");
+            restored.shutdown();
+            
+            DurableKeyValueStore<String, String> again = open(config().build());
+            assertEquals(3, again.size());
+            assertEquals("1", again.get("a").orElse(null));
+            assertEquals("2", again.get("b").orElse(null));
+            assertEquals("3", again.get("c").orElse(null));
+            again.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should drop a torn record at the end of the log")
+        void testTornTail() throws IOException {
+            DurableKeyValueStore<String, String> store = open(config().build());
+            store.put("a", "1");
+            store.put("b", "2");
+            store.shutdown();
+            
+            Path log = directory.resolve("appendonly-0.log");
+            long length = Files.size(log);
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                channel.truncate(length - 3);
+            }
+            
+            DurableKeyValueStore<String, String> restored = open(config().build());
+            assertEquals("1", restored.get("a").orElse(null));
+            assertFalse(restored.containsKey("b"));
+            restored.put("c", "3");
+            restored.shutdown();
+            
+            DurableKeyValueStore<String, String> again = open(config().build());
+            assertEquals(2, again.size());
+            assertEquals("3", again.get("c").orElse(null));
+            again.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should persist under every fsync policy")
+        void testFsyncPolicies() throws IOException {
+            List<PersistenceConfig> configs = Arrays.asList(
+                config().fsyncAlways().build(),
+                config().fsyncEvery(10, TimeUnit.MILLISECONDS).build(),
+                config().fsyncManagedByOs().build()
+            );
+            
+            for (PersistenceConfig config : configs) {
+                DurableKeyValueStore<String, String> store = open(config);
+                store.put("policy", config.getFsyncPolicy().name());
+                store.shutdown();
+                
+                DurableKeyValueStore<String, String> restored = open(config);
+                assertEquals(config.getFsyncPolicy().name(), restored.get("policy").orElse(null));
+                restored.shutdown();
+            }
+        }
+        
+        @Test
+        @DisplayName("Should fsync once per batch when many writers share a commit")
+        @Timeout(20)
+        void testGroupCommit() throws IOException, InterruptedException {
+            DurableKeyValueStore<String, String> store = open(config().fsyncAlways().build());
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        store.put(id + ":" + i, "v");
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(15, TimeUnit.SECONDS));
+            executor.shutdown();
+            
+            PersistenceStats stats = store.getPersistenceStats();
+            assertEquals(800, stats.getRecordsLogged());
+            assertEquals(stats.getBatchesWritten(), stats.getFsyncs());
+            store.shutdown();
+            
+            DurableKeyValueStore<String, String> restored = open(config().build());
+            assertEquals(800, restored.size());
+            restored.shutdown();
+        }
+    }
+    
+    @Nested
+    @DisplayName("OffHeapKeyValueStore Tests")
+    class OffHeapTests {
+        
+        private OffHeapKeyValueStore<String, String> store;
+        
+        @BeforeEach
+        void setUp() {
+            store = new OffHeapKeyValueStore<>(Codec.utf8(), 4 << 20, 64 << 10, false, 0);
+        }
+        
+        @AfterEach
+        void tearDown() {
+            store.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should round-trip values of every size class")
+        void testRoundTrip() {
+            StringBuilder value = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+                value.append((char) ('a' + i % 26));
+                store.put("key" + i, value.toString());
+            }
+            
+            assertEquals(2000, store.size());
+            assertEquals("a", store.get("key0").orElse(null));
+            assertEquals(value.toString(), store.get("key1999").orElse(null));
+        }
+        
+        @Test
+        @DisplayName("Should reuse freed chunks instead of reserving new slabs")
+        void testChunkReuse() {
+            for (int i = 0; i < 1000; i++) {
+                store.put("key" + i, "value-" + i);
+            }
+            long reserved = store.getStats().getOffHeapBytes();
+            long payload = store.getPayloadBytes();
+            
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    store.put("key" + i, "value-" + i);
+                }
+            }
+            for (int i = 0; i < 500; i++) {
+                assertTrue(store.remove("key" + i));
+            }
+            for (int i = 0; i < 500; i++) {
+                store.put("other" + i, "value-" + i);
+            }
+            
+            assertEquals(reserved, store.getStats().getOffHeapBytes());
+            assertEquals(payload, store.getPayloadBytes());
+            
+            store.clear();
+            assertEquals(0, store.getPayloadBytes());
+            assertTrue(store.isEmpty());
+        }
+        
+        @Test
+        @DisplayName("Should report off-heap bytes and fragmentation")
+        void testStats() {
+            StoreStats empty = store.getStats();
+            assertEquals(0, empty.getOffHeapBytes());
+            assertEquals(0.0, empty.getFragmentation());
+            
+            store.put("a", "x");
+            StoreStats stats = store.getStats();
+            assertEquals(64 << 10, stats.getOffHeapBytes());
+            assertEquals(stats.getOffHeapBytes(), stats.getMemoryUsage());
+            assertTrue(stats.getFragmentation() > 99.0, "one byte in a whole slab");
+            assertTrue(stats.toString().contains("offHeap="));
+            
+            String combined = new StoreStats(0, 0, 0, 0, 0, 0, 0, 0, 1024, 0.25, 2).toString();
+            assertTrue(combined.contains("offHeap=1024B, fragmentation=25.0%, listenerFailures=2"), combined);
+        }
+        
+        @Test
+        @DisplayName("Should reject values that do not fit")
+        void testCapacityLimits() {
+            char[] huge = new char[(64 << 10) + 1];
+            Arrays.fill(huge, 'x');
+            assertThrows(IllegalArgumentException.class, () -> store.put("huge", new String(huge)));
+            
+            char[] large = new char[40 << 10];
+            Arrays.fill(large, 'x');
+            for (int i = 0; i < 64; i++) {
+                store.put("large" + i, new String(large));
+            }
+            assertThrows(IllegalStateException.class, () -> store.put("one-more", new String(large)));
+            assertEquals(64, store.size());
+            
+            // Overwriting in place still works when the class has no spare chunk
+            store.remove("large0");
+            store.put("one-more", new String(large));
+            assertTrue(store.containsKey("one-more"));
+        }
+        
+        @Test
+        @DisplayName("Should return emptied slabs for other size classes to use")
+        void testSlabReuseAcrossClasses() {
+            char[] large = new char[40 << 10];
+            Arrays.fill(large, 'x');
+            for (int i = 0; i < 64; i++) {
+                store.put("large" + i, new String(large));
+            }
+            long reserved = store.getStats().getOffHeapBytes();
+            assertThrows(IllegalStateException.class, () -> store.put("small", "value"));
+            
+            store.clear();
+            for (int i = 0; i < 1000; i++) {
+                store.put("small" + i, "value-" + i);
+            }
+            assertEquals("value-999", store.get("small999").orElse(null));
+            assertEquals(reserved, store.getStats().getOffHeapBytes());
+            
+            // A slab whose last chunk is removed is pooled too
+            store.clear();
+            for (int i = 0; i < 64; i++) {
+                store.put("large" + i, new String(large));
+            }
+            assertTrue(store.remove("large0"));
+            store.put("small", "value");
+            assertEquals("value", store.get("small").orElse(null));
+        }
+        
+        @Test
+        @DisplayName("Should expire values and free their chunks")
+        void testExpiration() throws InterruptedException {
+            for (int i = 0; i < 100; i++) {
+                store.put("short" + i, "v", 50, TimeUnit.MILLISECONDS);
+            }
+            store.put("long", "v", 1, TimeUnit.HOURS);
+            store.put("permanent", "v");
+            assertTrue(store.expire("permanent", 50, TimeUnit.MILLISECONDS));
+            assertTrue(store.getTTL("long") > 0);
+            
+            Thread.sleep(100);
+            
+            assertFalse(store.get("short0").isPresent());
+            assertEquals(100, store.cleanupExpired());
+            assertEquals(1, store.size());
+            assertEquals(1, store.getPayloadBytes());
+            assertEquals(101, store.getStats().getExpiredKeys());
+        }
+        
+        @Test
+        @DisplayName("Should never return a value written for another key")
+        @Timeout(20)
+        void testConcurrentReuse() throws InterruptedException {
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch done = new CountDownLatch(threads);
+            AtomicInteger corrupted = new AtomicInteger();
+            
+            for (int t = 0; t < threads; t++) {
+                final int seed = t;
+                executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        String key = "key" + random.nextInt(100);
+                        switch (random.nextInt(3)) {
+                            case 0:
+                                store.put(key, key + ":" + i);
+                                break;
+                            case 1:
+                                store.remove(key);
+                                break;
+                            default:
+                                String value = store.get(key).orElse(key + ":");
+                                if (!value.startsWith(key + ":")) {
+                                    corrupted.incrementAndGet();
+                                }
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            
+            assertTrue(done.await(15, TimeUnit.SECONDS));
+            executor.shutdown();
+            assertEquals(0, corrupted.get());
+        }
+    }
+    
+    @Nested
+    @DisplayName("LoadingKeyValueStore Tests")
+    class LoadingTests {
+        
+        private InMemoryKeyValueStore<String, String> backing;
+        
+        @BeforeEach
+        void setUp() {
+            backing = new InMemoryKeyValueStore<>(false, 0);
+        }
+        
+        @AfterEach
+        void tearDown() {
+            backing.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should load on miss and serve later reads from the store")
+        void testReadThrough() {
+            AtomicInteger calls = new AtomicInteger();
+            LoadingKeyValueStore<String, String> loading = LoadingKeyValueStore.<String, String>builder(
+                backing, key -> key.startsWith("missing") ? null : "v:" + key + ":" + calls.incrementAndGet()).build();
+            
+            assertEquals("v:a:1", loading.get("a").orElse(null));
+            assertEquals("v:a:1", loading.get("a").orElse(null));
+            assertEquals("v:a:1", backing.get("a").orElse(null));
+            assertFalse(loading.get("missing").isPresent());
+            assertFalse(backing.containsKey("missing"));
+            
+            LoadingStats stats = loading.getLoadingStats();
+            assertEquals(1, stats.getHits());
+            assertEquals(2, stats.getMisses());
+            assertEquals(2, stats.getLoads());
+        }
+        
+        @Test
+        @DisplayName("Should coalesce concurrent misses into one load")
+        @Timeout(10)
+        void testSingleFlight() throws InterruptedException {
+            AtomicInteger calls = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            LoadingKeyValueStore<String, String> loading = LoadingKeyValueStore.<String, String>builder(backing, key -> {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "loaded";
+            }).build();
+            
+            int threads = 16;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<Optional<String>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> loading.get("key")));
+            }
+            while (loading.getLoadingStats().getCoalescedWaits() < threads - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            
+            for (Future<Optional<String>> result : results) {
+                assertEquals("loaded", assertDoesNotThrow(() -> result.get()).orElse(null));
+            }
+            executor.shutdown();
+            assertEquals(1, calls.get());
+            assertEquals(threads - 1, loading.getLoadingStats().getCoalescedWaits());
+        }
+        
+        @Test
+        @DisplayName("Should rethrow loader failures to every waiter and not cache them")
+        @Timeout(10)
+        void testLoadFailure() throws InterruptedException {
+            AtomicInteger calls = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            LoadingKeyValueStore<String, String> loading = LoadingKeyValueStore.<String, String>builder(backing, key -> {
+                if (calls.incrementAndGet() == 1) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("database down");
+                }
+                return "recovered";
+            }).build();
+            
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            Future<Optional<String>> first = executor.submit(() -> loading.get("key"));
+            while (calls.get() == 0) {
+                Thread.sleep(5);
+            }
+            Future<Optional<String>> second = executor.submit(() -> loading.get("key"));
+            while (loading.getLoadingStats().getCoalescedWaits() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            
+            for (Future<Optional<String>> result : Arrays.asList(first, second)) {
+                ExecutionException e = assertThrows(ExecutionException.class, result::get);
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            executor.shutdown();
+            
+            assertEquals("recovered", loading.get("key").orElse(null));
+            assertEquals(1, loading.getLoadingStats().getLoadFailures());
+        }
+        
+        @Test
+        @DisplayName("Should refresh hot keys before they expire")
+        @Timeout(10)
+        void testRefreshAhead() throws InterruptedException {
+            AtomicInteger calls = new AtomicInteger();
+            LoadingKeyValueStore<String, String> loading = LoadingKeyValueStore.<String, String>builder(
+                    backing, key -> "v" + calls.incrementAndGet())
+                .expireAfterWrite(200, TimeUnit.MILLISECONDS)
+                .refreshAhead(0.5)
+                .refreshExecutor(Runnable::run)
+                .build();
+            
+            assertEquals("v1", loading.get("hot").orElse(null));
+            Thread.sleep(120);
+            
+            // Past half the TTL: this hit returns the current value and reloads it
+            assertEquals("v1", loading.get("hot").orElse(null));
+            assertEquals("v2", backing.get("hot").orElse(null));
+            assertTrue(backing.getTTL("hot") > 150);
+            
+            LoadingStats stats = loading.getLoadingStats();
+            assertEquals(1, stats.getRefreshes());
+            assertEquals(1, stats.getMisses());
+        }
+        
+        @Test
+        @DisplayName("Should let a put win over a load that is in flight")
+        @Timeout(10)
+        void testPutDuringLoad() throws Exception {
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            LoadingKeyValueStore<String, String> store = LoadingKeyValueStore.<String, String>builder(backing, key -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "stale";
+            }).build();
+            
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<Optional<String>> reader = executor.submit(() -> store.get("key"));
+            loading.await();
+            store.put("key", "fresh");
+            release.countDown();
+            
+            assertEquals("stale", reader.get().orElse(null));
+            assertEquals("fresh", store.get("key").orElse(null));
+            executor.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should let a write win over loads that race its store call")
+        @Timeout(10)
+        void testWriteRacingLoads() throws Exception {
+            CountDownLatch storing = new CountDownLatch(2);
+            CountDownLatch release = new CountDownLatch(1);
+            InMemoryKeyValueStore<String, String> slow = new InMemoryKeyValueStore<String, String>(false, 0) {
+                @Override
+                public void put(String key, String value) {
+                    if (value.startsWith("slow")) {
+                        storing.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    super.put(key, value);
+                }
+            };
+            AtomicInteger loads = new AtomicInteger();
+            LoadingKeyValueStore<String, String> store = LoadingKeyValueStore.<String, String>builder(
+                slow, key -> "slow-loaded-" + loads.incrementAndGet()).build();
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            
+            // A miss during a write waits for it instead of loading over it
+            Future<?> writer = executor.submit(() -> store.put("a", "slow-fresh"));
+            while (storing.getCount() == 2) {
+                Thread.sleep(5);
+            }
+            Future<Optional<String>> reader = executor.submit(() -> store.get("a"));
+            Thread.sleep(50);
+            assertFalse(reader.isDone());
+            
+            // A write after a load has begun storing lands after it
+            Future<Optional<String>> loader = executor.submit(() -> store.get("b"));
+            storing.await();
+            Future<?> overwrite = executor.submit(() -> store.put("b", "fresh"));
+            Thread.sleep(50);
+            assertFalse(overwrite.isDone());
+            
+            release.countDown();
+            writer.get();
+            overwrite.get();
+            assertEquals("slow-fresh", reader.get().orElse(null));
+            assertEquals("slow-loaded-1", loader.get().orElse(null));
+            assertEquals("slow-fresh", store.get("a").orElse(null));
+            assertEquals("fresh", store.get("b").orElse(null));
+            assertEquals(1, loads.get());
+            
+            executor.shutdown();
+            slow.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should not block loads while a write is slow")
+        @Timeout(10)
+        void testSlowWriteDoesNotBlockLoads() throws Exception {
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            InMemoryKeyValueStore<String, String> slow = new InMemoryKeyValueStore<String, String>(false, 0) {
+                @Override
+                public void put(String key, String value) {
+                    if (value.equals("fresh")) {
+                        writing.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    super.put(key, value);
+                }
+            };
+            LoadingKeyValueStore<String, String> store = LoadingKeyValueStore.<String, String>builder(
+                slow, key -> "loaded").build();
+            
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            // "Aa" and "BB" have the same hash code, so they share a bin of the in-flight map
+            Future<?> writer = executor.submit(() -> store.put("Aa", "fresh"));
+            writing.await();
+            
+            assertEquals("loaded", store.get("BB").orElse(null));
+            release.countDown();
+            writer.get();
+            assertEquals("fresh", store.get("Aa").orElse(null));
+            
+            executor.shutdown();
+            slow.shutdown();
+        }
+    }
+    
+    @Nested
+    @DisplayName("ShardedKeyValueStore Tests")
+    class ShardingTests {
+        
+        private List<LocalStoreNode<String, String>> nodes;
+        private ShardedKeyValueStore<String, String> sharded;
+        
+        @BeforeEach
+        void setUp() {
+            nodes = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                nodes.add(newNode("node-" + i));
+            }
+            sharded = new ShardedKeyValueStore<>(nodes);
+        }
+        
+        @AfterEach
+        void tearDown() {
+            sharded.shutdown();
+            for (LocalStoreNode<String, String> node : nodes) {
+                node.shutdown();
+            }
+        }
+        
+        private LocalStoreNode<String, String> newNode(String nodeId) {
+            return new LocalStoreNode<>(nodeId, new InMemoryKeyValueStore<>(false, 0));
+        }
+        
+        @Test
+        @DisplayName("Should spread keys evenly and route each key to its owner")
+        void testDistribution() {
+            for (int i = 0; i < 9000; i++) {
+                sharded.put("key" + i, "value" + i);
+            }
+            
+            for (LocalStoreNode<String, String> node : nodes) {
+                assertTrue(node.size() > 2000 && node.size() < 4000, node + " holds " + node.size());
+            }
+            assertEquals("value42", sharded.get("key42").orElse(null));
+            String owner = sharded.getNodeFor("key42");
+            for (LocalStoreNode<String, String> node : nodes) {
+                assertEquals(node.getNodeId().equals(owner), node.containsKey("key42"));
+            }
+        }
+        
+        @Test
+        @DisplayName("Should move only keys owned by an added node")
+        @Timeout(10)
+        void testAddNode() {
+            Map<String, String> ownersBefore = new HashMap<>();
+            for (int i = 0; i < 5000; i++) {
+                sharded.put("key" + i, "value" + i);
+                ownersBefore.put("key" + i, sharded.getNodeFor("key" + i));
+            }
+            
+            LocalStoreNode<String, String> added = newNode("node-4");
+            nodes.add(added);
+            int moved = sharded.addNode(added).join();
+            
+            assertEquals(added.size(), moved);
+            assertTrue(moved > 500 && moved < 2000, "moved " + moved);
+            assertEquals(5000, sharded.size());
+            for (int i = 0; i < 5000; i++) {
+                String key = "key" + i;
+                String owner = sharded.getNodeFor(key);
+                if (!owner.equals(ownersBefore.get(key))) {
+                    assertEquals("node-4", owner);
+                }
+                assertEquals("value" + i, sharded.get(key).orElse(null));
+            }
+            assertFalse(sharded.isMigrating());
+            assertEquals(1, sharded.getMigrations());
+        }
+        
+        @Test
+        @DisplayName("Should drain a removed node into the remaining nodes")
+        @Timeout(10)
+        void testRemoveNode() {
+            for (int i = 0; i < 3000; i++) {
+                sharded.put("key" + i, "value" + i);
+            }
+            int held = nodes.get(1).size();
+            
+            int moved = sharded.removeNode("node-2").join();
+            
+            assertEquals(held, moved);
+            assertEquals(0, nodes.get(1).size());
+            assertEquals(3000, sharded.size());
+            assertFalse(sharded.getNodeIds().contains("node-2"));
+            assertEquals("value7", sharded.get("key7").orElse(null));
+        }
+        
+        @Test
+        @DisplayName("Should not lose writes made during migration")
+        @Timeout(20)
+        void testWritesDuringMigration() throws Exception {
+            for (int i = 0; i < 20000; i++) {
+                sharded.put("key" + i, "old");
+            }
+            
+            LocalStoreNode<String, String> added = newNode("node-4");
+            nodes.add(added);
+            CompletableFuture<Integer> migration = sharded.addNode(added);
+            for (int i = 0; i < 20000; i += 2) {
+                sharded.put("key" + i, "new");
+            }
+            for (int i = 1; i < 20000; i += 4) {
+                sharded.remove("key" + i);
+            }
+            migration.join();
+            
+            assertEquals(15000, sharded.size());
+            for (int i = 0; i < 20000; i++) {
+                Optional<String> value = sharded.get("key" + i);
+                if (i % 2 == 0) {
+                    assertEquals("new", value.orElse(null));
+                } else if (i % 4 == 1) {
+                    assertFalse(value.isPresent());
+                } else {
+                    assertEquals("old", value.orElse(null));
+                }
+            }
+        }
+        
+        @Test
+        @DisplayName("Should keep TTLs when keys move")
+        @Timeout(10)
+        void testTtlSurvivesMigration() {
+            for (int i = 0; i < 1000; i++) {
+                sharded.put("key" + i, "value", 60, TimeUnit.SECONDS);
+            }
+            
+            LocalStoreNode<String, String> added = newNode("node-4");
+            nodes.add(added);
+            sharded.addNode(added).join();
+            
+            assertFalse(added.isEmpty());
+            for (String key : added.keySet()) {
+                long ttl = added.getTTL(key);
+                assertTrue(ttl > 50_000 && ttl <= 60_000, key + " ttl " + ttl);
+            }
+        }
+        
+        @Test
+        @DisplayName("Should aggregate size, keys and stats across nodes")
+        void testFanOut() {
+            for (int i = 0; i < 300; i++) {
+                sharded.put("key" + i, "value" + i);
+            }
+            sharded.get("key1");
+            sharded.get("missing");
+            
+            assertEquals(300, sharded.size());
+            assertEquals(300, sharded.keySet().size());
+            StoreStats stats = sharded.getStats();
+            assertEquals(300, stats.getTotalPuts());
+            assertEquals(1, stats.getHits());
+            assertEquals(1, stats.getMisses());
+            
+            sharded.clear();
+            assertTrue(sharded.isEmpty());
+        }
+        
+        @Test
+        @DisplayName("Should reject removing the last node or adding a duplicate")
+        void testMembershipValidation() {
+            assertThrows(IllegalArgumentException.class, () -> sharded.addNode(newNode("node-1")));
+            assertThrows(IllegalArgumentException.class, () -> sharded.removeNode("node-9"));
+            
+            sharded.removeNode("node-1").join();
+            sharded.removeNode("node-2").join();
+            assertThrows(IllegalStateException.class, () -> sharded.removeNode("node-3"));
+        }
+    }
+    
+    @Nested
+    @DisplayName("Batch Operation and Scan Tests")
+    class BatchAndScanTests {
+        
+        private InMemoryKeyValueStore<String, String> store;
+        
+        @BeforeEach
+        void setUp() {
+            store = new InMemoryKeyValueStore<>(false, 0);
+        }
+        
+        @AfterEach
+        void tearDown() {
+            store.shutdown();
+        }
+        
+        private Map<String, String> entries(int count) {
+            Map<String, String> entries = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                entries.put("key" + i, "value" + i);
+            }
+            return entries;
+        }
+        
+        @Test
+        @DisplayName("Should return only present keys from getAll and count them once")
+        void testGetAll() {
+            store.putAll(entries(10));
+            
+            Map<String, String> result = store.getAll(Arrays.asList("key1", "key5", "missing", null));
+            
+            assertEquals(2, result.size());
+            assertEquals("value5", result.get("key5"));
+            StoreStats stats = store.getStats();
+            assertEquals(10, stats.getTotalPuts());
+            assertEquals(3, stats.getTotalGets());
+            assertEquals(2, stats.getHits());
+            assertEquals(1, stats.getMisses());
+        }
+        
+        @Test
+        @DisplayName("Should apply one TTL to a putAll batch and expire it")
+        void testPutAllWithTtl() throws InterruptedException {
+            store.put("key0", "old", 1, TimeUnit.HOURS);
+            store.putAll(entries(100), 100, TimeUnit.MILLISECONDS);
+            
+            assertEquals("value0", store.get("key0").orElse(null));
+            assertTrue(store.getTTL("key0") <= 100);
+            assertEquals(100, store.size());
+            
+            Thread.sleep(150);
+            assertTrue(store.getAll(entries(100).keySet()).isEmpty());
+            assertEquals(0, store.size());
+        }
+        
+        @Test
+        @DisplayName("Should reject null keys in putAll before storing anything")
+        void testPutAllNullKey() {
+            Map<String, String> entries = new HashMap<>(entries(3));
+            entries.put(null, "value");
+            
+            assertThrows(IllegalArgumentException.class, () -> store.putAll(entries));
+            assertTrue(store.isEmpty());
+        }
+        
+        @Test
+        @DisplayName("Should remove several keys and report how many existed")
+        void testRemoveAll() {
+            store.putAll(entries(10), 1, TimeUnit.HOURS);
+            
+            assertEquals(2, store.removeAll(Arrays.asList("key1", "key2", "missing", null)));
+            assertEquals(8, store.size());
+            assertFalse(store.containsKey("key1"));
+            assertEquals(3, store.getStats().getTotalRemoves());
+        }
+        
+        @Test
+        @DisplayName("Should page through every key exactly once")
+        void testScanVisitsAllKeys() {
+            store.putAll(entries(2500));
+            
+            Set<String> seen = new HashSet<>();
+            long cursor = 0;
+            int pages = 0;
+            do {
+                ScanResult<String> page = store.scan(cursor, 100, null);
+                assertTrue(page.getKeys().size() <= 100);
+                for (String key : page.getKeys()) {
+                    assertTrue(seen.add(key), "duplicate " + key);
+                }
+                cursor = page.getCursor();
+                pages++;
+            } while (cursor != 0);
+            
+            assertEquals(2500, seen.size());
+            assertEquals(25, pages);
+        }
+        
+        @Test
+        @DisplayName("Should filter scanned keys with a glob pattern")
+        void testScanPattern() {
+            store.putAll(entries(100));
+            store.put("other", "x");
+            
+            List<String> matched = new ArrayList<>();
+            long cursor = 0;
+            do {
+                ScanResult<String> page = store.scan(cursor, 7, "key?");
+                matched.addAll(page.getKeys());
+                cursor = page.getCursor();
+            } while (cursor != 0);
+            
+            assertEquals(10, matched.size());
+            assertTrue(matched.contains("key7"));
+        }
+        
+        @Test
+        @DisplayName("Should keep keys present for the whole scan despite concurrent writes")
+        void testScanWithConcurrentWrites() {
+            store.putAll(entries(1000));
+            
+            Set<String> seen = new HashSet<>();
+            ScanResult<String> page = store.scan(0, 300, null);
+            seen.addAll(page.getKeys());
+            for (int i = 0; i < 500; i++) {
+                store.put("added" + i, "v");
+            }
+            store.remove("key999");
+            long cursor = page.getCursor();
+            while (cursor != 0) {
+                page = store.scan(cursor, 300, null);
+                seen.addAll(page.getKeys());
+                cursor = page.getCursor();
+            }
+            
+            for (int i = 0; i < 999; i++) {
+                assertTrue(seen.contains("key" + i), "missing key" + i);
+            }
+        }
+        
+        @Test
+        @DisplayName("Should reject reused or unknown cursors")
+        void testCursorValidation() {
+            store.putAll(entries(10));
+            
+            ScanResult<String> page = store.scan(0, 3, null);
+            assertFalse(page.isComplete());
+            store.scan(page.getCursor(), 3, null);
+            
+            assertThrows(IllegalArgumentException.class, () -> store.scan(page.getCursor(), 3, null));
+            assertThrows(IllegalArgumentException.class, () -> store.scan(12345, 3, null));
+            assertThrows(IllegalArgumentException.class, () -> store.scan(0, 0, null));
+        }
+        
+        @Test
+        @DisplayName("Should evict the oldest abandoned cursors instead of refusing new scans")
+        void testAbandonedCursors() {
+            store.putAll(entries(10));
+            
+            long first = store.scan(0, 3, null).getCursor();
+            for (int i = 0; i < 1100; i++) {
+                assertFalse(store.scan(0, 3, null).isComplete());
+            }
+            
+            assertThrows(IllegalArgumentException.class, () -> store.scan(first, 3, null));
+            ScanResult<String> page = store.scan(0, 3, null);
+            assertEquals(3, store.scan(page.getCursor(), 3, null).getKeys().size());
+        }
+        
+        @Test
+        @DisplayName("Should support batch operations and scan on every store")
+        void testOtherStores() {
+            OffHeapKeyValueStore<String, String> offHeap =
+                new OffHeapKeyValueStore<>(Codec.utf8(), 4 << 20, 1 << 20, false, 0);
+            List<LocalStoreNode<String, String>> nodes = Arrays.asList(
+                new LocalStoreNode<>("a", new InMemoryKeyValueStore<>(false, 0)),
+                new LocalStoreNode<>("b", new InMemoryKeyValueStore<>(false, 0)));
+            ShardedKeyValueStore<String, String> sharded = new ShardedKeyValueStore<>(nodes);
+            
+            for (KeyValueStore<String, String> kv : Arrays.<KeyValueStore<String, String>>asList(offHeap, sharded)) {
+                kv.putAll(entries(500));
+                assertEquals(3, kv.getAll(Arrays.asList("key1", "key2", "key3", "nope")).size());
+                assertEquals(2, kv.removeAll(Arrays.asList("key1", "key2")));
+                
+                Set<String> seen = new HashSet<>();
+                long cursor = 0;
+                do {
+                    ScanResult<String> page = kv.scan(cursor, 64, "key*");
+                    seen.addAll(page.getKeys());
+                    cursor = page.getCursor();
+                } while (cursor != 0);
+                assertEquals(498, seen.size());
+            }
+            
+            offHeap.shutdown();
+            sharded.shutdown();
+            for (LocalStoreNode<String, String> node : nodes) {
+                node.shutdown();
+            }
+        }
+    }
+    
+    @Nested
+    @DisplayName("Near-Cache and Store Event Tests")
+    class NearCacheTests {
+        
+        private InMemoryKeyValueStore<String, String> backing;
+        
+        @BeforeEach
+        void setUp() {
+            backing = new InMemoryKeyValueStore<>(false, 0);
+        }
+        
+        @AfterEach
+        void tearDown() {
+            backing.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should publish an event for every kind of change")
+        void testStoreEvents() throws InterruptedException {
+            List<String> received = new ArrayList<>();
+            backing.addListener(event -> received.add(event.getType() + ":" + event.getKey()));
+            
+            backing.put("a", "1");
+            backing.put("b", "2", 20, TimeUnit.MILLISECONDS);
+            backing.remove("a");
+            backing.remove("missing");
+            Thread.sleep(50);
+            backing.get("b");
+            backing.clear();
+            
+            assertEquals(Arrays.asList("PUT:a", "PUT:b", "REMOVE:a", "EXPIRE:b", "CLEAR:null"), received);
+        }
+        
+        @Test
+        @DisplayName("Should keep publishing when a listener fails")
+        void testFailingListener() {
+            List<StoreEvent<String>> received = new ArrayList<>();
+            backing.addListener(event -> {
+                throw new IllegalStateException("boom");
+            });
+            backing.addListener(received::add);
+            
+            backing.put("a", "1");
+            
+            assertEquals(1, received.size());
+            assertEquals("1", backing.get("a").orElse(null));
+            assertEquals(1, backing.getStats().getListenerFailures());
+        }
+        
+        @Test
+        @DisplayName("Should serve repeated reads locally")
+        void testLocalHits() {
+            backing.put("a", "1");
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(backing).build();
+            
+            assertEquals("1", near.get("a").orElse(null));
+            assertEquals("1", near.get("a").orElse(null));
+            assertEquals("1", near.get("a").orElse(null));
+            
+            NearCacheStats stats = near.getNearCacheStats();
+            assertEquals(2, stats.getHits());
+            assertEquals(1, stats.getMisses());
+            assertEquals(1, stats.getLocalSize());
+            assertEquals(1, backing.getStats().getTotalGets());
+            near.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should look up the backing TTL only while keys can expire")
+        void testTtlLookups() {
+            AtomicInteger ttlLookups = new AtomicInteger();
+            InMemoryKeyValueStore<String, String> counting = new InMemoryKeyValueStore<String, String>(false, 0) {
+                @Override
+                public long getTTL(String key) {
+                    ttlLookups.incrementAndGet();
+                    return super.getTTL(key);
+                }
+            };
+            counting.put("a", "1");
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(counting).build();
+            
+            assertFalse(counting.hasExpiringKeys());
+            assertEquals("1", near.get("a").orElse(null));
+            assertEquals(0, ttlLookups.get());
+            
+            counting.put("b", "2", 1, TimeUnit.HOURS);
+            assertTrue(counting.hasExpiringKeys());
+            assertEquals("2", near.get("b").orElse(null));
+            assertEquals(1, ttlLookups.get());
+            
+            counting.remove("b");
+            assertFalse(counting.hasExpiringKeys());
+            near.shutdown();
+            counting.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should see writes made by other clients of the store")
+        void testInvalidationByOtherWriters() {
+            backing.put("a", "1");
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(backing).build();
+            near.get("a");
+            
+            backing.put("a", "2");
+            assertEquals("2", near.get("a").orElse(null));
+            
+            backing.remove("a");
+            assertFalse(near.get("a").isPresent());
+            
+            backing.put("b", "1");
+            near.get("b");
+            backing.clear();
+            assertFalse(near.get("b").isPresent());
+            
+            NearCacheStats stats = near.getNearCacheStats();
+            assertEquals(4, stats.getEventsReceived());
+            assertTrue(stats.getInvalidations() >= 2);
+            near.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should not outlive the backing TTL")
+        void testBackingTtl() throws InterruptedException {
+            backing.put("a", "1", 50, TimeUnit.MILLISECONDS);
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(backing).build();
+            assertTrue(near.get("a").isPresent());
+            
+            Thread.sleep(80);
+            
+            assertFalse(near.get("a").isPresent());
+            assertEquals(1, near.getNearCacheStats().getStaleExpirations());
+            near.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should bound staleness when the store sends no events")
+        void testMaxStaleness() throws InterruptedException {
+            InMemoryKeyValueStore<String, String> silent = new InMemoryKeyValueStore<>(false, 0);
+            silent.put("a", "old");
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(new LocalStoreNode<>("n", silent))
+                .maxStaleness(50, TimeUnit.MILLISECONDS)
+                .build();
+            near.get("a");
+            
+            silent.put("a", "new");
+            assertEquals("old", near.get("a").orElse(null));
+            
+            Thread.sleep(80);
+            assertEquals("new", near.get("a").orElse(null));
+            assertEquals(50, near.getNearCacheStats().getStaleReadWindowMillis());
+            
+            near.shutdown();
+            silent.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should require an event source or a max staleness")
+        void testBuilderValidation() {
+            InMemoryKeyValueStore<String, String> silent = new InMemoryKeyValueStore<>(false, 0);
+            
+            assertThrows(IllegalArgumentException.class,
+                () -> NearCachedKeyValueStore.builder(new LocalStoreNode<>("n", silent)).build());
+            assertThrows(IllegalArgumentException.class,
+                () -> NearCachedKeyValueStore.builder(backing).maximumSize(0));
+            silent.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should discard a load that raced with a write")
+        void testLoadRacingWrite() {
+            // Overwrites the key after reading it, as a concurrent writer would mid-load
+            InMemoryKeyValueStore<String, String> racing = new InMemoryKeyValueStore<String, String>(false, 0) {
+                @Override
+                public Optional<String> get(String key) {
+                    Optional<String> value = super.get(key);
+                    if (value.isPresent() && value.get().equals("old")) {
+                        put(key, "new");
+                    }
+                    return value;
+                }
+            };
+            racing.put("a", "old");
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(racing).build();
+            
+            assertEquals("old", near.get("a").orElse(null));
+            assertEquals("new", near.get("a").orElse(null));
+            assertEquals(1, near.getNearCacheStats().getDiscardedLoads());
+            
+            near.shutdown();
+            racing.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should never serve an overwritten value under concurrent writes")
+        @Timeout(30)
+        void testConcurrentCoherence() throws InterruptedException {
+            NearCachedKeyValueStore<String, String> near = NearCachedKeyValueStore.builder(backing)
+                .maximumSize(64)
+                .build();
+            AtomicInteger version = new AtomicInteger();
+            AtomicInteger staleReads = new AtomicInteger();
+            backing.put("k0", "0");
+            
+            Thread writer = new Thread(() -> {
+                for (int i = 1; i <= 20_000; i++) {
+                    backing.put("k" + (i % 8), String.valueOf(i));
+                    version.set(i);
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                int before = version.get();
+                Optional<String> value = near.get("k" + (before % 8));
+                // Write number "before" went to this key and completed before the read started
+                if (value.isPresent() && Integer.parseInt(value.get()) < before) {
+                    staleReads.incrementAndGet();
+                }
+            }
+            writer.join();
+            
+            assertEquals(0, staleReads.get());
+            near.shutdown();
+        }
+    }
+    
+    @Nested
+    @DisplayName("CompressedKeyValueStore Tests")
+    class CompressionTests {
+        
+        private InMemoryKeyValueStore<String, byte[]> backing;
+        private CompressedKeyValueStore<String, String> store;
+        
+        @BeforeEach
+        void setUp() {
+            backing = new InMemoryKeyValueStore<>(false, 0);
+            store = CompressedKeyValueStore.builder(backing, Codec.utf8()).threshold(1024).build();
+        }
+        
+        @AfterEach
+        void tearDown() {
+            store.shutdown();
+            backing.shutdown();
+        }
+        
+        private String json(int records) {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < records; i++) {
+                json.append("{\"id\":").append(i).append(",\"status\":\"ACTIVE\",\"region\":\"eu-west\"},");
+            }
+            return json.append("]").toString();
+        }
+        
+        @Test
+        @DisplayName("Should compress values above the threshold only")
+        void testThreshold() {
+            String large = json(2_000);
+            store.put("small", "tiny value");
+            store.put("large", large);
+            
+            assertEquals("tiny value", store.get("small").orElse(null));
+            assertEquals(large, store.get("large").orElse(null));
+            assertTrue(backing.get("large").get().length < large.length() / 4);
+            
+            CompressionStats stats = store.getCompressionStats();
+            assertEquals(1, stats.getCompressedValues());
+            assertEquals(1, stats.getRawValues());
+            assertEquals(1, stats.getDecompressions());
+            assertTrue(stats.getCompressionRatio() > 4);
+            assertTrue(stats.getCompressCpuNanos() > 0);
+        }
+        
+        @Test
+        @DisplayName("Should store incompressible values as they are")
+        void testIncompressible() {
+            Codec<byte[]> identity = new Codec<byte[]>() {
+                @Override
+                public byte[] encode(byte[] value) {
+                    return value;
+                }
+                
+                @Override
+                public byte[] decode(byte[] bytes) {
+                    return bytes;
+                }
+            };
+            CompressedKeyValueStore<String, byte[]> binary = CompressedKeyValueStore.builder(backing, identity).build();
+            byte[] noise = new byte[8_000];
+            new Random(1).nextBytes(noise);
+            binary.put("noise", noise);
+            
+            assertArrayEquals(noise, binary.get("noise").orElse(null));
+            assertEquals(1, binary.getCompressionStats().getIncompressibleValues());
+            assertEquals(noise.length + 1, backing.get("noise").get().length);
+            binary.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should support batch operations and TTLs")
+        void testBatchAndTtl() throws InterruptedException {
+            Map<String, String> entries = new HashMap<>();
+            for (int i = 0; i < 20; i++) {
+                entries.put("key" + i, json(50 * i));
+            }
+            store.putAll(entries);
+            store.put("short", json(100), 30, TimeUnit.MILLISECONDS);
+            
+            assertEquals(entries, store.getAll(entries.keySet()));
+            Thread.sleep(60);
+            assertFalse(store.get("short").isPresent());
+            assertEquals(1, store.removeAll(Arrays.asList("key1", "nope")));
+        }
+        
+        @Test
+        @DisplayName("Should reject corrupt stored values")
+        void testCorruptValue() {
+            store.put("large", json(500));
+            byte[] stored = backing.get("large").get();
+            backing.put("large", Arrays.copyOf(stored, stored.length / 2));
+            
+            assertThrows(IllegalStateException.class, () -> store.get("large"));
+        }
+        
+        @Test
+        @DisplayName("Should share pooled compressors safely across threads")
+        @Timeout(30)
+        void testConcurrentUse() throws InterruptedException {
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            AtomicInteger mismatches = new AtomicInteger();
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String key = "t" + id + ":" + i;
+                        String value = json(20 + i);
+                        store.put(key, value);
+                        if (!value.equals(store.get(key).orElse(null))) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+            
+            assertEquals(0, mismatches.get());
+            assertEquals(threads * 200, store.size());
+        }
+    }
+}
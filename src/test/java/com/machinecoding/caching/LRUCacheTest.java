@@ -0,0 +1,617 @@
+package com.machinecoding.caching;
+
+import com.machinecoding.caching.benchmark.BenchmarkResult;
+import com.machinecoding.caching.benchmark.Trace;
+import com.machinecoding.caching.benchmark.TraceReplayBenchmark;
+import com.machinecoding.caching.lru.ARCCache;
+import com.machinecoding.caching.lru.BasicLRUCache;
+import com.machinecoding.caching.lru.CacheStats;
+import com.machinecoding.caching.lru.ConcurrentLRUCache;
+import com.machinecoding.caching.lru.LRUCache;
+import com.machinecoding.caching.lru.LongLongLRUCache;
+import com.machinecoding.caching.lru.WTinyLFUCache;
+import com.machinecoding.caching.store.InMemoryKeyValueStore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Test suite for LRUCache implementations.
+ */
+public class LRUCacheTest {
+    
+    @Nested
+    @DisplayName("BasicLRUCache Tests")
+    class BasicLRUCacheTests {
+        
+        @Test
+        @DisplayName("Should evict least recently used entry")
+        void testEviction() {
+            BasicLRUCache<String, Integer> cache = new BasicLRUCache<>(2);
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.get("a");
+            cache.put("c", 3);
+            
+            assertTrue(cache.containsKey("a"));
+            assertFalse(cache.containsKey("b"));
+            assertTrue(cache.containsKey("c"));
+            assertEquals(1, cache.getStats().getEvictions());
+        }
+    }
+    
+    @Nested
+    @DisplayName("ConcurrentLRUCache Tests")
+    class ConcurrentLRUCacheTests {
+        
+        @Test
+        @DisplayName("Should behave as exact LRU with a single segment")
+        void testSingleSegmentOrder() {
+            ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(3, 1);
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.put("c", 3);
+            assertEquals(Integer.valueOf(1), cache.get("a"));
+            cache.put("d", 4);
+            
+            assertNull(cache.get("b"));
+            assertEquals(Integer.valueOf(1), cache.get("a"));
+            assertEquals(3, cache.size());
+        }
+        
+        @Test
+        @DisplayName("Should split capacity across power-of-two segments")
+        void testSegmentLayout() {
+            ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(100, 12);
+            assertEquals(8, cache.getSegmentCount());
+            assertEquals(100, cache.capacity());
+            
+            ConcurrentLRUCache<Integer, Integer> tiny = new ConcurrentLRUCache<>(3, 64);
+            assertEquals(2, tiny.getSegmentCount());
+        }
+        
+        @Test
+        @DisplayName("Should never exceed capacity")
+        void testCapacityBound() {
+            LRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(64, 8);
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, i);
+            }
+            
+            assertTrue(cache.size() <= 64);
+            assertEquals(1000 - cache.size(), cache.getStats().getEvictions());
+        }
+        
+        @Test
+        @DisplayName("Should reject null keys on put")
+        void testNullKey() {
+            LRUCache<String, Integer> cache = new ConcurrentLRUCache<>(4);
+            assertThrows(IllegalArgumentException.class, () -> cache.put(null, 1));
+            assertNull(cache.get(null));
+        }
+        
+        @Test
+        @DisplayName("Should aggregate statistics from all segments")
+        @Timeout(10)
+        void testConcurrentStats() throws InterruptedException {
+            LRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(1000, 16);
+            int threads = 8;
+            int opsPerThread = 10000;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch done = new CountDownLatch(threads);
+            
+            for (int t = 0; t < threads; t++) {
+                final int seed = t;
+                executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < opsPerThread; i++) {
+                        int key = random.nextInt(2000);
+                        if (i % 10 == 0) {
+                            cache.put(key, key);
+                        } else {
+                            Integer value = cache.get(key);
+                            if (value != null) {
+                                assertEquals(key, value.intValue());
+                            }
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            executor.shutdown();
+            
+            CacheStats stats = cache.getStats();
+            assertEquals(threads * opsPerThread, stats.getTotalGets() + stats.getTotalPuts());
+            assertEquals(stats.getTotalGets(), stats.getHits() + stats.getMisses());
+            assertEquals(cache.size(), stats.getCurrentSize());
+            assertTrue(cache.size() <= 1000);
+        }
+        
+        @Test
+        @DisplayName("Should clear all segments")
+        void testClear() {
+            LRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(32, 4);
+            for (int i = 0; i < 20; i++) {
+                cache.put(i, i);
+            }
+            cache.clear();
+            
+            assertTrue(cache.isEmpty());
+            assertNull(cache.get(5));
+        }
+    }
+    
+    @Nested
+    @DisplayName("WTinyLFUCache Tests")
+    class WTinyLFUCacheTests {
+        
+        @Test
+        @DisplayName("Should support basic get/put/remove")
+        void testBasicOperations() {
+            LRUCache<String, Integer> cache = new WTinyLFUCache<>(10);
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.put("a", 3);
+            
+            assertEquals(Integer.valueOf(3), cache.get("a"));
+            assertEquals(Integer.valueOf(2), cache.remove("b"));
+            assertNull(cache.get("b"));
+            assertEquals(1, cache.size());
+        }
+        
+        @Test
+        @DisplayName("Should never exceed capacity")
+        void testCapacityBound() {
+            for (int capacity : new int[]{1, 2, 7, 100}) {
+                LRUCache<Integer, Integer> cache = new WTinyLFUCache<>(capacity);
+                for (int i = 0; i < 1000; i++) {
+                    cache.put(i % 300, i);
+                    cache.get(i % 17);
+                }
+                assertTrue(cache.size() <= capacity, "capacity " + capacity);
+                assertEquals(cache.size(), cache.getStats().getCurrentSize());
+            }
+        }
+        
+        @Test
+        @DisplayName("Should keep frequently used keys through a scan")
+        void testScanResistance() {
+            WTinyLFUCache<Integer, Integer> cache = new WTinyLFUCache<>(100);
+            for (int round = 0; round < 10; round++) {
+                for (int key = 0; key < 50; key++) {
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    }
+                }
+            }
+            
+            for (int key = 1000; key < 11000; key++) {
+                cache.put(key, key);
+            }
+            
+            int retained = 0;
+            for (int key = 0; key < 50; key++) {
+                if (cache.containsKey(key)) {
+                    retained++;
+                }
+            }
+            // Only the single window slot is plain LRU and may lose a hot key
+            assertTrue(retained >= 49, "retained " + retained);
+            assertTrue(cache.getRejectedCandidates() > 0);
+        }
+        
+        @Test
+        @DisplayName("Should age the frequency sketch periodically")
+        void testSketchAging() {
+            WTinyLFUCache<Integer, Integer> cache = new WTinyLFUCache<>(10);
+            for (int i = 0; i < 1000; i++) {
+                cache.get(i);
+            }
+            assertTrue(cache.getSketchResets() > 0);
+        }
+    }
+    
+    @Nested
+    @DisplayName("Weighted Capacity Tests")
+    class WeightedCapacityTests {
+        
+        @Test
+        @DisplayName("Should evict until the total weight fits")
+        void testEvictsByWeight() {
+            BasicLRUCache<String, String> cache = new BasicLRUCache<>(10, (key, value) -> value.length());
+            cache.put("a", "aaaa");
+            cache.put("b", "bbbb");
+            cache.get("a");
+            cache.put("c", "cccc");
+            
+            assertTrue(cache.containsKey("a"));
+            assertFalse(cache.containsKey("b"));
+            assertTrue(cache.containsKey("c"));
+            assertEquals(8, cache.weightedSize());
+            
+            // Growing an existing entry also evicts
+            cache.put("c", "cccccccc");
+            assertFalse(cache.containsKey("a"));
+            assertEquals(8, cache.weightedSize());
+            
+            CacheStats stats = cache.getStats();
+            assertEquals(8, stats.getCurrentWeight());
+            assertEquals(10, stats.getMaxWeight());
+            assertEquals(2, stats.getEvictions());
+            assertEquals(8, stats.getEvictedWeight());
+            assertEquals(80.0, stats.getLoadFactor(), 0.001);
+        }
+        
+        @Test
+        @DisplayName("Should reject an entry heavier than the maximum without evicting others")
+        void testOversizedEntry() {
+            BasicLRUCache<String, String> cache = new BasicLRUCache<>(10, (key, value) -> value.length());
+            cache.put("small", "ss");
+            cache.put("huge", "hhhhhhhhhhhh");
+            
+            assertFalse(cache.containsKey("huge"));
+            assertTrue(cache.containsKey("small"));
+            assertEquals(2, cache.weightedSize());
+            assertEquals(0, cache.getStats().getEvictedWeight());
+            assertEquals(1, cache.getStats().getRejections());
+            
+            // An oversized update drops the stale mapping for that key only
+            cache.put("other", "oo");
+            cache.put("small", "ssssssssssss");
+            assertFalse(cache.containsKey("small"));
+            assertTrue(cache.containsKey("other"));
+            assertEquals(2, cache.weightedSize());
+            
+            ConcurrentLRUCache<String, String> concurrent =
+                new ConcurrentLRUCache<>(10, (key, value) -> value.length(), 1);
+            concurrent.put("small", "ss");
+            concurrent.put("huge", "hhhhhhhhhhhh");
+            assertTrue(concurrent.containsKey("small"));
+            assertFalse(concurrent.containsKey("huge"));
+            assertEquals(1, concurrent.getStats().getRejections());
+        }
+        
+        @Test
+        @DisplayName("Should report weight equal to size for count-bounded caches")
+        void testCountMode() {
+            BasicLRUCache<Integer, Integer> cache = new BasicLRUCache<>(3);
+            for (int i = 0; i < 5; i++) {
+                cache.put(i, i);
+            }
+            cache.remove(4);
+            
+            CacheStats stats = cache.getStats();
+            assertEquals(2, stats.getCurrentWeight());
+            assertEquals(3, stats.getMaxWeight());
+            assertEquals(2, stats.getEvictedWeight());
+            assertFalse(cache.isFull());
+        }
+        
+        @Test
+        @DisplayName("Should bound every segment of a concurrent cache by weight")
+        @Timeout(10)
+        void testConcurrentWeighted() throws InterruptedException {
+            ConcurrentLRUCache<Integer, byte[]> cache =
+                new ConcurrentLRUCache<>(64 * 1024, (key, value) -> value.length, 4);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            CountDownLatch done = new CountDownLatch(4);
+            
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 5000; i++) {
+                        cache.put(random.nextInt(2000), new byte[1 + random.nextInt(2048)]);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            executor.shutdown();
+            
+            CacheStats stats = cache.getStats();
+            assertTrue(stats.getCurrentWeight() <= 64 * 1024);
+            assertEquals(cache.weightedSize(), stats.getCurrentWeight());
+            assertTrue(stats.getEvictedWeight() > 0);
+            
+            cache.clear();
+            assertEquals(0, cache.weightedSize());
+        }
+        
+        @Test
+        @DisplayName("Should reject invalid weights")
+        void testInvalidWeights() {
+            assertThrows(IllegalArgumentException.class, () -> new BasicLRUCache<String, String>(0, (k, v) -> 1));
+            BasicLRUCache<String, String> cache = new BasicLRUCache<>(10, (key, value) -> -1);
+            assertThrows(IllegalArgumentException.class, () -> cache.put("a", "a"));
+        }
+    }
+    
+    @Nested
+    @DisplayName("LongLongLRUCache Tests")
+    class LongLongLRUCacheTests {
+        
+        @Test
+        @DisplayName("Should evict least recently used entry")
+        void testEviction() {
+            LongLongLRUCache cache = new LongLongLRUCache(2);
+            cache.put(1, 10);
+            cache.put(2, 20);
+            assertEquals(10, cache.get(1, -1));
+            cache.put(3, 30);
+            
+            assertTrue(cache.containsKey(1));
+            assertFalse(cache.containsKey(2));
+            assertEquals(-1, cache.get(2, -1));
+            assertEquals("[3=30, 1=10]", cache.toOrderedString());
+            
+            CacheStats stats = cache.getStats();
+            assertEquals(1, stats.getEvictions());
+            assertEquals(1, stats.getHits());
+            assertEquals(1, stats.getMisses());
+        }
+        
+        @Test
+        @DisplayName("Should update, remove and reuse slots")
+        void testUpdateAndRemove() {
+            LongLongLRUCache cache = new LongLongLRUCache(3);
+            cache.put(1, 10);
+            cache.put(1, 11);
+            assertEquals(1, cache.size());
+            assertEquals(11, cache.get(1, -1));
+            
+            assertTrue(cache.remove(1));
+            assertFalse(cache.remove(1));
+            assertTrue(cache.isEmpty());
+            
+            for (long key = 100; key < 103; key++) {
+                cache.put(key, key);
+            }
+            assertTrue(cache.isFull());
+            cache.clear();
+            assertTrue(cache.isEmpty());
+            cache.put(Long.MIN_VALUE, Long.MAX_VALUE);
+            assertEquals(Long.MAX_VALUE, cache.get(Long.MIN_VALUE, 0));
+        }
+        
+        @Test
+        @DisplayName("Should match BasicLRUCache on a random workload")
+        void testMatchesReference() {
+            LongLongLRUCache cache = new LongLongLRUCache(100);
+            BasicLRUCache<Long, Long> reference = new BasicLRUCache<>(100);
+            Random random = new Random(7);
+            
+            for (int i = 0; i < 200_000; i++) {
+                // Multiples of 64 collide in the low bits and exercise long probe runs
+                long key = random.nextInt(300) * 64L;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        cache.put(key, i);
+                        reference.put(key, (long) i);
+                        break;
+                    case 1:
+                        assertEquals(reference.remove(key) != null, cache.remove(key));
+                        break;
+                    default:
+                        Long expected = reference.get(key);
+                        assertEquals(expected == null ? -1 : expected, cache.get(key, -1));
+                }
+                assertEquals(reference.size(), cache.size());
+            }
+            assertEquals(reference.getStats().getEvictions(), cache.getStats().getEvictions());
+        }
+    }
+    
+    @Nested
+    @DisplayName("ARCCache Tests")
+    class ARCCacheTests {
+        
+        @Test
+        @DisplayName("Should behave like a bounded cache for basic operations")
+        void testBasicOperations() {
+            ARCCache<String, Integer> cache = new ARCCache<>(3);
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.put("a", 10);
+            
+            assertEquals(10, cache.get("a"));
+            assertNull(cache.get("missing"));
+            assertEquals(2, cache.remove("b"));
+            assertEquals(1, cache.size());
+            
+            for (int i = 0; i < 10; i++) {
+                cache.put("k" + i, i);
+            }
+            assertEquals(3, cache.size());
+            assertTrue(cache.isFull());
+            
+            cache.clear();
+            assertTrue(cache.isEmpty());
+            assertEquals(0, cache.getRecencyTarget());
+        }
+        
+        @Test
+        @DisplayName("Should keep entries used twice when a scan passes through")
+        void testScanResistance() {
+            ARCCache<Integer, Integer> cache = new ARCCache<>(100);
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < 50; i++) {
+                    cache.put(i, i);
+                }
+            }
+            
+            for (int i = 1000; i < 6000; i++) {
+                cache.put(i, i);
+            }
+            
+            for (int i = 0; i < 50; i++) {
+                assertTrue(cache.containsKey(i), "hot key " + i + " evicted");
+            }
+        }
+        
+        @Test
+        @DisplayName("Should grow the recency target on B1 ghost hits and shrink it on B2 ghost hits")
+        void testAdaptation() {
+            ARCCache<Integer, Integer> cache = new ARCCache<>(10);
+            for (int i = 0; i < 5; i++) {
+                cache.put(i, i);
+                cache.get(i); // T2 = 0..4
+            }
+            for (int i = 10; i < 20; i++) {
+                cache.put(i, i); // T1 = 15..19, B1 = 10..14
+            }
+            assertEquals("T1=5, T2=5, B1=5, B2=0, target T1=0", cache.toRegionString());
+            
+            // Recently evicted from T1: T1 was too small
+            cache.put(10, 10);
+            cache.put(11, 11);
+            cache.put(12, 12);
+            assertEquals(3, cache.getB1GhostHits());
+            assertEquals(3, cache.getRecencyTarget());
+            // T1 shrank to its target, so the last put evicted T2's LRU entry (key 0) to B2
+            assertFalse(cache.containsKey(0));
+            
+            // Recently evicted from T2: T2 was too small
+            cache.put(0, 0);
+            assertEquals(1, cache.getB2GhostHits());
+            assertTrue(cache.getRecencyTarget() < 3);
+            assertTrue(cache.containsKey(0));
+        }
+        
+        @Test
+        @DisplayName("Should respect ARC's directory bounds on random traffic")
+        void testInvariants() {
+            ARCCache<Integer, Integer> cache = new ARCCache<>(64);
+            Random random = new Random(7);
+            for (int i = 0; i < 100_000; i++) {
+                int key = random.nextInt(10) < 7 ? random.nextInt(80) : random.nextInt(2000);
+                if (random.nextInt(20) == 0) {
+                    cache.remove(key);
+                } else if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+                assertTrue(cache.size() <= 64);
+                assertTrue(cache.getRecencyTarget() >= 0 && cache.getRecencyTarget() <= 64);
+            }
+            
+            CacheStats stats = cache.getStats();
+            assertEquals(stats.getTotalGets(), stats.getHits() + stats.getMisses());
+            assertTrue(cache.getB1GhostHits() + cache.getB2GhostHits() > 0);
+            assertTrue(stats.getHitRate() > 50.0);
+        }
+    }
+    
+    @Nested
+    @DisplayName("Trace Replay Benchmark Tests")
+    class TraceReplayTests {
+        
+        @Test
+        @DisplayName("Should round-trip a trace through the binary format")
+        void testTraceFileRoundTrip(@TempDir Path directory) throws IOException {
+            Trace trace = new Trace("mixed", new long[]{5, 3, 3, -7, Long.MAX_VALUE, Long.MIN_VALUE, 0});
+            Path file = directory.resolve("mixed.trace");
+            trace.write(file);
+            
+            Trace restored = Trace.read(file);
+            assertEquals("mixed", restored.getName());
+            assertEquals(trace.length(), restored.length());
+            for (int i = 0; i < trace.length(); i++) {
+                assertEquals(trace.keyAt(i), restored.keyAt(i));
+            }
+            
+            Trace zipf = Trace.zipf(1000, 0.9, 10_000, 1);
+            zipf.write(file);
+            assertTrue(Files.size(file) < 3L * zipf.length());
+            
+            Files.write(file, new byte[]{1, 2, 3, 4, 5});
+            assertThrows(IOException.class, () -> Trace.read(file));
+        }
+        
+        @Test
+        @DisplayName("Should generate skewed, scanning and looping traces")
+        void testGenerators() {
+            Trace zipf = Trace.zipf(1000, 1.0, 50_000, 7);
+            int top = 0;
+            int tail = 0;
+            for (int i = 0; i < zipf.length(); i++) {
+                if (zipf.keyAt(i) == 0) {
+                    top++;
+                } else if (zipf.keyAt(i) == 999) {
+                    tail++;
+                }
+            }
+            assertTrue(top > 100 * Math.max(1, tail), "top=" + top + ", tail=" + tail);
+            
+            Trace scan = Trace.scan(100, 0.5, 10_000, 7);
+            assertTrue(scan.distinctKeys() > 4_000);
+            
+            Trace loop = Trace.loop(10, 35);
+            assertEquals(10, loop.distinctKeys());
+            assertEquals(4, loop.keyAt(34));
+        }
+        
+        @Test
+        @DisplayName("Should report hit rates and sweep capacities and threads")
+        void testSweep() throws InterruptedException {
+            List<BenchmarkResult> results = TraceReplayBenchmark.builder()
+                .trace(Trace.loop(100, 10_000))
+                .cache("lru", BasicLRUCache::new, false)
+                .cache("concurrent", capacity -> new ConcurrentLRUCache<>(capacity, 4), true)
+                .capacities(50, 200)
+                .threads(1, 2)
+                .withoutWarmup()
+                .build()
+                .run();
+            
+            // The non thread-safe cache only runs single-threaded
+            assertEquals(6, results.size());
+            BenchmarkResult small = results.get(0);
+            BenchmarkResult large = results.get(1);
+            assertEquals("lru", small.getPolicy());
+            assertEquals(0.0, small.getHitRate(), 0.001);
+            assertEquals(99.0, large.getHitRate(), 0.001);
+            assertEquals(10_000, large.getOperations());
+            assertTrue(large.getP50Nanos() <= large.getP99Nanos());
+            assertTrue(large.getP99Nanos() <= large.getP999Nanos());
+            assertTrue(large.getThroughput() > 0);
+            assertEquals(2, results.get(5).getThreads());
+        }
+        
+        @Test
+        @DisplayName("Should write one CSV row per result")
+        void testCsv() throws Exception {
+            List<BenchmarkResult> results = TraceReplayBenchmark.builder()
+                .trace(Trace.zipf(100, 0.8, 1000, 3))
+                .cache("lru", BasicLRUCache::new, false)
+                .unboundedStore("store", () -> new InMemoryKeyValueStore<>(false, 0))
+                .capacities(10, 20)
+                .withoutWarmup()
+                .build()
+                .run();
+            
+            StringBuilder csv = new StringBuilder();
+            TraceReplayBenchmark.writeCsv(results, csv);
+            String[] lines = csv.toString().split("\n");
+            assertEquals(4, lines.length);
+            assertEquals(BenchmarkResult.csvHeader(), lines[0]);
+            assertTrue(lines[1].startsWith("\"zipf(n=100,s=0.80)\",\"lru\",10,1,1000,"));
+            assertTrue(lines[2].startsWith("\"zipf(n=100,s=0.80)\",\"lru\",20,1,1000,"));
+            // The unbounded store is run once, not once per capacity
+            assertTrue(lines[3].startsWith("\"zipf(n=100,s=0.80)\",\"store\",n/a,1,1000,"));
+            assertFalse(results.get(2).isBounded());
+        }
+    }
+}
@@ -0,0 +1,1013 @@
+package com.machinecoding.ratelimiting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Timeout;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test suite for RateLimiter implementations.
+ */
+public class RateLimiterTest {
+    
+    @Nested
+    @DisplayName("TokenBucketRateLimiter Tests")
+    class TokenBucketTests {
+        
+        @Test
+        @DisplayName("Should allow a burst up to capacity and then reject")
+        void testBurst() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 1, TimeUnit.HOURS);
+            
+            for (int i = 0; i < 5; i++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            assertFalse(limiter.tryAcquire());
+            assertEquals(0, limiter.getAvailablePermits());
+            
+            RateLimitStats stats = limiter.getStats();
+            assertEquals(6, stats.getTotalRequests());
+            assertEquals(5, stats.getAllowedRequests());
+            assertEquals(1, stats.getRejectedRequests());
+        }
+        
+        @Test
+        @DisplayName("Should refill lazily at the configured rate")
+        void testRefill() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, TimeUnit.SECONDS);
+            assertTrue(limiter.tryAcquire(10));
+            assertFalse(limiter.tryAcquire());
+            
+            Thread.sleep(350);
+            
+            long available = limiter.getAvailablePermits();
+            assertTrue(available >= 3 && available <= 5, "available: " + available);
+            assertTrue(limiter.tryAcquire(3));
+        }
+        
+        @Test
+        @DisplayName("Should never accumulate more than capacity")
+        void testCapacityCap() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 10, TimeUnit.MILLISECONDS);
+            Thread.sleep(50);
+            
+            assertEquals(3, limiter.getAvailablePermits());
+            assertFalse(limiter.tryAcquire(4));
+            assertTrue(limiter.tryAcquire(3));
+        }
+        
+        @Test
+        @DisplayName("Should reject negative permits")
+        void testNegativePermits() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 1, TimeUnit.SECONDS);
+            assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(-1));
+        }
+        
+        @Test
+        @DisplayName("Should keep identifiers independent")
+        void testIdentifiers() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, TimeUnit.HOURS);
+            assertTrue(limiter.tryAcquire("a", 2));
+            assertFalse(limiter.tryAcquire("a"));
+            assertTrue(limiter.tryAcquire("b"));
+            
+            limiter.reset("a");
+            assertEquals(2, limiter.getAvailablePermits("a"));
+            assertEquals(1, limiter.getAvailablePermits("b"));
+            assertEquals(2, limiter.getStats().getActiveIdentifiers());
+        }
+        
+        @Test
+        @DisplayName("Should admit exactly capacity under 64-thread contention")
+        @Timeout(30)
+        void testContention() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1_000, 1, TimeUnit.HOURS);
+            int threads = 64;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger admitted = new AtomicInteger();
+            
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+            
+            // One extra token refills every 3.6 seconds
+            assertTrue(admitted.get() >= 1_000 && admitted.get() <= 1_001, "admitted: " + admitted.get());
+            assertEquals(64_000, limiter.getStats().getTotalRequests());
+        }
+        
+        @Test
+        @DisplayName("Should evict only buckets that have refilled to full")
+        void testEvictIdleBuckets() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 50, TimeUnit.MILLISECONDS, false, 0);
+            for (int i = 0; i < 100; i++) {
+                assertTrue(limiter.tryAcquire("client-" + i));
+            }
+            assertEquals(0, limiter.evictIdleBuckets());
+            
+            Thread.sleep(80);
+            assertTrue(limiter.tryAcquire("busy", 5));
+            assertEquals(100, limiter.evictIdleBuckets());
+            
+            RateLimitStats stats = limiter.getStats();
+            assertEquals(1, stats.getActiveIdentifiers());
+            assertEquals(100, stats.getEvictedIdentifiers());
+            assertEquals(0, limiter.getAvailablePermits("busy"));
+            assertEquals(5, limiter.getAvailablePermits("client-0"));
+        }
+        
+        @Test
+        @DisplayName("Should sweep idle buckets in the background")
+        @Timeout(10)
+        void testBackgroundEviction() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 20, TimeUnit.MILLISECONDS, true, 20);
+            try {
+                for (int i = 0; i < 1_000; i++) {
+                    limiter.tryAcquire("client-" + i);
+                }
+                while (limiter.getStats().getActiveIdentifiers() > 0) {
+                    Thread.sleep(10);
+                }
+                assertEquals(1_000, limiter.getStats().getEvictedIdentifiers());
+            } finally {
+                limiter.shutdown();
+            }
+        }
+        
+        @Test
+        @DisplayName("Should not over-admit when eviction races with requests")
+        @Timeout(30)
+        void testEvictionRace() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 1, TimeUnit.HOURS, false, 0);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            AtomicInteger admitted = new AtomicInteger();
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        limiter.evictIdleBuckets();
+                        if (limiter.tryAcquire("shared")) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+            
+            assertEquals(100, admitted.get());
+        }
+    }
+    
+    @Nested
+    @DisplayName("Sliding Window Rate Limiter Tests")
+    class SlidingWindowTests {
+        
+        @Test
+        @DisplayName("Should never exceed the limit in any rolling window with the log")
+        void testLogIsExact() throws InterruptedException {
+            SlidingWindowLogRateLimiter limiter = new SlidingWindowLogRateLimiter(5, 200, TimeUnit.MILLISECONDS);
+            assertTrue(limiter.tryAcquire(3));
+            Thread.sleep(120);
+            assertTrue(limiter.tryAcquire(2));
+            assertFalse(limiter.tryAcquire());
+            
+            // The first three leave the window 200 ms after they were admitted
+            Thread.sleep(110);
+            assertEquals(3, limiter.getAvailablePermits());
+            assertTrue(limiter.tryAcquire(3));
+            assertFalse(limiter.tryAcquire());
+        }
+        
+        @Test
+        @DisplayName("Should give per-identifier retry hints with the log")
+        void testLogRetryAfter() {
+            SlidingWindowLogRateLimiter limiter = new SlidingWindowLogRateLimiter(100, 1, TimeUnit.MINUTES);
+            for (int i = 0; i < 100; i++) {
+                assertTrue(limiter.tryAcquire("partner"));
+            }
+            assertFalse(limiter.tryAcquire("partner"));
+            
+            long retryAfter = limiter.getRetryAfterMillis("partner");
+            assertTrue(retryAfter > 59_000 && retryAfter <= 60_000, "retryAfter: " + retryAfter);
+            assertEquals(0, limiter.getRetryAfterMillis("other"));
+            assertEquals(100, limiter.getAvailablePermits("other"));
+            
+            limiter.reset("partner");
+            assertTrue(limiter.tryAcquire("partner"));
+            RateLimitStats stats = limiter.getStats();
+            assertEquals(102, stats.getTotalRequests());
+            assertEquals(1, stats.getRejectedRequests());
+            assertEquals(1, stats.getActiveIdentifiers());
+        }
+        
+        @Test
+        @DisplayName("Should weight the previous window with the counter")
+        void testCounterInterpolation() throws InterruptedException {
+            SlidingWindowCounterRateLimiter limiter = new SlidingWindowCounterRateLimiter(100, 200, TimeUnit.MILLISECONDS);
+            assertTrue(limiter.tryAcquire(100));
+            assertFalse(limiter.tryAcquire());
+            
+            // Land in the middle of the next fixed window: about half of the old count still applies
+            Thread.sleep(300);
+            long available = limiter.getAvailablePermits();
+            assertTrue(available > 20 && available < 90, "available: " + available);
+            
+            Thread.sleep(400);
+            assertEquals(100, limiter.getAvailablePermits());
+        }
+        
+        @Test
+        @DisplayName("Should reject a second full burst right after a window boundary")
+        void testCounterBoundaryBurst() throws InterruptedException {
+            // Fixed windows start when the limiter is created
+            SlidingWindowCounterRateLimiter limiter = new SlidingWindowCounterRateLimiter(10, 400, TimeUnit.MILLISECONDS);
+            Thread.sleep(350);
+            int first = 0;
+            for (int i = 0; i < 10; i++) {
+                first += limiter.tryAcquire("key") ? 1 : 0;
+            }
+            Thread.sleep(100);
+            int second = 0;
+            for (int i = 0; i < 10; i++) {
+                second += limiter.tryAcquire("key") ? 1 : 0;
+            }
+            
+            assertEquals(10, first);
+            assertTrue(second <= 5, "second: " + second);
+        }
+        
+        @Test
+        @DisplayName("Should admit exactly the limit under contention")
+        @Timeout(30)
+        void testConcurrentAdmission() throws InterruptedException {
+            RateLimiter[] limiters = {
+                new SlidingWindowLogRateLimiter(500, 1, TimeUnit.HOURS),
+                new SlidingWindowCounterRateLimiter(500, 1, TimeUnit.HOURS)
+            };
+            for (RateLimiter limiter : limiters) {
+                ExecutorService executor = Executors.newFixedThreadPool(16);
+                AtomicInteger admitted = new AtomicInteger();
+                for (int t = 0; t < 16; t++) {
+                    executor.submit(() -> {
+                        for (int i = 0; i < 100; i++) {
+                            if (limiter.tryAcquire("shared")) {
+                                admitted.incrementAndGet();
+                            }
+                        }
+                    });
+                }
+                executor.shutdown();
+                assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+                assertEquals(500, admitted.get(), limiter.getConfig().getAlgorithm());
+            }
+        }
+    }
+    
+    @Nested
+    @DisplayName("GcraRateLimiter Tests")
+    class GcraTests {
+        
+        @Test
+        @DisplayName("Should allow a burst of the limit and hint when to retry")
+        void testBurstAndRetryAfter() {
+            GcraRateLimiter limiter = new GcraRateLimiter(10, 1, TimeUnit.SECONDS);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(0, limiter.tryAcquireOrRetryAfter("ip", 1));
+            }
+            
+            long retryAfter = limiter.tryAcquireOrRetryAfter("ip", 1);
+            assertTrue(retryAfter > 90_000_000L && retryAfter <= 100_000_000L, "retryAfter: " + retryAfter);
+            assertEquals(Long.MAX_VALUE, limiter.tryAcquireOrRetryAfter("ip", 11));
+            assertTrue(limiter.getRetryAfterMillis("ip") > 0);
+            assertEquals(0, limiter.getAvailablePermits("ip"));
+            assertEquals(10, limiter.getAvailablePermits("other"));
+        }
+        
+        @Test
+        @DisplayName("Should admit again once the emission interval has passed")
+        void testRecovery() throws InterruptedException {
+            GcraRateLimiter limiter = new GcraRateLimiter(5, 100, TimeUnit.MILLISECONDS);
+            assertTrue(limiter.tryAcquire(42L, 5));
+            assertFalse(limiter.tryAcquire(42L, 1));
+            
+            Thread.sleep(45);
+            assertTrue(limiter.tryAcquire(42L, 2));
+            assertFalse(limiter.tryAcquire(42L, 1));
+        }
+        
+        @Test
+        @DisplayName("Should limit the global bucket separately")
+        void testGlobal() {
+            GcraRateLimiter limiter = new GcraRateLimiter(3, 1, TimeUnit.HOURS);
+            assertTrue(limiter.tryAcquire(3));
+            assertFalse(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire("user"));
+            
+            limiter.reset();
+            assertEquals(3, limiter.getAvailablePermits());
+            assertEquals(3, limiter.getAvailablePermits("user"));
+        }
+        
+        @Test
+        @DisplayName("Should purge idle keys instead of growing without bound")
+        void testIdleKeysPurged() throws InterruptedException {
+            GcraRateLimiter limiter = new GcraRateLimiter(1, 20, TimeUnit.MILLISECONDS);
+            for (long key = 0; key < 50_000; key++) {
+                limiter.tryAcquire(key, 1);
+            }
+            Thread.sleep(50);
+            for (long key = 50_000; key < 100_000; key++) {
+                limiter.tryAcquire(key, 1);
+            }
+            
+            RateLimitStats stats = limiter.getStats();
+            assertEquals(100_000, stats.getAllowedRequests());
+            assertTrue(stats.getActiveIdentifiers() < 80_000, "keys: " + stats.getActiveIdentifiers());
+        }
+        
+        @Test
+        @DisplayName("Should forget a reset identifier")
+        void testResetIdentifier() {
+            GcraRateLimiter limiter = new GcraRateLimiter(2, 1, TimeUnit.HOURS);
+            assertTrue(limiter.tryAcquire("a", 2));
+            assertFalse(limiter.tryAcquire("a"));
+            
+            limiter.reset("a");
+            assertTrue(limiter.tryAcquire("a", 2));
+            assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire((String) null));
+        }
+        
+        @Test
+        @DisplayName("Should admit exactly the limit under contention")
+        @Timeout(30)
+        void testConcurrentAdmission() throws InterruptedException {
+            GcraRateLimiter limiter = new GcraRateLimiter(500, 1, TimeUnit.HOURS);
+            ExecutorService executor = Executors.newFixedThreadPool(16);
+            AtomicInteger admitted = new AtomicInteger();
+            AtomicInteger globalAdmitted = new AtomicInteger();
+            for (int t = 0; t < 16; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.tryAcquire("shared")) {
+                            admitted.incrementAndGet();
+                        }
+                        if (limiter.tryAcquire()) {
+                            globalAdmitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+            
+            assertEquals(500, admitted.get());
+            assertEquals(500, globalAdmitted.get());
+        }
+    }
+    
+    @Nested
+    @DisplayName("HierarchicalRateLimiter Tests")
+    class HierarchicalTests {
+        
+        private HierarchicalRateLimiter limiter() {
+            return HierarchicalRateLimiter.builder()
+                .tier("user", 3, 1, TimeUnit.HOURS)
+                .tier("tenant", 5, 1, TimeUnit.HOURS)
+                .globalTier("global", 100, 1, TimeUnit.HOURS)
+                .build();
+        }
+        
+        @Test
+        @DisplayName("Should report the tier that rejected the request")
+        void testRejectingTier() {
+            HierarchicalRateLimiter limiter = limiter();
+            for (int i = 0; i < 3; i++) {
+                assertTrue(limiter.tryAcquire("alice", "acme").isAllowed());
+            }
+            assertEquals("user", limiter.tryAcquire("alice", "acme").getRejectedTier());
+            
+            assertTrue(limiter.tryAcquire("bob", "acme").isAllowed());
+            assertTrue(limiter.tryAcquire("bob", "acme").isAllowed());
+            HierarchicalRateLimiter.Result result = limiter.tryAcquire("bob", "acme");
+            assertFalse(result.isAllowed());
+            assertEquals("tenant", result.getRejectedTier());
+            assertNull(limiter.tryAcquire("carol", "other").getRejectedTier());
+        }
+        
+        @Test
+        @DisplayName("Should refund earlier tiers when a later tier rejects")
+        void testAllOrNothing() {
+            HierarchicalRateLimiter limiter = limiter();
+            assertTrue(limiter.tryAcquire(3, "alice", "acme").isAllowed());
+            assertTrue(limiter.tryAcquire(2, "bob", "acme").isAllowed());
+            
+            assertEquals("tenant", limiter.tryAcquire(1, "carol", "acme").getRejectedTier());
+            assertEquals(3, limiter.getAvailablePermits("user", "carol"));
+            assertEquals(95, limiter.getAvailablePermits("global", null));
+            
+            RateLimitStats stats = limiter.getStats();
+            assertEquals(3, stats.getTotalRequests());
+            assertEquals(1, stats.getRejectedRequests());
+            assertEquals(1, limiter.getTierStats().get(1).getRejectedRequests());
+        }
+        
+        @Test
+        @DisplayName("Should validate identifiers and permits")
+        void testValidation() {
+            HierarchicalRateLimiter limiter = limiter();
+            assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("alice"));
+            assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(-1, "alice", "acme"));
+            assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("alice", null));
+            assertThrows(IllegalArgumentException.class, () -> limiter.getAvailablePermits("missing", "alice"));
+            assertEquals("user", limiter.tryAcquire(4, "alice", "acme").getRejectedTier());
+            assertThrows(IllegalArgumentException.class,
+                () -> HierarchicalRateLimiter.builder().tier("a", 1, 1, TimeUnit.SECONDS).tier("a", 1, 1, TimeUnit.SECONDS));
+        }
+        
+        @Test
+        @DisplayName("Should evict buckets that have refilled to full")
+        void testEviction() throws InterruptedException {
+            HierarchicalRateLimiter limiter = HierarchicalRateLimiter.builder()
+                .tier("user", 2, 50, TimeUnit.MILLISECONDS)
+                .tier("tenant", 100, 1, TimeUnit.HOURS)
+                .build();
+            assertTrue(limiter.tryAcquire("alice", "acme").isAllowed());
+            assertTrue(limiter.tryAcquire("bob", "acme").isAllowed());
+            
+            Thread.sleep(80);
+            assertEquals(2, limiter.evictIdleBuckets());
+            assertEquals(1, limiter.getStats().getActiveIdentifiers());
+            assertEquals(2, limiter.getStats().getEvictedIdentifiers());
+            assertTrue(limiter.tryAcquire(2, "alice", "acme").isAllowed());
+        }
+        
+        @Test
+        @DisplayName("Should evict idle buckets on the background sweep")
+        @Timeout(10)
+        void testScheduledEviction() throws InterruptedException {
+            HierarchicalRateLimiter limiter = HierarchicalRateLimiter.builder()
+                .tier("user", 2, 50, TimeUnit.MILLISECONDS)
+                .evictionInterval(20, TimeUnit.MILLISECONDS)
+                .build();
+            try {
+                assertTrue(limiter.tryAcquire("alice").isAllowed());
+                while (limiter.getStats().getEvictedIdentifiers() == 0) {
+                    Thread.sleep(10);
+                }
+                assertEquals(0, limiter.getStats().getActiveIdentifiers());
+                assertEquals(2, limiter.getAvailablePermits("user", "alice"));
+            } finally {
+                limiter.shutdown();
+            }
+        }
+        
+        @Test
+        @DisplayName("Should never over-admit any tier under contention")
+        @Timeout(30)
+        void testConcurrentTiers() throws InterruptedException {
+            HierarchicalRateLimiter limiter = HierarchicalRateLimiter.builder()
+                .tier("user", 50, 1, TimeUnit.HOURS)
+                .globalTier("global", 200, 1, TimeUnit.HOURS)
+                .build();
+            int threads = 16;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            AtomicInteger admitted = new AtomicInteger();
+            for (int t = 0; t < threads; t++) {
+                String user = "user-" + (t % 8);
+                executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.tryAcquire(user).isAllowed()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+            
+            // Refunds can cause spurious rejections under contention, never extra admissions
+            assertTrue(admitted.get() <= 200 && admitted.get() >= 190, "admitted: " + admitted.get());
+            assertEquals(200 - admitted.get(), limiter.getAvailablePermits("global", null));
+        }
+    }
+    
+    @Nested
+    @DisplayName("AdaptiveConcurrencyLimiter Tests")
+    class AdaptiveConcurrencyTests {
+        
+        private static final long MILLIS = 1_000_000L;
+        
+        @Test
+        @DisplayName("Should cap in-flight requests at the limit")
+        void testLimitEnforced() {
+            AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(2).minLimit(2).maxLimit(2).build();
+            AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire().get();
+            assertTrue(limiter.tryAcquire().isPresent());
+            assertFalse(limiter.tryAcquire().isPresent());
+            
+            first.onIgnore();
+            first.onSuccess();
+            assertEquals(1, limiter.getInFlight());
+            assertTrue(limiter.tryAcquire().isPresent());
+            
+            ConcurrencyLimitStats stats = limiter.getStats();
+            assertEquals(4, stats.getTotalRequests());
+            assertEquals(1, stats.getRejectedRequests());
+            assertEquals(2, stats.getLimit());
+        }
+        
+        @Test
+        @DisplayName("Should grow while latency stays at the baseline and the limit is used")
+        void testGrowth() {
+            AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(10).build();
+            for (int i = 0; i < 5; i++) {
+                limiter.onSample(5 * MILLIS, 10);
+            }
+            assertEquals(15, limiter.getLimit());
+            assertEquals(5.0, limiter.getStats().getMinRttMillis(), 0.001);
+            
+            // Samples with no latency must not reset the baseline to zero
+            limiter.onSample(0, 10);
+            limiter.onSample(-MILLIS, 10);
+            assertEquals(15, limiter.getLimit());
+            assertEquals(5.0, limiter.getStats().getMinRttMillis(), 0.001);
+            
+            // An idle limiter has no evidence that more concurrency would be served well
+            for (int i = 0; i < 5; i++) {
+                limiter.onSample(5 * MILLIS, 1);
+            }
+            assertEquals(15, limiter.getLimit());
+        }
+        
+        @Test
+        @DisplayName("Should shrink when latency shows a queue building up")
+        void testShrinkOnQueueing() {
+            AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(50).build();
+            limiter.onSample(5 * MILLIS, 50);
+            int afterBaseline = limiter.getLimit();
+            for (int i = 0; i < 10; i++) {
+                limiter.onSample(20 * MILLIS, 50);
+            }
+            assertTrue(limiter.getLimit() < afterBaseline, "limit: " + limiter.getLimit());
+        }
+        
+        @Test
+        @DisplayName("Should back off multiplicatively on drops, down to the minimum")
+        void testDrops() {
+            AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(100).minLimit(5).backoffRatio(0.5).build();
+            limiter.tryAcquire().get().onDropped();
+            assertEquals(50, limiter.getLimit());
+            for (int i = 0; i < 10; i++) {
+                limiter.tryAcquire().get().onDropped();
+            }
+            assertEquals(5, limiter.getLimit());
+            assertEquals(11, limiter.getStats().getDroppedRequests());
+            assertEquals(0, limiter.getInFlight());
+        }
+        
+        @Test
+        @DisplayName("Should validate the builder")
+        void testBuilderValidation() {
+            assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.builder().minLimit(10).maxLimit(5).build());
+            assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.builder().initialLimit(2000).build());
+            assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.builder().backoffRatio(1.5));
+        }
+        
+        @Test
+        @DisplayName("Should run every phase of a latency spike simulation")
+        @Timeout(30)
+        void testSimulation() throws InterruptedException {
+            LatencySpikeSimulation simulation = LatencySpikeSimulation.builder()
+                .clients(8)
+                .capacity(4)
+                .baseLatencyMillis(2)
+                .timeoutMillis(20)
+                .phase("steady", 200, 1.0)
+                .phase("spike", 200, 5.0)
+                .build();
+            AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(8).build();
+            
+            List<LatencySpikeSimulation.PhaseResult> results = simulation.run(limiter);
+            assertEquals(2, results.size());
+            assertEquals("steady", results.get(0).getPhase());
+            assertEquals("spike", results.get(1).getPhase());
+            assertTrue(results.get(0).getThroughput() > 0);
+            assertEquals(0, limiter.getInFlight());
+        }
+    }
+    
+    @Nested
+    @DisplayName("Blocking and Async Acquisition Tests")
+    class WaitingAcquisitionTests {
+        
+        @Test
+        @DisplayName("Should wait for refill and time out without waiting")
+        @Timeout(10)
+        void testAcquireWithTimeout() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, TimeUnit.SECONDS, false, 0);
+            assertTrue(limiter.acquire(10, 0, TimeUnit.SECONDS));
+            
+            long start = System.nanoTime();
+            assertFalse(limiter.acquire(5, 100, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start < 50_000_000L, "should fail without waiting");
+            
+            start = System.nanoTime();
+            assertTrue(limiter.acquire(2, 1, TimeUnit.SECONDS));
+            long waited = System.nanoTime() - start;
+            assertTrue(waited >= 190_000_000L && waited < 600_000_000L, "waited: " + waited);
+            
+            assertFalse(limiter.acquire(11, 1, TimeUnit.HOURS));
+            assertThrows(IllegalArgumentException.class, () -> limiter.acquire(-1, 1, TimeUnit.SECONDS));
+        }
+        
+        @Test
+        @DisplayName("Should complete async waiters in FIFO order as tokens refill")
+        @Timeout(10)
+        void testAsyncFifo() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 1, TimeUnit.SECONDS, false, 0);
+            assertTrue(limiter.tryAcquire(100));
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                int request = i;
+                futures.add(limiter.acquireAsync(3).thenRun(() -> order.add(request)));
+            }
+            // Queued waiters come first: the bucket is in debt to them
+            assertFalse(limiter.tryAcquire());
+            assertEquals(0, limiter.getAvailablePermits());
+            
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+            assertEquals(6, limiter.getStats().getAllowedRequests());
+            limiter.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should complete at once when tokens are available and reject oversized requests")
+        void testAsyncImmediateAndOversized() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 1, TimeUnit.SECONDS, false, 0);
+            assertTrue(limiter.acquireAsync(5).isDone());
+            
+            CompletableFuture<Void> oversized = limiter.acquireAsync(6);
+            assertTrue(oversized.isCompletedExceptionally());
+            ExecutionException error = assertThrows(ExecutionException.class, oversized::get);
+            assertTrue(error.getCause() instanceof IllegalArgumentException);
+        }
+        
+        @Test
+        @DisplayName("Should give permits back when the last waiter cancels")
+        void testCancelReturnsPermits() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, TimeUnit.HOURS, false, 0);
+            assertTrue(limiter.tryAcquire(10));
+            CompletableFuture<Void> future = limiter.acquireAsync(4);
+            assertFalse(future.isDone());
+            assertEquals(1, limiter.getStats().getAllowedRequests(), "a waiter is not allowed yet");
+            assertTrue(future.cancel(false));
+            assertEquals(1, limiter.getStats().getRejectedRequests());
+            assertTrue(limiter.acquireAsync(0).isDone(), "no debt should remain");
+            assertEquals(2, limiter.getStats().getAllowedRequests());
+            limiter.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should complete pending waiters but refuse new ones after shutdown")
+        @Timeout(10)
+        void testAsyncAfterShutdown() {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, TimeUnit.SECONDS, false, 0);
+            assertTrue(limiter.tryAcquire(10));
+            CompletableFuture<Void> pending = limiter.acquireAsync(1);
+            limiter.shutdown();
+            
+            CompletableFuture<Void> refused = limiter.acquireAsync(1);
+            ExecutionException error = assertThrows(ExecutionException.class, refused::get);
+            assertTrue(error.getCause() instanceof IllegalStateException);
+            pending.join();
+            
+            RateLimitStats stats = limiter.getStats();
+            assertEquals(2, stats.getAllowedRequests());
+            assertEquals(1, stats.getRejectedRequests());
+        }
+        
+        @Test
+        @DisplayName("Should give permits back when a blocked thread is interrupted")
+        @Timeout(10)
+        void testInterruptReturnsPermits() throws InterruptedException {
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, TimeUnit.HOURS, false, 0);
+            assertTrue(limiter.tryAcquire(10));
+            AtomicInteger outcome = new AtomicInteger();
+            Thread waiter = new Thread(() -> {
+                try {
+                    limiter.acquire(1, 1, TimeUnit.HOURS);
+                    outcome.set(1);
+                } catch (InterruptedException e) {
+                    outcome.set(2);
+                }
+            });
+            waiter.start();
+            Thread.sleep(50);
+            waiter.interrupt();
+            waiter.join();
+            
+            assertEquals(2, outcome.get());
+            assertTrue(limiter.acquireAsync(0).isDone(), "no debt should remain");
+        }
+    }
+    
+    @Nested
+    @DisplayName("LeasingRateLimiter Tests")
+    class LeasingTests {
+        
+        private void awaitLease(LeasingRateLimiter limiter) throws InterruptedException {
+            while (limiter.getHeldPermits() == 0) {
+                Thread.sleep(1);
+            }
+        }
+        
+        @Test
+        @DisplayName("Should serve requests from a prefetched lease")
+        @Timeout(10)
+        void testServesFromLease() throws InterruptedException {
+            InMemorySharedTokenBucket central = new InMemorySharedTokenBucket(1_000, 1, TimeUnit.HOURS);
+            LeasingRateLimiter limiter = LeasingRateLimiter.builder(central).minLease(20).build();
+            awaitLease(limiter);
+            
+            assertEquals(20, limiter.getHeldPermits());
+            assertEquals(980, central.getAvailablePermits());
+            for (int i = 0; i < 10; i++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            assertEquals(1, central.getLeaseCalls());
+            assertFalse(limiter.tryAcquire(11)); // Falls short and asks for a refill
+            limiter.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should never admit more than the shared bucket granted")
+        @Timeout(20)
+        void testNoMoreThanGranted() throws InterruptedException {
+            InMemorySharedTokenBucket central = new InMemorySharedTokenBucket(500, 1, TimeUnit.HOURS);
+            LeasingRateLimiter[] nodes = new LeasingRateLimiter[4];
+            for (int n = 0; n < nodes.length; n++) {
+                nodes[n] = LeasingRateLimiter.builder(central).minLease(5).maxLease(50)
+                    .leaseDuration(1, TimeUnit.HOURS).build();
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            AtomicInteger admitted = new AtomicInteger();
+            for (int t = 0; t < 8; t++) {
+                LeasingRateLimiter node = nodes[t % nodes.length];
+                executor.submit(() -> {
+                    long deadline = System.nanoTime() + 500_000_000L;
+                    while (System.nanoTime() < deadline) {
+                        if (node.tryAcquire()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            
+            long held = 0;
+            for (LeasingRateLimiter node : nodes) {
+                held += node.getHeldPermits();
+                node.shutdown();
+            }
+            assertTrue(admitted.get() <= 500, "admitted: " + admitted.get());
+            assertEquals(central.getGrantedPermits(), admitted.get() + held);
+        }
+        
+        @Test
+        @DisplayName("Should discard permits when the lease expires")
+        @Timeout(10)
+        void testLeaseExpiry() throws InterruptedException {
+            InMemorySharedTokenBucket central = new InMemorySharedTokenBucket(100, 1, TimeUnit.HOURS);
+            LeasingRateLimiter limiter = LeasingRateLimiter.builder(central).minLease(10)
+                .leaseDuration(30, TimeUnit.MILLISECONDS).build();
+            awaitLease(limiter);
+            Thread.sleep(60);
+            
+            assertFalse(limiter.tryAcquire());
+            assertEquals(10, limiter.getStats().getExpiredPermits());
+            limiter.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should grow the lease size with the consumption rate")
+        @Timeout(10)
+        void testAdaptiveLeaseSize() throws InterruptedException {
+            InMemorySharedTokenBucket central = new InMemorySharedTokenBucket(10_000_000, 1, TimeUnit.SECONDS);
+            LeasingRateLimiter limiter = LeasingRateLimiter.builder(central).minLease(1).maxLease(100_000)
+                .leaseDuration(50, TimeUnit.MILLISECONDS).build();
+            long deadline = System.nanoTime() + 300_000_000L;
+            while (System.nanoTime() < deadline) {
+                limiter.tryAcquire();
+            }
+            
+            LeasingStats stats = limiter.getStats();
+            assertTrue(stats.getLeaseSize() > 100, "lease size: " + stats.getLeaseSize());
+            assertTrue(stats.getConsumptionRate() > 0);
+            assertTrue(stats.getLeases() < stats.getAllowedRequests() / 10, stats.toString());
+            limiter.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should validate configuration and permits")
+        void testValidation() {
+            InMemorySharedTokenBucket central = new InMemorySharedTokenBucket(10, 1, TimeUnit.SECONDS);
+            assertThrows(IllegalArgumentException.class, () -> LeasingRateLimiter.builder(null));
+            assertThrows(IllegalArgumentException.class,
+                () -> LeasingRateLimiter.builder(central).minLease(10).maxLease(5).build());
+            LeasingRateLimiter limiter = LeasingRateLimiter.builder(central).build();
+            assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(-1));
+            assertThrows(IllegalArgumentException.class, () -> central.lease(-1));
+            limiter.shutdown();
+        }
+    }
+    
+    @Nested
+    @DisplayName("InMemoryDistributedLock Tests")
+    class DistributedLockTests {
+        
+        @Test
+        @DisplayName("Should keep resources exclusive under contention")
+        @Timeout(10)
+        void testMutualExclusion() throws InterruptedException {
+            InMemoryDistributedLock lockSystem = new InMemoryDistributedLock(false, 0);
+            final int resources = 16;
+            AtomicInteger[] occupancy = new AtomicInteger[resources];
+            for (int i = 0; i < resources; i++) {
+                occupancy[i] = new AtomicInteger();
+            }
+            AtomicInteger overlaps = new AtomicInteger();
+            AtomicInteger acquired = new AtomicInteger();
+            
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                final String lockId = "worker-" + t;
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        int r = random.nextInt(resources);
+                        if (lockSystem.tryLock("resource-" + r, lockId, 1, TimeUnit.MINUTES)) {
+                            if (occupancy[r].incrementAndGet() != 1) {
+                                overlaps.incrementAndGet();
+                            }
+                            occupancy[r].decrementAndGet();
+                            acquired.incrementAndGet();
+                            assertTrue(lockSystem.releaseLock("resource-" + r, lockId));
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            
+            LockStats stats = lockSystem.getStats();
+            assertEquals(0, overlaps.get());
+            assertEquals(acquired.get(), stats.getSuccessfulLocks());
+            assertEquals(acquired.get(), stats.getLockReleases());
+            assertEquals(0, stats.getCurrentActiveLocks());
+            lockSystem.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should move an expired lock to its new holder")
+        void testExpiredTakeover() throws InterruptedException {
+            InMemoryDistributedLock lockSystem = new InMemoryDistributedLock(false, 0);
+            assertTrue(lockSystem.tryLock("r1", "A", 20, TimeUnit.MILLISECONDS));
+            assertTrue(lockSystem.tryLock("r2", "A", 1, TimeUnit.MINUTES));
+            Thread.sleep(40);
+            
+            assertTrue(lockSystem.tryLock("r1", "B", 1, TimeUnit.MINUTES));
+            assertEquals("B", lockSystem.getLockHolder("r1"));
+            assertFalse(lockSystem.releaseLock("r1", "A"));
+            
+            // A no longer holds r1, so B waiting on A's r2 is plain contention, not a cycle
+            assertFalse(lockSystem.tryLock("r2", "B", 1, TimeUnit.MINUTES));
+            LockStats stats = lockSystem.getStats();
+            assertEquals(0, stats.getDeadlockDetections());
+            assertEquals(1, stats.getExpiredLocks());
+            lockSystem.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should release, force release and clean up expired locks")
+        void testReleaseAndCleanup() throws InterruptedException {
+            InMemoryDistributedLock lockSystem = new InMemoryDistributedLock(false, 0);
+            assertTrue(lockSystem.tryLock("r1", "A", 1, TimeUnit.MINUTES));
+            assertTrue(lockSystem.tryLock("r2", "A", 20, TimeUnit.MILLISECONDS));
+            assertTrue(lockSystem.tryLock("r3", "B", 1, TimeUnit.MINUTES));
+            
+            assertFalse(lockSystem.releaseLock("r1", "B"));
+            assertTrue(lockSystem.forceRelease("r3"));
+            assertFalse(lockSystem.isLocked("r3"));
+            
+            Thread.sleep(40);
+            assertEquals(1, lockSystem.cleanupExpiredLocks());
+            assertEquals(1, lockSystem.getStats().getCurrentActiveLocks());
+            assertTrue(lockSystem.releaseLock("r1", "A"));
+            assertTrue(lockSystem.tryLock("r3", "B", 1, TimeUnit.MINUTES));
+            lockSystem.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should hand a released lock to waiters in arrival order")
+        @Timeout(10)
+        void testFifoHandOff() throws InterruptedException {
+            InMemoryDistributedLock lockSystem = new InMemoryDistributedLock(false, 0);
+            assertTrue(lockSystem.tryLock("r1", "holder", 1, TimeUnit.MINUTES));
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> waiters = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final String lockId = "waiter-" + i;
+                Thread waiter = new Thread(() -> {
+                    if (lockSystem.tryLock("r1", lockId, 1, TimeUnit.MINUTES, 5, TimeUnit.SECONDS)) {
+                        order.add(lockId);
+                        lockSystem.releaseLock("r1", lockId);
+                    }
+                });
+                waiters.add(waiter);
+                waiter.start();
+                while (lockSystem.getStats().getWaitingThreads() < i + 1) {
+                    Thread.sleep(1);
+                }
+            }
+            
+            // A plain tryLock does not jump the queue
+            assertFalse(lockSystem.tryLock("r1", "newcomer", 1, TimeUnit.MINUTES));
+            assertTrue(lockSystem.releaseLock("r1", "holder"));
+            for (Thread waiter : waiters) {
+                waiter.join();
+            }
+            
+            assertEquals(Arrays.asList("waiter-0", "waiter-1", "waiter-2", "waiter-3"), order);
+            LockStats stats = lockSystem.getStats();
+            assertEquals(4, stats.getMaxQueueDepth());
+            assertEquals(4, stats.getWaitedAcquisitions());
+            assertEquals(0, stats.getWaitingThreads());
+            assertTrue(stats.getP50WaitMillis() <= stats.getMaxWaitMillis());
+            lockSystem.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should wake a waiter when the holder's TTL expires")
+        @Timeout(10)
+        void testWakeOnExpiry() {
+            InMemoryDistributedLock lockSystem = new InMemoryDistributedLock(false, 0);
+            assertTrue(lockSystem.tryLock("r1", "crashed", 100, TimeUnit.MILLISECONDS));
+            
+            long start = System.nanoTime();
+            assertTrue(lockSystem.tryLock("r1", "waiter", 1, TimeUnit.MINUTES, 5, TimeUnit.SECONDS));
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            
+            assertTrue(waitedMillis >= 90 && waitedMillis < 1000, "waited: " + waitedMillis);
+            assertEquals("waiter", lockSystem.getLockHolder("r1"));
+            assertEquals(1, lockSystem.getStats().getExpiredLocks());
+            lockSystem.shutdown();
+        }
+        
+        @Test
+        @DisplayName("Should give up after the timeout and leave the queue")
+        @Timeout(10)
+        void testWaitTimeout() throws InterruptedException {
+            InMemoryDistributedLock lockSystem = new InMemoryDistributedLock(false, 0);
+            assertTrue(lockSystem.tryLock("r1", "holder", 1, TimeUnit.MINUTES));
+            assertFalse(lockSystem.tryLock("r1", "waiter", 1, TimeUnit.MINUTES, 50, TimeUnit.MILLISECONDS));
+            
+            Thread.currentThread().interrupt();
+            assertFalse(lockSystem.tryLock("r1", "waiter", 1, TimeUnit.MINUTES, 5, TimeUnit.SECONDS));
+            assertTrue(Thread.interrupted());
+            
+            LockStats stats = lockSystem.getStats();
+            assertEquals(2, stats.getWaitTimeouts());
+            assertEquals(0, stats.getWaitingThreads());
+            assertTrue(lockSystem.releaseLock("r1", "holder"));
+            assertFalse(lockSystem.isLocked("r1"));
+            lockSystem.shutdown();
+        }
+    }
+}